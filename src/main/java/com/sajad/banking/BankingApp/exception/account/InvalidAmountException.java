@@ -0,0 +1,7 @@
+package com.sajad.banking.BankingApp.exception.account;
+
+/**
+ * The amount has more fraction digits than the account's currency, or is too large to hold.
+ */
+public class InvalidAmountException extends Exception {
+}
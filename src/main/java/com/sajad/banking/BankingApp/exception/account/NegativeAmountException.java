@@ -1,4 +1,7 @@
 package com.sajad.banking.BankingApp.exception.account;
 
+/**
+ * The amount is negative.
+ */
 public class NegativeAmountException extends Exception{
 }
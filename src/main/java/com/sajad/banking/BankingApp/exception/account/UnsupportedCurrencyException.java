@@ -0,0 +1,7 @@
+package com.sajad.banking.BankingApp.exception.account;
+
+/**
+ * There is no exchange rate between the currencies of a cross-currency transfer.
+ */
+public class UnsupportedCurrencyException extends Exception {
+}
@@ -1,17 +1,18 @@
 package com.sajad.banking.BankingApp.model;
 
 import com.sajad.banking.BankingApp.exception.account.BalanceNotEnoughException;
-import jakarta.persistence.Entity;
-import jakarta.persistence.GeneratedValue;
-import jakarta.persistence.Id;
-import jakarta.persistence.Table;
+import com.sajad.banking.BankingApp.model.id.PooledSequence;
+import com.sajad.banking.BankingApp.model.money.Money;
+import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.Formula;
 
-import java.math.BigDecimal;
+import java.util.Currency;
 
 @Entity
-@Table
+@Table(indexes = @Index(name = "ix_account_customer_id", columnList = "customer_id, id"))
 @Getter
 public class Account {
 
@@ -19,28 +20,103 @@ public class Account {
      * Account number!
      */
     @Id
-    @GeneratedValue
+    @PooledSequence(name = "account_seq")
     private Integer id;
 
+    /**
+     * Owner of the account, the indexed foreign key makes ownership checks a single index probe.
+     */
+    @Setter
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "customer_id", nullable = false)
+    private Customer customer;
+
+    /**
+     * Currency of the balance, the shards and the ledger entries of the account; accounts opened before currencies
+     * were introduced are in the default one.
+     */
+    @Column(nullable = false, length = 3)
+    @ColumnDefault("'USD'")
+    private Currency currency;
+
+    /**
+     * Balance in minor units of the currency, see {@linkplain Money}.
+     */
+    @Column(nullable = false)
+    private long balance;
+
+    /**
+     * Sequence number of the latest ledger entry of this account.
+     */
+    @Column(nullable = false)
+    private long ledgerSequence;
+
+    /**
+     * Number of {@linkplain AccountShard}s taking this account's deposits, zero for a regular account.
+     */
     @Setter
-    private BigDecimal balance;
+    @Column(nullable = false)
+    private int shardCount;
+
+    /**
+     * Deposits sitting in the account's shards, not collected into {@code balance} yet.
+     */
+    @Formula("(select coalesce(sum(s.balance), 0) from account_shard s where s.account_id = id)")
+    private long shardBalance;
+
+    /**
+     * Checked by the updates of accounts read without a lock, see
+     * {@linkplain com.sajad.banking.BankingApp.service.retry.LockingPolicy}. Conditional updates bump it as well.
+     */
+    @Version
+    @Column(nullable = false)
+    @ColumnDefault("0")
+    private long version;
+
+    public Money getBalance() {
+        return Money.ofMinor(balance, currency);
+    }
+
+    public void withdraw(Money amount) throws BalanceNotEnoughException {
+        long minorUnits = minorUnitsOf(amount);
 
-    public void withdraw(BigDecimal amount) throws BalanceNotEnoughException {
         // Check over withdraw
-        if (balance.compareTo(amount) < 0)
+        if (balance < minorUnits)
             throw new BalanceNotEnoughException();
 
-        balance = balance.subtract(amount);
+        balance = Math.subtractExact(balance, minorUnits);
     }
 
-    public void deposit(BigDecimal amount) {
-        balance = balance.add(amount);
+    public void deposit(Money amount) {
+        balance = Math.addExact(balance, minorUnitsOf(amount));
+    }
+
+    /**
+     * Balance of the account including its shards, as of loading the account.
+     */
+    public Money getTotalBalance() {
+        return Money.ofMinor(Math.addExact(balance, shardBalance), currency);
+    }
+
+    /**
+     * Allocates the sequence number of the next ledger entry, the caller must hold the account's row lock.
+     */
+    public long nextLedgerSequence() {
+        return ++ledgerSequence;
     }
 
     public Account() {
     }
 
-    public Account(BigDecimal balance) {
-        this.balance = balance;
+    public Account(Money balance) {
+        this.currency = balance.getCurrency();
+        this.balance = balance.getMinorUnits();
+    }
+
+    private long minorUnitsOf(Money amount) {
+        if (!currency.equals(amount.getCurrency()))
+            throw new IllegalArgumentException("Currency mismatch: " + currency + " and " + amount.getCurrency());
+
+        return amount.getMinorUnits();
     }
 }
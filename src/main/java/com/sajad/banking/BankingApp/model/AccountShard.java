@@ -0,0 +1,44 @@
+package com.sajad.banking.BankingApp.model;
+
+import com.sajad.banking.BankingApp.model.id.PooledSequence;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * One of the sub-balances of a sharded account.
+ * <p>
+ * Deposits into a sharded account land on a random shard, so concurrent deposits lock different rows instead of all
+ * queueing on the account row. The shards are collected into {@linkplain Account#getBalance()} whenever the account's
+ * own balance is not enough for a withdrawal, or the account is resharded or deleted, and in the background.
+ */
+@Entity
+@Table(indexes = @Index(name = "ux_account_shard_account_index", columnList = "account_id, shard_index", unique = true))
+@Getter
+public class AccountShard {
+
+    @Id
+    @PooledSequence(name = "account_shard_seq")
+    private Long id;
+
+    @Column(name = "account_id", nullable = false)
+    private Integer accountId;
+
+    @Column(name = "shard_index", nullable = false)
+    private int shardIndex;
+
+    /**
+     * Deposits in minor units of the account's currency.
+     */
+    @Setter
+    @Column(nullable = false)
+    private long balance;
+
+    public AccountShard() {
+    }
+
+    public AccountShard(Integer accountId, int shardIndex) {
+        this.accountId = accountId;
+        this.shardIndex = shardIndex;
+    }
+}
@@ -1,24 +1,30 @@
 package com.sajad.banking.BankingApp.model;
 
+import com.sajad.banking.BankingApp.model.id.PooledSequence;
+import com.sajad.banking.BankingApp.model.money.Money;
 import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.Setter;
 
-import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.List;
 
 import static com.sajad.banking.BankingApp.model.Customer.CustomerType.*;
 
 @Entity
-@Table
+@Table(uniqueConstraints = @UniqueConstraint(name = Customer.PHONE_NUMBER_CONSTRAINT, columnNames = "phone_number"))
 @Getter
 public class Customer {
 
+    /**
+     * Unique index on phone numbers, which is the source of truth for duplicate customers.
+     */
+    public static final String PHONE_NUMBER_CONSTRAINT = "ux_customer_phone_number";
+
     public Customer() {
     }
 
-    public Customer(String name, String phoneNumber, CustomerType type, String lastNameOrFaxNumber, BigDecimal balance) {
+    public Customer(String name, String phoneNumber, CustomerType type, String lastNameOrFaxNumber, Money balance) {
         this.name = name;
         this.phoneNumber = phoneNumber;
         this.type = type;
@@ -31,11 +37,16 @@ public class Customer {
 
         } else throw new IllegalArgumentException();
 
-        this.getAccounts().add(new Account(balance));
+        this.addAccount(new Account(balance));
+    }
+
+    public void addAccount(Account account) {
+        account.setCustomer(this);
+        accounts.add(account);
     }
 
     @Id
-    @GeneratedValue
+    @PooledSequence(name = "customer_seq")
     private Integer id;
 
     @Setter
@@ -48,12 +59,14 @@ public class Customer {
     private String lastName;
 
     @Setter
+    @Column(name = "phone_number", nullable = false)
     private String phoneNumber;
 
     @Setter
     private String faxNumber;
 
-    @OneToMany(cascade = CascadeType.ALL, orphanRemoval = true)
+    @OneToMany(mappedBy = "customer", cascade = CascadeType.ALL, orphanRemoval = true)
+    @OrderBy("id")
     private List<Account> accounts = new ArrayList<>();
 
     public enum CustomerType {
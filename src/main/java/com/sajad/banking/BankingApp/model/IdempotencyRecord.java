@@ -0,0 +1,82 @@
+package com.sajad.banking.BankingApp.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import org.springframework.data.domain.Persistable;
+
+import java.time.Instant;
+
+/**
+ * A request made with an {@code Idempotency-Key}, and its response once it completed successfully.
+ * <p>
+ * The key is the primary key, so out of concurrent requests with the same key exactly one can claim it.
+ */
+@Entity
+@Getter
+public class IdempotencyRecord implements Persistable<String> {
+
+    @Id
+    @Column(name = "idempotency_key")
+    private String key;
+
+    /**
+     * Fingerprint of the request, a key may only be replayed for the very same request.
+     */
+    @Column(nullable = false, length = 64)
+    private String requestHash;
+
+    /**
+     * Status of the stored response, {@code null} while the first request is still in progress.
+     */
+    private Integer responseStatus;
+
+    private String responseContentType;
+
+    @Lob
+    private byte[] responseBody;
+
+    @Column(nullable = false)
+    private Instant createdAt;
+
+    /**
+     * Claims always insert, so a taken key fails on the primary key instead of being merged over.
+     */
+    @Transient
+    private boolean newRecord;
+
+    public IdempotencyRecord() {
+    }
+
+    public IdempotencyRecord(String key, String requestHash) {
+        this.key = key;
+        this.requestHash = requestHash;
+        this.createdAt = Instant.now();
+        this.newRecord = true;
+    }
+
+    public void complete(int responseStatus, String responseContentType, byte[] responseBody) {
+        this.responseStatus = responseStatus;
+        this.responseContentType = responseContentType;
+        this.responseBody = responseBody;
+    }
+
+    public boolean isCompleted() {
+        return responseStatus != null;
+    }
+
+    @Override
+    public String getId() {
+        return key;
+    }
+
+    @Override
+    public boolean isNew() {
+        return newRecord;
+    }
+
+    @PostPersist
+    @PostLoad
+    void markNotNew() {
+        this.newRecord = false;
+    }
+}
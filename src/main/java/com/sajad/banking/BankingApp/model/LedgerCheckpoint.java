@@ -0,0 +1,33 @@
+package com.sajad.banking.BankingApp.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.Getter;
+
+/**
+ * Progress of the memory ledger's sync into the database: every record of its log up to {@code syncedLsn} has been
+ * applied. Updated in the same transaction as the applied records, so each record is applied exactly once.
+ * <p>
+ * Keyed by the id of the log, so a new log never inherits the progress of a lost one.
+ *
+ * @author Sajad
+ */
+@Entity
+@Getter
+public class LedgerCheckpoint {
+
+    @Id
+    @Column(length = 36)
+    private String ledgerId;
+
+    @Column(nullable = false)
+    private long syncedLsn;
+
+    public LedgerCheckpoint() {
+    }
+
+    public LedgerCheckpoint(String ledgerId) {
+        this.ledgerId = ledgerId;
+    }
+}
@@ -0,0 +1,117 @@
+package com.sajad.banking.BankingApp.model;
+
+import com.sajad.banking.BankingApp.model.id.PooledSequence;
+import com.sajad.banking.BankingApp.model.money.Money;
+import jakarta.persistence.*;
+import lombok.Getter;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.Immutable;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Currency;
+
+/**
+ * A single money movement on an account.
+ * <p>
+ * Entries are append-only, numbered by a per-account sequence and carry the balance of the account right after the
+ * movement, so statements are read with an index range scan instead of being recomputed.
+ */
+@Entity
+@Immutable
+@Table(indexes = @Index(name = "ux_ledger_entry_account_sequence", columnList = "account_id, sequence_number", unique = true))
+@Getter
+public class LedgerEntry {
+
+    @Id
+    @PooledSequence(name = "ledger_entry_seq")
+    private Long id;
+
+    @Column(name = "account_id", nullable = false)
+    private Integer accountId;
+
+    @Column(name = "sequence_number", nullable = false)
+    private Long sequenceNumber;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private EntryType type;
+
+    /**
+     * Currency of the account.
+     */
+    @Column(nullable = false, length = 3)
+    @ColumnDefault("'USD'")
+    private Currency currency;
+
+    /**
+     * Signed amount in minor units, negative for money leaving the account.
+     */
+    @Column(nullable = false)
+    private long amount;
+
+    /**
+     * Running balance of the account after this entry, in minor units.
+     */
+    @Column(nullable = false)
+    private long balance;
+
+    /**
+     * The other side of a transfer, if any.
+     */
+    private Integer counterpartyAccountId;
+
+    /**
+     * Exchange rate applied to a transfer between accounts of different currencies, in units of the receiving
+     * account's currency per unit of the sending one's.
+     */
+    @Column(precision = 24, scale = 10)
+    private BigDecimal fxRate;
+
+    @Column(nullable = false)
+    private Instant createdAt;
+
+    public LedgerEntry() {
+    }
+
+    public LedgerEntry(Integer accountId, long sequenceNumber, EntryType type, Money amount, Money balance,
+                       Integer counterpartyAccountId) {
+        this(accountId, sequenceNumber, type, amount, balance, counterpartyAccountId, null);
+    }
+
+    public LedgerEntry(Integer accountId, long sequenceNumber, EntryType type, Money amount, Money balance,
+                       Integer counterpartyAccountId, BigDecimal fxRate) {
+        this(accountId, sequenceNumber, type, amount, balance, counterpartyAccountId, fxRate, Instant.now());
+    }
+
+    /**
+     * Entry of a movement that happened earlier, such as one replayed from the memory ledger's log.
+     */
+    public LedgerEntry(Integer accountId, long sequenceNumber, EntryType type, Money amount, Money balance,
+                       Integer counterpartyAccountId, BigDecimal fxRate, Instant createdAt) {
+        if (!amount.getCurrency().equals(balance.getCurrency()))
+            throw new IllegalArgumentException("Currency mismatch: " + amount.getCurrency() + " and " + balance.getCurrency());
+
+        this.accountId = accountId;
+        this.sequenceNumber = sequenceNumber;
+        this.type = type;
+        this.currency = balance.getCurrency();
+        this.amount = amount.getMinorUnits();
+        this.balance = balance.getMinorUnits();
+        this.counterpartyAccountId = counterpartyAccountId;
+        this.fxRate = fxRate;
+        this.createdAt = createdAt;
+    }
+
+    public Money getAmount() {
+        return Money.ofMinor(amount, currency);
+    }
+
+    public Money getBalance() {
+        return Money.ofMinor(balance, currency);
+    }
+
+    public enum EntryType {
+        OPENING, DEPOSIT, WITHDRAW, TRANSFER_IN, TRANSFER_OUT
+    }
+}
@@ -0,0 +1,41 @@
+package com.sajad.banking.BankingApp.model;
+
+import com.sajad.banking.BankingApp.model.id.PooledSequence;
+import jakarta.persistence.*;
+import lombok.Getter;
+import org.hibernate.annotations.Immutable;
+
+/**
+ * A ledger entry waiting to be published to the downstream consumers.
+ * <p>
+ * Written in the same transaction as the entry, so a committed balance change is never lost for the consumers and a
+ * rolled back one is never published. The row only points at the entry, keeping the extra write on the money
+ * movement paths small; it is deleted once the entry has been published.
+ */
+@Entity
+@Immutable
+@Getter
+public class OutboxEvent {
+
+    /**
+     * Publication order. Ids are allocated while the account's row lock is held, so the events of an account are
+     * numbered in their commit order.
+     */
+    @Id
+    @PooledSequence(name = "outbox_event_seq")
+    private Long id;
+
+    @Column(name = "account_id", nullable = false)
+    private Integer accountId;
+
+    @Column(name = "ledger_entry_id", nullable = false)
+    private Long ledgerEntryId;
+
+    public OutboxEvent() {
+    }
+
+    public OutboxEvent(LedgerEntry entry) {
+        this.accountId = entry.getAccountId();
+        this.ledgerEntryId = entry.getId();
+    }
+}
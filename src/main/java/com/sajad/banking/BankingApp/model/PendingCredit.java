@@ -0,0 +1,85 @@
+package com.sajad.banking.BankingApp.model;
+
+import com.sajad.banking.BankingApp.model.id.PooledSequence;
+import com.sajad.banking.BankingApp.model.money.Money;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.Getter;
+import org.hibernate.annotations.Immutable;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * The credit leg of a transfer whose accounts belong to different pipeline partitions, owed to the destination
+ * account once the original one has been debited.
+ * <p>
+ * Written in the debit's transaction and deleted in the credit's one, so a transfer interrupted between its two legs
+ * is resumed, not lost. When the destination account is gone by the time of the credit, the money goes back to the
+ * original account as a returned credit.
+ */
+@Entity
+@Immutable
+@Getter
+public class PendingCredit {
+
+    @Id
+    @PooledSequence(name = "pending_credit_seq")
+    private Long id;
+
+    @Column(nullable = false)
+    private Integer fromAccountId;
+
+    @Column(nullable = false)
+    private Integer toAccountId;
+
+    /**
+     * Amount owed, in minor units of the destination account's currency.
+     */
+    @Column(nullable = false)
+    private long amount;
+
+    /**
+     * Amount debited, in minor units of the original account's currency.
+     */
+    @Column(nullable = false)
+    private long debitedAmount;
+
+    @Column(precision = 24, scale = 10)
+    private BigDecimal fxRate;
+
+    /**
+     * Whether this credit returns the money of a transfer whose destination account was gone.
+     */
+    @Column(nullable = false)
+    private boolean returned;
+
+    @Column(nullable = false)
+    private Instant createdAt;
+
+    public PendingCredit() {
+    }
+
+    public PendingCredit(Integer fromAccountId, Integer toAccountId, Money amount, Money debitedAmount, BigDecimal fxRate) {
+        this(fromAccountId, toAccountId, amount.getMinorUnits(), debitedAmount.getMinorUnits(), fxRate, false);
+    }
+
+    private PendingCredit(Integer fromAccountId, Integer toAccountId, long amount, long debitedAmount, BigDecimal fxRate,
+                          boolean returned) {
+        this.fromAccountId = fromAccountId;
+        this.toAccountId = toAccountId;
+        this.amount = amount;
+        this.debitedAmount = debitedAmount;
+        this.fxRate = fxRate;
+        this.returned = returned;
+        this.createdAt = Instant.now();
+    }
+
+    /**
+     * The credit giving the debited amount back to the original account.
+     */
+    public PendingCredit toReturned() {
+        return new PendingCredit(toAccountId, fromAccountId, debitedAmount, amount, null, true);
+    }
+}
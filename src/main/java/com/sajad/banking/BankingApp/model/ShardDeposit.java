@@ -0,0 +1,49 @@
+package com.sajad.banking.BankingApp.model;
+
+import com.sajad.banking.BankingApp.model.id.PooledSequence;
+import com.sajad.banking.BankingApp.model.money.Money;
+import jakarta.persistence.*;
+import lombok.Getter;
+import org.hibernate.annotations.Immutable;
+
+import java.time.Instant;
+
+/**
+ * A deposit that landed on one of the shards of a sharded account, waiting for its ledger entry.
+ * <p>
+ * The entry's sequence number comes from the account row, which the deposit does not touch. It is written in the
+ * deposit's transaction instead, and turned into a ledger entry of its own, with its outbox row, when the shards are
+ * collected under the account lock, by the money movements that need them or in the background by the
+ * {@linkplain com.sajad.banking.BankingApp.service.shard.ShardDepositCollector}.
+ */
+@Entity
+@Immutable
+@Table(indexes = @Index(name = "ix_shard_deposit_account", columnList = "account_id"))
+@Getter
+public class ShardDeposit {
+
+    @Id
+    @PooledSequence(name = "shard_deposit_seq")
+    private Long id;
+
+    @Column(name = "account_id", nullable = false)
+    private Integer accountId;
+
+    /**
+     * Amount in minor units of the account's currency.
+     */
+    @Column(nullable = false)
+    private long amount;
+
+    @Column(nullable = false)
+    private Instant createdAt;
+
+    public ShardDeposit() {
+    }
+
+    public ShardDeposit(Integer accountId, Money amount) {
+        this.accountId = accountId;
+        this.amount = amount.getMinorUnits();
+        this.createdAt = Instant.now();
+    }
+}
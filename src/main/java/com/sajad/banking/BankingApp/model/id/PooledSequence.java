@@ -0,0 +1,25 @@
+package com.sajad.banking.BankingApp.model.id;
+
+import org.hibernate.annotations.IdGeneratorType;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Generates identifiers from a database sequence, reserving a whole block of ids per sequence round-trip.
+ * The block size is configurable, see {@linkplain PooledSequenceGenerator}.
+ *
+ * @author Sajad
+ */
+@IdGeneratorType(PooledSequenceGenerator.class)
+@Target({ElementType.FIELD, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface PooledSequence {
+
+    /**
+     * Name of the backing database sequence.
+     */
+    String name();
+}
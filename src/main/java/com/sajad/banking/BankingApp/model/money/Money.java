@@ -0,0 +1,138 @@
+package com.sajad.banking.BankingApp.model.money;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Currency;
+import java.util.Objects;
+
+/**
+ * An amount of money, held as a {@code long} number of the currency's minor units (cents).
+ * <p>
+ * Arithmetic is exact integer arithmetic that fails with an {@linkplain ArithmeticException} on overflow, instead of
+ * allocating a new {@linkplain BigDecimal} (and often a {@linkplain java.math.BigInteger}) per operation. The scale
+ * is the currency's number of fraction digits, so {@code 12.34 USD} is {@code 1234} minor units.
+ *
+ * @author Sajad
+ */
+public final class Money implements Comparable<Money> {
+
+    /**
+     * Currency of accounts opened without one, and of the balances migrated from before currencies.
+     */
+    public static final Currency DEFAULT_CURRENCY = Currency.getInstance("USD");
+
+    public static final Money ZERO = new Money(0, DEFAULT_CURRENCY);
+
+    /**
+     * Most fraction digits of any currency, what amounts are validated against before their currency is known.
+     */
+    public static final int MAX_SCALE = 4;
+
+    private final long minorUnits;
+
+    private final Currency currency;
+
+    private Money(long minorUnits, Currency currency) {
+        this.minorUnits = minorUnits;
+        this.currency = currency;
+    }
+
+    public static Money ofMinor(long minorUnits) {
+        return ofMinor(minorUnits, DEFAULT_CURRENCY);
+    }
+
+    public static Money ofMinor(long minorUnits, Currency currency) {
+        return minorUnits == 0 && currency == DEFAULT_CURRENCY ? ZERO : new Money(minorUnits, currency);
+    }
+
+    public static Money of(BigDecimal amount) {
+        return of(amount, DEFAULT_CURRENCY);
+    }
+
+    /**
+     * Converts a decimal amount.
+     *
+     * @throws ArithmeticException If the amount has more fraction digits than the currency, or does not fit.
+     */
+    public static Money of(BigDecimal amount, Currency currency) {
+        return ofMinor(amount.setScale(scale(currency), RoundingMode.UNNECESSARY).unscaledValue().longValueExact(), currency);
+    }
+
+    /**
+     * Number of fraction digits of the currency, zero for the ones without minor units.
+     */
+    public static int scale(Currency currency) {
+        return Math.max(0, currency.getDefaultFractionDigits());
+    }
+
+    public long getMinorUnits() {
+        return minorUnits;
+    }
+
+    public Currency getCurrency() {
+        return currency;
+    }
+
+    public Money plus(Money other) {
+        checkCurrency(other);
+        return ofMinor(Math.addExact(minorUnits, other.minorUnits), currency);
+    }
+
+    public Money minus(Money other) {
+        checkCurrency(other);
+        return ofMinor(Math.subtractExact(minorUnits, other.minorUnits), currency);
+    }
+
+    public Money negate() {
+        return ofMinor(Math.negateExact(minorUnits), currency);
+    }
+
+    public boolean isLessThan(Money other) {
+        return compareTo(other) < 0;
+    }
+
+    public int signum() {
+        return Long.signum(minorUnits);
+    }
+
+    /**
+     * The decimal amount, without trailing fraction zeros: {@code 12.30} is {@code 12.3} and {@code 100.00} is
+     * {@code 100}.
+     */
+    public BigDecimal toBigDecimal() {
+        long unscaled = minorUnits;
+        int scale = scale(currency);
+        while (scale > 0 && unscaled % 10 == 0) {
+            unscaled /= 10;
+            scale--;
+        }
+
+        return BigDecimal.valueOf(unscaled, scale);
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        checkCurrency(other);
+        return Long.compare(minorUnits, other.minorUnits);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || o instanceof Money money && minorUnits == money.minorUnits && currency.equals(money.currency);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(minorUnits, currency);
+    }
+
+    @Override
+    public String toString() {
+        return toBigDecimal().toPlainString() + " " + currency.getCurrencyCode();
+    }
+
+    private void checkCurrency(Money other) {
+        if (!currency.equals(other.currency))
+            throw new IllegalArgumentException("Currency mismatch: " + currency + " and " + other.currency);
+    }
+}
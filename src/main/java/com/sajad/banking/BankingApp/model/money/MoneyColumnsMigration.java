@@ -0,0 +1,117 @@
+package com.sajad.banking.BankingApp.model.money;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.orm.jpa.EntityManagerFactoryDependsOnPostProcessor;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+/**
+ * Converts the money columns of databases created before {@linkplain Money}, from decimal amounts to minor units.
+ * <p>
+ * A column is migrated if it still has fraction digits: a new integral column is filled with the amounts times the
+ * currency's scale, then takes the place of the old one. It runs before the entity manager factory, so Hibernate's
+ * schema update and the application never see the decimal columns, and is a no-op on migrated or new databases. A
+ * migration interrupted halfway is picked up again on the next start.
+ *
+ * @author Sajad
+ */
+@Component
+public class MoneyColumnsMigration implements InitializingBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(MoneyColumnsMigration.class);
+
+    /**
+     * Table and column of every amount in minor units.
+     */
+    static final List<String[]> MONEY_COLUMNS = List.of(
+            new String[]{"ACCOUNT", "BALANCE"},
+            new String[]{"ACCOUNT_SHARD", "BALANCE"},
+            new String[]{"LEDGER_ENTRY", "AMOUNT"},
+            new String[]{"LEDGER_ENTRY", "BALANCE"});
+
+    private static final String MINOR_UNITS_SUFFIX = "_MINOR";
+
+    private final DataSource dataSource;
+
+    @Autowired
+    public MoneyColumnsMigration(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    @Override
+    public void afterPropertiesSet() throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            for (String[] column : MONEY_COLUMNS) {
+                if (hasFractionDigits(connection, column[0], column[1]))
+                    migrate(connection, column[0], column[1]);
+                else if (!columnExists(connection, column[0], column[1]) &&
+                        columnExists(connection, column[0], column[1] + MINOR_UNITS_SUFFIX))
+                    finishMigration(connection, column[0], column[1]);
+            }
+        }
+    }
+
+    private void migrate(Connection connection, String table, String column) throws SQLException {
+        logger.info("Migrating {}.{} to minor units", table, column);
+
+        BigDecimal factor = BigDecimal.TEN.pow(Money.scale(Money.DEFAULT_CURRENCY));
+        String minorUnitsColumn = column + MINOR_UNITS_SUFFIX;
+
+        try (Statement statement = connection.createStatement()) {
+            // Leftover of an interrupted migration
+            if (columnExists(connection, table, minorUnitsColumn))
+                statement.execute("alter table " + table + " drop column " + minorUnitsColumn);
+
+            statement.execute("alter table " + table + " add " + minorUnitsColumn + " numeric(19)");
+            statement.executeUpdate("update " + table + " set " + minorUnitsColumn + " = " + column + " * " + factor);
+            statement.execute("alter table " + table + " drop column " + column);
+        }
+        finishMigration(connection, table, column);
+    }
+
+    /**
+     * Moves the filled minor units column in place of the dropped decimal one. Also run on its own, for a migration
+     * interrupted right after the drop: Hibernate's schema update would otherwise add an empty column of the old name,
+     * and the migrated amounts would be left behind.
+     */
+    private void finishMigration(Connection connection, String table, String column) throws SQLException {
+        String minorUnitsColumn = column + MINOR_UNITS_SUFFIX;
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("alter table " + table + " rename column " + minorUnitsColumn + " to " + column);
+            statement.execute("alter table " + table + " modify " + column + " not null");
+        }
+    }
+
+    private static boolean hasFractionDigits(Connection connection, String table, String column) throws SQLException {
+        try (ResultSet columns = connection.getMetaData().getColumns(connection.getCatalog(), connection.getSchema(), table, column)) {
+            return columns.next() && columns.getInt("DECIMAL_DIGITS") > 0;
+        }
+    }
+
+    private static boolean columnExists(Connection connection, String table, String column) throws SQLException {
+        try (ResultSet columns = connection.getMetaData().getColumns(connection.getCatalog(), connection.getSchema(), table, column)) {
+            return columns.next();
+        }
+    }
+
+    /**
+     * Makes the entity manager factory wait for the migration.
+     */
+    @Component
+    static class EntityManagerFactoryDependsOnMigration extends EntityManagerFactoryDependsOnPostProcessor {
+
+        EntityManagerFactoryDependsOnMigration() {
+            super(MoneyColumnsMigration.class);
+        }
+    }
+}
@@ -1,14 +1,23 @@
 package com.sajad.banking.BankingApp.repository.account;
 
 import com.sajad.banking.BankingApp.model.Account;
+import com.sajad.banking.BankingApp.web.dto.customer.CustomerAccountExportDto;
 import jakarta.persistence.LockModeType;
 import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.Currency;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface AccountRepository extends JpaRepository<Account, Integer> {
@@ -17,4 +26,172 @@ public interface AccountRepository extends JpaRepository<Account, Integer> {
     @Lock(LockModeType.PESSIMISTIC_WRITE)
     @QueryHints({@QueryHint(name = "jakarta.persistence.lock.timeout", value = "3000")})
     Optional<Account> findById(Integer integer);
+
+    /**
+     * Locks all the given accounts with a single {@code SELECT ... FOR UPDATE}, ordered by account id.
+     * <p>
+     * Every caller that needs more than one account lock should go through this method, so the row locks are always
+     * acquired in the same global order and two transactions can never wait on each other.
+     *
+     * @param ids Identifiers of the accounts to lock.
+     * @return The existing accounts among the given ids, locked and sorted by id.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints({@QueryHint(name = "jakarta.persistence.lock.timeout", value = "3000")})
+    List<Account> findByIdInOrderByIdAsc(Collection<Integer> ids);
+
+    /**
+     * Reads the given accounts without locking them; their changes are checked against their version on flush.
+     *
+     * @return The existing accounts among the given ids.
+     */
+    @Query("select a from Account a where a.id in :ids")
+    List<Account> findUnlockedByIdIn(@Param("ids") Collection<Integer> ids);
+
+    /**
+     * Adds the amount to the account's balance, only if the account belongs to the customer, is not sharded and is in
+     * the given currency.
+     *
+     * @param amount Amount in minor units of the currency.
+     * @return Number of updated rows, zero if the account is not owned by the customer, is sharded or is in another
+     * currency.
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("update Account a set a.balance = a.balance + :amount, a.ledgerSequence = a.ledgerSequence + 1, " +
+            "a.version = a.version + 1 " +
+            "where a.id = :accountId and a.customer.id = :customerId and a.shardCount = 0 and a.currency = :currency")
+    int depositIfOwnedAndUnsharded(@Param("customerId") Integer customerId, @Param("accountId") Integer accountId,
+                                   @Param("currency") Currency currency, @Param("amount") long amount);
+
+    /**
+     * Subtracts the amount from the account's balance, only if the account belongs to the customer, is in the given
+     * currency and its balance covers the amount.
+     *
+     * @param amount Amount in minor units of the currency.
+     * @return Number of updated rows, zero if the account is not owned by the customer, is in another currency or its
+     * balance is not enough.
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("update Account a set a.balance = a.balance - :amount, a.ledgerSequence = a.ledgerSequence + 1, " +
+            "a.version = a.version + 1 " +
+            "where a.id = :accountId and a.customer.id = :customerId and a.currency = :currency and a.balance >= :amount")
+    int withdrawIfOwnedAndCovered(@Param("customerId") Integer customerId, @Param("accountId") Integer accountId,
+                                  @Param("currency") Currency currency, @Param("amount") long amount);
+
+    /**
+     * Reads the shard count and currency of the account, without locking it.
+     *
+     * @return The account's shard count and currency, empty if the account is not owned by the customer.
+     */
+    @Query("select a.shardCount as shardCount, a.currency as currency from Account a " +
+            "where a.id = :accountId and a.customer.id = :customerId")
+    Optional<MovementTarget> findMovementTarget(@Param("accountId") Integer accountId, @Param("customerId") Integer customerId);
+
+    /**
+     * Reads the balance and ledger sequence of an account, without hydrating the entity.
+     */
+    @Query("select a.balance as balance, a.ledgerSequence as ledgerSequence from Account a where a.id = :accountId")
+    LedgerState findLedgerState(@Param("accountId") Integer accountId);
+
+    /**
+     * Reads what the memory ledger keeps of an account, its shards included in the balance.
+     */
+    @Query("select a.customer.id as customerId, a.currency as currency, a.balance as balance, " +
+            "a.shardBalance as shardBalance, a.ledgerSequence as ledgerSequence from Account a where a.id = :accountId")
+    Optional<LedgerAccount> findLedgerAccount(@Param("accountId") Integer accountId);
+
+    /**
+     * Applies movements synced from the memory ledger: adds their net amount to the balance and moves the ledger
+     * sequence to the latest of their entries.
+     *
+     * @param amount Net amount in minor units of the account's currency.
+     * @return Number of updated rows, zero if the account is gone.
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("update Account a set a.balance = a.balance + :amount, a.ledgerSequence = :ledgerSequence, " +
+            "a.version = a.version + 1 where a.id = :accountId")
+    int applySyncedMovements(@Param("accountId") Integer accountId, @Param("amount") long amount,
+                             @Param("ledgerSequence") long ledgerSequence);
+
+    /**
+     * Lists the balances of the customer's accounts, in a single query and without hydrating any entity.
+     */
+    @Query("select a.id as id, a.currency as currency, a.balance as balance, a.shardBalance as shardBalance " +
+            "from Account a where a.customer.id = :customerId order by a.id")
+    List<AccountBalance> findAccountBalancesByCustomerId(@Param("customerId") Integer customerId);
+
+    /**
+     * Streams every account with its customer, in customer and account id order. Rows are projected straight into
+     * DTOs, so nothing piles up in the persistence context, and fetched from the cursor in chunks. The stream must be
+     * consumed and closed inside a transaction.
+     */
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+    @Query("select new com.sajad.banking.BankingApp.web.dto.customer.CustomerAccountExportDto(c.id, c.type, c.name, " +
+            "c.lastName, c.phoneNumber, c.faxNumber, a.id, a.currency, a.balance, a.shardBalance) " +
+            "from Account a join a.customer c order by c.id, a.id")
+    Stream<CustomerAccountExportDto> streamCustomerAccountExport();
+
+    /**
+     * Locks the account, only if it belongs to the customer.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints({@QueryHint(name = "jakarta.persistence.lock.timeout", value = "3000")})
+    @Query("select a from Account a where a.id = :accountId and a.customer.id = :customerId")
+    Optional<Account> findOwnedForUpdate(@Param("accountId") Integer accountId, @Param("customerId") Integer customerId);
+
+    /**
+     * Counts the accounts of a customer, from the customer id index alone.
+     */
+    @Query("select count(a) from Account a where a.customer.id = :customerId")
+    long countByCustomerId(@Param("customerId") Integer customerId);
+
+    @Query("select count(a) > 0 from Account a where a.id = :accountId and a.customer.id = :customerId")
+    boolean isOwnedBy(@Param("accountId") Integer accountId, @Param("customerId") Integer customerId);
+
+    interface AccountBalance {
+        Integer getId();
+
+        Currency getCurrency();
+
+        /**
+         * Balance in minor units of the currency.
+         */
+        long getBalance();
+
+        /**
+         * Deposits sitting in the account's shards in minor units, zero for a regular account.
+         */
+        long getShardBalance();
+    }
+
+    interface LedgerState {
+        /**
+         * Balance in minor units of the account's currency.
+         */
+        long getBalance();
+
+        long getLedgerSequence();
+    }
+
+    interface LedgerAccount {
+        Integer getCustomerId();
+
+        Currency getCurrency();
+
+        /**
+         * Balance in minor units of the currency.
+         */
+        long getBalance();
+
+        long getShardBalance();
+
+        long getLedgerSequence();
+    }
+
+    interface MovementTarget {
+        int getShardCount();
+
+        Currency getCurrency();
+    }
 }
@@ -0,0 +1,40 @@
+package com.sajad.banking.BankingApp.repository.account;
+
+import com.sajad.banking.BankingApp.model.AccountShard;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface AccountShardRepository extends JpaRepository<AccountShard, Long> {
+
+    /**
+     * Adds the amount to a single shard, only locking that shard's row.
+     *
+     * @param amount Amount in minor units of the account's currency.
+     * @return Number of updated rows, zero if the account has no such shard.
+     */
+    @Modifying
+    @Query("update AccountShard s set s.balance = s.balance + :amount where s.accountId = :accountId and s.shardIndex = :shardIndex")
+    int depositToShard(@Param("accountId") Integer accountId, @Param("shardIndex") int shardIndex,
+                       @Param("amount") long amount);
+
+    /**
+     * Locks all the shards of an account, in shard order. Shards are always locked after their account.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints({@QueryHint(name = "jakarta.persistence.lock.timeout", value = "3000")})
+    List<AccountShard> findByAccountIdOrderByShardIndexAsc(Integer accountId);
+
+    @Modifying(flushAutomatically = true)
+    @Query("delete from AccountShard s where s.accountId = :accountId")
+    void deleteByAccountId(@Param("accountId") Integer accountId);
+}
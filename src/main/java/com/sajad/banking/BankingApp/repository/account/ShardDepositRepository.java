@@ -0,0 +1,29 @@
+package com.sajad.banking.BankingApp.repository.account;
+
+import com.sajad.banking.BankingApp.model.ShardDeposit;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ShardDepositRepository extends JpaRepository<ShardDeposit, Long> {
+
+    /**
+     * Deposits of an account not collected yet, in the order they were made. Only complete while all of the account's
+     * shards are locked.
+     */
+    List<ShardDeposit> findByAccountIdOrderByIdAsc(Integer accountId);
+
+    /**
+     * Oldest deposits of an account not collected yet.
+     */
+    List<ShardDeposit> findByAccountIdOrderByIdAsc(Integer accountId, Limit limit);
+
+    /**
+     * Oldest deposit not collected yet, of any account.
+     */
+    Optional<ShardDeposit> findFirstByOrderByIdAsc();
+}
@@ -1,14 +1,55 @@
 package com.sajad.banking.BankingApp.repository.customer;
 
 import com.sajad.banking.BankingApp.model.Customer;
+import com.sajad.banking.BankingApp.web.dto.customer.CustomerListDto;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.PagingAndSortingRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 @Repository
 public interface CustomerRepository extends JpaRepository<Customer, Integer>, PagingAndSortingRepository<Customer, Integer> {
 
-    Optional<Customer> findByPhoneNumber(String phoneNumber);
+    boolean existsByPhoneNumber(String phoneNumber);
+
+    @Query("select c.phoneNumber from Customer c where c.phoneNumber in :phoneNumbers")
+    Set<String> findExistingPhoneNumbers(@Param("phoneNumbers") Collection<String> phoneNumbers);
+
+    /**
+     * Locks the customer's row. Taken by the operations that must see a stable number of accounts of the customer,
+     * without locking the accounts themselves.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints({@QueryHint(name = "jakarta.persistence.lock.timeout", value = "3000")})
+    @Query("select c from Customer c where c.id = :id")
+    Optional<Customer> findForUpdateById(@Param("id") Integer id);
+
+    /**
+     * Loads the customer together with its accounts in a single query.
+     */
+    @EntityGraph(attributePaths = "accounts")
+    Optional<Customer> findWithAccountsById(Integer id);
+
+    /**
+     * Keyset page of the customer list, projected straight into list DTOs. It's a primary key range scan, with no
+     * count query and no entity hydration, so deep pages cost the same as the first one.
+     *
+     * @param afterId Exclusive lower bound of the ids, i.e. the cursor of the previous page.
+     * @param limit   Page size.
+     */
+    @Query("select new com.sajad.banking.BankingApp.web.dto.customer.CustomerListDto(c.id, c.type, c.name) " +
+            "from Customer c where c.id > :afterId order by c.id")
+    List<CustomerListDto> findListPageAfter(@Param("afterId") Integer afterId, Limit limit);
 }
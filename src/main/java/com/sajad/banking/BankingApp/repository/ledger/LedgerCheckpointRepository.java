@@ -0,0 +1,16 @@
+package com.sajad.banking.BankingApp.repository.ledger;
+
+import com.sajad.banking.BankingApp.model.LedgerCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface LedgerCheckpointRepository extends JpaRepository<LedgerCheckpoint, String> {
+
+    @Modifying
+    @Query("update LedgerCheckpoint c set c.syncedLsn = :syncedLsn where c.ledgerId = :ledgerId")
+    int updateSyncedLsn(@Param("ledgerId") String ledgerId, @Param("syncedLsn") long syncedLsn);
+}
@@ -0,0 +1,34 @@
+package com.sajad.banking.BankingApp.repository.ledger;
+
+import com.sajad.banking.BankingApp.model.LedgerEntry;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+@Repository
+public interface LedgerEntryRepository extends JpaRepository<LedgerEntry, Long> {
+
+    /**
+     * Keyset page of an account's history, newest first. Served by the (account, sequence) index, so the cost depends
+     * on the page size only, not on how deep in the history the page is.
+     *
+     * @param accountId Account identifier.
+     * @param before    Exclusive upper bound of the sequence numbers, i.e. the cursor of the previous page.
+     * @param limit     Page size.
+     */
+    List<LedgerEntry> findByAccountIdAndSequenceNumberLessThanOrderBySequenceNumberDesc(Integer accountId, Long before, Limit limit);
+
+    /**
+     * Streams an account's whole history, oldest first, fetched from the cursor in chunks. The stream must be consumed
+     * and closed inside a transaction.
+     */
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+    Stream<LedgerEntry> streamByAccountIdOrderBySequenceNumberAsc(Integer accountId);
+}
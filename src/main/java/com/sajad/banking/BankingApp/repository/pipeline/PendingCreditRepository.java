@@ -0,0 +1,13 @@
+package com.sajad.banking.BankingApp.repository.pipeline;
+
+import com.sajad.banking.BankingApp.model.PendingCredit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface PendingCreditRepository extends JpaRepository<PendingCredit, Long> {
+
+    List<PendingCredit> findByOrderByIdAsc();
+}
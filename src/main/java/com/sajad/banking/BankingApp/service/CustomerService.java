@@ -6,21 +6,46 @@ import com.sajad.banking.BankingApp.exception.customer.CustomerExistsException;
 import com.sajad.banking.BankingApp.exception.customer.CustomerNotFoundException;
 import com.sajad.banking.BankingApp.model.Account;
 import com.sajad.banking.BankingApp.model.Customer;
+import com.sajad.banking.BankingApp.model.LedgerEntry;
+import com.sajad.banking.BankingApp.service.onboarding.ImportOutcome;
+import com.sajad.banking.BankingApp.service.transfer.BatchTransferMode;
+import com.sajad.banking.BankingApp.service.transfer.Transfer;
+import com.sajad.banking.BankingApp.service.transfer.TransferOutcome;
+import com.sajad.banking.BankingApp.web.dto.account.AccountDto;
+import com.sajad.banking.BankingApp.web.dto.customer.CustomerAccountExportDto;
+import com.sajad.banking.BankingApp.web.dto.customer.CustomerDetailDto;
+import com.sajad.banking.BankingApp.web.dto.customer.CustomerListDto;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
 import java.math.BigDecimal;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface CustomerService {
-    Optional<Customer> findCustomer(Integer customerId);
+    Optional<CustomerDetailDto> findCustomer(Integer customerId);
 
     Page<Customer> listCustomer(Pageable pageable);
 
+    /**
+     * Lists customers with ids greater than the given one, in id order.
+     *
+     * @param afterId Id of the last customer of the previous page, {@code 0} for the first page.
+     * @param size    Maximum number of customers to return.
+     */
+    List<CustomerListDto> listCustomersAfter(Integer afterId, int size);
+
     void createNewCustomer(Customer customer) throws CustomerExistsException;
 
-    List<Account> listCustomerAccounts(Integer customerId) throws CustomerNotFoundException;
+    /**
+     * Creates a chunk of new customers, skipping duplicate phone numbers.
+     *
+     * @return The outcome of every customer, in the same order as the input.
+     */
+    List<ImportOutcome> importCustomers(List<Customer> customers);
+
+    List<AccountDto> listCustomerAccounts(Integer customerId) throws CustomerNotFoundException;
 
     void deleteCustomer(Integer customerId) throws CustomerNotFoundException, CustomerDeleteException;
 
@@ -30,10 +55,46 @@ public interface CustomerService {
             BalanceAccountDeleteException, OnlyAccountDeleteException;
 
     void transfer(Integer customerId, Integer fromAccountId, Integer toAccountId, BigDecimal amount)
-            throws CustomerNotFoundException, AccountNotFoundException, BalanceNotEnoughException, NegativeAmountException, InvalidTransferDetails;
+            throws CustomerNotFoundException, AccountNotFoundException, BalanceNotEnoughException, NegativeAmountException,
+            InvalidAmountException, InvalidTransferDetails, UnsupportedCurrencyException;
 
-    void deposit(Integer customerId, Integer accountId, BigDecimal amount) throws CustomerNotFoundException, AccountNotFoundException, NegativeAmountException;
+    /**
+     * Applies a batch of transfers between the customer's accounts in a single transaction.
+     *
+     * @return The outcome of every transfer, in the same order as the input.
+     */
+    List<TransferOutcome> batchTransfer(Integer customerId, List<Transfer> transfers, BatchTransferMode mode)
+            throws CustomerNotFoundException;
+
+    void deposit(Integer customerId, Integer accountId, BigDecimal amount) throws CustomerNotFoundException, AccountNotFoundException,
+            NegativeAmountException, InvalidAmountException;
 
     void withdraw(Integer customerId, Integer accountId, BigDecimal amount) throws CustomerNotFoundException,
-            AccountNotFoundException, NegativeAmountException, BalanceNotEnoughException;
+            AccountNotFoundException, NegativeAmountException, InvalidAmountException, BalanceNotEnoughException;
+
+    /**
+     * Spreads the account's deposits across the given number of shards, zero turns sharding off.
+     */
+    void shardAccount(Integer customerId, Integer accountId, int shards) throws CustomerNotFoundException,
+            AccountNotFoundException;
+
+    /**
+     * Lists an account's ledger entries, newest first.
+     *
+     * @param before Sequence number of the last entry of the previous page, or {@code null} for the first page.
+     * @param size   Maximum number of entries to return.
+     */
+    List<LedgerEntry> listAccountTransactions(Integer customerId, Integer accountId, Long before, int size)
+            throws CustomerNotFoundException, AccountNotFoundException;
+
+    /**
+     * Hands every account, with its customer, to the consumer one at a time, in customer and account id order.
+     */
+    void exportCustomerAccounts(Consumer<CustomerAccountExportDto> consumer);
+
+    /**
+     * Hands an account's ledger entries to the consumer one at a time, oldest first. The entries are detached once
+     * consumed.
+     */
+    void exportAccountStatement(Integer accountId, Consumer<LedgerEntry> consumer);
 }
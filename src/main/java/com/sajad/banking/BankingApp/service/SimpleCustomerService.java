@@ -5,36 +5,116 @@ import com.sajad.banking.BankingApp.exception.customer.CustomerDeleteException;
 import com.sajad.banking.BankingApp.exception.customer.CustomerExistsException;
 import com.sajad.banking.BankingApp.exception.customer.CustomerNotFoundException;
 import com.sajad.banking.BankingApp.model.Account;
+import com.sajad.banking.BankingApp.model.AccountShard;
 import com.sajad.banking.BankingApp.model.Customer;
+import com.sajad.banking.BankingApp.model.LedgerEntry;
+import com.sajad.banking.BankingApp.model.LedgerEntry.EntryType;
+import com.sajad.banking.BankingApp.model.PendingCredit;
+import com.sajad.banking.BankingApp.model.ShardDeposit;
+import com.sajad.banking.BankingApp.model.money.Money;
 import com.sajad.banking.BankingApp.repository.account.AccountRepository;
+import com.sajad.banking.BankingApp.repository.account.AccountShardRepository;
+import com.sajad.banking.BankingApp.repository.account.ShardDepositRepository;
 import com.sajad.banking.BankingApp.repository.customer.CustomerRepository;
+import com.sajad.banking.BankingApp.repository.ledger.LedgerEntryRepository;
+import com.sajad.banking.BankingApp.repository.pipeline.PendingCreditRepository;
+import com.sajad.banking.BankingApp.service.cache.CustomerReadCache;
+import com.sajad.banking.BankingApp.service.fx.FxRateSnapshot;
+import com.sajad.banking.BankingApp.service.fx.FxRates;
+import com.sajad.banking.BankingApp.service.metrics.BankingMetrics;
+import com.sajad.banking.BankingApp.service.onboarding.ImportOutcome;
+import com.sajad.banking.BankingApp.service.outbox.AccountEventOutbox;
+import com.sajad.banking.BankingApp.service.retry.LockingPolicy;
+import com.sajad.banking.BankingApp.service.retry.RetryOnLockFailure;
+import com.sajad.banking.BankingApp.service.transfer.BatchTransferMode;
+import com.sajad.banking.BankingApp.service.transfer.Transfer;
+import com.sajad.banking.BankingApp.service.transfer.TransferOutcome;
+import com.sajad.banking.BankingApp.web.dto.account.AccountDto;
+import com.sajad.banking.BankingApp.web.dto.customer.CustomerAccountExportDto;
+import com.sajad.banking.BankingApp.web.dto.customer.CustomerDetailDto;
+import com.sajad.banking.BankingApp.web.dto.customer.CustomerListDto;
+import com.sajad.banking.BankingApp.web.utility.Utility;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import org.hibernate.exception.ConstraintViolationException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
 
 import java.math.BigDecimal;
-import java.util.List;
-import java.util.Objects;
-import java.util.Optional;
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static com.sajad.banking.BankingApp.model.LedgerEntry.EntryType.*;
+import static com.sajad.banking.BankingApp.service.transfer.TransferOutcome.*;
 
 @Service
 public class SimpleCustomerService implements CustomerService {
 
+    /**
+     * Maximum number of accounts locked by a single statement.
+     */
+    private static final int LOCK_CHUNK_SIZE = 500;
+
     private final CustomerRepository customerRepository;
 
     private final AccountRepository accountRepository;
 
+    private final AccountShardRepository accountShardRepository;
+
+    private final ShardDepositRepository shardDepositRepository;
+
+    private final LedgerEntryRepository ledgerEntryRepository;
+
+    private final CustomerReadCache customerReadCache;
+
+    private final BankingMetrics bankingMetrics;
+
+    private final FxRates fxRates;
+
+    private final AccountEventOutbox accountEventOutbox;
+
+    private final EntityManager entityManager;
+
+    private final PendingCreditRepository pendingCreditRepository;
+
+    private final LockingPolicy lockingPolicy;
+
     @Autowired
-    public SimpleCustomerService(CustomerRepository customerRepository, AccountRepository accountRepository) {
+    public SimpleCustomerService(CustomerRepository customerRepository, AccountRepository accountRepository,
+                                 AccountShardRepository accountShardRepository, ShardDepositRepository shardDepositRepository,
+                                 LedgerEntryRepository ledgerEntryRepository, CustomerReadCache customerReadCache,
+                                 BankingMetrics bankingMetrics, FxRates fxRates, AccountEventOutbox accountEventOutbox,
+                                 EntityManager entityManager,
+                                 PendingCreditRepository pendingCreditRepository, LockingPolicy lockingPolicy) {
         this.customerRepository = customerRepository;
         this.accountRepository = accountRepository;
+        this.accountShardRepository = accountShardRepository;
+        this.shardDepositRepository = shardDepositRepository;
+        this.ledgerEntryRepository = ledgerEntryRepository;
+        this.customerReadCache = customerReadCache;
+        this.bankingMetrics = bankingMetrics;
+        this.fxRates = fxRates;
+        this.accountEventOutbox = accountEventOutbox;
+        this.entityManager = entityManager;
+        this.pendingCreditRepository = pendingCreditRepository;
+        this.lockingPolicy = lockingPolicy;
     }
 
+    /**
+     * Finds a customer's detail, through the read cache.
+     */
     @Override
-    public Optional<Customer> findCustomer(Integer customerId) {
-        return this.customerRepository.findById(customerId);
+    public Optional<CustomerDetailDto> findCustomer(Integer customerId) {
+        return Optional.ofNullable(customerReadCache.getCustomerDetail(customerId, () ->
+                customerRepository.findWithAccountsById(customerId).map(Utility::toCustomerDetailDto).orElse(null)));
     }
 
     @Override
@@ -42,25 +122,87 @@ public class SimpleCustomerService implements CustomerService {
         return customerRepository.findAll(pageable);
     }
 
+    @Override
+    public List<CustomerListDto> listCustomersAfter(Integer afterId, int size) {
+        return customerRepository.findListPageAfter(afterId, Limit.of(size));
+    }
+
     /**
      * Creates a new customer.
+     * <p>
+     * Duplicates are rejected by the unique phone number index, which also covers concurrent signups. The lookup
+     * beforehand is only a fast path for the common, non-racing duplicate.
      *
      * @param newCustomer New customer object to persist.
      * @throws CustomerExistsException If there is a customer with the same phone number.
      */
     @Override
-    @Transactional
+    @Transactional(rollbackFor = CustomerExistsException.class)
     public void createNewCustomer(Customer newCustomer) throws CustomerExistsException {
         // Check if duplicate customer via phone number
-        if (customerRepository.findByPhoneNumber(newCustomer.getPhoneNumber()).stream().findFirst().isPresent())
+        if (customerRepository.existsByPhoneNumber(newCustomer.getPhoneNumber()))
             throw new CustomerExistsException();
 
-        customerRepository.save(newCustomer);
+        try {
+            customerRepository.saveAndFlush(newCustomer);
+        } catch (DataIntegrityViolationException e) {
+            if (isPhoneNumberViolation(e))
+                throw new CustomerExistsException();
+
+            throw e;
+        }
+
+        // Accounts got their ids while cascading the persist
+        newCustomer.getAccounts().forEach(this::recordOpening);
     }
 
+    /**
+     * Creates a chunk of customers in one transaction.
+     * <p>
+     * Duplicates, against the stored customers or within the chunk itself, are found with one set-based lookup and
+     * skipped. A concurrent signup may still win the race for a phone number, in which case the unique index fails
+     * the whole chunk with a {@linkplain DataIntegrityViolationException}.
+     */
     @Override
-    public List<Account> listCustomerAccounts(Integer customerId) throws CustomerNotFoundException {
-        return customerRepository.findById(customerId).orElseThrow(CustomerNotFoundException::new).getAccounts();
+    @Transactional
+    public List<ImportOutcome> importCustomers(List<Customer> customers) {
+        Set<String> takenPhoneNumbers = new HashSet<>(customerRepository.findExistingPhoneNumbers(
+                customers.stream().map(Customer::getPhoneNumber).toList()));
+
+        List<ImportOutcome> outcomes = new ArrayList<>(customers.size());
+        List<Customer> newCustomers = new ArrayList<>(customers.size());
+        for (Customer customer : customers) {
+            if (takenPhoneNumbers.add(customer.getPhoneNumber())) {
+                newCustomers.add(customer);
+                outcomes.add(ImportOutcome.CREATED);
+            } else
+                outcomes.add(ImportOutcome.DUPLICATE);
+        }
+
+        customerRepository.saveAll(newCustomers);
+        newCustomers.forEach(customer -> customer.getAccounts().forEach(this::recordOpening));
+        customerRepository.flush();
+
+        return outcomes;
+    }
+
+    /**
+     * Lists the customer's accounts with a single projection query, through the read cache. Every customer has at
+     * least one account, so an empty result means there is no such customer.
+     */
+    @Override
+    public List<AccountDto> listCustomerAccounts(Integer customerId) throws CustomerNotFoundException {
+        List<AccountDto> accounts = customerReadCache.getCustomerAccounts(customerId, () -> {
+            List<AccountRepository.AccountBalance> loadedAccounts = accountRepository.findAccountBalancesByCustomerId(customerId);
+            return loadedAccounts.isEmpty() ? null : loadedAccounts.stream().map(account -> new AccountDto(account.getId(),
+                    Money.ofMinor(Math.addExact(account.getBalance(), account.getShardBalance()), account.getCurrency()).toBigDecimal(),
+                    account.getCurrency())).toList();
+        });
+
+        if (accounts == null)
+            throw new CustomerNotFoundException();
+
+        return accounts;
     }
 
     /**
@@ -72,50 +214,97 @@ public class SimpleCustomerService implements CustomerService {
      * @throws CustomerDeleteException   Customer needs to empty all of his/her accounts.
      */
     @Override
+    @Transactional
     public void deleteCustomer(Integer customerId) throws CustomerNotFoundException, CustomerDeleteException {
-        Customer customer = this.customerRepository.findById(customerId).orElseThrow(CustomerNotFoundException::new);
+        Customer customer = this.customerRepository.findWithAccountsById(customerId).orElseThrow(CustomerNotFoundException::new);
+
+        // Sharded accounts are locked and collected first, so no deposit lands on a shard we are about to drop
+        for (Account account : customer.getAccounts()) {
+            if (account.getShardCount() > 0) {
+                accountRepository.findOwnedForUpdate(account.getId(), customerId);
+                collectShards(account);
+            }
+        }
 
         // Customer can be deleted if exists and all of his/her accounts' balances be zero
-        if (customer.getAccounts().stream().anyMatch(account -> account.getBalance().compareTo(BigDecimal.ZERO) > 0))
+        if (customer.getAccounts().stream().anyMatch(account -> account.getBalance().signum() > 0))
             throw new CustomerDeleteException();
 
         // Safe to delete customer
+        for (Account account : customer.getAccounts()) {
+            if (account.getShardCount() > 0)
+                accountShardRepository.deleteByAccountId(account.getId());
+        }
         customerRepository.delete(customer);
+        customerReadCache.invalidateAfterCommit(customerId);
     }
 
     @Override
     @Transactional
     public void addCustomerAccount(Integer customerId, Account account) throws CustomerNotFoundException {
-        Customer customer = this.customerRepository.findById(customerId).orElseThrow(CustomerNotFoundException::new);
-
-        // Add new account for this customer
-        customer.getAccounts().add(account);
+        if (!this.customerRepository.existsById(customerId))
+            throw new CustomerNotFoundException();
+
+        // Add new account for this customer, without loading the existing ones
+        account.setCustomer(customerRepository.getReferenceById(customerId));
+        accountRepository.save(account);
+        recordOpening(account);
+        customerReadCache.invalidateAfterCommit(customerId);
     }
 
+    /**
+     * Deletes an account of a customer, unless it is the customer's only one.
+     * <p>
+     * The customer's row is locked before its accounts are counted, so two concurrent deletes of different accounts
+     * can't both see the other account still there and leave the customer with none. Only the deleted account itself
+     * is locked, the customer's other accounts keep moving money meanwhile.
+     */
     @Override
     @Transactional
+    @RetryOnLockFailure
     public void deleteCustomerAccount(Integer customerId, Integer accountId) throws CustomerNotFoundException,
             AccountNotFoundException, BalanceAccountDeleteException, OnlyAccountDeleteException {
-        Customer customer = this.customerRepository.findById(customerId).orElseThrow(CustomerNotFoundException::new);
+        // Serializes the deletes of the customer's accounts
+        if (customerRepository.findForUpdateById(customerId).isEmpty())
+            throw new CustomerNotFoundException();
 
         // Every customer should have at least one account
-        if (customer.getAccounts().size() == 1)
+        if (accountRepository.countByCustomerId(customerId) == 1)
             throw new OnlyAccountDeleteException();
 
-        Account accountToDelete = customer.getAccounts().stream().filter(account -> account.getId().equals(accountId))
-                .findAny().orElseThrow(AccountNotFoundException::new);
+        Account accountToDelete = accountRepository.findOwnedForUpdate(accountId, customerId)
+                .orElseThrow(AccountNotFoundException::new);
+        collectShards(accountToDelete);
 
         // Complain if the account have balance
-        if (accountToDelete.getBalance().compareTo(BigDecimal.ZERO) > 0)
+        if (accountToDelete.getBalance().signum() > 0)
             throw new BalanceAccountDeleteException();
 
         // Safe to delete account
-        customer.getAccounts().removeIf(account -> account.getId().equals(accountId));
+        if (accountToDelete.getShardCount() > 0)
+            accountShardRepository.deleteByAccountId(accountId);
+        accountRepository.delete(accountToDelete);
+        customerReadCache.invalidateAfterCommit(customerId);
     }
+
+    /**
+     * Transfers money between two accounts of a customer.
+     * <p>
+     * Both accounts are locked with one statement in ascending id order, regardless of the transfer direction, so
+     * concurrent transfers between the same accounts never deadlock. Lock timeouts are retried with backoff.
+     * <p>
+     * In the optimistic mode of the {@linkplain LockingPolicy}, the accounts are read without locks instead, and their
+     * version is checked when they are written back; conflicts are retried with backoff as well.
+     * <p>
+     * The amount is in the currency of the original account. Between accounts of different currencies, the destination
+     * account receives the amount converted with the current exchange rates, and both ledger entries record the rate.
+     */
     @Override
     @Transactional
+    @RetryOnLockFailure
     public void transfer(Integer customerId, Integer fromAccountId, Integer toAccountId, BigDecimal amount)
-            throws CustomerNotFoundException, AccountNotFoundException, BalanceNotEnoughException, NegativeAmountException, InvalidTransferDetails {
+            throws CustomerNotFoundException, AccountNotFoundException, BalanceNotEnoughException, NegativeAmountException,
+            InvalidAmountException, InvalidTransferDetails, UnsupportedCurrencyException {
 
         // Check accounts are different
         if (Objects.equals(fromAccountId, toAccountId))
@@ -124,57 +313,552 @@ public class SimpleCustomerService implements CustomerService {
         // Check negative amount
         checkAmount(amount);
 
-        // Validate customer
-        Customer customer = customerRepository.findById(customerId).orElseThrow(CustomerNotFoundException::new);
+        // Lock both accounts before anything reads them, so we never work on a stale balance, or have the balances'
+        // versions checked when writing them back
+        boolean optimistic = lockingPolicy.isOptimisticTransfer(fromAccountId, toAccountId);
+        Map<Integer, Account> accounts = optimistic ? readAccounts(List.of(fromAccountId, toAccountId)) :
+                lockAccounts(List.of(fromAccountId, toAccountId));
 
-        // Validate original account
-        customer.getAccounts().stream().filter(account ->
-                Objects.equals(account.getId(), fromAccountId)).findFirst().orElseThrow(AccountNotFoundException::new);
+        Account originalAccount = accounts.get(fromAccountId);
+        Account destinationAccount = accounts.get(toAccountId);
 
-        // We need to fetch originalAccount from repository to be able to exclusively lock on it as well
-        Account originalAccount = accountRepository.findById(fromAccountId).orElseThrow(AccountNotFoundException::new);
+        // Validate customer and original account owner
+        if (originalAccount == null || destinationAccount == null || !isOwnedBy(originalAccount, customerId)) {
+            if (!customerRepository.existsById(customerId))
+                throw new CustomerNotFoundException();
 
-        // Find destination account, while locked for update
-        Account destinationAccount = accountRepository.findById(toAccountId).orElseThrow(AccountNotFoundException::new);
+            throw new AccountNotFoundException();
+        }
+
+        Money money = toMoney(amount, originalAccount.getCurrency());
+        FxRateSnapshot.Conversion conversion = convert(money, destinationAccount.getCurrency());
 
         // Now, we have both accounts ready and locked, safe to perform the transfer
-        originalAccount.withdraw(amount);
-        destinationAccount.deposit(amount);
+        if (originalAccount.getBalance().isLessThan(money)) {
+            if (optimistic)
+                lockUnchanged(originalAccount);
+            collectShards(originalAccount);
+        }
+        originalAccount.withdraw(money);
+        destinationAccount.deposit(conversion.amount());
+
+        recordTransfer(originalAccount, destinationAccount, money, conversion, optimistic);
+        bankingMetrics.recordTransferAmount(money);
+
+        // The destination account may belong to another customer
+        customerReadCache.invalidateAfterCommit(List.of(customerId, destinationAccount.getCustomer().getId()));
     }
 
+    /**
+     * Applies a batch of transfers in a single transaction.
+     * <p>
+     * All the touched accounts are locked upfront, in the same global order as single transfers, then the movements
+     * are applied in memory and flushed together, so JDBC batching kicks in for the updates and ledger inserts.
+     */
     @Override
     @Transactional
-    public void deposit(Integer customerId, Integer accountId, BigDecimal amount) throws CustomerNotFoundException,
-            AccountNotFoundException, NegativeAmountException {
+    @RetryOnLockFailure
+    public List<TransferOutcome> batchTransfer(Integer customerId, List<Transfer> transfers, BatchTransferMode mode)
+            throws CustomerNotFoundException {
+        Set<Integer> accountIds = new HashSet<>();
+        transfers.forEach(transfer -> {
+            accountIds.add(transfer.fromAccountId());
+            accountIds.add(transfer.toAccountId());
+        });
+        Map<Integer, Account> lockedAccounts = lockAccounts(accountIds);
+
+        // Every customer owns at least one account, so owning none of them means there may be no such customer
+        if (lockedAccounts.values().stream().noneMatch(account -> isOwnedBy(account, customerId)) &&
+                !customerRepository.existsById(customerId))
+            throw new CustomerNotFoundException();
+
+        List<TransferOutcome> outcomes = new ArrayList<>(transfers.size());
+        for (Transfer transfer : transfers)
+            outcomes.add(applyTransfer(customerId, transfer, lockedAccounts));
+
+        Set<Integer> ownerIds = new HashSet<>();
+        lockedAccounts.values().forEach(account -> ownerIds.add(account.getCustomer().getId()));
+        customerReadCache.invalidateAfterCommit(ownerIds);
+
+        if (mode == BatchTransferMode.ALL_OR_NOTHING && outcomes.stream().anyMatch(outcome -> outcome != SUCCESSFUL)) {
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            outcomes.replaceAll(outcome -> outcome == SUCCESSFUL ? ROLLED_BACK : outcome);
+        }
+
+        return outcomes;
+    }
+
+    private TransferOutcome applyTransfer(Integer customerId, Transfer transfer, Map<Integer, Account> lockedAccounts) {
+        if (Objects.equals(transfer.fromAccountId(), transfer.toAccountId()))
+            return INVALID_TRANSFER_DETAILS;
+
+        if (transfer.amount().compareTo(BigDecimal.ZERO) < 0)
+            return NEGATIVE_AMOUNT;
+
+        Account originalAccount = lockedAccounts.get(transfer.fromAccountId());
+        Account destinationAccount = lockedAccounts.get(transfer.toAccountId());
+        if (originalAccount == null || destinationAccount == null || !isOwnedBy(originalAccount, customerId))
+            return ACCOUNT_NOT_FOUND;
+
+        Money amount;
+        FxRateSnapshot.Conversion conversion;
+        try {
+            amount = toMoney(transfer.amount(), originalAccount.getCurrency());
+            conversion = convert(amount, destinationAccount.getCurrency());
+        } catch (InvalidAmountException e) {
+            return INVALID_AMOUNT;
+        } catch (UnsupportedCurrencyException e) {
+            return UNSUPPORTED_CURRENCY;
+        }
+
+        if (originalAccount.getBalance().isLessThan(amount))
+            collectShards(originalAccount);
+
+        try {
+            originalAccount.withdraw(amount);
+        } catch (BalanceNotEnoughException e) {
+            return BALANCE_NOT_ENOUGH;
+        }
+        destinationAccount.deposit(conversion.amount());
+
+        recordTransfer(originalAccount, destinationAccount, amount, conversion, false);
+        bankingMetrics.recordTransferAmount(amount);
+        return SUCCESSFUL;
+    }
+
+    /**
+     * First leg of a transfer handed off between two single-writer partitions, see
+     * {@linkplain com.sajad.banking.BankingApp.service.pipeline.TransferPipeline}: validates the transfer like
+     * {@linkplain #transfer}, debits the original account and records the credit owed to the destination account.
+     * <p>
+     * Only the original account is locked, or read optimistically as in {@linkplain #transfer}; the destination account
+     * is read without a lock, its currency never changes.
+     *
+     * @return The credit to apply to the destination account, with {@linkplain #creditTransfer}.
+     */
+    @Transactional
+    @RetryOnLockFailure
+    public PendingCredit debitTransfer(Integer customerId, Integer fromAccountId, Integer toAccountId, BigDecimal amount)
+            throws CustomerNotFoundException, AccountNotFoundException, BalanceNotEnoughException, NegativeAmountException,
+            InvalidAmountException, InvalidTransferDetails, UnsupportedCurrencyException {
+        if (Objects.equals(fromAccountId, toAccountId))
+            throw new InvalidTransferDetails();
+
         checkAmount(amount);
 
-        Customer customer = customerRepository.findById(customerId).orElseThrow(CustomerNotFoundException::new);
+        boolean optimistic = lockingPolicy.isOptimisticDebit(fromAccountId);
+        Account originalAccount = optimistic ? readAccounts(List.of(fromAccountId)).get(fromAccountId) :
+                accountRepository.findOwnedForUpdate(fromAccountId, customerId).orElse(null);
+        if (originalAccount != null && !isOwnedBy(originalAccount, customerId))
+            originalAccount = null;
+        AccountRepository.LedgerAccount destinationAccount = accountRepository.findLedgerAccount(toAccountId).orElse(null);
+        if (originalAccount == null || destinationAccount == null) {
+            if (!customerRepository.existsById(customerId))
+                throw new CustomerNotFoundException();
+
+            throw new AccountNotFoundException();
+        }
 
-        // Validate account owner
-        customer.getAccounts().stream().filter(account ->
-                Objects.equals(account.getId(), accountId)).findFirst().orElseThrow(AccountNotFoundException::new);
+        Money money = toMoney(amount, originalAccount.getCurrency());
+        FxRateSnapshot.Conversion conversion = convert(money, destinationAccount.getCurrency());
 
-        Account account = accountRepository.findById(accountId).orElseThrow(AccountNotFoundException::new);
+        if (originalAccount.getBalance().isLessThan(money)) {
+            if (optimistic)
+                lockUnchanged(originalAccount);
+            collectShards(originalAccount);
+        }
+        originalAccount.withdraw(money);
+
+        LedgerEntry entry = new LedgerEntry(fromAccountId, originalAccount.nextLedgerSequence(), TRANSFER_OUT,
+                money.negate(), originalAccount.getBalance(), toAccountId, conversion.rate());
+        if (optimistic)
+            accountRepository.flush();
+        appendLedgerEntry(entry);
+        bankingMetrics.recordTransferAmount(money);
+        customerReadCache.invalidateAfterCommit(customerId);
+
+        return pendingCreditRepository.save(new PendingCredit(fromAccountId, toAccountId, conversion.amount(), money,
+                conversion.rate()));
+    }
 
+    /**
+     * Second leg of a handed-off transfer: credits the destination account and deletes the pending credit. A credit
+     * applied already is skipped, so a credit resumed after a restart is never applied twice.
+     *
+     * @return The credit returning the money to the original account, if the destination account is gone.
+     */
+    @Transactional
+    @RetryOnLockFailure
+    public Optional<PendingCredit> creditTransfer(Long pendingCreditId) {
+        PendingCredit pendingCredit = pendingCreditRepository.findById(pendingCreditId).orElse(null);
+        if (pendingCredit == null)
+            return Optional.empty();
+
+        Account account = accountRepository.findById(pendingCredit.getToAccountId()).orElse(null);
+        if (account == null) {
+            // A returned credit has nowhere else to go, it stays pending for someone to look at
+            if (pendingCredit.isReturned())
+                return Optional.empty();
+
+            pendingCreditRepository.delete(pendingCredit);
+            return Optional.of(pendingCreditRepository.save(pendingCredit.toReturned()));
+        }
+
+        Money amount = Money.ofMinor(pendingCredit.getAmount(), account.getCurrency());
         account.deposit(amount);
+        appendLedgerEntry(new LedgerEntry(account.getId(), account.nextLedgerSequence(), TRANSFER_IN, amount,
+                account.getBalance(), pendingCredit.getFromAccountId(), pendingCredit.getFxRate()));
+        pendingCreditRepository.delete(pendingCredit);
+        customerReadCache.invalidateAfterCommit(account.getCustomer().getId());
+
+        return Optional.empty();
     }
 
+    /**
+     * Deposits money into a customer's account.
+     * <p>
+     * The account's shard count and currency are read without a lock first, so deposits into a sharded account go to
+     * a random shard without touching the account row. Their ledger entries need a sequence number from that row, so
+     * each one is recorded as a {@linkplain ShardDeposit} and gets its entry once the shards are collected. Other
+     * deposits take a single conditional statement, which only fails if the account got resharded in the meantime.
+     */
+    @Override
+    @Transactional
+    @RetryOnLockFailure
+    public void deposit(Integer customerId, Integer accountId, BigDecimal amount) throws CustomerNotFoundException,
+            AccountNotFoundException, NegativeAmountException, InvalidAmountException {
+        checkAmount(amount);
+
+        AccountRepository.MovementTarget target = accountRepository.findMovementTarget(accountId, customerId).orElse(null);
+        if (target == null) {
+            checkAccountOwner(customerId, accountId);
+            throw new AccountNotFoundException();
+        }
+
+        Money money = toMoney(amount, target.getCurrency());
+        if (target.getShardCount() == 0) {
+            if (accountRepository.depositIfOwnedAndUnsharded(customerId, accountId, money.getCurrency(), money.getMinorUnits()) == 1) {
+                recordMovement(accountId, DEPOSIT, money);
+                customerReadCache.invalidateAfterCommit(customerId);
+                return;
+            }
+        } else if (accountShardRepository.depositToShard(accountId,
+                ThreadLocalRandom.current().nextInt(target.getShardCount()), money.getMinorUnits()) == 1) {
+            shardDepositRepository.save(new ShardDeposit(accountId, money));
+            customerReadCache.invalidateAfterCommit(customerId);
+            return;
+        }
+
+        // The account got resharded, or deleted, in the meantime; resharding needs the account lock, so settle under it
+        Account account = accountRepository.findOwnedForUpdate(accountId, customerId).orElse(null);
+        if (account == null) {
+            checkAccountOwner(customerId, accountId);
+            throw new AccountNotFoundException();
+        }
+
+        if (account.getShardCount() > 0) {
+            accountShardRepository.depositToShard(accountId, 0, money.getMinorUnits());
+            shardDepositRepository.save(new ShardDeposit(accountId, money));
+        } else {
+            account.deposit(money);
+            appendLedgerEntry(new LedgerEntry(accountId, account.nextLedgerSequence(), DEPOSIT, money,
+                    account.getBalance(), null));
+        }
+        customerReadCache.invalidateAfterCommit(customerId);
+    }
+
+    /**
+     * Withdraws money from a customer's account.
+     * <p>
+     * The ownership check, the balance check and the balance update happen in a single conditional statement, the
+     * extra lookups only run to report why a withdrawal was rejected. As with deposits, accounts in a currency other
+     * than the default one take a second statement.
+     */
     @Override
     @Transactional
+    @RetryOnLockFailure
     public void withdraw(Integer customerId, Integer accountId, BigDecimal amount) throws CustomerNotFoundException,
-            AccountNotFoundException, NegativeAmountException, BalanceNotEnoughException {
+            AccountNotFoundException, NegativeAmountException, InvalidAmountException, BalanceNotEnoughException {
         // Check negative amount
         checkAmount(amount);
+        Money money = toDefaultMoney(amount);
 
-        Customer customer = customerRepository.findById(customerId).orElseThrow(CustomerNotFoundException::new);
+        if (money != null &&
+                accountRepository.withdrawIfOwnedAndCovered(customerId, accountId, money.getCurrency(), money.getMinorUnits()) == 1) {
+            recordMovement(accountId, WITHDRAW, money.negate());
+            customerReadCache.invalidateAfterCommit(customerId);
+            return;
+        }
 
-        // Validate account owner
-        customer.getAccounts().stream().filter(account ->
-                Objects.equals(account.getId(), accountId)).findFirst().orElseThrow(AccountNotFoundException::new);
+        AccountRepository.MovementTarget target = accountRepository.findMovementTarget(accountId, customerId).orElse(null);
+        if (target == null) {
+            checkAccountOwner(customerId, accountId);
+            throw new AccountNotFoundException();
+        }
 
-        Account account = accountRepository.findById(accountId).orElseThrow(AccountNotFoundException::new);
+        if (money == null || !target.getCurrency().equals(money.getCurrency())) {
+            money = toMoney(amount, target.getCurrency());
+            if (accountRepository.withdrawIfOwnedAndCovered(customerId, accountId, money.getCurrency(), money.getMinorUnits()) == 1) {
+                recordMovement(accountId, WITHDRAW, money.negate());
+                customerReadCache.invalidateAfterCommit(customerId);
+                return;
+            }
+        }
+
+        // The account exists and is owned by the customer, so the balance was the reason
+        if (target.getShardCount() == 0)
+            throw new BalanceNotEnoughException();
+
+        // The account's own balance is not enough, but its shards may cover the rest
+        Account account = accountRepository.findOwnedForUpdate(accountId, customerId).orElseThrow(AccountNotFoundException::new);
+        collectShards(account);
+        account.withdraw(money);
 
-        account.withdraw(amount);
+        appendLedgerEntry(new LedgerEntry(accountId, account.nextLedgerSequence(), WITHDRAW, money.negate(),
+                account.getBalance(), null));
+        customerReadCache.invalidateAfterCommit(customerId);
+    }
+
+    /**
+     * Splits the account's deposits across the given number of shards, or turns sharding off with zero shards.
+     * <p>
+     * Whatever sits in the current shards is collected into the account's balance first, so resharding never moves
+     * money between rows that concurrent deposits are still writing to.
+     */
+    @Override
+    @Transactional
+    @RetryOnLockFailure
+    public void shardAccount(Integer customerId, Integer accountId, int shards) throws CustomerNotFoundException,
+            AccountNotFoundException {
+        Account account = accountRepository.findOwnedForUpdate(accountId, customerId).orElse(null);
+        if (account == null) {
+            checkAccountOwner(customerId, accountId);
+            throw new AccountNotFoundException();
+        }
+
+        collectShards(account);
+        accountShardRepository.deleteByAccountId(accountId);
+
+        List<AccountShard> newShards = new ArrayList<>(shards);
+        for (int shardIndex = 0; shardIndex < shards; shardIndex++)
+            newShards.add(new AccountShard(accountId, shardIndex));
+        accountShardRepository.saveAll(newShards);
+
+        account.setShardCount(shards);
+    }
+
+    /**
+     * Collects the oldest deposits of a sharded account, at most the given number of them, see
+     * {@linkplain com.sajad.banking.BankingApp.service.shard.ShardDepositCollector}. Their amounts are taken off the
+     * shards, which hold exactly the uncollected deposits between them, so the account's total balance doesn't move.
+     *
+     * @return Number of collected deposits, zero if the account has none or is gone.
+     */
+    @Transactional
+    @RetryOnLockFailure
+    public int collectShardDeposits(Integer accountId, int limit) {
+        Account account = accountRepository.findById(accountId).orElse(null);
+        if (account == null)
+            return 0;
+
+        List<AccountShard> shards = accountShardRepository.findByAccountIdOrderByShardIndexAsc(accountId);
+        List<ShardDeposit> deposits = shardDepositRepository.findByAccountIdOrderByIdAsc(accountId, Limit.of(limit));
+
+        long remaining = deposits.stream().mapToLong(ShardDeposit::getAmount).sum();
+        for (AccountShard shard : shards) {
+            long taken = Math.min(shard.getBalance(), remaining);
+            shard.setBalance(shard.getBalance() - taken);
+            remaining -= taken;
+        }
+        if (remaining > 0)
+            throw new IllegalStateException("Shards of account " + accountId + " don't cover its deposits");
+
+        recordShardDeposits(account, deposits);
+        return deposits.size();
+    }
+
+    @Override
+    public List<LedgerEntry> listAccountTransactions(Integer customerId, Integer accountId, Long before, int size)
+            throws CustomerNotFoundException, AccountNotFoundException {
+        checkAccountOwner(customerId, accountId);
+
+        return ledgerEntryRepository.findByAccountIdAndSequenceNumberLessThanOrderBySequenceNumberDesc(accountId,
+                before == null ? Long.MAX_VALUE : before, Limit.of(size));
+    }
+
+    /**
+     * Streams the accounts from a forward-only cursor. They are projected into DTOs, so memory stays flat whatever the
+     * number of accounts.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void exportCustomerAccounts(Consumer<CustomerAccountExportDto> consumer) {
+        try (Stream<CustomerAccountExportDto> accounts = accountRepository.streamCustomerAccountExport()) {
+            accounts.forEach(consumer);
+        }
+    }
+
+    /**
+     * Streams the entries from a forward-only cursor, detaching each of them once consumed so the persistence context
+     * stays empty whatever the length of the history.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void exportAccountStatement(Integer accountId, Consumer<LedgerEntry> consumer) {
+        try (Stream<LedgerEntry> entries = ledgerEntryRepository.streamByAccountIdOrderBySequenceNumberAsc(accountId)) {
+            entries.forEach(entry -> {
+                consumer.accept(entry);
+                entityManager.detach(entry);
+            });
+        }
+    }
+
+    /**
+     * Validates the customer and the account owner.
+     *
+     * @throws CustomerNotFoundException There is no customer with the provided id.
+     * @throws AccountNotFoundException  The account does not exist or belongs to someone else.
+     */
+    private void checkAccountOwner(Integer customerId, Integer accountId) throws CustomerNotFoundException, AccountNotFoundException {
+        if (!customerRepository.existsById(customerId))
+            throw new CustomerNotFoundException();
+
+        if (!accountRepository.isOwnedBy(accountId, customerId))
+            throw new AccountNotFoundException();
+    }
+
+    private static boolean isPhoneNumberViolation(DataIntegrityViolationException e) {
+        return e.getCause() instanceof ConstraintViolationException violation && violation.getConstraintName() != null &&
+                violation.getConstraintName().toLowerCase(Locale.ROOT).contains(Customer.PHONE_NUMBER_CONSTRAINT);
+    }
+
+    /**
+     * Checks the owner of an already loaded account, reading the foreign key without initializing the customer.
+     */
+    private static boolean isOwnedBy(Account account, Integer customerId) {
+        return Objects.equals(account.getCustomer().getId(), customerId);
+    }
+
+    /**
+     * Appends the ledger entry of a movement already applied by a conditional update. The update still holds the row
+     * lock, so the balance and sequence read back here are exactly the ones it produced.
+     */
+    private void recordMovement(Integer accountId, EntryType type, Money signedAmount) {
+        AccountRepository.LedgerState state = accountRepository.findLedgerState(accountId);
+
+        appendLedgerEntry(new LedgerEntry(accountId, state.getLedgerSequence(), type, signedAmount,
+                Money.ofMinor(state.getBalance(), signedAmount.getCurrency()), null));
+    }
+
+    /**
+     * Saves a ledger entry, along with its outbox row for the downstream consumers.
+     */
+    private void appendLedgerEntry(LedgerEntry entry) {
+        ledgerEntryRepository.save(entry);
+        accountEventOutbox.append(entry);
+    }
+
+    /**
+     * Appends the two ledger entries of a transfer applied to the accounts.
+     *
+     * @param optimistic Whether the accounts were read without locks. Their version-checked updates are then flushed
+     *                   first, taking the rows before the entries claim their sequence numbers.
+     */
+    private void recordTransfer(Account originalAccount, Account destinationAccount, Money amount,
+                                FxRateSnapshot.Conversion conversion, boolean optimistic) {
+        LedgerEntry transferOut = new LedgerEntry(originalAccount.getId(), originalAccount.nextLedgerSequence(), TRANSFER_OUT,
+                amount.negate(), originalAccount.getBalance(), destinationAccount.getId(), conversion.rate());
+        LedgerEntry transferIn = new LedgerEntry(destinationAccount.getId(), destinationAccount.nextLedgerSequence(), TRANSFER_IN,
+                conversion.amount(), destinationAccount.getBalance(), originalAccount.getId(), conversion.rate());
+        if (optimistic)
+            accountRepository.flush();
+
+        appendLedgerEntry(transferOut);
+        appendLedgerEntry(transferIn);
+    }
+
+    /**
+     * Converts a transfer's amount into the destination account's currency, with the rates of the current snapshot.
+     * Same-currency transfers are not converted and have no rate.
+     */
+    private FxRateSnapshot.Conversion convert(Money amount, Currency target) throws UnsupportedCurrencyException {
+        if (amount.getCurrency().equals(target))
+            return new FxRateSnapshot.Conversion(amount, null);
+
+        return fxRates.current().convert(amount, target);
+    }
+
+    /**
+     * Moves the deposits sitting in the shards of a sharded account into its balance, with a ledger entry for each of
+     * them. The caller must hold the account's row lock; the shard rows are locked after it, as everywhere else, and
+     * keep new deposits out until the collection commits.
+     */
+    private void collectShards(Account account) {
+        if (account.getShardCount() == 0)
+            return;
+
+        for (AccountShard shard : accountShardRepository.findByAccountIdOrderByShardIndexAsc(account.getId()))
+            shard.setBalance(0);
+
+        recordShardDeposits(account, shardDepositRepository.findByAccountIdOrderByIdAsc(account.getId()));
+    }
+
+    /**
+     * Moves the deposits into the account's balance with a ledger entry for each, and deletes them. Their amounts must
+     * have been taken off the shards already.
+     */
+    private void recordShardDeposits(Account account, List<ShardDeposit> deposits) {
+        for (ShardDeposit deposit : deposits) {
+            Money amount = Money.ofMinor(deposit.getAmount(), account.getCurrency());
+            account.deposit(amount);
+            appendLedgerEntry(new LedgerEntry(account.getId(), account.nextLedgerSequence(), DEPOSIT, amount,
+                    account.getBalance(), null, null, deposit.getCreatedAt()));
+        }
+        shardDepositRepository.deleteAllInBatch(deposits);
+    }
+
+    private void recordOpening(Account account) {
+        appendLedgerEntry(new LedgerEntry(account.getId(), account.nextLedgerSequence(), OPENING,
+                account.getBalance(), account.getBalance(), null));
+    }
+
+    /**
+     * Locks the given accounts in the global (ascending id) order. Large sets are locked in consecutive chunks of
+     * ascending ids, which keeps the order global while bounding the size of each statement.
+     *
+     * @return Locked accounts keyed by their ids, missing accounts are simply absent.
+     */
+    private Map<Integer, Account> lockAccounts(Collection<Integer> accountIds) {
+        List<Integer> sortedIds = accountIds.stream().distinct().sorted().toList();
+
+        Map<Integer, Account> lockedAccounts = new HashMap<>();
+        for (int from = 0; from < sortedIds.size(); from += LOCK_CHUNK_SIZE) {
+            List<Integer> chunk = sortedIds.subList(from, Math.min(from + LOCK_CHUNK_SIZE, sortedIds.size()));
+            accountRepository.findByIdInOrderByIdAsc(chunk).forEach(account -> lockedAccounts.put(account.getId(), account));
+        }
+
+        return lockedAccounts;
+    }
+
+    /**
+     * Reads the given accounts without locks, for the optimistic mode.
+     *
+     * @return Accounts keyed by their ids, missing accounts are simply absent.
+     */
+    private Map<Integer, Account> readAccounts(Collection<Integer> accountIds) {
+        Map<Integer, Account> accounts = new HashMap<>();
+        accountRepository.findUnlockedByIdIn(accountIds).forEach(account -> accounts.put(account.getId(), account));
+
+        return accounts;
+    }
+
+    /**
+     * Locks an account read without a lock, before touching its shards. Fails with a version conflict if the account
+     * changed since it was read, resharding included.
+     */
+    private void lockUnchanged(Account account) {
+        if (account.getShardCount() > 0)
+            entityManager.lock(account, LockModeType.PESSIMISTIC_WRITE, Map.of("jakarta.persistence.lock.timeout", 3000));
     }
 
     private static void checkAmount(BigDecimal amount) throws NegativeAmountException {
@@ -182,4 +866,27 @@ public class SimpleCustomerService implements CustomerService {
             throw new NegativeAmountException();
         }
     }
+
+    /**
+     * Converts an amount to {@linkplain Money} of the currency, rejecting fractions of its minor units.
+     */
+    private static Money toMoney(BigDecimal amount, Currency currency) throws InvalidAmountException {
+        try {
+            return Money.of(amount, currency);
+        } catch (ArithmeticException e) {
+            throw new InvalidAmountException();
+        }
+    }
+
+    /**
+     * Converts an amount to {@linkplain Money} of the default currency, {@code null} if it doesn't fit there. The
+     * account's currency may take more fraction digits, so only the account's currency can reject the amount.
+     */
+    private static Money toDefaultMoney(BigDecimal amount) {
+        try {
+            return Money.of(amount, Money.DEFAULT_CURRENCY);
+        } catch (ArithmeticException e) {
+            return null;
+        }
+    }
 }
@@ -0,0 +1,110 @@
+package com.sajad.banking.BankingApp.service.batch;
+
+import jakarta.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * Applies a batch of operations in a single transaction, and completes them only after the commit.
+ * <p>
+ * An operation rejected by a business rule, i.e. throwing a checked exception, fails on its own and the rest of the
+ * batch commits. A batch failing as a whole, on a lock timeout say, is applied again item by item. A single item is
+ * applied with no transaction open around it, so the service's own transaction and lock failure retries apply.
+ *
+ * @param <T> Type of the batched items.
+ * @author Sajad
+ */
+public final class TransactionalBatch<T> {
+
+    private static final Logger logger = LoggerFactory.getLogger(TransactionalBatch.class);
+
+    private final String name;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final EntityManager entityManager;
+
+    private final Operation<T> operation;
+
+    private final BiConsumer<T, Exception> failure;
+
+    /**
+     * @param name      What applies the batches, for the logs.
+     * @param operation Applies an item, inside the batch's transaction if there is one.
+     * @param failure   Fails an item, with its business rule rejection or the exception it could not be applied with.
+     */
+    public TransactionalBatch(String name, TransactionTemplate transactionTemplate, EntityManager entityManager,
+                              Operation<T> operation, BiConsumer<T, Exception> failure) {
+        this.name = name;
+        this.transactionTemplate = transactionTemplate;
+        this.entityManager = entityManager;
+        this.operation = operation;
+        this.failure = failure;
+    }
+
+    public void apply(List<T> batch) {
+        if (batch.size() == 1) {
+            applyAlone(batch.get(0));
+            return;
+        }
+
+        List<Runnable> completions = new ArrayList<>(batch.size());
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                for (T item : batch) {
+                    completions.add(execute(item));
+                    // Conditional updates bypass the persistence context, so the next item must not find the
+                    // accounts loaded by this one
+                    entityManager.flush();
+                    entityManager.clear();
+                }
+            });
+        } catch (RuntimeException e) {
+            logger.debug("{} could not apply a batch of {}, applying them one by one", name, batch.size(), e);
+            batch.forEach(this::applyAlone);
+            return;
+        }
+
+        completions.forEach(Runnable::run);
+    }
+
+    /**
+     * Applies the item in a transaction of its own.
+     */
+    private void applyAlone(T item) {
+        Runnable completion;
+        try {
+            completion = execute(item);
+        } catch (RuntimeException e) {
+            failure.accept(item, e);
+            return;
+        }
+
+        completion.run();
+    }
+
+    private Runnable execute(T item) {
+        try {
+            return operation.apply(item);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            // Rejected by a business rule, the rest of the batch goes on
+            return () -> failure.accept(item, e);
+        }
+    }
+
+    @FunctionalInterface
+    public interface Operation<T> {
+        /**
+         * @return What to do once the item is committed.
+         * @throws Exception If a business rule rejects the item.
+         */
+        Runnable apply(T item) throws Exception;
+    }
+}
@@ -0,0 +1,144 @@
+package com.sajad.banking.BankingApp.service.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.sajad.banking.BankingApp.web.dto.account.AccountDto;
+import com.sajad.banking.BankingApp.web.dto.customer.CustomerDetailDto;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Supplier;
+
+/**
+ * Size-bounded read-through cache of the customer detail and account list reads, keyed by customer id.
+ * <p>
+ * Entries are invalidated after the commit of every transaction that changed the customer's accounts. A read racing
+ * such a commit may have loaded the old state, so every invalidation bumps a generation counter, and a loaded value is
+ * only cached if the generation of its customer did not move while it was being loaded. The check and the put happen
+ * atomically with respect to the invalidation of the same key.
+ * <p>
+ * The hit and miss statistics of both caches are published as {@code cache.*} meters.
+ *
+ * @author Sajad
+ */
+@Component
+public class CustomerReadCache implements MeterBinder {
+
+    /**
+     * Number of generation counters, customers sharing a counter only cost each other some extra misses.
+     */
+    private static final int GENERATION_STRIPES = 1024;
+
+    private final boolean enabled;
+
+    private final Cache<Integer, CustomerDetailDto> customerDetails;
+
+    private final Cache<Integer, List<AccountDto>> customerAccounts;
+
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+
+    @Autowired
+    public CustomerReadCache(@Value("${banking.read-cache.enabled:true}") boolean enabled,
+                             @Value("${banking.read-cache.max-customers:10000}") long maxCustomers) {
+        this.enabled = enabled;
+        this.customerDetails = Caffeine.newBuilder().maximumSize(maxCustomers).recordStats().build();
+        this.customerAccounts = Caffeine.newBuilder().maximumSize(maxCustomers).recordStats().build();
+    }
+
+    /**
+     * Reads a customer's detail through the cache.
+     *
+     * @param loader Loads the detail from the database, {@code null} if there is no such customer.
+     */
+    public CustomerDetailDto getCustomerDetail(Integer customerId, Supplier<CustomerDetailDto> loader) {
+        return read(customerDetails, customerId, loader);
+    }
+
+    /**
+     * Reads a customer's accounts through the cache.
+     *
+     * @param loader Loads the accounts from the database, {@code null} if there is no such customer.
+     */
+    public List<AccountDto> getCustomerAccounts(Integer customerId, Supplier<List<AccountDto>> loader) {
+        return read(customerAccounts, customerId, loader);
+    }
+
+    /**
+     * Invalidates the customers' entries once the current transaction commits, or right away without a transaction.
+     */
+    public void invalidateAfterCommit(Collection<Integer> customerIds) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            customerIds.forEach(this::invalidate);
+            return;
+        }
+
+        Set<Integer> invalidatedIds = Set.copyOf(customerIds);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                invalidatedIds.forEach(CustomerReadCache.this::invalidate);
+            }
+        });
+    }
+
+    public void invalidateAfterCommit(Integer customerId) {
+        invalidateAfterCommit(Set.of(customerId));
+    }
+
+    public CacheStats customerDetailStats() {
+        return customerDetails.stats();
+    }
+
+    public CacheStats customerAccountsStats() {
+        return customerAccounts.stats();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, customerDetails, "customer-detail");
+        CaffeineCacheMetrics.monitor(registry, customerAccounts, "customer-accounts");
+    }
+
+    private <V> V read(Cache<Integer, V> cache, Integer customerId, Supplier<V> loader) {
+        if (!enabled)
+            return loader.get();
+
+        V cached = cache.getIfPresent(customerId);
+        if (cached != null)
+            return cached;
+
+        int stripe = stripe(customerId);
+        long generation = generations.get(stripe);
+        V loaded = loader.get();
+
+        if (loaded != null)
+            cache.asMap().compute(customerId, (id, current) -> generations.get(stripe) == generation ? loaded : current);
+
+        return loaded;
+    }
+
+    private void invalidate(Integer customerId) {
+        int stripe = stripe(customerId);
+        for (Cache<Integer, ?> cache : List.of(customerDetails, customerAccounts)) {
+            cache.asMap().compute(customerId, (id, current) -> {
+                generations.incrementAndGet(stripe);
+                return null;
+            });
+        }
+    }
+
+    private static int stripe(Integer customerId) {
+        return Math.floorMod(customerId, GENERATION_STRIPES);
+    }
+}
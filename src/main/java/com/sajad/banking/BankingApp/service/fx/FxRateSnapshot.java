@@ -0,0 +1,105 @@
+package com.sajad.banking.BankingApp.service.fx;
+
+import com.sajad.banking.BankingApp.exception.account.UnsupportedCurrencyException;
+import com.sajad.banking.BankingApp.model.money.Money;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.util.Currency;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * An immutable set of exchange rates, as loaded at a point in time.
+ * <p>
+ * The rates are quoted against a base currency and every cross rate is computed once when the snapshot is built, so
+ * converting an amount is two map lookups and a multiplication. Converted amounts are rounded to the target
+ * currency's minor units with {@linkplain #ROUNDING_MODE}.
+ *
+ * @author Sajad
+ */
+public final class FxRateSnapshot {
+
+    /**
+     * Rounding of converted amounts to the minor units of the target currency.
+     */
+    public static final RoundingMode ROUNDING_MODE = RoundingMode.HALF_EVEN;
+
+    /**
+     * Fraction digits of the cross rates.
+     */
+    static final int RATE_SCALE = 10;
+
+    private final Currency baseCurrency;
+
+    private final Map<Currency, Map<Currency, BigDecimal>> crossRates;
+
+    private final Instant loadedAt;
+
+    /**
+     * @param baseCurrency Currency the rates are quoted against.
+     * @param quotes       Units of every currency per unit of the base currency, the base currency itself is implied.
+     */
+    public FxRateSnapshot(Currency baseCurrency, Map<Currency, BigDecimal> quotes, Instant loadedAt) {
+        Map<Currency, BigDecimal> allQuotes = new HashMap<>(quotes);
+        allQuotes.put(baseCurrency, BigDecimal.ONE);
+        allQuotes.forEach((currency, quote) -> {
+            if (quote.signum() <= 0)
+                throw new IllegalArgumentException("Non-positive rate for " + currency + ": " + quote);
+        });
+
+        Map<Currency, Map<Currency, BigDecimal>> crossRates = new HashMap<>();
+        allQuotes.forEach((from, fromQuote) -> {
+            Map<Currency, BigDecimal> fromRates = new HashMap<>();
+            allQuotes.forEach((to, toQuote) -> fromRates.put(to, toQuote.divide(fromQuote, RATE_SCALE, ROUNDING_MODE)));
+            crossRates.put(from, Map.copyOf(fromRates));
+        });
+
+        this.baseCurrency = baseCurrency;
+        this.crossRates = Map.copyOf(crossRates);
+        this.loadedAt = loadedAt;
+    }
+
+    public Currency getBaseCurrency() {
+        return baseCurrency;
+    }
+
+    public Instant getLoadedAt() {
+        return loadedAt;
+    }
+
+    /**
+     * Units of the target currency per unit of the source currency.
+     *
+     * @throws UnsupportedCurrencyException If either currency has no rate.
+     */
+    public BigDecimal rate(Currency from, Currency to) throws UnsupportedCurrencyException {
+        Map<Currency, BigDecimal> fromRates = crossRates.get(from);
+        BigDecimal rate = fromRates == null ? null : fromRates.get(to);
+        if (rate == null)
+            throw new UnsupportedCurrencyException();
+
+        return rate;
+    }
+
+    /**
+     * Converts an amount into the target currency, rounding to the target's minor units.
+     *
+     * @throws UnsupportedCurrencyException If either currency has no rate.
+     */
+    public Conversion convert(Money amount, Currency target) throws UnsupportedCurrencyException {
+        BigDecimal rate = rate(amount.getCurrency(), target);
+        BigDecimal converted = BigDecimal.valueOf(amount.getMinorUnits(), Money.scale(amount.getCurrency()))
+                .multiply(rate)
+                .setScale(Money.scale(target), ROUNDING_MODE);
+
+        return new Conversion(Money.of(converted, target), rate);
+    }
+
+    /**
+     * A converted amount and the rate it was converted with.
+     */
+    public record Conversion(Money amount, BigDecimal rate) {
+    }
+}
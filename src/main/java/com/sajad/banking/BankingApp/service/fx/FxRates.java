@@ -0,0 +1,95 @@
+package com.sajad.banking.BankingApp.service.fx;
+
+import com.sajad.banking.BankingApp.model.money.Money;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Currency;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Holds the current {@linkplain FxRateSnapshot}, loaded from a rates file and reloaded periodically.
+ * <p>
+ * A reload builds a whole new snapshot off the request threads, then publishes it with a single volatile write.
+ * Transfers read the reference once and convert with that snapshot, so they never query the database for rates nor
+ * wait for a reload, and a transfer never mixes rates of two loads. A file that fails to load leaves the previous
+ * snapshot in place.
+ * <p>
+ * The file has one {@code currency,rate} line per currency, quoting the units of that currency per unit of
+ * {@linkplain Money#DEFAULT_CURRENCY}; blank lines and lines starting with {@code #} are ignored.
+ *
+ * @author Sajad
+ */
+@Component
+public class FxRates {
+
+    private static final Logger logger = LoggerFactory.getLogger(FxRates.class);
+
+    private final Resource ratesFile;
+
+    private volatile FxRateSnapshot current;
+
+    @Autowired
+    public FxRates(@Value("${banking.fx.rates-file:classpath:fx-rates.csv}") Resource ratesFile) throws IOException {
+        this.ratesFile = ratesFile;
+        this.current = load();
+    }
+
+    /**
+     * The latest successfully loaded snapshot.
+     */
+    public FxRateSnapshot current() {
+        return current;
+    }
+
+    /**
+     * Loads the rates file again and swaps the snapshot in, keeping the current one if the file is unreadable or
+     * invalid.
+     *
+     * @return The snapshot in use after the reload.
+     */
+    @Scheduled(fixedDelayString = "${banking.fx.reload-interval:PT5M}", initialDelayString = "${banking.fx.reload-interval:PT5M}")
+    public FxRateSnapshot reload() {
+        try {
+            current = load();
+        } catch (IOException | UncheckedIOException | IllegalArgumentException e) {
+            logger.warn("Could not reload the exchange rates from {}, keeping the ones loaded at {}", ratesFile,
+                    current.getLoadedAt(), e);
+        }
+
+        return current;
+    }
+
+    private FxRateSnapshot load() throws IOException {
+        Map<Currency, BigDecimal> quotes = new HashMap<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(ratesFile.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.strip();
+                if (line.isEmpty() || line.startsWith("#"))
+                    continue;
+
+                String[] columns = line.split(",");
+                if (columns.length != 2)
+                    throw new IllegalArgumentException("Malformed exchange rate line: " + line);
+
+                quotes.put(Currency.getInstance(columns[0].strip()), new BigDecimal(columns[1].strip()));
+            }
+        }
+
+        return new FxRateSnapshot(Money.DEFAULT_CURRENCY, quotes, Instant.now());
+    }
+}
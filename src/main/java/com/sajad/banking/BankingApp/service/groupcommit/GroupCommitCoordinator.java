@@ -0,0 +1,204 @@
+package com.sajad.banking.BankingApp.service.groupcommit;
+
+import com.sajad.banking.BankingApp.service.SimpleCustomerService;
+import com.sajad.banking.BankingApp.service.batch.TransactionalBatch;
+import com.sajad.banking.BankingApp.service.metrics.BankingMetricsAspect;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Group commit of the deposits and withdrawals: concurrent movements share a single transaction, and its commit,
+ * instead of committing one by one.
+ * <p>
+ * Movements are queued, and a committer thread collects them into batches: a batch takes what arrives within the
+ * window after its first movement, up to the maximum batch size. A wider window or a bigger batch means fewer commits
+ * for more waiting; a zero window only groups the movements queued while the previous batch was committing.
+ * <p>
+ * A batch applies its movements in account id order, the order every other row lock is taken in. A movement rejected
+ * by a business rule fails on its own, the rest of the batch commits. A batch failing as a whole, on a lock timeout
+ * say, is applied again movement by movement, each in its own transaction with the usual retries.
+ *
+ * @author Sajad
+ */
+@Component
+@ConditionalOnProperty(name = "banking.group-commit.enabled")
+public class GroupCommitCoordinator implements Runnable, InitializingBean, DisposableBean {
+
+    private static final long IDLE_POLL_MILLIS = 50;
+
+    private final SimpleCustomerService customerService;
+
+    private final TransactionalBatch<Movement> transactionalBatch;
+
+    private final long windowNanos;
+
+    private final int maxBatchSize;
+
+    private final BlockingQueue<Movement> queue;
+
+    private final DistributionSummary batchSizes;
+
+    private final Thread committer = Thread.ofPlatform().name("group-commit").daemon().unstarted(this);
+
+    private volatile boolean running = true;
+
+    @Autowired
+    public GroupCommitCoordinator(SimpleCustomerService customerService, TransactionTemplate transactionTemplate,
+                                  EntityManager entityManager, MeterRegistry meterRegistry,
+                                  @Value("${banking.group-commit.window:2ms}") Duration window,
+                                  @Value("${banking.group-commit.max-batch-size:128}") int maxBatchSize,
+                                  @Value("${banking.group-commit.queue-capacity:10000}") int queueCapacity,
+                                  @Value("${banking.ledger.memory.enabled:false}") boolean memoryLedger) {
+        // Both replace the customer service's deposits and withdrawals
+        if (memoryLedger)
+            throw new IllegalStateException("Group commit and the memory ledger cannot be enabled together");
+
+        this.customerService = customerService;
+        this.transactionalBatch = new TransactionalBatch<>("Group commit", transactionTemplate, entityManager,
+                this::apply, (movement, e) -> movement.result().completeExceptionally(e));
+        this.windowNanos = window.toNanos();
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSizes = DistributionSummary.builder("banking.group-commit.batch.size")
+                .description("Deposits and withdrawals committed together")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        committer.start();
+    }
+
+    /**
+     * Stops taking movements, and waits for the queued ones to be committed.
+     */
+    @Override
+    public void destroy() throws InterruptedException {
+        running = false;
+        committer.join();
+
+        // Queued while the committer was stopping
+        for (Movement movement; (movement = queue.poll()) != null; )
+            movement.result().completeExceptionally(new IllegalStateException("Group commit is stopped"));
+    }
+
+    public CompletableFuture<Void> deposit(Integer customerId, Integer accountId, BigDecimal amount) {
+        return submit(new Movement(false, customerId, accountId, amount, new CompletableFuture<>()));
+    }
+
+    public CompletableFuture<Void> withdraw(Integer customerId, Integer accountId, BigDecimal amount) {
+        return submit(new Movement(true, customerId, accountId, amount, new CompletableFuture<>()));
+    }
+
+    @Override
+    public void run() {
+        // The callers time their own operations, waiting for the batch included
+        BankingMetricsAspect.runUntimed(() -> {
+            List<Movement> batch = new ArrayList<>(maxBatchSize);
+            try {
+                while (running || !queue.isEmpty()) {
+                    batch.clear();
+                    if (collect(batch))
+                        commit(batch);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+    }
+
+    /**
+     * Waits for a movement, then collects the ones arriving within the window.
+     *
+     * @return Whether a batch was collected.
+     */
+    private boolean collect(List<Movement> batch) throws InterruptedException {
+        Movement first = queue.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+        if (first == null)
+            return false;
+
+        batch.add(first);
+        long deadline = System.nanoTime() + windowNanos;
+        while (batch.size() < maxBatchSize) {
+            queue.drainTo(batch, maxBatchSize - batch.size());
+
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= maxBatchSize || remaining <= 0)
+                break;
+
+            Movement next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null)
+                break;
+            batch.add(next);
+        }
+
+        return true;
+    }
+
+    private void commit(List<Movement> batch) {
+        batchSizes.record(batch.size());
+        batch.sort(Comparator.comparing(Movement::accountId, Comparator.nullsFirst(Comparator.naturalOrder())));
+        transactionalBatch.apply(batch);
+    }
+
+    /**
+     * Applies the movement, inside the batch's transaction if there is one.
+     *
+     * @return What to do once the movement is committed.
+     */
+    private Runnable apply(Movement movement) throws Exception {
+        if (movement.withdrawal())
+            customerService.withdraw(movement.customerId(), movement.accountId(), movement.amount());
+        else
+            customerService.deposit(movement.customerId(), movement.accountId(), movement.amount());
+
+        return () -> movement.result().complete(null);
+    }
+
+    /**
+     * Queues the movement, waiting for room if the queue is full.
+     */
+    private CompletableFuture<Void> submit(Movement movement) {
+        if (!running) {
+            movement.result().completeExceptionally(new IllegalStateException("Group commit is stopped"));
+            return movement.result();
+        }
+
+        try {
+            queue.put(movement);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            movement.result().completeExceptionally(e);
+            return movement.result();
+        }
+
+        // Stopped while queueing, after the committer and destroy may have drained the queue for the last time. If the
+        // movement is still there, nobody else is going to take it.
+        if (!running && queue.remove(movement))
+            movement.result().completeExceptionally(new IllegalStateException("Group commit is stopped"));
+
+        return movement.result();
+    }
+
+    private record Movement(boolean withdrawal, Integer customerId, Integer accountId, BigDecimal amount,
+                            CompletableFuture<Void> result) {
+    }
+}
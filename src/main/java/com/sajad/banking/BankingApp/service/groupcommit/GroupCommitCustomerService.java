@@ -0,0 +1,182 @@
+package com.sajad.banking.BankingApp.service.groupcommit;
+
+import com.sajad.banking.BankingApp.exception.account.*;
+import com.sajad.banking.BankingApp.exception.customer.CustomerDeleteException;
+import com.sajad.banking.BankingApp.exception.customer.CustomerExistsException;
+import com.sajad.banking.BankingApp.exception.customer.CustomerNotFoundException;
+import com.sajad.banking.BankingApp.model.Account;
+import com.sajad.banking.BankingApp.model.Customer;
+import com.sajad.banking.BankingApp.model.LedgerEntry;
+import com.sajad.banking.BankingApp.service.CustomerService;
+import com.sajad.banking.BankingApp.service.onboarding.ImportOutcome;
+import com.sajad.banking.BankingApp.service.transfer.BatchTransferMode;
+import com.sajad.banking.BankingApp.service.transfer.Transfer;
+import com.sajad.banking.BankingApp.service.transfer.TransferOutcome;
+import com.sajad.banking.BankingApp.web.dto.account.AccountDto;
+import com.sajad.banking.BankingApp.web.dto.customer.CustomerAccountExportDto;
+import com.sajad.banking.BankingApp.web.dto.customer.CustomerDetailDto;
+import com.sajad.banking.BankingApp.web.dto.customer.CustomerListDto;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * Customer service of the group commit mode: deposits and withdrawals go through the
+ * {@linkplain GroupCommitCoordinator} and wait for their batch to commit, everything else goes straight to the
+ * database-backed service.
+ *
+ * @author Sajad
+ */
+@Service
+@Primary
+@ConditionalOnProperty(name = "banking.group-commit.enabled")
+public class GroupCommitCustomerService implements CustomerService {
+
+    private final CustomerService customerService;
+
+    private final GroupCommitCoordinator groupCommitCoordinator;
+
+    @Autowired
+    public GroupCommitCustomerService(@Qualifier("simpleCustomerService") CustomerService customerService,
+                                      GroupCommitCoordinator groupCommitCoordinator) {
+        this.customerService = customerService;
+        this.groupCommitCoordinator = groupCommitCoordinator;
+    }
+
+    @Override
+    public Optional<CustomerDetailDto> findCustomer(Integer customerId) {
+        return customerService.findCustomer(customerId);
+    }
+
+    @Override
+    public Page<Customer> listCustomer(Pageable pageable) {
+        return customerService.listCustomer(pageable);
+    }
+
+    @Override
+    public List<CustomerListDto> listCustomersAfter(Integer afterId, int size) {
+        return customerService.listCustomersAfter(afterId, size);
+    }
+
+    @Override
+    public void createNewCustomer(Customer customer) throws CustomerExistsException {
+        customerService.createNewCustomer(customer);
+    }
+
+    @Override
+    public List<ImportOutcome> importCustomers(List<Customer> customers) {
+        return customerService.importCustomers(customers);
+    }
+
+    @Override
+    public List<AccountDto> listCustomerAccounts(Integer customerId) throws CustomerNotFoundException {
+        return customerService.listCustomerAccounts(customerId);
+    }
+
+    @Override
+    public void deleteCustomer(Integer customerId) throws CustomerNotFoundException, CustomerDeleteException {
+        customerService.deleteCustomer(customerId);
+    }
+
+    @Override
+    public void addCustomerAccount(Integer customerId, Account account) throws CustomerNotFoundException {
+        customerService.addCustomerAccount(customerId, account);
+    }
+
+    @Override
+    public void deleteCustomerAccount(Integer customerId, Integer accountId) throws CustomerNotFoundException,
+            AccountNotFoundException, BalanceAccountDeleteException, OnlyAccountDeleteException {
+        customerService.deleteCustomerAccount(customerId, accountId);
+    }
+
+    @Override
+    public void transfer(Integer customerId, Integer fromAccountId, Integer toAccountId, BigDecimal amount)
+            throws CustomerNotFoundException, AccountNotFoundException, BalanceNotEnoughException, NegativeAmountException,
+            InvalidAmountException, InvalidTransferDetails, UnsupportedCurrencyException {
+        customerService.transfer(customerId, fromAccountId, toAccountId, amount);
+    }
+
+    @Override
+    public List<TransferOutcome> batchTransfer(Integer customerId, List<Transfer> transfers, BatchTransferMode mode)
+            throws CustomerNotFoundException {
+        return customerService.batchTransfer(customerId, transfers, mode);
+    }
+
+    @Override
+    public void deposit(Integer customerId, Integer accountId, BigDecimal amount) throws CustomerNotFoundException,
+            AccountNotFoundException, NegativeAmountException, InvalidAmountException {
+        Throwable failure = await(groupCommitCoordinator.deposit(customerId, accountId, amount));
+        rethrowIf(failure, CustomerNotFoundException.class);
+        rethrowIf(failure, AccountNotFoundException.class);
+        rethrowIf(failure, NegativeAmountException.class);
+        rethrowIf(failure, InvalidAmountException.class);
+        rethrowUnchecked(failure);
+    }
+
+    @Override
+    public void withdraw(Integer customerId, Integer accountId, BigDecimal amount) throws CustomerNotFoundException,
+            AccountNotFoundException, NegativeAmountException, InvalidAmountException, BalanceNotEnoughException {
+        Throwable failure = await(groupCommitCoordinator.withdraw(customerId, accountId, amount));
+        rethrowIf(failure, CustomerNotFoundException.class);
+        rethrowIf(failure, AccountNotFoundException.class);
+        rethrowIf(failure, NegativeAmountException.class);
+        rethrowIf(failure, InvalidAmountException.class);
+        rethrowIf(failure, BalanceNotEnoughException.class);
+        rethrowUnchecked(failure);
+    }
+
+    @Override
+    public void shardAccount(Integer customerId, Integer accountId, int shards) throws CustomerNotFoundException,
+            AccountNotFoundException {
+        customerService.shardAccount(customerId, accountId, shards);
+    }
+
+    @Override
+    public List<LedgerEntry> listAccountTransactions(Integer customerId, Integer accountId, Long before, int size)
+            throws CustomerNotFoundException, AccountNotFoundException {
+        return customerService.listAccountTransactions(customerId, accountId, before, size);
+    }
+
+    @Override
+    public void exportCustomerAccounts(Consumer<CustomerAccountExportDto> consumer) {
+        customerService.exportCustomerAccounts(consumer);
+    }
+
+    @Override
+    public void exportAccountStatement(Integer accountId, Consumer<LedgerEntry> consumer) {
+        customerService.exportAccountStatement(accountId, consumer);
+    }
+
+    /**
+     * Waits for the movement's batch to commit.
+     *
+     * @return Why the movement failed, {@code null} if it was committed.
+     */
+    private static Throwable await(CompletableFuture<Void> movement) {
+        return movement.handle((committed, failure) -> failure).join();
+    }
+
+    private static <X extends Exception> void rethrowIf(Throwable failure, Class<X> type) throws X {
+        if (type.isInstance(failure))
+            throw type.cast(failure);
+    }
+
+    private static void rethrowUnchecked(Throwable failure) {
+        if (failure instanceof RuntimeException e)
+            throw e;
+        if (failure instanceof Error e)
+            throw e;
+        if (failure != null)
+            throw new IllegalStateException(failure);
+    }
+}
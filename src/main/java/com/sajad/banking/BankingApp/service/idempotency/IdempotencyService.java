@@ -0,0 +1,127 @@
+package com.sajad.banking.BankingApp.service.idempotency;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.sajad.banking.BankingApp.model.IdempotencyRecord;
+import com.sajad.banking.BankingApp.repository.idempotency.IdempotencyRecordRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Keeps track of idempotency keys.
+ * <p>
+ * The dedup table is the source of truth and its primary key decides which of the concurrent requests with the same
+ * key gets executed. Completed responses are also kept in a bounded, expiring in-memory cache, so most retries are
+ * answered without a database round-trip. The cache statistics are published as {@code cache.*} meters.
+ *
+ * @author Sajad
+ */
+@Service
+public class IdempotencyService implements MeterBinder {
+
+    private final IdempotencyRecordRepository idempotencyRecordRepository;
+
+    private final Cache<String, StoredResponse> completedResponses;
+
+    private final Duration retention;
+
+    @Autowired
+    public IdempotencyService(IdempotencyRecordRepository idempotencyRecordRepository,
+                              @Value("${banking.idempotency.cache-size:10000}") long cacheSize,
+                              @Value("${banking.idempotency.cache-ttl:10m}") Duration cacheTtl,
+                              @Value("${banking.idempotency.retention:24h}") Duration retention) {
+        this.idempotencyRecordRepository = idempotencyRecordRepository;
+        this.retention = retention;
+        this.completedResponses = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(cacheTtl)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Finds the stored response of a key.
+     *
+     * @return The stored response, {@code null} if the key is unknown or its request is still in progress.
+     */
+    public StoredResponse findResponse(String key) {
+        StoredResponse response = completedResponses.getIfPresent(key);
+        if (response != null)
+            return response;
+
+        IdempotencyRecord idempotencyRecord = idempotencyRecordRepository.findById(key).orElse(null);
+        if (idempotencyRecord == null || !idempotencyRecord.isCompleted())
+            return null;
+
+        response = new StoredResponse(idempotencyRecord.getRequestHash(), idempotencyRecord.getResponseStatus(),
+                idempotencyRecord.getResponseContentType(), idempotencyRecord.getResponseBody());
+        completedResponses.put(key, response);
+
+        return response;
+    }
+
+    /**
+     * Claims a key for a request, in its own transaction.
+     *
+     * @return {@code true} if the caller got the key and should execute the request, {@code false} if another request
+     * claimed it first.
+     */
+    public boolean claim(String key, String requestHash) {
+        try {
+            idempotencyRecordRepository.saveAndFlush(new IdempotencyRecord(key, requestHash));
+            return true;
+        } catch (DataIntegrityViolationException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Stores the response of a claimed key, retries of the request get it from now on.
+     */
+    @Transactional
+    public void complete(String key, StoredResponse response) {
+        idempotencyRecordRepository.findById(key).ifPresent(idempotencyRecord ->
+                idempotencyRecord.complete(response.status(), response.contentType(), response.body()));
+
+        completedResponses.put(key, response);
+    }
+
+    /**
+     * Gives up a claimed key, so the request can be retried. Only successful responses are stored.
+     */
+    public void release(String key) {
+        idempotencyRecordRepository.deleteById(key);
+    }
+
+    /**
+     * Hit and miss counts of the in-memory cache.
+     */
+    public CacheStats cacheStats() {
+        return completedResponses.stats();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, completedResponses, "idempotency-responses");
+    }
+
+    /**
+     * Drops the keys older than the retention, including the ones left in progress by a crashed request.
+     */
+    @Scheduled(fixedDelayString = "${banking.idempotency.purge-interval:PT1H}")
+    @Transactional
+    public void purgeExpiredKeys() {
+        idempotencyRecordRepository.deleteCreatedBefore(Instant.now().minus(retention));
+    }
+}
@@ -0,0 +1,9 @@
+package com.sajad.banking.BankingApp.service.idempotency;
+
+/**
+ * Response of a completed idempotent request, replayed to the retries of the same request.
+ *
+ * @param requestHash Fingerprint of the request that produced the response.
+ */
+public record StoredResponse(String requestHash, int status, String contentType, byte[] body) {
+}
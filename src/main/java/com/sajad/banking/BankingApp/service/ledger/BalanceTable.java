@@ -0,0 +1,265 @@
+package com.sajad.banking.BankingApp.service.ledger;
+
+import java.util.Arrays;
+import java.util.Currency;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Balances of the memory-resident accounts, keyed by account id.
+ * <p>
+ * The table is split into stripes by account id; each stripe is an open-addressing hash table over primitive arrays,
+ * guarded by its own lock. Callers lock the stripes of the accounts they work on, through {@linkplain #lock}, before
+ * calling any other method; stripes are always locked in ascending order, so callers never deadlock each other.
+ *
+ * @author Sajad
+ */
+final class BalanceTable {
+
+    private final Stripe[] stripes;
+
+    /**
+     * @param stripeCount Number of stripes, rounded up to a power of two.
+     */
+    BalanceTable(int stripeCount) {
+        stripes = new Stripe[Integer.highestOneBit(Math.max(1, stripeCount - 1)) << 1];
+        for (int i = 0; i < stripes.length; i++)
+            stripes[i] = new Stripe();
+    }
+
+    /**
+     * Locks the stripes of the given accounts, in ascending stripe order.
+     */
+    void lock(int... accountIds) {
+        for (int stripe : stripesOf(accountIds))
+            stripes[stripe].lock.lock();
+    }
+
+    void unlock(int... accountIds) {
+        int[] stripeIndexes = stripesOf(accountIds);
+        for (int i = stripeIndexes.length - 1; i >= 0; i--)
+            stripes[stripeIndexes[i]].lock.unlock();
+    }
+
+    boolean contains(int accountId) {
+        return stripe(accountId).indexOf(accountId) >= 0;
+    }
+
+    int customerId(int accountId) {
+        Stripe stripe = stripe(accountId);
+        return stripe.customerIds[stripe.slotOf(accountId)];
+    }
+
+    Currency currency(int accountId) {
+        Stripe stripe = stripe(accountId);
+        return stripe.currencies[stripe.slotOf(accountId)];
+    }
+
+    long balance(int accountId) {
+        Stripe stripe = stripe(accountId);
+        return stripe.balances[stripe.slotOf(accountId)];
+    }
+
+    /**
+     * Sequence number of the account's latest ledger entry.
+     */
+    long sequence(int accountId) {
+        Stripe stripe = stripe(accountId);
+        return stripe.sequences[stripe.slotOf(accountId)];
+    }
+
+    void update(int accountId, long balance, long sequence) {
+        Stripe stripe = stripe(accountId);
+        int slot = stripe.slotOf(accountId);
+        stripe.balances[slot] = balance;
+        stripe.sequences[slot] = sequence;
+    }
+
+    void put(int accountId, int customerId, Currency currency, long balance, long sequence) {
+        stripe(accountId).put(accountId, customerId, currency, balance, sequence);
+    }
+
+    void remove(int accountId) {
+        stripe(accountId).remove(accountId);
+    }
+
+    int stripeCount() {
+        return stripes.length;
+    }
+
+    /**
+     * Copies the accounts of a stripe, under its lock.
+     */
+    void copyStripe(int stripeIndex, AccountVisitor visitor) {
+        Stripe stripe = stripes[stripeIndex];
+        int[] keys;
+        int[] customerIds;
+        Currency[] currencies;
+        long[] balances;
+        long[] sequences;
+
+        stripe.lock.lock();
+        try {
+            keys = stripe.keys.clone();
+            customerIds = stripe.customerIds.clone();
+            currencies = stripe.currencies.clone();
+            balances = stripe.balances.clone();
+            sequences = stripe.sequences.clone();
+        } finally {
+            stripe.lock.unlock();
+        }
+
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != Stripe.EMPTY)
+                visitor.visit(keys[slot], customerIds[slot], currencies[slot], balances[slot], sequences[slot]);
+        }
+    }
+
+    private Stripe stripe(int accountId) {
+        return stripes[stripeIndex(accountId)];
+    }
+
+    private int stripeIndex(int accountId) {
+        return mix(accountId) & (stripes.length - 1);
+    }
+
+    private int[] stripesOf(int[] accountIds) {
+        int[] stripeIndexes = new int[accountIds.length];
+        for (int i = 0; i < accountIds.length; i++)
+            stripeIndexes[i] = stripeIndex(accountIds[i]);
+
+        return Arrays.stream(stripeIndexes).sorted().distinct().toArray();
+    }
+
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Hash of a key within its stripe, independent of the one picking the stripe.
+     */
+    private static int slotHash(int key) {
+        int h = key * 0x85EBCA6B;
+        return h ^ (h >>> 13);
+    }
+
+    @FunctionalInterface
+    interface AccountVisitor {
+        void visit(int accountId, int customerId, Currency currency, long balance, long sequence);
+    }
+
+    /**
+     * Linear probing table; account ids are positive, so zero marks an empty slot. Removal shifts the following
+     * entries of the probe chain back, which keeps lookups free of tombstones.
+     */
+    private static final class Stripe {
+
+        static final int EMPTY = 0;
+
+        final ReentrantLock lock = new ReentrantLock();
+
+        int[] keys = new int[16];
+
+        int[] customerIds = new int[16];
+
+        Currency[] currencies = new Currency[16];
+
+        long[] balances = new long[16];
+
+        long[] sequences = new long[16];
+
+        int size;
+
+        int indexOf(int key) {
+            int mask = keys.length - 1;
+            for (int slot = slotHash(key) & mask; ; slot = (slot + 1) & mask) {
+                if (keys[slot] == key)
+                    return slot;
+                if (keys[slot] == EMPTY)
+                    return -1;
+            }
+        }
+
+        int slotOf(int key) {
+            int slot = indexOf(key);
+            if (slot < 0)
+                throw new IllegalStateException("Account " + key + " is not in the table");
+
+            return slot;
+        }
+
+        void put(int key, int customerId, Currency currency, long balance, long sequence) {
+            if (key <= 0)
+                throw new IllegalArgumentException("Invalid account id " + key);
+
+            if ((size + 1) * 2 > keys.length)
+                resize(keys.length * 2);
+
+            int mask = keys.length - 1;
+            int slot = slotHash(key) & mask;
+            while (keys[slot] != EMPTY && keys[slot] != key)
+                slot = (slot + 1) & mask;
+
+            if (keys[slot] == EMPTY)
+                size++;
+            keys[slot] = key;
+            customerIds[slot] = customerId;
+            currencies[slot] = currency;
+            balances[slot] = balance;
+            sequences[slot] = sequence;
+        }
+
+        void remove(int key) {
+            int slot = indexOf(key);
+            if (slot < 0)
+                return;
+
+            int mask = keys.length - 1;
+            int next = slot;
+            while (true) {
+                next = (next + 1) & mask;
+                if (keys[next] == EMPTY)
+                    break;
+
+                // Moves the entry back unless its home slot lies cyclically in (slot, next]
+                int home = slotHash(keys[next]) & mask;
+                if (slot <= next ? (home <= slot || home > next) : (home <= slot && home > next)) {
+                    move(next, slot);
+                    slot = next;
+                }
+            }
+
+            keys[slot] = EMPTY;
+            currencies[slot] = null;
+            size--;
+        }
+
+        private void move(int from, int to) {
+            keys[to] = keys[from];
+            customerIds[to] = customerIds[from];
+            currencies[to] = currencies[from];
+            balances[to] = balances[from];
+            sequences[to] = sequences[from];
+        }
+
+        private void resize(int capacity) {
+            int[] oldKeys = keys;
+            int[] oldCustomerIds = customerIds;
+            Currency[] oldCurrencies = currencies;
+            long[] oldBalances = balances;
+            long[] oldSequences = sequences;
+
+            keys = new int[capacity];
+            customerIds = new int[capacity];
+            currencies = new Currency[capacity];
+            balances = new long[capacity];
+            sequences = new long[capacity];
+            size = 0;
+
+            for (int slot = 0; slot < oldKeys.length; slot++) {
+                if (oldKeys[slot] != EMPTY)
+                    put(oldKeys[slot], oldCustomerIds[slot], oldCurrencies[slot], oldBalances[slot], oldSequences[slot]);
+            }
+        }
+    }
+}
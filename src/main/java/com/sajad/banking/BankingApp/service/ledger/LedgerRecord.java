@@ -0,0 +1,137 @@
+package com.sajad.banking.BankingApp.service.ledger;
+
+import com.sajad.banking.BankingApp.model.LedgerEntry;
+import com.sajad.banking.BankingApp.model.LedgerEntry.EntryType;
+import com.sajad.banking.BankingApp.model.money.Money;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Currency;
+import java.util.List;
+
+/**
+ * A record of the memory ledger's write-ahead log: either the ledger entries of one money movement, applied
+ * atomically, or the eviction of accounts from memory.
+ * <p>
+ * Entries carry the account's owner, currency, balance and sequence number after the movement, so replaying a record
+ * restores the state of its accounts without knowing their state before it.
+ *
+ * @param createdAt          When the movement happened.
+ * @param entries            Ledger entries of the movement, empty for an eviction.
+ * @param evictedAccountIds  Accounts handed back to the database, empty for a movement.
+ * @author Sajad
+ */
+record LedgerRecord(Instant createdAt, List<Entry> entries, List<Integer> evictedAccountIds) {
+
+    private static final EntryType[] ENTRY_TYPES = EntryType.values();
+
+    static LedgerRecord movement(List<Entry> entries) {
+        return new LedgerRecord(Instant.now(), entries, List.of());
+    }
+
+    static LedgerRecord eviction(List<Integer> accountIds) {
+        return new LedgerRecord(Instant.now(), List.of(), accountIds);
+    }
+
+    /**
+     * Applies the record to the table. Entries an account has already seen, by their sequence numbers, are skipped,
+     * so a record can be replayed over a snapshot that already holds it.
+     */
+    void applyTo(BalanceTable table) {
+        for (Entry entry : entries) {
+            if (!table.contains(entry.accountId()))
+                table.put(entry.accountId(), entry.customerId(), entry.currency(), entry.balance(), entry.sequenceNumber());
+            else if (table.sequence(entry.accountId()) < entry.sequenceNumber())
+                table.update(entry.accountId(), entry.balance(), entry.sequenceNumber());
+        }
+
+        evictedAccountIds.forEach(table::remove);
+    }
+
+    byte[] encode() {
+        ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES + Integer.BYTES + Integer.BYTES + entries.size() * Entry.MAX_SIZE +
+                Integer.BYTES + evictedAccountIds.size() * Integer.BYTES);
+        buffer.putLong(createdAt.getEpochSecond()).putInt(createdAt.getNano());
+
+        buffer.putInt(entries.size());
+        entries.forEach(entry -> entry.encode(buffer));
+
+        buffer.putInt(evictedAccountIds.size());
+        evictedAccountIds.forEach(buffer::putInt);
+
+        byte[] payload = new byte[buffer.position()];
+        buffer.get(0, payload);
+
+        return payload;
+    }
+
+    static LedgerRecord decode(ByteBuffer buffer) {
+        Instant createdAt = Instant.ofEpochSecond(buffer.getLong(), buffer.getInt());
+
+        int entryCount = buffer.getInt();
+        List<Entry> entries = new ArrayList<>(entryCount);
+        for (int i = 0; i < entryCount; i++)
+            entries.add(Entry.decode(buffer));
+
+        int evictedCount = buffer.getInt();
+        List<Integer> evictedAccountIds = new ArrayList<>(evictedCount);
+        for (int i = 0; i < evictedCount; i++)
+            evictedAccountIds.add(buffer.getInt());
+
+        return new LedgerRecord(createdAt, entries, evictedAccountIds);
+    }
+
+    /**
+     * A ledger entry, with the owner of its account.
+     *
+     * @param amount  Signed amount in minor units.
+     * @param balance Balance of the account after the entry, in minor units.
+     */
+    record Entry(int accountId, int customerId, EntryType type, Currency currency, long amount, long balance,
+                 long sequenceNumber, Integer counterpartyAccountId, BigDecimal fxRate) {
+
+        /**
+         * Ids, type, currency code, amounts, sequence, counterparty, then the rate's scale and unscaled value.
+         */
+        static final int MAX_SIZE = Integer.BYTES * 2 + 1 + 3 + Long.BYTES * 3 + Integer.BYTES + 1 + Long.BYTES;
+
+        private static final byte NO_RATE = -1;
+
+        LedgerEntry toLedgerEntry(Instant createdAt) {
+            return new LedgerEntry(accountId, sequenceNumber, type, Money.ofMinor(amount, currency),
+                    Money.ofMinor(balance, currency), counterpartyAccountId, fxRate, createdAt);
+        }
+
+        private void encode(ByteBuffer buffer) {
+            buffer.putInt(accountId).putInt(customerId).put((byte) type.ordinal())
+                    .put(currency.getCurrencyCode().getBytes(StandardCharsets.US_ASCII))
+                    .putLong(amount).putLong(balance).putLong(sequenceNumber)
+                    .putInt(counterpartyAccountId == null ? 0 : counterpartyAccountId);
+
+            if (fxRate == null)
+                buffer.put(NO_RATE);
+            else
+                buffer.put((byte) fxRate.scale()).putLong(fxRate.unscaledValue().longValueExact());
+        }
+
+        private static Entry decode(ByteBuffer buffer) {
+            int accountId = buffer.getInt();
+            int customerId = buffer.getInt();
+            EntryType type = ENTRY_TYPES[buffer.get()];
+            byte[] currencyCode = new byte[3];
+            buffer.get(currencyCode);
+            long amount = buffer.getLong();
+            long balance = buffer.getLong();
+            long sequenceNumber = buffer.getLong();
+            int counterpartyAccountId = buffer.getInt();
+            byte rateScale = buffer.get();
+            BigDecimal fxRate = rateScale == NO_RATE ? null : BigDecimal.valueOf(buffer.getLong(), rateScale);
+
+            return new Entry(accountId, customerId, type, Currency.getInstance(new String(currencyCode, StandardCharsets.US_ASCII)),
+                    amount, balance, sequenceNumber, counterpartyAccountId == 0 ? null : counterpartyAccountId, fxRate);
+        }
+    }
+}
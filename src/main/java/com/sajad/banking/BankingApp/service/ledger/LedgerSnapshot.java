@@ -0,0 +1,158 @@
+package com.sajad.banking.BankingApp.service.ledger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.Currency;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Checkpoint of the memory ledger's balance table on disk, so a restart only replays the log records that follow it.
+ * <p>
+ * A snapshot is taken stripe by stripe while movements go on, so it may already hold the effect of records after its
+ * LSN; replaying skips the entries an account has already seen, by their sequence numbers. Files are written aside
+ * and moved in place once complete, and carry a CRC32C, so a torn snapshot is never mistaken for a valid one.
+ *
+ * @param lsn LSN of the latest log record whose effects the snapshot is guaranteed to hold.
+ * @author Sajad
+ */
+record LedgerSnapshot(long lsn) {
+
+    private static final Logger logger = LoggerFactory.getLogger(LedgerSnapshot.class);
+
+    private static final String PREFIX = "snapshot-";
+
+    private static final String SUFFIX = ".bin";
+
+    private static final int MAGIC = 0x424C5331;
+
+    /**
+     * Writes the table's accounts into a new snapshot, then deletes the older ones. The snapshot only replaces the
+     * previous one once every record whose effects it may hold is durable in the log.
+     *
+     * @param lsn LSN of the latest log record applied to the table before the snapshot starts.
+     */
+    static LedgerSnapshot write(Path directory, long lsn, BalanceTable table, WriteAheadLog log) throws IOException {
+        Path file = directory.resolve(fileName(lsn));
+        Path partFile = directory.resolve(fileName(lsn) + ".part");
+
+        CRC32C crc = new CRC32C();
+        try (FileChannel channel = FileChannel.open(partFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            DataOutputStream output = new DataOutputStream(new CheckedOutputStream(
+                    new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16), crc));
+            output.writeInt(MAGIC);
+            output.writeLong(lsn);
+
+            IOException[] failure = {null};
+            for (int stripe = 0; stripe < table.stripeCount(); stripe++) {
+                table.copyStripe(stripe, (accountId, customerId, currency, balance, sequence) -> {
+                    try {
+                        output.writeInt(accountId);
+                        output.writeInt(customerId);
+                        output.write(currency.getCurrencyCode().getBytes(StandardCharsets.US_ASCII));
+                        output.writeLong(balance);
+                        output.writeLong(sequence);
+                    } catch (IOException e) {
+                        failure[0] = e;
+                    }
+                });
+                if (failure[0] != null)
+                    throw failure[0];
+            }
+
+            // End marker, account ids are positive
+            output.writeInt(0);
+            output.writeInt((int) crc.getValue());
+            output.flush();
+            channel.force(true);
+        }
+
+        log.awaitDurable(log.lastLsn());
+        Files.move(partFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        for (Path older : snapshots(directory)) {
+            if (!older.equals(file))
+                Files.delete(older);
+        }
+
+        return new LedgerSnapshot(lsn);
+    }
+
+    /**
+     * Loads the latest valid snapshot into the table.
+     *
+     * @return The loaded snapshot, or one at LSN zero if there is none.
+     */
+    static LedgerSnapshot load(Path directory, BalanceTable table) throws IOException {
+        List<Path> snapshots = snapshots(directory);
+        for (int i = snapshots.size() - 1; i >= 0; i--) {
+            try {
+                return read(snapshots.get(i), table);
+            } catch (IOException | RuntimeException e) {
+                logger.warn("Skipping unreadable snapshot {}", snapshots.get(i), e);
+            }
+        }
+
+        return new LedgerSnapshot(0);
+    }
+
+    private static LedgerSnapshot read(Path file, BalanceTable table) throws IOException {
+        CRC32C crc = new CRC32C();
+        try (InputStream fileInput = Files.newInputStream(file)) {
+            DataInputStream input = new DataInputStream(new CheckedInputStream(new BufferedInputStream(fileInput, 1 << 16), crc));
+            if (input.readInt() != MAGIC)
+                throw new IOException("Not a ledger snapshot");
+
+            long lsn = input.readLong();
+            BalanceTable loaded = new BalanceTable(1);
+            int accountId;
+            byte[] currencyCode = new byte[3];
+            while ((accountId = input.readInt()) != 0) {
+                int customerId = input.readInt();
+                input.readFully(currencyCode);
+                loaded.put(accountId, customerId, Currency.getInstance(new String(currencyCode, StandardCharsets.US_ASCII)),
+                        input.readLong(), input.readLong());
+            }
+
+            int expectedCrc = (int) crc.getValue();
+            if (input.readInt() != expectedCrc)
+                throw new IOException("Snapshot checksum mismatch");
+
+            // Only a complete snapshot makes it into the table
+            loaded.copyStripe(0, table::put);
+
+            return new LedgerSnapshot(lsn);
+        }
+    }
+
+    private static List<Path> snapshots(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().startsWith(PREFIX))
+                    .filter(file -> file.getFileName().toString().endsWith(SUFFIX))
+                    .sorted(Comparator.comparing(Path::getFileName))
+                    .toList();
+        }
+    }
+
+    private static String fileName(long lsn) {
+        return String.format("%s%020d%s", PREFIX, lsn, SUFFIX);
+    }
+}
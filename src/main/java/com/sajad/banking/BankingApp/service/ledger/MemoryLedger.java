@@ -0,0 +1,698 @@
+package com.sajad.banking.BankingApp.service.ledger;
+
+import com.sajad.banking.BankingApp.exception.account.AccountNotFoundException;
+import com.sajad.banking.BankingApp.exception.account.BalanceNotEnoughException;
+import com.sajad.banking.BankingApp.exception.account.InvalidAmountException;
+import com.sajad.banking.BankingApp.exception.account.InvalidTransferDetails;
+import com.sajad.banking.BankingApp.exception.account.NegativeAmountException;
+import com.sajad.banking.BankingApp.exception.account.UnsupportedCurrencyException;
+import com.sajad.banking.BankingApp.exception.customer.CustomerNotFoundException;
+import com.sajad.banking.BankingApp.model.LedgerCheckpoint;
+import com.sajad.banking.BankingApp.model.LedgerEntry;
+import com.sajad.banking.BankingApp.model.LedgerEntry.EntryType;
+import com.sajad.banking.BankingApp.model.money.Money;
+import com.sajad.banking.BankingApp.repository.account.AccountRepository;
+import com.sajad.banking.BankingApp.repository.customer.CustomerRepository;
+import com.sajad.banking.BankingApp.repository.ledger.LedgerCheckpointRepository;
+import com.sajad.banking.BankingApp.repository.ledger.LedgerEntryRepository;
+import com.sajad.banking.BankingApp.service.cache.CustomerReadCache;
+import com.sajad.banking.BankingApp.service.fx.FxRateSnapshot;
+import com.sajad.banking.BankingApp.service.fx.FxRates;
+import com.sajad.banking.BankingApp.service.metrics.BankingMetrics;
+import com.sajad.banking.BankingApp.service.outbox.AccountEventOutbox;
+import com.sajad.banking.BankingApp.service.transfer.BatchTransferMode;
+import com.sajad.banking.BankingApp.service.transfer.Transfer;
+import com.sajad.banking.BankingApp.service.transfer.TransferOutcome;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+
+import static com.sajad.banking.BankingApp.model.LedgerEntry.EntryType.*;
+import static com.sajad.banking.BankingApp.service.transfer.TransferOutcome.*;
+
+/**
+ * Memory-resident ledger: the balances of the accounts money moves through live in a {@linkplain BalanceTable}, each
+ * movement is durable in a {@linkplain WriteAheadLog} before it returns, and the database follows asynchronously, as
+ * the slow-path store.
+ * <p>
+ * A movement locks the stripes of its accounts, validates itself against the table, appends its record to the log,
+ * applies it to the table and releases the locks; only then does it wait for the group commit that makes its record
+ * durable. Records become durable in log order, so a movement never survives a crash that an earlier movement it
+ * depends on did not. Accounts are loaded from the database the first time money moves through them.
+ * <p>
+ * A background thread applies the durable records to the database in log order and in batches: the ledger entries,
+ * their outbox rows and the balances, along with the {@linkplain LedgerCheckpoint} of the batch. A snapshot of the
+ * table is written periodically, after which the log segments neither the snapshot nor the database need anymore are
+ * deleted. On startup the latest snapshot is loaded, the records after it are replayed into the table, and the ones
+ * after the database checkpoint are queued for syncing.
+ * <p>
+ * Operations changing accounts in the database directly, deletions and resharding, go through {@linkplain #exclude}.
+ *
+ * @author Sajad
+ */
+@Component
+@ConditionalOnProperty(name = "banking.ledger.memory.enabled")
+public class MemoryLedger implements InitializingBean, DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(MemoryLedger.class);
+
+    private static final String LEDGER_ID_FILE = "ledger.id";
+
+    private static final long SYNC_POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    private static final long SYNC_RETRY_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final AccountRepository accountRepository;
+
+    private final CustomerRepository customerRepository;
+
+    private final LedgerEntryRepository ledgerEntryRepository;
+
+    private final LedgerCheckpointRepository ledgerCheckpointRepository;
+
+    private final AccountEventOutbox accountEventOutbox;
+
+    private final CustomerReadCache customerReadCache;
+
+    private final FxRates fxRates;
+
+    private final BankingMetrics bankingMetrics;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final Path directory;
+
+    private final int segmentSize;
+
+    private final int syncBatchSize;
+
+    private final Duration syncTimeout;
+
+    private final BalanceTable table;
+
+    /**
+     * Records not synced into the database yet, by LSN.
+     */
+    private final ConcurrentSkipListMap<Long, LedgerRecord> unsyncedRecords = new ConcurrentSkipListMap<>();
+
+    private final Object syncProgress = new Object();
+
+    private volatile long syncedLsn;
+
+    private volatile boolean running;
+
+    private WriteAheadLog writeAheadLog;
+
+    private String ledgerId;
+
+    private long replayedRecords;
+
+    private Thread syncer;
+
+    @Autowired
+    public MemoryLedger(AccountRepository accountRepository, CustomerRepository customerRepository,
+                        LedgerEntryRepository ledgerEntryRepository, LedgerCheckpointRepository ledgerCheckpointRepository,
+                        AccountEventOutbox accountEventOutbox, CustomerReadCache customerReadCache, FxRates fxRates,
+                        BankingMetrics bankingMetrics, TransactionTemplate transactionTemplate, MeterRegistry meterRegistry,
+                        @Value("${banking.ledger.memory.directory:ledger}") Path directory,
+                        @Value("${banking.ledger.memory.segment-size:67108864}") int segmentSize,
+                        @Value("${banking.ledger.memory.stripes:64}") int stripes,
+                        @Value("${banking.ledger.memory.sync-batch-size:1000}") int syncBatchSize,
+                        @Value("${banking.ledger.memory.sync-timeout:PT30S}") Duration syncTimeout) {
+        this.accountRepository = accountRepository;
+        this.customerRepository = customerRepository;
+        this.ledgerEntryRepository = ledgerEntryRepository;
+        this.ledgerCheckpointRepository = ledgerCheckpointRepository;
+        this.accountEventOutbox = accountEventOutbox;
+        this.customerReadCache = customerReadCache;
+        this.fxRates = fxRates;
+        this.bankingMetrics = bankingMetrics;
+        this.transactionTemplate = transactionTemplate;
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.syncBatchSize = syncBatchSize;
+        this.syncTimeout = syncTimeout;
+        this.table = new BalanceTable(stripes);
+
+        Gauge.builder("banking.ledger.memory.unsynced", unsyncedRecords, Map::size)
+                .description("Memory ledger records not synced into the database yet")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void afterPropertiesSet() throws IOException {
+        recover();
+        startSync();
+    }
+
+    /**
+     * Waits for the database to catch up, then writes a last snapshot.
+     */
+    @Override
+    public void destroy() throws IOException {
+        try {
+            awaitSynced(writeAheadLog.lastLsn());
+        } catch (IllegalStateException e) {
+            logger.warn("Shutting down with {} records not synced, they are synced on the next start", unsyncedRecords.size());
+        }
+
+        stopSync();
+        checkpoint();
+        writeAheadLog.close();
+    }
+
+    /**
+     * Deposits money into a customer's account.
+     */
+    public void deposit(Integer customerId, Integer accountId, BigDecimal amount) throws CustomerNotFoundException,
+            AccountNotFoundException, NegativeAmountException, InvalidAmountException {
+        checkAmount(amount);
+
+        long lsn = 0;
+        table.lock(accountId);
+        try {
+            if (isOwned(accountId, customerId)) {
+                Money money = toMoney(amount, table.currency(accountId));
+                lsn = append(LedgerRecord.movement(List.of(entry(accountId, DEPOSIT, money.getMinorUnits(),
+                        table.balance(accountId), table.sequence(accountId), null, null))));
+            }
+        } finally {
+            table.unlock(accountId);
+        }
+
+        if (lsn == 0) {
+            checkCustomer(customerId);
+            throw new AccountNotFoundException();
+        }
+        commit(lsn);
+    }
+
+    /**
+     * Withdraws money from a customer's account.
+     */
+    public void withdraw(Integer customerId, Integer accountId, BigDecimal amount) throws CustomerNotFoundException,
+            AccountNotFoundException, NegativeAmountException, InvalidAmountException, BalanceNotEnoughException {
+        checkAmount(amount);
+
+        long lsn = 0;
+        table.lock(accountId);
+        try {
+            if (isOwned(accountId, customerId)) {
+                Money money = toMoney(amount, table.currency(accountId));
+                if (table.balance(accountId) < money.getMinorUnits())
+                    throw new BalanceNotEnoughException();
+
+                lsn = append(LedgerRecord.movement(List.of(entry(accountId, WITHDRAW, -money.getMinorUnits(),
+                        table.balance(accountId), table.sequence(accountId), null, null))));
+            }
+        } finally {
+            table.unlock(accountId);
+        }
+
+        if (lsn == 0) {
+            checkCustomer(customerId);
+            throw new AccountNotFoundException();
+        }
+        commit(lsn);
+    }
+
+    /**
+     * Transfers money between two accounts, with the same rules as the database path.
+     */
+    public void transfer(Integer customerId, Integer fromAccountId, Integer toAccountId, BigDecimal amount)
+            throws CustomerNotFoundException, AccountNotFoundException, BalanceNotEnoughException, NegativeAmountException,
+            InvalidAmountException, InvalidTransferDetails, UnsupportedCurrencyException {
+        if (Objects.equals(fromAccountId, toAccountId))
+            throw new InvalidTransferDetails();
+        checkAmount(amount);
+
+        Transfer transfer = new Transfer(fromAccountId, toAccountId, amount);
+        TransferOutcome outcome;
+        long lsn = 0;
+        table.lock(fromAccountId, toAccountId);
+        try {
+            loadAccount(fromAccountId);
+            loadAccount(toAccountId);
+
+            List<LedgerRecord.Entry> entries = new ArrayList<>(2);
+            outcome = stageTransfer(customerId, transfer, new HashMap<>(), entries);
+            if (outcome == SUCCESSFUL)
+                lsn = append(LedgerRecord.movement(entries));
+        } finally {
+            table.unlock(fromAccountId, toAccountId);
+        }
+
+        switch (outcome) {
+            case SUCCESSFUL -> commit(lsn);
+            case NEGATIVE_AMOUNT -> throw new NegativeAmountException();
+            case INVALID_AMOUNT -> throw new InvalidAmountException();
+            case UNSUPPORTED_CURRENCY -> throw new UnsupportedCurrencyException();
+            case BALANCE_NOT_ENOUGH -> throw new BalanceNotEnoughException();
+            default -> {
+                checkCustomer(customerId);
+                throw new AccountNotFoundException();
+            }
+        }
+    }
+
+    /**
+     * Applies a batch of transfers as a single log record, so either all of its successful transfers survive a
+     * crash or none does.
+     */
+    public List<TransferOutcome> batchTransfer(Integer customerId, List<Transfer> transfers, BatchTransferMode mode)
+            throws CustomerNotFoundException {
+        int[] accountIds = transfers.stream()
+                .flatMap(transfer -> Stream.of(transfer.fromAccountId(), transfer.toAccountId()))
+                .filter(Objects::nonNull)
+                .mapToInt(Integer::intValue)
+                .distinct()
+                .toArray();
+
+        List<TransferOutcome> outcomes = new ArrayList<>(transfers.size());
+        long lsn = 0;
+        table.lock(accountIds);
+        try {
+            boolean ownsAny = false;
+            for (int accountId : accountIds)
+                ownsAny |= loadAccount(accountId) && table.customerId(accountId) == customerId;
+
+            // Every customer owns at least one account, so owning none of them means there may be no such customer
+            if (!ownsAny)
+                checkCustomer(customerId);
+
+            Map<Integer, long[]> staged = new HashMap<>();
+            List<LedgerRecord.Entry> entries = new ArrayList<>(transfers.size() * 2);
+            for (Transfer transfer : transfers)
+                outcomes.add(stageTransfer(customerId, transfer, staged, entries));
+
+            if (mode == BatchTransferMode.ALL_OR_NOTHING && outcomes.stream().anyMatch(outcome -> outcome != SUCCESSFUL))
+                outcomes.replaceAll(outcome -> outcome == SUCCESSFUL ? ROLLED_BACK : outcome);
+            else if (!entries.isEmpty())
+                lsn = append(LedgerRecord.movement(entries));
+        } finally {
+            table.unlock(accountIds);
+        }
+
+        if (lsn != 0)
+            commit(lsn);
+
+        return outcomes;
+    }
+
+    /**
+     * Balance of an account, if it's in memory.
+     */
+    public Optional<Money> findBalance(Integer accountId) {
+        table.lock(accountId);
+        try {
+            return table.contains(accountId) ?
+                    Optional.of(Money.ofMinor(table.balance(accountId), table.currency(accountId))) : Optional.empty();
+        } finally {
+            table.unlock(accountId);
+        }
+    }
+
+    /**
+     * Hands the accounts back to the database until the returned exclusion is closed, for operations that change
+     * them there directly.
+     * <p>
+     * Movements on the accounts wait until then. The database is brought up to date first, and the accounts are
+     * evicted from memory, durably, before the caller goes on; they are loaded again on their next movement.
+     */
+    public Exclusion exclude(Collection<Integer> accountIds) {
+        int[] ids = accountIds.stream().mapToInt(Integer::intValue).distinct().toArray();
+
+        table.lock(ids);
+        try {
+            awaitSynced(writeAheadLog.lastLsn());
+
+            List<Integer> evictedIds = Arrays.stream(ids).filter(table::contains).boxed().toList();
+            if (!evictedIds.isEmpty())
+                commit(append(LedgerRecord.eviction(evictedIds)));
+        } catch (RuntimeException e) {
+            table.unlock(ids);
+            throw e;
+        }
+
+        return () -> table.unlock(ids);
+    }
+
+    /**
+     * Writes a snapshot of the table, then deletes the log segments that are no longer needed.
+     */
+    @Scheduled(fixedDelayString = "${banking.ledger.memory.snapshot-interval:PT5M}",
+            initialDelayString = "${banking.ledger.memory.snapshot-interval:PT5M}")
+    public synchronized void checkpoint() {
+        try {
+            long lsn = writeAheadLog.lastLsn();
+            LedgerSnapshot.write(directory, lsn, table, writeAheadLog);
+            writeAheadLog.truncate(Math.min(lsn, syncedLsn));
+        } catch (IOException e) {
+            logger.warn("Could not write a memory ledger snapshot", e);
+        }
+    }
+
+    /**
+     * Waits until the database holds every record up to the given LSN.
+     *
+     * @throws IllegalStateException The sync did not get there within {@code banking.ledger.memory.sync-timeout}.
+     */
+    public void awaitSynced(long lsn) {
+        long deadline = System.nanoTime() + syncTimeout.toNanos();
+        synchronized (syncProgress) {
+            while (syncedLsn < lsn) {
+                long remainingNanos = deadline - System.nanoTime();
+                if (remainingNanos <= 0)
+                    throw new IllegalStateException("The memory ledger's sync is behind by more than " + syncTimeout);
+
+                LockSupport.unpark(syncer);
+                try {
+                    TimeUnit.NANOSECONDS.timedWait(syncProgress, Math.min(remainingNanos, SYNC_POLL_NANOS));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while waiting for the memory ledger's sync", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * LSN of the latest record of the log.
+     */
+    public long lastLsn() {
+        return writeAheadLog.lastLsn();
+    }
+
+    /**
+     * Number of records replayed into the table on the last recovery.
+     */
+    long replayedRecords() {
+        return replayedRecords;
+    }
+
+    /**
+     * Loads the latest snapshot, replays the log after it, and queues the records the database is missing.
+     */
+    void recover() throws IOException {
+        Files.createDirectories(directory);
+        ledgerId = readLedgerId();
+        writeAheadLog = new WriteAheadLog(directory, segmentSize);
+        long snapshotLsn = LedgerSnapshot.load(directory, table).lsn();
+
+        LedgerCheckpoint checkpoint = transactionTemplate.execute(status -> ledgerCheckpointRepository.findById(ledgerId)
+                .orElse(null));
+        if (checkpoint == null) {
+            // Replaying a log into a database that never saw it would apply the whole log on top of other balances
+            if (snapshotLsn > 0 || writeAheadLog.lastLsn() > 0)
+                throw new IllegalStateException("The memory ledger in " + directory + " belongs to another database");
+
+            checkpoint = transactionTemplate.execute(status -> ledgerCheckpointRepository.save(new LedgerCheckpoint(ledgerId)));
+        }
+        syncedLsn = checkpoint.getSyncedLsn();
+
+        replayedRecords = 0;
+        writeAheadLog.replay(Math.min(snapshotLsn, syncedLsn), (lsn, payload) -> {
+            LedgerRecord record = LedgerRecord.decode(payload);
+            if (lsn > snapshotLsn) {
+                record.applyTo(table);
+                replayedRecords++;
+            }
+            if (lsn > syncedLsn)
+                unsyncedRecords.put(lsn, record);
+        });
+
+        logger.info("Memory ledger recovered: snapshot at {}, {} records replayed, {} to sync", snapshotLsn,
+                replayedRecords, unsyncedRecords.size());
+    }
+
+    void startSync() {
+        running = true;
+        syncer = Thread.ofPlatform().name("memory-ledger-sync").daemon().start(this::sync);
+    }
+
+    /**
+     * Stops syncing, leaving the records not synced yet in the log.
+     */
+    void stopSync() {
+        running = false;
+        if (syncer == null)
+            return;
+
+        LockSupport.unpark(syncer);
+        try {
+            syncer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Stops without syncing or writing a snapshot, the way a crash would; everything acknowledged is already in the
+     * log.
+     */
+    void halt() throws IOException {
+        stopSync();
+        writeAheadLog.close();
+    }
+
+    private void sync() {
+        while (running) {
+            List<Map.Entry<Long, LedgerRecord>> batch = nextSyncBatch();
+            if (batch.isEmpty()) {
+                LockSupport.parkNanos(SYNC_POLL_NANOS);
+                continue;
+            }
+
+            try {
+                syncBatch(batch);
+            } catch (RuntimeException e) {
+                logger.warn("Could not sync {} memory ledger records, retrying", batch.size(), e);
+                LockSupport.parkNanos(SYNC_RETRY_NANOS);
+            }
+        }
+    }
+
+    /**
+     * The durable records following the latest synced one, in LSN order and without gaps.
+     */
+    private List<Map.Entry<Long, LedgerRecord>> nextSyncBatch() {
+        long durableLsn = writeAheadLog.durableLsn();
+        List<Map.Entry<Long, LedgerRecord>> batch = new ArrayList<>();
+        for (long lsn = syncedLsn + 1; lsn <= durableLsn && batch.size() < syncBatchSize; lsn++) {
+            LedgerRecord record = unsyncedRecords.get(lsn);
+            if (record == null)
+                break;
+
+            batch.add(Map.entry(lsn, record));
+        }
+
+        return batch;
+    }
+
+    private void syncBatch(List<Map.Entry<Long, LedgerRecord>> batch) {
+        long lastLsn = batch.get(batch.size() - 1).getKey();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            // Net amount and latest sequence per account, updated in the global lock order
+            SortedMap<Integer, long[]> movements = new TreeMap<>();
+            Set<Integer> customerIds = new HashSet<>();
+            for (Map.Entry<Long, LedgerRecord> logged : batch) {
+                for (LedgerRecord.Entry entry : logged.getValue().entries()) {
+                    LedgerEntry ledgerEntry = ledgerEntryRepository.save(entry.toLedgerEntry(logged.getValue().createdAt()));
+                    accountEventOutbox.append(ledgerEntry);
+
+                    long[] movement = movements.computeIfAbsent(entry.accountId(), id -> new long[2]);
+                    movement[0] = Math.addExact(movement[0], entry.amount());
+                    movement[1] = entry.sequenceNumber();
+                    customerIds.add(entry.customerId());
+                }
+            }
+
+            movements.forEach((accountId, movement) -> {
+                if (accountRepository.applySyncedMovements(accountId, movement[0], movement[1]) == 0)
+                    logger.warn("Account {} is gone, its synced movements only reach the ledger", accountId);
+            });
+            ledgerCheckpointRepository.updateSyncedLsn(ledgerId, lastLsn);
+            customerReadCache.invalidateAfterCommit(customerIds);
+        });
+
+        batch.forEach(logged -> unsyncedRecords.remove(logged.getKey()));
+        synchronized (syncProgress) {
+            syncedLsn = lastLsn;
+            syncProgress.notifyAll();
+        }
+    }
+
+    /**
+     * Validates a transfer against the staged state of its accounts and stages its entries. The caller holds the
+     * stripe locks and has loaded the accounts.
+     *
+     * @param staged Balance and sequence of the accounts as of the transfers staged so far.
+     */
+    private TransferOutcome stageTransfer(Integer customerId, Transfer transfer, Map<Integer, long[]> staged,
+                                          List<LedgerRecord.Entry> entries) {
+        Integer fromAccountId = transfer.fromAccountId();
+        Integer toAccountId = transfer.toAccountId();
+        if (Objects.equals(fromAccountId, toAccountId))
+            return INVALID_TRANSFER_DETAILS;
+
+        if (transfer.amount().compareTo(BigDecimal.ZERO) < 0)
+            return NEGATIVE_AMOUNT;
+
+        if (fromAccountId == null || toAccountId == null || !table.contains(fromAccountId) || !table.contains(toAccountId) ||
+                table.customerId(fromAccountId) != customerId)
+            return ACCOUNT_NOT_FOUND;
+
+        Money amount;
+        FxRateSnapshot.Conversion conversion;
+        try {
+            amount = toMoney(transfer.amount(), table.currency(fromAccountId));
+            conversion = table.currency(toAccountId).equals(amount.getCurrency()) ? new FxRateSnapshot.Conversion(amount, null) :
+                    fxRates.current().convert(amount, table.currency(toAccountId));
+        } catch (InvalidAmountException e) {
+            return INVALID_AMOUNT;
+        } catch (UnsupportedCurrencyException e) {
+            return UNSUPPORTED_CURRENCY;
+        }
+
+        long[] from = staged.computeIfAbsent(fromAccountId, id -> new long[]{table.balance(id), table.sequence(id)});
+        long[] to = staged.computeIfAbsent(toAccountId, id -> new long[]{table.balance(id), table.sequence(id)});
+        if (from[0] < amount.getMinorUnits())
+            return BALANCE_NOT_ENOUGH;
+
+        LedgerRecord.Entry out = entry(fromAccountId, TRANSFER_OUT, -amount.getMinorUnits(), from[0], from[1],
+                toAccountId, conversion.rate());
+        LedgerRecord.Entry in = entry(toAccountId, TRANSFER_IN, conversion.amount().getMinorUnits(), to[0], to[1],
+                fromAccountId, conversion.rate());
+        entries.add(out);
+        entries.add(in);
+        from[0] = out.balance();
+        from[1] = out.sequenceNumber();
+        to[0] = in.balance();
+        to[1] = in.sequenceNumber();
+
+        bankingMetrics.recordTransferAmount(amount);
+        return SUCCESSFUL;
+    }
+
+    /**
+     * The next ledger entry of an account. The caller holds the account's stripe lock.
+     */
+    private LedgerRecord.Entry entry(int accountId, EntryType type, long amount, long balance, long sequence,
+                                     Integer counterpartyAccountId, BigDecimal fxRate) {
+        return new LedgerRecord.Entry(accountId, table.customerId(accountId), type, table.currency(accountId), amount,
+                Math.addExact(balance, amount), sequence + 1, counterpartyAccountId, fxRate);
+    }
+
+    /**
+     * Appends the record to the log, then applies it to the table. The caller holds the stripe locks of the
+     * record's accounts.
+     *
+     * @return LSN of the record.
+     */
+    private long append(LedgerRecord record) {
+        try {
+            long lsn = writeAheadLog.append(record.encode());
+            unsyncedRecords.put(lsn, record);
+            record.applyTo(table);
+
+            return lsn;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Waits for the record to be durable.
+     */
+    private void commit(long lsn) {
+        try {
+            writeAheadLog.awaitDurable(lsn);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        LockSupport.unpark(syncer);
+    }
+
+    /**
+     * Loads the account into the table, if it's not there yet. The caller holds the account's stripe lock.
+     *
+     * @return Whether the account exists.
+     */
+    private boolean loadAccount(int accountId) {
+        if (table.contains(accountId))
+            return true;
+
+        AccountRepository.LedgerAccount account = accountRepository.findLedgerAccount(accountId).orElse(null);
+        if (account == null)
+            return false;
+
+        table.put(accountId, account.getCustomerId(), account.getCurrency(),
+                Math.addExact(account.getBalance(), account.getShardBalance()), account.getLedgerSequence());
+        return true;
+    }
+
+    private boolean isOwned(int accountId, Integer customerId) {
+        return loadAccount(accountId) && table.customerId(accountId) == customerId;
+    }
+
+    private void checkCustomer(Integer customerId) throws CustomerNotFoundException {
+        if (!customerRepository.existsById(customerId))
+            throw new CustomerNotFoundException();
+    }
+
+    private String readLedgerId() throws IOException {
+        Path idFile = directory.resolve(LEDGER_ID_FILE);
+        if (Files.exists(idFile))
+            return Files.readString(idFile, StandardCharsets.US_ASCII).trim();
+
+        String id = UUID.randomUUID().toString();
+        Files.writeString(idFile, id, StandardCharsets.US_ASCII);
+
+        return id;
+    }
+
+    private static void checkAmount(BigDecimal amount) throws NegativeAmountException {
+        if (amount.compareTo(BigDecimal.ZERO) < 0)
+            throw new NegativeAmountException();
+    }
+
+    private static Money toMoney(BigDecimal amount, Currency currency) throws InvalidAmountException {
+        try {
+            return Money.of(amount, currency);
+        } catch (ArithmeticException e) {
+            throw new InvalidAmountException();
+        }
+    }
+
+    /**
+     * Accounts handed back to the database, see {@linkplain #exclude}.
+     */
+    @FunctionalInterface
+    public interface Exclusion extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
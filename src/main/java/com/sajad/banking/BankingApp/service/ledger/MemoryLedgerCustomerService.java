@@ -0,0 +1,181 @@
+package com.sajad.banking.BankingApp.service.ledger;
+
+import com.sajad.banking.BankingApp.exception.account.*;
+import com.sajad.banking.BankingApp.exception.customer.CustomerDeleteException;
+import com.sajad.banking.BankingApp.exception.customer.CustomerExistsException;
+import com.sajad.banking.BankingApp.exception.customer.CustomerNotFoundException;
+import com.sajad.banking.BankingApp.model.Account;
+import com.sajad.banking.BankingApp.model.Customer;
+import com.sajad.banking.BankingApp.model.LedgerEntry;
+import com.sajad.banking.BankingApp.model.money.Money;
+import com.sajad.banking.BankingApp.service.CustomerService;
+import com.sajad.banking.BankingApp.service.onboarding.ImportOutcome;
+import com.sajad.banking.BankingApp.service.transfer.BatchTransferMode;
+import com.sajad.banking.BankingApp.service.transfer.Transfer;
+import com.sajad.banking.BankingApp.service.transfer.TransferOutcome;
+import com.sajad.banking.BankingApp.web.dto.account.AccountDto;
+import com.sajad.banking.BankingApp.web.dto.customer.CustomerAccountExportDto;
+import com.sajad.banking.BankingApp.web.dto.customer.CustomerDetailDto;
+import com.sajad.banking.BankingApp.web.dto.customer.CustomerListDto;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * Customer service of the memory ledger mode: money movements go through the {@linkplain MemoryLedger}, everything
+ * else through the database-backed service.
+ * <p>
+ * Balances are read from memory for the accounts held there, the database may still be behind them. Transaction
+ * listings and exports read the database, so they show a movement once it has been synced.
+ *
+ * @author Sajad
+ */
+@Service
+@Primary
+@ConditionalOnProperty(name = "banking.ledger.memory.enabled")
+public class MemoryLedgerCustomerService implements CustomerService {
+
+    private final CustomerService customerService;
+
+    private final MemoryLedger memoryLedger;
+
+    @Autowired
+    public MemoryLedgerCustomerService(@Qualifier("simpleCustomerService") CustomerService customerService,
+                                       MemoryLedger memoryLedger) {
+        this.customerService = customerService;
+        this.memoryLedger = memoryLedger;
+    }
+
+    @Override
+    public Optional<CustomerDetailDto> findCustomer(Integer customerId) {
+        return customerService.findCustomer(customerId).map(customer -> {
+            // The details may be shared through the read cache, so the current balances go into a copy
+            CustomerDetailDto current = new CustomerDetailDto();
+            current.setId(customer.getId());
+            current.setType(customer.getType());
+            current.setName(customer.getName());
+            current.setLastName(customer.getLastName());
+            current.setPhoneNumber(customer.getPhoneNumber());
+            current.setFaxNumber(customer.getFaxNumber());
+            current.setAccountsDetail(withCurrentBalances(customer.getAccountsDetail()));
+
+            return current;
+        });
+    }
+
+    @Override
+    public Page<Customer> listCustomer(Pageable pageable) {
+        return customerService.listCustomer(pageable);
+    }
+
+    @Override
+    public List<CustomerListDto> listCustomersAfter(Integer afterId, int size) {
+        return customerService.listCustomersAfter(afterId, size);
+    }
+
+    @Override
+    public void createNewCustomer(Customer customer) throws CustomerExistsException {
+        customerService.createNewCustomer(customer);
+    }
+
+    @Override
+    public List<ImportOutcome> importCustomers(List<Customer> customers) {
+        return customerService.importCustomers(customers);
+    }
+
+    @Override
+    public List<AccountDto> listCustomerAccounts(Integer customerId) throws CustomerNotFoundException {
+        return withCurrentBalances(customerService.listCustomerAccounts(customerId));
+    }
+
+    @Override
+    public void deleteCustomer(Integer customerId) throws CustomerNotFoundException, CustomerDeleteException {
+        List<Integer> accountIds = customerService.listCustomerAccounts(customerId).stream().map(AccountDto::getId).toList();
+
+        try (MemoryLedger.Exclusion ignored = memoryLedger.exclude(accountIds)) {
+            customerService.deleteCustomer(customerId);
+        }
+    }
+
+    @Override
+    public void addCustomerAccount(Integer customerId, Account account) throws CustomerNotFoundException {
+        customerService.addCustomerAccount(customerId, account);
+    }
+
+    @Override
+    public void deleteCustomerAccount(Integer customerId, Integer accountId) throws CustomerNotFoundException,
+            AccountNotFoundException, BalanceAccountDeleteException, OnlyAccountDeleteException {
+        try (MemoryLedger.Exclusion ignored = memoryLedger.exclude(List.of(accountId))) {
+            customerService.deleteCustomerAccount(customerId, accountId);
+        }
+    }
+
+    @Override
+    public void transfer(Integer customerId, Integer fromAccountId, Integer toAccountId, BigDecimal amount)
+            throws CustomerNotFoundException, AccountNotFoundException, BalanceNotEnoughException, NegativeAmountException,
+            InvalidAmountException, InvalidTransferDetails, UnsupportedCurrencyException {
+        memoryLedger.transfer(customerId, fromAccountId, toAccountId, amount);
+    }
+
+    @Override
+    public List<TransferOutcome> batchTransfer(Integer customerId, List<Transfer> transfers, BatchTransferMode mode)
+            throws CustomerNotFoundException {
+        return memoryLedger.batchTransfer(customerId, transfers, mode);
+    }
+
+    @Override
+    public void deposit(Integer customerId, Integer accountId, BigDecimal amount) throws CustomerNotFoundException,
+            AccountNotFoundException, NegativeAmountException, InvalidAmountException {
+        memoryLedger.deposit(customerId, accountId, amount);
+    }
+
+    @Override
+    public void withdraw(Integer customerId, Integer accountId, BigDecimal amount) throws CustomerNotFoundException,
+            AccountNotFoundException, NegativeAmountException, InvalidAmountException, BalanceNotEnoughException {
+        memoryLedger.withdraw(customerId, accountId, amount);
+    }
+
+    @Override
+    public void shardAccount(Integer customerId, Integer accountId, int shards) throws CustomerNotFoundException,
+            AccountNotFoundException {
+        try (MemoryLedger.Exclusion ignored = memoryLedger.exclude(List.of(accountId))) {
+            customerService.shardAccount(customerId, accountId, shards);
+        }
+    }
+
+    @Override
+    public List<LedgerEntry> listAccountTransactions(Integer customerId, Integer accountId, Long before, int size)
+            throws CustomerNotFoundException, AccountNotFoundException {
+        return customerService.listAccountTransactions(customerId, accountId, before, size);
+    }
+
+    @Override
+    public void exportCustomerAccounts(Consumer<CustomerAccountExportDto> consumer) {
+        customerService.exportCustomerAccounts(consumer);
+    }
+
+    @Override
+    public void exportAccountStatement(Integer accountId, Consumer<LedgerEntry> consumer) {
+        customerService.exportAccountStatement(accountId, consumer);
+    }
+
+    /**
+     * Copies of the accounts, with the balances held in memory.
+     */
+    private List<AccountDto> withCurrentBalances(List<AccountDto> accounts) {
+        return accounts.stream()
+                .map(account -> new AccountDto(account.getId(), memoryLedger.findBalance(account.getId())
+                        .map(Money::toBigDecimal)
+                        .orElse(account.getBalance()), account.getCurrency()))
+                .toList();
+    }
+}
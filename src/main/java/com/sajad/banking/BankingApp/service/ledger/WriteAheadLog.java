@@ -0,0 +1,352 @@
+package com.sajad.banking.BankingApp.service.ledger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Sequential, memory-mapped log of opaque records, numbered by a log sequence number (LSN) starting at 1.
+ * <p>
+ * The log is a series of fixed-size segment files, named after the LSN of their first record. Each record is framed
+ * as its payload length, a CRC32C of the LSN and payload, the LSN, then the payload; a zero length marks the end of
+ * the written part of a segment. Opening a log recovers it: records are read back until the first torn or corrupt
+ * one, and everything after it is wiped.
+ * <p>
+ * Appending only copies the record into the mapped segment. Durability is a separate step, {@linkplain #awaitDurable},
+ * with group commit: the first waiter forces the mapped pages of everything appended so far to disk while the
+ * following ones queue up, and the next force covers all of them at once.
+ *
+ * @author Sajad
+ */
+final class WriteAheadLog implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(WriteAheadLog.class);
+
+    private static final String SEGMENT_PREFIX = "wal-";
+
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    /**
+     * Payload length, checksum and LSN.
+     */
+    private static final int HEADER_SIZE = Integer.BYTES + Integer.BYTES + Long.BYTES;
+
+    private final Path directory;
+
+    private final int segmentSize;
+
+    private final ReentrantLock appendLock = new ReentrantLock();
+
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    private final Condition flushed = flushLock.newCondition();
+
+    // Guarded by appendLock
+    private FileChannel channel;
+
+    private MappedByteBuffer segment;
+
+    private long nextLsn;
+
+    private int unforcedFrom;
+
+    // Guarded by flushLock
+    private long durableLsn;
+
+    private boolean flushing;
+
+    /**
+     * Opens the log in the directory, recovering whatever it already holds.
+     *
+     * @param segmentSize Size of a segment file, the largest record must fit in it.
+     */
+    WriteAheadLog(Path directory, int segmentSize) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.segmentSize = segmentSize;
+
+        List<Path> segments = segments();
+        Path lastSegment = null;
+        int lastEnd = 0;
+        nextLsn = segments.isEmpty() ? 1 : firstLsn(segments.get(0));
+        for (int i = 0; i < segments.size(); i++) {
+            Path segmentPath = segments.get(i);
+            // A segment starting past the end of the previous one follows a torn record, nothing in it is durable
+            if (firstLsn(segmentPath) != nextLsn) {
+                deleteSegments(segments.subList(i, segments.size()));
+                break;
+            }
+
+            long[] records = {0};
+            lastEnd = scan(segmentPath, nextLsn, (lsn, payload) -> records[0]++);
+            lastSegment = segmentPath;
+            nextLsn += records[0];
+        }
+        durableLsn = nextLsn - 1;
+
+        if (lastSegment == null)
+            openSegment(nextLsn, 0);
+        else {
+            openSegment(firstLsn(lastSegment), lastEnd);
+            // Wipes the torn tail, so records appended from now on are never followed by stale ones
+            wipe(segment, lastEnd);
+            segment.force();
+        }
+    }
+
+    /**
+     * Appends a record, without waiting for it to be durable.
+     *
+     * @return LSN of the record.
+     */
+    long append(byte[] payload) throws IOException {
+        int recordSize = HEADER_SIZE + payload.length;
+        if (recordSize + Integer.BYTES > segmentSize)
+            throw new IllegalArgumentException("Record of " + payload.length + " bytes does not fit in a segment");
+
+        appendLock.lock();
+        try {
+            if (segment.position() + recordSize + Integer.BYTES > segmentSize)
+                rollSegment();
+
+            long lsn = nextLsn++;
+            segment.putInt(payload.length);
+            segment.putInt(checksum(lsn, payload));
+            segment.putLong(lsn);
+            segment.put(payload);
+
+            return lsn;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Waits until the record with the given LSN, and all the ones before it, are on disk.
+     */
+    void awaitDurable(long lsn) throws IOException {
+        flushLock.lock();
+        try {
+            while (durableLsn < lsn) {
+                if (flushing) {
+                    flushed.awaitUninterruptibly();
+                    continue;
+                }
+
+                flushing = true;
+                flushLock.unlock();
+                long forcedLsn = -1;
+                try {
+                    forcedLsn = force();
+                } finally {
+                    flushLock.lock();
+                    flushing = false;
+                    durableLsn = Math.max(durableLsn, forcedLsn);
+                    flushed.signalAll();
+                }
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * LSN of the latest record known to be on disk.
+     */
+    long durableLsn() {
+        flushLock.lock();
+        try {
+            return durableLsn;
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * LSN of the latest appended record, zero for an empty log.
+     */
+    long lastLsn() {
+        appendLock.lock();
+        try {
+            return nextLsn - 1;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Reads back the records following the given LSN, in order.
+     */
+    void replay(long afterLsn, RecordConsumer consumer) throws IOException {
+        for (Path segmentPath : segments()) {
+            scan(segmentPath, firstLsn(segmentPath), (lsn, payload) -> {
+                if (lsn > afterLsn)
+                    consumer.accept(lsn, payload);
+            });
+        }
+    }
+
+    /**
+     * Deletes the segments holding only records up to the given LSN; the current segment is always kept.
+     */
+    void truncate(long upToLsn) throws IOException {
+        List<Path> segments = segments();
+        for (int i = 0; i + 1 < segments.size(); i++) {
+            if (firstLsn(segments.get(i + 1)) > upToLsn + 1)
+                break;
+
+            Files.deleteIfExists(segments.get(i));
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        appendLock.lock();
+        try {
+            segment.force();
+            channel.close();
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Forces everything appended so far to disk.
+     *
+     * @return LSN of the latest record now on disk.
+     */
+    private long force() throws IOException {
+        MappedByteBuffer forcedSegment;
+        int from;
+        int to;
+        long lsn;
+
+        appendLock.lock();
+        try {
+            forcedSegment = segment;
+            from = unforcedFrom;
+            to = segment.position();
+            lsn = nextLsn - 1;
+            unforcedFrom = to;
+        } finally {
+            appendLock.unlock();
+        }
+
+        if (to > from)
+            forcedSegment.force(from, to - from);
+
+        return lsn;
+    }
+
+    /**
+     * Closes the current segment, forcing it whole, and starts the next one. The caller holds the append lock.
+     */
+    private void rollSegment() throws IOException {
+        segment.force();
+        channel.close();
+        openSegment(nextLsn, 0);
+    }
+
+    private void openSegment(long firstLsn, int position) throws IOException {
+        Path segmentPath = directory.resolve(segmentName(firstLsn));
+        channel = FileChannel.open(segmentPath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        segment.position(position);
+        unforcedFrom = position;
+    }
+
+    /**
+     * Reads the records of a segment, stopping at its end or at the first torn or corrupt record.
+     *
+     * @return Position right after the last valid record.
+     */
+    private int scan(Path segmentPath, long firstLsn, RecordConsumer consumer) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(segmentPath));
+        long expectedLsn = firstLsn;
+
+        while (buffer.remaining() >= HEADER_SIZE) {
+            int start = buffer.position();
+            int length = buffer.getInt();
+            int checksum = buffer.getInt();
+            long lsn = buffer.getLong();
+            if (length <= 0 || length > buffer.remaining() || lsn != expectedLsn) {
+                buffer.position(start);
+                break;
+            }
+
+            byte[] payload = new byte[length];
+            buffer.get(payload);
+            if (checksum(lsn, payload) != checksum) {
+                logger.warn("Corrupt record {} in {}, the log ends there", lsn, segmentPath);
+                buffer.position(start);
+                break;
+            }
+
+            if (consumer != null)
+                consumer.accept(lsn, ByteBuffer.wrap(payload));
+            expectedLsn++;
+        }
+
+        return buffer.position();
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return new ArrayList<>(files
+                    .filter(file -> file.getFileName().toString().startsWith(SEGMENT_PREFIX))
+                    .filter(file -> file.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .sorted()
+                    .toList());
+        }
+    }
+
+    private void deleteSegments(List<Path> segments) throws IOException {
+        for (Path segmentPath : segments) {
+            logger.warn("Dropping {}, past the end of the log", segmentPath);
+            Files.delete(segmentPath);
+        }
+    }
+
+    private static void wipe(MappedByteBuffer buffer, int from) {
+        byte[] zeros = new byte[8192];
+        ByteBuffer tail = buffer.duplicate().position(from);
+        while (tail.hasRemaining())
+            tail.put(zeros, 0, Math.min(zeros.length, tail.remaining()));
+    }
+
+    private static int checksum(long lsn, byte[] payload) {
+        CRC32C crc = new CRC32C();
+        crc.update(ByteBuffer.allocate(Long.BYTES).putLong(0, lsn));
+        crc.update(payload);
+
+        return (int) crc.getValue();
+    }
+
+    private static String segmentName(long firstLsn) {
+        return String.format("%s%020d%s", SEGMENT_PREFIX, firstLsn, SEGMENT_SUFFIX);
+    }
+
+    private static long firstLsn(Path segmentPath) {
+        String name = segmentPath.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    @FunctionalInterface
+    interface RecordConsumer {
+        void accept(long lsn, ByteBuffer payload) throws IOException;
+    }
+}
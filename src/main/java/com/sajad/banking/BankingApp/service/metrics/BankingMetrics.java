@@ -0,0 +1,122 @@
+package com.sajad.banking.BankingApp.service.metrics;
+
+import com.sajad.banking.BankingApp.model.money.Money;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Meters of the banking operations.
+ * <ul>
+ *     <li>{@code banking.operation}: latency of every service operation, tagged by operation and outcome.</li>
+ *     <li>{@code banking.operation.errors}: failed service operations, tagged by operation and exception type.</li>
+ *     <li>{@code banking.lock.wait}: time spent acquiring row locks, tagged by query and outcome.</li>
+ *     <li>{@code banking.lock.timeouts}: row lock acquisitions that timed out, tagged by query.</li>
+ *     <li>{@code banking.lock.retries}: operations re-executed after a lock failure, tagged by operation.</li>
+ *     <li>{@code banking.transfer.amount}: distribution of the transferred amounts.</li>
+ * </ul>
+ * The meters of the successful calls are looked up once per method and kept, so the hot path only pays for the
+ * recording itself.
+ *
+ * @author Sajad
+ */
+@Component
+public class BankingMetrics {
+
+    private static final String SUCCESS = "success";
+
+    private static final String ERROR = "error";
+
+    private static final String ACQUIRED = "acquired";
+
+    private static final String TIMEOUT = "timeout";
+
+    private final MeterRegistry meterRegistry;
+
+    private final DistributionSummary transferAmounts;
+
+    private final Map<Method, Timer> operationTimers = new ConcurrentHashMap<>();
+
+    private final Map<Method, Timer> lockWaitTimers = new ConcurrentHashMap<>();
+
+    @Autowired
+    public BankingMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.transferAmounts = DistributionSummary.builder("banking.transfer.amount")
+                .description("Transferred amounts")
+                .register(meterRegistry);
+    }
+
+    public void recordOperation(Method operation, long nanos) {
+        operationTimers.computeIfAbsent(operation, method -> operationTimer(method.getName(), SUCCESS))
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordFailedOperation(Method operation, Throwable failure, long nanos) {
+        operationTimer(operation.getName(), ERROR).record(nanos, TimeUnit.NANOSECONDS);
+        Counter.builder("banking.operation.errors")
+                .description("Failed service operations")
+                .tag("operation", operation.getName())
+                .tag("exception", failure.getClass().getSimpleName())
+                .register(meterRegistry)
+                .increment();
+    }
+
+    public void recordLockWait(Method query, long nanos) {
+        lockWaitTimers.computeIfAbsent(query, method -> lockWaitTimer(method.getName(), ACQUIRED))
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordLockTimeout(Method query, long nanos) {
+        lockWaitTimer(query.getName(), TIMEOUT).record(nanos, TimeUnit.NANOSECONDS);
+        Counter.builder("banking.lock.timeouts")
+                .description("Row lock acquisitions that timed out")
+                .tag("query", query.getName())
+                .register(meterRegistry)
+                .increment();
+    }
+
+    public void recordLockRetry(String operation) {
+        Counter.builder("banking.lock.retries")
+                .description("Operations re-executed after a lock failure")
+                .tag("operation", operation)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    public void recordOptimisticConflict(String operation) {
+        Counter.builder("banking.lock.optimistic.conflicts")
+                .description("Operations re-executed after a version conflict of an account read without a lock")
+                .tag("operation", operation)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    public void recordTransferAmount(Money amount) {
+        transferAmounts.record(amount.toBigDecimal().doubleValue());
+    }
+
+    private Timer operationTimer(String operation, String outcome) {
+        return Timer.builder("banking.operation")
+                .description("Latency of the service operations")
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private Timer lockWaitTimer(String query, String outcome) {
+        return Timer.builder("banking.lock.wait")
+                .description("Time spent acquiring row locks")
+                .tag("query", query)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,94 @@
+package com.sajad.banking.BankingApp.service.metrics;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+
+/**
+ * Times the service operations and the row lock acquisitions into {@linkplain BankingMetrics}.
+ * <p>
+ * This advice runs outside the lock failure retries, so an operation's latency covers all of its attempts and the
+ * backoffs between them. Lock acquisitions are the repository methods annotated with
+ * {@linkplain org.springframework.data.jpa.repository.Lock @Lock}. Service implementations delegating to one another
+ * are timed once, by the outermost call.
+ *
+ * @author Sajad
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@ConditionalOnProperty(name = "banking.metrics.enabled", matchIfMissing = true)
+public class BankingMetricsAspect {
+
+    private final BankingMetrics bankingMetrics;
+
+    /**
+     * Whether the current thread is inside a timed operation.
+     */
+    private static final ThreadLocal<Boolean> inOperation = ThreadLocal.withInitial(() -> false);
+
+    @Autowired
+    public BankingMetricsAspect(BankingMetrics bankingMetrics) {
+        this.bankingMetrics = bankingMetrics;
+    }
+
+    /**
+     * Runs work done on behalf of operations timed on other threads, whose service calls must not be timed again.
+     */
+    public static void runUntimed(Runnable work) {
+        inOperation.set(true);
+        try {
+            work.run();
+        } finally {
+            inOperation.remove();
+        }
+    }
+
+    @Around("execution(public * com.sajad.banking.BankingApp.service.CustomerService+.*(..))")
+    public Object timeOperation(ProceedingJoinPoint joinPoint) throws Throwable {
+        if (inOperation.get())
+            return joinPoint.proceed();
+
+        inOperation.set(true);
+        long startedAt = System.nanoTime();
+        try {
+            Object result = joinPoint.proceed();
+            bankingMetrics.recordOperation(method(joinPoint), System.nanoTime() - startedAt);
+
+            return result;
+        } catch (Throwable e) {
+            bankingMetrics.recordFailedOperation(method(joinPoint), e, System.nanoTime() - startedAt);
+            throw e;
+        } finally {
+            inOperation.remove();
+        }
+    }
+
+    @Around("execution(* com.sajad.banking.BankingApp.repository..*(..)) && " +
+            "@annotation(org.springframework.data.jpa.repository.Lock)")
+    public Object timeLockWait(ProceedingJoinPoint joinPoint) throws Throwable {
+        long startedAt = System.nanoTime();
+        try {
+            Object result = joinPoint.proceed();
+            bankingMetrics.recordLockWait(method(joinPoint), System.nanoTime() - startedAt);
+
+            return result;
+        } catch (PessimisticLockingFailureException e) {
+            bankingMetrics.recordLockTimeout(method(joinPoint), System.nanoTime() - startedAt);
+            throw e;
+        }
+    }
+
+    private static Method method(ProceedingJoinPoint joinPoint) {
+        return ((MethodSignature) joinPoint.getSignature()).getMethod();
+    }
+}
@@ -0,0 +1,18 @@
+package com.sajad.banking.BankingApp.service.onboarding;
+
+/**
+ * Result of a single record of a bulk customer import.
+ *
+ * @author Sajad
+ */
+public enum ImportOutcome {
+    CREATED,
+    /**
+     * A customer with the same phone number already exists, or appeared earlier in the same import.
+     */
+    DUPLICATE,
+    /**
+     * The record failed validation and never reached the database.
+     */
+    INVALID
+}
@@ -0,0 +1,31 @@
+package com.sajad.banking.BankingApp.service.outbox;
+
+import com.sajad.banking.BankingApp.model.LedgerEntry;
+import com.sajad.banking.BankingApp.model.LedgerEntry.EntryType;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Currency;
+
+/**
+ * A balance change, as published to the downstream consumers.
+ * <p>
+ * Delivery is at least once: an event may be published again if the relay stops between publishing it and deleting
+ * it from the outbox, so consumers deduplicate by {@code eventId}, or by account and sequence number.
+ *
+ * @param eventId        Unique id of the event, increasing along an account's events.
+ * @param sequenceNumber Per-account sequence number of the ledger entry.
+ * @param amount         Signed amount, negative for money leaving the account.
+ * @param balance        Balance of the account after the change.
+ * @param fxRate         Exchange rate of a cross-currency transfer, {@code null} otherwise.
+ */
+public record AccountEvent(Long eventId, Integer accountId, Long sequenceNumber, EntryType type, Currency currency,
+                           BigDecimal amount, BigDecimal balance, Integer counterpartyAccountId, BigDecimal fxRate,
+                           Instant createdAt) {
+
+    public static AccountEvent of(Long eventId, LedgerEntry entry) {
+        return new AccountEvent(eventId, entry.getAccountId(), entry.getSequenceNumber(), entry.getType(), entry.getCurrency(),
+                entry.getAmount().toBigDecimal(), entry.getBalance().toBigDecimal(), entry.getCounterpartyAccountId(),
+                entry.getFxRate(), entry.getCreatedAt());
+    }
+}
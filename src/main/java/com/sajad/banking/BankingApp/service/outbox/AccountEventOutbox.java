@@ -0,0 +1,40 @@
+package com.sajad.banking.BankingApp.service.outbox;
+
+import com.sajad.banking.BankingApp.model.LedgerEntry;
+import com.sajad.banking.BankingApp.model.OutboxEvent;
+import com.sajad.banking.BankingApp.repository.outbox.OutboxEventRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Writes the outbox rows of new ledger entries, inside the transaction that creates them. Publishing is left to the
+ * {@linkplain OutboxRelay}, so the money movements never wait for the consumers while holding their row locks.
+ *
+ * @author Sajad
+ */
+@Component
+public class AccountEventOutbox {
+
+    private final OutboxEventRepository outboxEventRepository;
+
+    private final boolean enabled;
+
+    @Autowired
+    public AccountEventOutbox(OutboxEventRepository outboxEventRepository,
+                              @Value("${banking.outbox.enabled:true}") boolean enabled) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.enabled = enabled;
+    }
+
+    /**
+     * Queues a saved ledger entry for publishing.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void append(LedgerEntry entry) {
+        if (enabled)
+            outboxEventRepository.save(new OutboxEvent(entry));
+    }
+}
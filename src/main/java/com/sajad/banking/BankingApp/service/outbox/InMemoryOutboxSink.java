@@ -0,0 +1,60 @@
+package com.sajad.banking.BankingApp.service.outbox;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the published events in a bounded in-memory queue, for in-process consumers and tests.
+ * <p>
+ * A batch is only accepted if it fits as a whole, so a full queue pushes back on the relay and the events wait in the
+ * outbox table instead of piling up in memory.
+ *
+ * @author Sajad
+ */
+@Component
+@ConditionalOnProperty(name = "banking.outbox.sink", havingValue = "memory", matchIfMissing = true)
+public class InMemoryOutboxSink implements OutboxSink {
+
+    private final BlockingQueue<AccountEvent> events;
+
+    @Autowired
+    public InMemoryOutboxSink(@Value("${banking.outbox.memory.capacity:10000}") int capacity) {
+        this.events = new ArrayBlockingQueue<>(capacity);
+    }
+
+    @Override
+    public synchronized boolean publish(List<AccountEvent> batch) {
+        if (events.remainingCapacity() < batch.size())
+            return false;
+
+        events.addAll(batch);
+        return true;
+    }
+
+    /**
+     * Waits for the next event.
+     *
+     * @return The next event, {@code null} if none was published within the timeout.
+     */
+    public AccountEvent poll(long timeout, TimeUnit unit) throws InterruptedException {
+        return events.poll(timeout, unit);
+    }
+
+    /**
+     * Takes all the events published so far.
+     */
+    public List<AccountEvent> drain() {
+        List<AccountEvent> drained = new ArrayList<>();
+        events.drainTo(drained);
+
+        return drained;
+    }
+}
@@ -0,0 +1,176 @@
+package com.sajad.banking.BankingApp.service.outbox;
+
+import com.sajad.banking.BankingApp.model.LedgerEntry;
+import com.sajad.banking.BankingApp.model.OutboxEvent;
+import com.sajad.banking.BankingApp.repository.ledger.LedgerEntryRepository;
+import com.sajad.banking.BankingApp.repository.outbox.OutboxEventRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Drains the outbox to the {@linkplain OutboxSink} in the background.
+ * <p>
+ * Every poll publishes the oldest events in batches, in id order, until the outbox is empty; published events are
+ * deleted afterwards, so delivery is at least once. Event ids of an account grow in its commit order and a batch only
+ * ever starts at the oldest pending event, so the events of an account are published in order. There is one relay
+ * per application instance.
+ * <p>
+ * A sink that refuses a batch, or fails, pushes back: the relay leaves the events in the outbox and skips polling for
+ * a backoff that doubles up to {@code banking.outbox.max-backoff}.
+ * <p>
+ * Meters:
+ * <ul>
+ *     <li>{@code banking.outbox.lag}: time from the ledger entry to its publication.</li>
+ *     <li>{@code banking.outbox.oldest.age}: age of the oldest event the relay knows to be pending, zero once the
+ *     outbox has been drained.</li>
+ *     <li>{@code banking.outbox.published}: published events.</li>
+ *     <li>{@code banking.outbox.backpressure}: batches refused by the sink, or that failed to publish.</li>
+ * </ul>
+ *
+ * @author Sajad
+ */
+@Component
+@ConditionalOnProperty(name = "banking.outbox.enabled", matchIfMissing = true)
+public class OutboxRelay {
+
+    private static final Logger logger = LoggerFactory.getLogger(OutboxRelay.class);
+
+    private final OutboxEventRepository outboxEventRepository;
+
+    private final LedgerEntryRepository ledgerEntryRepository;
+
+    private final OutboxSink outboxSink;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final int batchSize;
+
+    private final Duration initialBackoff;
+
+    private final Duration maxBackoff;
+
+    private final Timer lag;
+
+    private final Counter published;
+
+    private final Counter backpressure;
+
+    private Duration backoff;
+
+    private Instant resumeAt = Instant.MIN;
+
+    private volatile Instant oldestPendingCreatedAt;
+
+    @Autowired
+    public OutboxRelay(OutboxEventRepository outboxEventRepository, LedgerEntryRepository ledgerEntryRepository,
+                       OutboxSink outboxSink, TransactionTemplate transactionTemplate, MeterRegistry meterRegistry,
+                       @Value("${banking.outbox.batch-size:500}") int batchSize,
+                       @Value("${banking.outbox.poll-interval:PT1S}") Duration pollInterval,
+                       @Value("${banking.outbox.max-backoff:PT30S}") Duration maxBackoff) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.ledgerEntryRepository = ledgerEntryRepository;
+        this.outboxSink = outboxSink;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+        this.initialBackoff = pollInterval;
+        this.maxBackoff = maxBackoff;
+        this.backoff = pollInterval;
+
+        this.lag = Timer.builder("banking.outbox.lag")
+                .description("Time from a ledger entry to its publication")
+                .register(meterRegistry);
+        this.published = Counter.builder("banking.outbox.published")
+                .description("Events published from the outbox")
+                .register(meterRegistry);
+        this.backpressure = Counter.builder("banking.outbox.backpressure")
+                .description("Outbox batches refused by the sink or failed to publish")
+                .register(meterRegistry);
+        Gauge.builder("banking.outbox.oldest.age", this, OutboxRelay::oldestPendingAgeSeconds)
+                .description("Age of the oldest pending outbox event")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Publishes all the pending events, unless the relay is backing off.
+     */
+    @Scheduled(fixedDelayString = "${banking.outbox.poll-interval:PT1S}")
+    public void drain() {
+        if (Instant.now().isBefore(resumeAt))
+            return;
+
+        int relayed;
+        do {
+            relayed = relayBatch();
+        } while (relayed == batchSize);
+    }
+
+    /**
+     * @return Number of published events, zero if the outbox was empty or the sink pushed back.
+     */
+    private int relayBatch() {
+        List<OutboxEvent> batch = outboxEventRepository.findByOrderByIdAsc(Limit.of(batchSize));
+        if (batch.isEmpty()) {
+            oldestPendingCreatedAt = null;
+            return 0;
+        }
+
+        Map<Long, LedgerEntry> entries = ledgerEntryRepository.findAllById(batch.stream().map(OutboxEvent::getLedgerEntryId).toList())
+                .stream().collect(Collectors.toMap(LedgerEntry::getId, Function.identity()));
+        List<AccountEvent> events = batch.stream()
+                .map(event -> AccountEvent.of(event.getId(), entries.get(event.getLedgerEntryId())))
+                .toList();
+        oldestPendingCreatedAt = events.get(0).createdAt();
+
+        if (!publish(events)) {
+            backpressure.increment();
+            resumeAt = Instant.now().plus(backoff);
+            backoff = backoff.multipliedBy(2).compareTo(maxBackoff) > 0 ? maxBackoff : backoff.multipliedBy(2);
+            return 0;
+        }
+        backoff = initialBackoff;
+
+        transactionTemplate.executeWithoutResult(status ->
+                outboxEventRepository.deleteByIdIn(batch.stream().map(OutboxEvent::getId).toList()));
+
+        Instant publishedAt = Instant.now();
+        events.forEach(event -> lag.record(Duration.between(event.createdAt(), publishedAt)));
+        published.increment(events.size());
+
+        return events.size();
+    }
+
+    private boolean publish(List<AccountEvent> events) {
+        try {
+            return outboxSink.publish(events);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Could not publish {} outbox events, backing off for {}", events.size(), backoff, e);
+            return false;
+        }
+    }
+
+    private double oldestPendingAgeSeconds() {
+        Instant oldest = oldestPendingCreatedAt;
+
+        return oldest == null ? 0 : Duration.between(oldest, Instant.now()).toNanos() / 1e9;
+    }
+}
@@ -0,0 +1,21 @@
+package com.sajad.banking.BankingApp.service.outbox;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Destination of the events drained from the outbox by the {@linkplain OutboxRelay}.
+ *
+ * @author Sajad
+ */
+public interface OutboxSink {
+
+    /**
+     * Publishes a batch of events, in the given order.
+     *
+     * @return {@code false} if the sink cannot take the batch right now; none of it is published and the relay offers
+     * it again after backing off.
+     * @throws IOException If publishing failed; the relay treats it like a full sink.
+     */
+    boolean publish(List<AccountEvent> events) throws IOException;
+}
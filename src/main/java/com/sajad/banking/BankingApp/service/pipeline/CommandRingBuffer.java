@@ -0,0 +1,103 @@
+package com.sajad.banking.BankingApp.service.pipeline;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded, lock-free ring buffer with many producers and a single consumer, in the style of the LMAX disruptor.
+ * <p>
+ * Producers claim a sequence with a CAS on the shared cursor, fill the slot, then publish it by storing the sequence
+ * in the slot's marker. The consumer reads the slots in sequence order, up to the first one not published yet, so a
+ * slow producer holds back the ones that claimed after it but never blocks the other producers.
+ *
+ * @author Sajad
+ */
+final class CommandRingBuffer<T> {
+
+    private final Object[] slots;
+
+    /**
+     * Sequence published in each slot, {@code -1} before its first use.
+     */
+    private final AtomicLongArray published;
+
+    private final int mask;
+
+    /**
+     * Next sequence to claim.
+     */
+    private final AtomicLong claimed = new AtomicLong();
+
+    /**
+     * Next sequence to consume. Only the consumer writes it.
+     */
+    private volatile long consumed;
+
+    /**
+     * @param capacity Number of slots, rounded up to a power of two.
+     */
+    CommandRingBuffer(int capacity) {
+        int size = capacity <= 2 ? 2 : Integer.highestOneBit(capacity - 1) << 1;
+        this.slots = new Object[size];
+        this.published = new AtomicLongArray(size);
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++)
+            published.set(i, -1);
+    }
+
+    /**
+     * Adds the item, if there is room for it.
+     *
+     * @return Whether the item was added.
+     */
+    boolean offer(T item) {
+        long sequence;
+        do {
+            sequence = claimed.get();
+            if (sequence - consumed >= slots.length)
+                return false;
+        } while (!claimed.compareAndSet(sequence, sequence + 1));
+
+        int index = (int) sequence & mask;
+        slots[index] = item;
+        // Release store: the slot is visible to the consumer once it sees the sequence
+        published.lazySet(index, sequence);
+
+        return true;
+    }
+
+    /**
+     * Moves the published items, in order, into the list. Only the consumer thread may call it.
+     *
+     * @return Number of items moved.
+     */
+    @SuppressWarnings("unchecked")
+    int drainTo(List<T> items, int maxItems) {
+        long sequence = consumed;
+        int count = 0;
+        while (count < maxItems) {
+            int index = (int) sequence & mask;
+            if (published.get(index) != sequence)
+                break;
+
+            items.add((T) slots[index]);
+            slots[index] = null;
+            sequence++;
+            count++;
+        }
+
+        if (count > 0)
+            consumed = sequence;
+
+        return count;
+    }
+
+    boolean isEmpty() {
+        return claimed.get() == consumed;
+    }
+
+    int capacity() {
+        return slots.length;
+    }
+}
@@ -0,0 +1,36 @@
+package com.sajad.banking.BankingApp.service.pipeline;
+
+import java.math.BigDecimal;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A money movement queued in the {@linkplain TransferPipeline}, completing its result once committed.
+ *
+ * @author Sajad
+ */
+sealed interface MovementCommand {
+
+    /**
+     * Completed once the movement is committed, or failed with the reason it was rejected; {@code null} for credits
+     * resumed on startup, whose caller is long gone.
+     */
+    CompletableFuture<Void> result();
+
+    record Deposit(Integer customerId, Integer accountId, BigDecimal amount,
+                   CompletableFuture<Void> result) implements MovementCommand {
+    }
+
+    record Withdraw(Integer customerId, Integer accountId, BigDecimal amount,
+                    CompletableFuture<Void> result) implements MovementCommand {
+    }
+
+    record Transfer(Integer customerId, Integer fromAccountId, Integer toAccountId, BigDecimal amount,
+                    CompletableFuture<Void> result) implements MovementCommand {
+    }
+
+    /**
+     * Second leg of a transfer between partitions, handed off by the partition of the original account.
+     */
+    record Credit(Long pendingCreditId, CompletableFuture<Void> result) implements MovementCommand {
+    }
+}
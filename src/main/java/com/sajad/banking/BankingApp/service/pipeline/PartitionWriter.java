@@ -0,0 +1,183 @@
+package com.sajad.banking.BankingApp.service.pipeline;
+
+import com.sajad.banking.BankingApp.exception.account.AccountNotFoundException;
+import com.sajad.banking.BankingApp.model.PendingCredit;
+import com.sajad.banking.BankingApp.service.SimpleCustomerService;
+import com.sajad.banking.BankingApp.service.batch.TransactionalBatch;
+import com.sajad.banking.BankingApp.service.pipeline.MovementCommand.Credit;
+import com.sajad.banking.BankingApp.service.pipeline.MovementCommand.Deposit;
+import com.sajad.banking.BankingApp.service.pipeline.MovementCommand.Transfer;
+import com.sajad.banking.BankingApp.service.pipeline.MovementCommand.Withdraw;
+import jakarta.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The single writer of a pipeline partition: drains its ring buffer and applies the commands one after the other,
+ * committing each drained batch in a single transaction. Results are completed only after the commit.
+ * <p>
+ * The commands of a partition only lock accounts of that partition, so writers don't wait on each other's row locks.
+ * A transfer to an account of another partition is split in two: this writer debits the original account and hands
+ * the credit off to the other partition once the debit is committed.
+ *
+ * @author Sajad
+ */
+final class PartitionWriter implements Runnable {
+
+    private static final Logger logger = LoggerFactory.getLogger(PartitionWriter.class);
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    private final int index;
+
+    private final TransferPipeline pipeline;
+
+    private final SimpleCustomerService customerService;
+
+    private final TransactionalBatch<MovementCommand> transactionalBatch;
+
+    private final int batchSize;
+
+    private final CommandRingBuffer<MovementCommand> ringBuffer;
+
+    /**
+     * Credits handed off by the other writers. Unbounded, so a writer never blocks on another one's full buffer; it
+     * holds no more credits than the transfers the buffers let in.
+     */
+    private final Queue<MovementCommand> handOffs = new ConcurrentLinkedQueue<>();
+
+    private final Thread thread;
+
+    private volatile boolean running = true;
+
+    private volatile boolean idle;
+
+    PartitionWriter(int index, TransferPipeline pipeline, SimpleCustomerService customerService,
+                    TransactionTemplate transactionTemplate, EntityManager entityManager, int bufferSize, int batchSize) {
+        this.index = index;
+        this.pipeline = pipeline;
+        this.customerService = customerService;
+        this.transactionalBatch = new TransactionalBatch<>("Pipeline partition " + index, transactionTemplate,
+                entityManager, this::execute, this::failCommand);
+        this.batchSize = batchSize;
+        this.ringBuffer = new CommandRingBuffer<>(bufferSize);
+        this.thread = Thread.ofPlatform().name("transfer-pipeline-" + index).daemon().unstarted(this);
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    /**
+     * Stops once both queues are empty.
+     */
+    void stop() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(thread);
+        thread.join();
+    }
+
+    /**
+     * Queues a command, if the ring buffer has room for it.
+     */
+    boolean offer(MovementCommand command) {
+        if (!ringBuffer.offer(command))
+            return false;
+
+        wakeUp();
+        return true;
+    }
+
+    void handOff(MovementCommand command) {
+        handOffs.add(command);
+        wakeUp();
+    }
+
+    @Override
+    public void run() {
+        List<MovementCommand> batch = new ArrayList<>(batchSize);
+        while (running || !handOffs.isEmpty() || !ringBuffer.isEmpty()) {
+            batch.clear();
+            for (MovementCommand handOff; batch.size() < batchSize && (handOff = handOffs.poll()) != null; )
+                batch.add(handOff);
+            ringBuffer.drainTo(batch, batchSize - batch.size());
+
+            if (batch.isEmpty()) {
+                idle = true;
+                if (running && handOffs.isEmpty() && ringBuffer.isEmpty())
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                idle = false;
+                continue;
+            }
+
+            transactionalBatch.apply(batch);
+            pipeline.completed(batch.size());
+        }
+    }
+
+    private void wakeUp() {
+        if (idle)
+            LockSupport.unpark(thread);
+    }
+
+    /**
+     * Applies the command, inside the batch's transaction if there is one.
+     *
+     * @return What to do once the command is committed.
+     */
+    private Runnable execute(MovementCommand command) throws Exception {
+        switch (command) {
+            case Deposit deposit -> customerService.deposit(deposit.customerId(), deposit.accountId(), deposit.amount());
+            case Withdraw withdraw ->
+                    customerService.withdraw(withdraw.customerId(), withdraw.accountId(), withdraw.amount());
+            case Transfer transfer -> {
+                if (pipeline.partitionOf(transfer.toAccountId()) != index) {
+                    PendingCredit credit = customerService.debitTransfer(transfer.customerId(),
+                            transfer.fromAccountId(), transfer.toAccountId(), transfer.amount());
+
+                    return () -> pipeline.handOff(new Credit(credit.getId(), transfer.result()), credit.getToAccountId());
+                }
+
+                customerService.transfer(transfer.customerId(), transfer.fromAccountId(), transfer.toAccountId(),
+                        transfer.amount());
+            }
+            case Credit credit -> {
+                Optional<PendingCredit> returned = customerService.creditTransfer(credit.pendingCreditId());
+                if (returned.isPresent()) {
+                    return () -> {
+                        pipeline.handOff(new Credit(returned.get().getId(), null), returned.get().getToAccountId());
+                        fail(credit.result(), new AccountNotFoundException());
+                    };
+                }
+            }
+        }
+
+        return () -> complete(command.result());
+    }
+
+    private void failCommand(MovementCommand command, Exception e) {
+        if (e instanceof RuntimeException)
+            logger.warn("Pipeline partition {} could not apply {}", index, command, e);
+        fail(command.result(), e);
+    }
+
+    private static void complete(CompletableFuture<Void> result) {
+        if (result != null)
+            result.complete(null);
+    }
+
+    private static void fail(CompletableFuture<Void> result, Exception e) {
+        if (result != null)
+            result.completeExceptionally(e);
+    }
+}
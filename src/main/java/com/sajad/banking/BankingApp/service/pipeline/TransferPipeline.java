@@ -0,0 +1,181 @@
+package com.sajad.banking.BankingApp.service.pipeline;
+
+import com.sajad.banking.BankingApp.model.PendingCredit;
+import com.sajad.banking.BankingApp.repository.pipeline.PendingCreditRepository;
+import com.sajad.banking.BankingApp.service.SimpleCustomerService;
+import com.sajad.banking.BankingApp.service.pipeline.MovementCommand.Credit;
+import com.sajad.banking.BankingApp.service.pipeline.MovementCommand.Deposit;
+import com.sajad.banking.BankingApp.service.pipeline.MovementCommand.Transfer;
+import com.sajad.banking.BankingApp.service.pipeline.MovementCommand.Withdraw;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Single-writer execution of the money movements, as an alternative to request threads contending for row locks.
+ * <p>
+ * Accounts are partitioned by id. Each partition has a lock-free ring buffer of commands, drained by a single
+ * {@linkplain PartitionWriter writer} thread that applies them serially and commits them in batches. A command goes to
+ * the partition of the account it takes money from, and its caller gets a future completed after the commit. A full
+ * buffer makes the callers wait for room, which is the pipeline's backpressure.
+ * <p>
+ * A transfer between accounts of different partitions is a two-phase hand-off: the original account's writer debits
+ * it and records a {@linkplain PendingCredit} in the same transaction, then passes the credit to the destination
+ * account's writer, which applies it and deletes the record. The transfer's future completes with the credit. Credits
+ * left pending by a stop between the two phases are resumed on startup.
+ * <p>
+ * Batch transfers, deletions and resharding keep going through the locking path; they stay correct next to the
+ * writers, which still lock the rows they change.
+ *
+ * @author Sajad
+ */
+@Component
+@ConditionalOnProperty(name = "banking.pipeline.enabled")
+public class TransferPipeline implements InitializingBean, DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(TransferPipeline.class);
+
+    private static final long FULL_BUFFER_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    private final PendingCreditRepository pendingCreditRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final Duration shutdownTimeout;
+
+    private final PartitionWriter[] writers;
+
+    /**
+     * Commands queued or being applied, across the partitions.
+     */
+    private final AtomicLong inFlight = new AtomicLong();
+
+    private volatile boolean accepting = true;
+
+    @Autowired
+    public TransferPipeline(SimpleCustomerService customerService, PendingCreditRepository pendingCreditRepository,
+                            TransactionTemplate transactionTemplate, EntityManager entityManager, MeterRegistry meterRegistry,
+                            @Value("${banking.pipeline.partitions:4}") int partitions,
+                            @Value("${banking.pipeline.buffer-size:1024}") int bufferSize,
+                            @Value("${banking.pipeline.batch-size:64}") int batchSize,
+                            @Value("${banking.pipeline.shutdown-timeout:PT30S}") Duration shutdownTimeout,
+                            @Value("${banking.ledger.memory.enabled:false}") boolean memoryLedger) {
+        // Writers go straight to the database, they would bypass the balances held by the memory ledger
+        if (memoryLedger)
+            throw new IllegalStateException("The transfer pipeline and the memory ledger cannot be enabled together");
+
+        this.pendingCreditRepository = pendingCreditRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.shutdownTimeout = shutdownTimeout;
+        this.writers = new PartitionWriter[partitions];
+        for (int i = 0; i < partitions; i++)
+            writers[i] = new PartitionWriter(i, this, customerService, transactionTemplate, entityManager, bufferSize, batchSize);
+
+        Gauge.builder("banking.pipeline.in-flight", inFlight, AtomicLong::get)
+                .description("Money movements queued in the transfer pipeline or being applied")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Starts the writers, then resumes the credits left pending.
+     */
+    @Override
+    public void afterPropertiesSet() {
+        for (PartitionWriter writer : writers)
+            writer.start();
+
+        var pendingCredits = transactionTemplate.execute(status -> pendingCreditRepository.findByOrderByIdAsc());
+        if (!pendingCredits.isEmpty())
+            logger.info("Resuming {} pending transfer credits", pendingCredits.size());
+        pendingCredits.forEach(credit -> handOff(new Credit(credit.getId(), null), credit.getToAccountId()));
+    }
+
+    /**
+     * Stops taking commands, waits for the queued ones to be applied, then stops the writers.
+     */
+    @Override
+    public void destroy() throws InterruptedException {
+        accepting = false;
+
+        long deadline = System.nanoTime() + shutdownTimeout.toNanos();
+        while (inFlight.get() > 0 && System.nanoTime() < deadline)
+            Thread.sleep(10);
+        if (inFlight.get() > 0)
+            logger.warn("Stopping the transfer pipeline with {} commands in flight", inFlight.get());
+
+        for (PartitionWriter writer : writers)
+            writer.stop();
+    }
+
+    public CompletableFuture<Void> deposit(Integer customerId, Integer accountId, BigDecimal amount) {
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        submit(new Deposit(customerId, accountId, amount, result), accountId);
+
+        return result;
+    }
+
+    public CompletableFuture<Void> withdraw(Integer customerId, Integer accountId, BigDecimal amount) {
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        submit(new Withdraw(customerId, accountId, amount, result), accountId);
+
+        return result;
+    }
+
+    /**
+     * Transfers money between two accounts, with the same rules as
+     * {@linkplain com.sajad.banking.BankingApp.service.CustomerService#transfer}.
+     */
+    public CompletableFuture<Void> transfer(Integer customerId, Integer fromAccountId, Integer toAccountId, BigDecimal amount) {
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        submit(new Transfer(customerId, fromAccountId, toAccountId, amount, result), fromAccountId);
+
+        return result;
+    }
+
+    /**
+     * Partition of the account; commands without an account all go to the first one.
+     */
+    int partitionOf(Integer accountId) {
+        return accountId == null ? 0 : Math.floorMod(accountId, writers.length);
+    }
+
+    /**
+     * Passes a credit to the writer of its account, without waiting for room.
+     */
+    void handOff(Credit credit, Integer accountId) {
+        inFlight.incrementAndGet();
+        writers[partitionOf(accountId)].handOff(credit);
+    }
+
+    void completed(int commands) {
+        inFlight.addAndGet(-commands);
+    }
+
+    private void submit(MovementCommand command, Integer accountId) {
+        if (!accepting) {
+            command.result().completeExceptionally(new IllegalStateException("The transfer pipeline is stopped"));
+            return;
+        }
+
+        inFlight.incrementAndGet();
+        PartitionWriter writer = writers[partitionOf(accountId)];
+        while (!writer.offer(command))
+            LockSupport.parkNanos(FULL_BUFFER_PARK_NANOS);
+    }
+}
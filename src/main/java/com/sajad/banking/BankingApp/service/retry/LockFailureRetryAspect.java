@@ -0,0 +1,141 @@
+package com.sajad.banking.BankingApp.service.retry;
+
+import com.sajad.banking.BankingApp.service.metrics.BankingMetrics;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import jakarta.persistence.OptimisticLockException;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Retries methods annotated with {@linkplain RetryOnLockFailure} on lock timeouts, using an exponential backoff with
+ * jitter between the attempts.
+ * <p>
+ * Version conflicts of accounts read optimistically, see {@linkplain LockingPolicy}, are retried the same way with a
+ * budget and backoff of their own: they cost no lock wait, so they are retried sooner, and more often. Once the
+ * budget is spent, the policy is escalated and the method gets one more attempt taking locks, which cannot conflict.
+ * <p>
+ * This advice runs outside the transactional one, so every attempt gets its own transaction. If the method is called
+ * while a transaction is already active, the failure is propagated as is, since the outer transaction is doomed anyway.
+ * <p>
+ * Every attempt runs under a permit of the {@linkplain LockingTransactionLimiter}, the backoff between attempts does
+ * not hold one.
+ * <p>
+ * It runs right inside the {@linkplain com.sajad.banking.BankingApp.service.metrics.BankingMetricsAspect metrics} one,
+ * which times the operation with all its attempts.
+ *
+ * @author Sajad
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+public class LockFailureRetryAspect {
+
+    private static final Logger logger = LoggerFactory.getLogger(LockFailureRetryAspect.class);
+
+    private final int maxAttempts;
+
+    private final long initialBackoffMillis;
+
+    private final long maxBackoffMillis;
+
+    private final int optimisticMaxAttempts;
+
+    private final long optimisticInitialBackoffMillis;
+
+    private final long optimisticMaxBackoffMillis;
+
+    private final LockingTransactionLimiter lockingTransactionLimiter;
+
+    private final BankingMetrics bankingMetrics;
+
+    private final LockingPolicy lockingPolicy;
+
+    public LockFailureRetryAspect(@Value("${banking.lock.retry.max-attempts:5}") int maxAttempts,
+                                  @Value("${banking.lock.retry.initial-backoff-ms:20}") long initialBackoffMillis,
+                                  @Value("${banking.lock.retry.max-backoff-ms:500}") long maxBackoffMillis,
+                                  @Value("${banking.lock.optimistic.retry.max-attempts:10}") int optimisticMaxAttempts,
+                                  @Value("${banking.lock.optimistic.retry.initial-backoff-ms:1}") long optimisticInitialBackoffMillis,
+                                  @Value("${banking.lock.optimistic.retry.max-backoff-ms:50}") long optimisticMaxBackoffMillis,
+                                  LockingTransactionLimiter lockingTransactionLimiter, BankingMetrics bankingMetrics,
+                                  LockingPolicy lockingPolicy) {
+        this.lockingTransactionLimiter = lockingTransactionLimiter;
+        this.bankingMetrics = bankingMetrics;
+        this.lockingPolicy = lockingPolicy;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.initialBackoffMillis = initialBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+        this.optimisticMaxAttempts = Math.max(1, optimisticMaxAttempts);
+        this.optimisticInitialBackoffMillis = optimisticInitialBackoffMillis;
+        this.optimisticMaxBackoffMillis = optimisticMaxBackoffMillis;
+    }
+
+    @Around("@annotation(com.sajad.banking.BankingApp.service.retry.RetryOnLockFailure)")
+    public Object retry(ProceedingJoinPoint joinPoint) throws Throwable {
+        if (TransactionSynchronizationManager.isActualTransactionActive())
+            return joinPoint.proceed();
+
+        long backoff = initialBackoffMillis;
+        long optimisticBackoff = optimisticInitialBackoffMillis;
+        int lockFailures = 0;
+        int conflicts = 0;
+        try {
+            while (true) {
+                try {
+                    return proceedWithPermit(joinPoint);
+                } catch (PessimisticLockingFailureException e) {
+                    if (++lockFailures >= maxAttempts)
+                        throw e;
+
+                    logger.debug("Lock failure on {}, attempt {} of {}", joinPoint.getSignature().toShortString(), lockFailures, maxAttempts);
+                    bankingMetrics.recordLockRetry(joinPoint.getSignature().getName());
+
+                    sleepWithJitter(backoff);
+                    backoff = Math.min(backoff * 2, maxBackoffMillis);
+                } catch (OptimisticLockingFailureException | OptimisticLockException e) {
+                    bankingMetrics.recordOptimisticConflict(joinPoint.getSignature().getName());
+                    if (++conflicts > optimisticMaxAttempts)
+                        throw e;
+                    if (conflicts == optimisticMaxAttempts) {
+                        logger.debug("Version conflicts on {}, escalating to locks", joinPoint.getSignature().toShortString());
+                        lockingPolicy.escalate();
+                        continue;
+                    }
+
+                    logger.debug("Version conflict on {}, attempt {} of {}", joinPoint.getSignature().toShortString(), conflicts,
+                            optimisticMaxAttempts);
+                    sleepWithJitter(optimisticBackoff);
+                    optimisticBackoff = Math.min(optimisticBackoff * 2, optimisticMaxBackoffMillis);
+                }
+            }
+        } finally {
+            lockingPolicy.clearEscalation();
+        }
+    }
+
+    /**
+     * Full jitter, so the competing transactions don't wake up together again.
+     */
+    private static void sleepWithJitter(long backoffMillis) throws InterruptedException {
+        Thread.sleep(ThreadLocalRandom.current().nextLong(backoffMillis + 1));
+    }
+
+    private Object proceedWithPermit(ProceedingJoinPoint joinPoint) throws Throwable {
+        lockingTransactionLimiter.acquire();
+        try {
+            return joinPoint.proceed();
+        } finally {
+            lockingTransactionLimiter.release();
+        }
+    }
+}
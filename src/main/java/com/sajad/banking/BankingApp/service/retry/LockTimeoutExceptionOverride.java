@@ -0,0 +1,23 @@
+package com.sajad.banking.BankingApp.service.retry;
+
+import com.zaxxer.hikari.SQLExceptionOverride;
+
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+
+/**
+ * Keeps a pooled connection whose statement timed out, on a row lock say.
+ * <p>
+ * Hikari evicts connections on any {@linkplain SQLTimeoutException}, closing them under the transaction. Its rollback
+ * then fails, and the rollback failure replaces the lock failure the {@linkplain LockFailureRetryAspect} retries. A
+ * timed out statement leaves the connection usable, so the other checks of the pool are left to decide.
+ *
+ * @author Sajad
+ */
+public class LockTimeoutExceptionOverride implements SQLExceptionOverride {
+
+    @java.lang.Override
+    public Override adjudicate(SQLException sqlException) {
+        return sqlException instanceof SQLTimeoutException ? Override.DO_NOT_EVICT : Override.CONTINUE_EVICT;
+    }
+}
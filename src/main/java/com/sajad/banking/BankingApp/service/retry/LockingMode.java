@@ -0,0 +1,20 @@
+package com.sajad.banking.BankingApp.service.retry;
+
+/**
+ * How a money movement keeps the accounts it reads from changing before it writes them.
+ *
+ * @author Sajad
+ */
+public enum LockingMode {
+
+    /**
+     * Locks the account rows as it reads them, concurrent movements of the same accounts wait for each other.
+     */
+    PESSIMISTIC,
+
+    /**
+     * Reads the accounts without locks and checks their version when writing them back; the movement is retried if
+     * another one changed them in the meantime.
+     */
+    OPTIMISTIC
+}
@@ -0,0 +1,69 @@
+package com.sajad.banking.BankingApp.service.retry;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+
+/**
+ * Picks the {@linkplain LockingMode} of the money movements reading accounts before changing them.
+ * <p>
+ * Optimistic reads win when the same accounts are rarely moved at once: no lock is held while reading and converting,
+ * and the version check costs nothing. Under contention every conflict throws the work away, so the configured hot
+ * accounts are always locked, whatever the mode of the operation, and an operation whose optimistic attempts all
+ * conflicted is {@linkplain #escalate() escalated} to locks for its last attempt.
+ * <p>
+ * Deposits and withdrawals are single conditional statements in both modes, never reading before writing.
+ *
+ * @author Sajad
+ */
+@Component
+public class LockingPolicy {
+
+    private final LockingMode transferMode;
+
+    private final LockingMode debitTransferMode;
+
+    private final Set<Integer> hotAccounts;
+
+    /**
+     * Whether the operation running on the thread was escalated to locks.
+     */
+    private final ThreadLocal<Boolean> escalated = ThreadLocal.withInitial(() -> false);
+
+    @Autowired
+    public LockingPolicy(@Value("${banking.lock.transfer.mode:${banking.lock.mode:PESSIMISTIC}}") LockingMode transferMode,
+                         @Value("${banking.lock.debit-transfer.mode:${banking.lock.mode:PESSIMISTIC}}") LockingMode debitTransferMode,
+                         @Value("${banking.lock.hot-accounts:}") Set<Integer> hotAccounts) {
+        this.transferMode = transferMode;
+        this.debitTransferMode = debitTransferMode;
+        this.hotAccounts = Set.copyOf(hotAccounts);
+    }
+
+    /**
+     * Whether a transfer between the two accounts reads them without locks.
+     */
+    public boolean isOptimisticTransfer(Integer fromAccountId, Integer toAccountId) {
+        return transferMode == LockingMode.OPTIMISTIC && !escalated.get() && !hotAccounts.contains(fromAccountId) &&
+                !hotAccounts.contains(toAccountId);
+    }
+
+    /**
+     * Whether the debit of a transfer pipeline's two-phase transfer reads its account without a lock.
+     */
+    public boolean isOptimisticDebit(Integer fromAccountId) {
+        return debitTransferMode == LockingMode.OPTIMISTIC && !escalated.get() && !hotAccounts.contains(fromAccountId);
+    }
+
+    /**
+     * Makes the operations running on this thread lock pessimistically, until {@linkplain #clearEscalation()}.
+     */
+    public void escalate() {
+        escalated.set(true);
+    }
+
+    public void clearEscalation() {
+        escalated.remove();
+    }
+}
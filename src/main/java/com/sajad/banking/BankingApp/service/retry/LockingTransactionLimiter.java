@@ -0,0 +1,45 @@
+package com.sajad.banking.BankingApp.service.retry;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Semaphore;
+
+/**
+ * Caps the number of lock-taking transactions running at once.
+ * <p>
+ * On virtual threads, a transaction waiting for a row lock inside the database driver's monitors pins its carrier
+ * thread. Enough contending transfers would pin every carrier, and unrelated requests would stall behind them. Waiting
+ * for a permit here parks the virtual thread without pinning, and the transactions admitted to the database mostly
+ * stop waiting on each other's locks.
+ * <p>
+ * The cap is opt-in, in both thread modes: any fixed default is wrong for some host, and a small one serializes every
+ * locking transaction behind a handful of permits. With platform threads, Tomcat's pool already bounds the
+ * concurrency, and on virtual threads the connection pool does.
+ *
+ * @author Sajad
+ */
+@Component
+public class LockingTransactionLimiter {
+
+    /**
+     * Permits of the running transactions, {@code null} when unbounded.
+     */
+    private final Semaphore permits;
+
+    @Autowired
+    public LockingTransactionLimiter(@Value("${banking.lock.max-concurrent-transactions:0}") int maxConcurrentTransactions) {
+        this.permits = maxConcurrentTransactions > 0 ? new Semaphore(maxConcurrentTransactions, true) : null;
+    }
+
+    public void acquire() throws InterruptedException {
+        if (permits != null)
+            permits.acquire();
+    }
+
+    public void release() {
+        if (permits != null)
+            permits.release();
+    }
+}
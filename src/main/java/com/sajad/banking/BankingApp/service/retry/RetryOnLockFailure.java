@@ -0,0 +1,16 @@
+package com.sajad.banking.BankingApp.service.retry;
+
+import java.lang.annotation.*;
+
+/**
+ * Marks a transactional service method to be re-executed, in a brand-new transaction, when it fails to acquire its row
+ * locks in time (lock timeout or deadlock victim).
+ *
+ * @author Sajad
+ * @see LockFailureRetryAspect
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface RetryOnLockFailure {
+}
@@ -0,0 +1,63 @@
+package com.sajad.banking.BankingApp.service.shard;
+
+import com.sajad.banking.BankingApp.model.ShardDeposit;
+import com.sajad.banking.BankingApp.repository.account.ShardDepositRepository;
+import com.sajad.banking.BankingApp.service.SimpleCustomerService;
+import com.sajad.banking.BankingApp.service.metrics.BankingMetricsAspect;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+
+/**
+ * Collects the deposits of sharded accounts into their balances in the background, see
+ * {@linkplain com.sajad.banking.BankingApp.model.ShardDeposit}.
+ * <p>
+ * Otherwise a deposit only gets its ledger entry and outbox event once a withdrawal, a transfer, a reshard or a delete
+ * collects the shards, which may never come, and that collection would take the whole backlog in one transaction.
+ * Every poll collects all the pending deposits, oldest account first, {@code banking.shard-deposit.batch-size} of them
+ * per transaction, so the account and its shards are locked only briefly each time.
+ *
+ * @author Sajad
+ */
+@Component
+public class ShardDepositCollector {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShardDepositCollector.class);
+
+    private final SimpleCustomerService customerService;
+
+    private final ShardDepositRepository shardDepositRepository;
+
+    private final int batchSize;
+
+    @Autowired
+    public ShardDepositCollector(SimpleCustomerService customerService, ShardDepositRepository shardDepositRepository,
+                                 @Value("${banking.shard-deposit.batch-size:500}") int batchSize) {
+        this.customerService = customerService;
+        this.shardDepositRepository = shardDepositRepository;
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * Collects all the pending deposits, a batch per transaction.
+     */
+    @Scheduled(fixedDelayString = "${banking.shard-deposit.collect-interval:PT1S}")
+    public void collect() {
+        // Not an operation of its own, the deposits were timed already
+        BankingMetricsAspect.runUntimed(() -> {
+            try {
+                for (Optional<ShardDeposit> oldest; (oldest = shardDepositRepository.findFirstByOrderByIdAsc()).isPresent(); ) {
+                    if (customerService.collectShardDeposits(oldest.get().getAccountId(), batchSize) == 0)
+                        break;
+                }
+            } catch (RuntimeException e) {
+                logger.warn("Could not collect the shard deposits, retrying on the next poll", e);
+            }
+        });
+    }
+}
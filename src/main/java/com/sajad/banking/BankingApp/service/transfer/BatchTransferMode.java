@@ -0,0 +1,17 @@
+package com.sajad.banking.BankingApp.service.transfer;
+
+/**
+ * How a batch of transfers reacts to failing items.
+ *
+ * @author Sajad
+ */
+public enum BatchTransferMode {
+    /**
+     * Any failing transfer rolls back the whole batch.
+     */
+    ALL_OR_NOTHING,
+    /**
+     * Failing transfers are skipped, the rest are committed.
+     */
+    BEST_EFFORT
+}
@@ -0,0 +1,11 @@
+package com.sajad.banking.BankingApp.service.transfer;
+
+import java.math.BigDecimal;
+
+/**
+ * A single money movement between two accounts of the same customer.
+ *
+ * @author Sajad
+ */
+public record Transfer(Integer fromAccountId, Integer toAccountId, BigDecimal amount) {
+}
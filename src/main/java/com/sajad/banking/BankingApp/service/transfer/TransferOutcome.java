@@ -0,0 +1,26 @@
+package com.sajad.banking.BankingApp.service.transfer;
+
+/**
+ * Result of a single transfer within a batch.
+ *
+ * @author Sajad
+ */
+public enum TransferOutcome {
+    SUCCESSFUL,
+    /**
+     * The transfer itself was valid, but the batch was rolled back because of another transfer.
+     */
+    ROLLED_BACK,
+    INVALID_TRANSFER_DETAILS,
+    NEGATIVE_AMOUNT,
+    /**
+     * The amount has more fraction digits than the currency of the source account, or is too large.
+     */
+    INVALID_AMOUNT,
+    ACCOUNT_NOT_FOUND,
+    BALANCE_NOT_ENOUGH,
+    /**
+     * There is no exchange rate between the currencies of the two accounts.
+     */
+    UNSUPPORTED_CURRENCY
+}
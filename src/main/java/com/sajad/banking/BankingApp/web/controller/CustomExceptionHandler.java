@@ -47,6 +47,12 @@ public class CustomExceptionHandler extends ResponseEntityExceptionHandler {
         return ResponseEntity.badRequest().body(body);
     }
 
+    @ExceptionHandler(InvalidAmountException.class)
+    protected ResponseEntity<String> handleInvalidAmountException() {
+        String body = "Amount has more fraction digits than the currency, or is too large!";
+        return ResponseEntity.badRequest().body(body);
+    }
+
     @ExceptionHandler(BalanceAccountDeleteException.class)
     protected ResponseEntity<String> handleBalanceAccountDeleteException() {
         String body = "Cannot delete an this account due to its balance!";
@@ -74,4 +80,11 @@ public class CustomExceptionHandler extends ResponseEntityExceptionHandler {
 
         return ResponseEntity.badRequest().body(body);
     }
+
+    @ExceptionHandler(UnsupportedCurrencyException.class)
+    protected ResponseEntity<String> handleUnsupportedCurrencyException() {
+        String body = "No exchange rate between the currencies of these accounts!";
+
+        return ResponseEntity.badRequest().body(body);
+    }
 }
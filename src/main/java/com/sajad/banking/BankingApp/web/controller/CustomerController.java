@@ -4,28 +4,54 @@ import com.sajad.banking.BankingApp.exception.account.*;
 import com.sajad.banking.BankingApp.exception.customer.CustomerDeleteException;
 import com.sajad.banking.BankingApp.exception.customer.CustomerExistsException;
 import com.sajad.banking.BankingApp.exception.customer.CustomerNotFoundException;
-import com.sajad.banking.BankingApp.model.Customer;
 import com.sajad.banking.BankingApp.service.CustomerService;
+import com.sajad.banking.BankingApp.service.pipeline.TransferPipeline;
+import com.sajad.banking.BankingApp.service.transfer.BatchTransferMode;
+import com.sajad.banking.BankingApp.service.transfer.TransferOutcome;
 import com.sajad.banking.BankingApp.web.dto.account.AccountDto;
+import com.sajad.banking.BankingApp.web.dto.account.AccountShardsDto;
+import com.sajad.banking.BankingApp.web.dto.account.BatchTransferDto;
 import com.sajad.banking.BankingApp.web.dto.account.DepositDto;
+import com.sajad.banking.BankingApp.web.dto.account.TransactionDto;
 import com.sajad.banking.BankingApp.web.dto.account.TransferDto;
+import com.sajad.banking.BankingApp.web.dto.account.TransferResultDto;
 import com.sajad.banking.BankingApp.web.dto.account.NewAccountDto;
+import com.sajad.banking.BankingApp.web.dto.customer.CustomerDetailDto;
 import com.sajad.banking.BankingApp.web.dto.customer.CustomerListDto;
 import com.sajad.banking.BankingApp.web.dto.customer.NewCustomerDto;
+import com.sajad.banking.BankingApp.web.exporter.CustomerExporter;
+import com.sajad.banking.BankingApp.web.exporter.ExportFormat;
+import com.sajad.banking.BankingApp.web.importer.CustomerImporter;
 import com.sajad.banking.BankingApp.web.utility.Utility;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 /**
  * Provides a REST-API for customer and account management.
+ * <p>
+ * The {@code PUT} endpoints accept an {@code Idempotency-Key} header, which makes retries safe, see
+ * {@linkplain com.sajad.banking.BankingApp.web.idempotency.IdempotencyFilter}.
+ * <p>
+ * Deposits, withdrawals and single transfers answer asynchronously. With the {@linkplain TransferPipeline} on, they are
+ * queued to its writers and the response is sent once their movement is committed; otherwise they run right away on
+ * the request thread.
  *
  * @author Sajad
  */
@@ -33,29 +59,68 @@ import java.util.stream.Collectors;
 @RequestMapping("/api/customers")
 public class CustomerController {
 
+    /**
+     * Response header carrying the cursor of the next page in keyset-paginated listings.
+     */
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    private static final int MAX_PAGE_SIZE = 100;
+
     /**
      * Appointment service instance
      */
     private final CustomerService customerService;
 
+    private final CustomerImporter customerImporter;
+
+    private final CustomerExporter customerExporter;
+
+    /**
+     * {@code null} unless the pipeline mode is on.
+     */
+    private final TransferPipeline transferPipeline;
+
     @Autowired
-    public CustomerController(CustomerService customerService) {
+    public CustomerController(CustomerService customerService, CustomerImporter customerImporter,
+                              CustomerExporter customerExporter, Optional<TransferPipeline> transferPipeline) {
         this.customerService = customerService;
+        this.customerImporter = customerImporter;
+        this.customerExporter = customerExporter;
+        this.transferPipeline = transferPipeline.orElse(null);
     }
 
+    /**
+     * Lists customers. Without {@code after}, it's the classic offset paging; with it, it's keyset paging starting
+     * right after the given customer id, and the {@value NEXT_CURSOR_HEADER} header holds the next {@code after} value,
+     * if there may be a next page.
+     */
     @GetMapping
-    public ResponseEntity<?> listCustomers(@PageableDefault(sort = "id") Pageable pageable) {
+    public ResponseEntity<?> listCustomers(@RequestParam(name = "after", required = false) Integer after,
+                                           @PageableDefault(sort = "id") Pageable pageable) {
+        if (after != null)
+            return listCustomersAfter(after, pageable.getPageSize());
+
         List<CustomerListDto> customers = customerService.listCustomer(pageable)
                 .stream().map(Utility::toCustomerListDto).collect(Collectors.toList());
 
         return ResponseEntity.ok(customers);
     }
 
+    private ResponseEntity<?> listCustomersAfter(Integer after, int size) {
+        List<CustomerListDto> customers = customerService.listCustomersAfter(after, size);
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (customers.size() == size)
+            response.header(NEXT_CURSOR_HEADER, String.valueOf(customers.get(size - 1).getId()));
+
+        return response.body(customers);
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<?> findCustomer(@PathVariable("id") Integer customerId) {
-        Optional<Customer> customerOptional = customerService.findCustomer(customerId);
+        Optional<CustomerDetailDto> customerOptional = customerService.findCustomer(customerId);
 
-        return ResponseEntity.ok(customerOptional.stream().map(Utility::toCustomerDetailDto));
+        return ResponseEntity.ok(customerOptional.stream());
     }
 
     @PostMapping
@@ -65,6 +130,25 @@ public class CustomerController {
         return ResponseEntity.ok().build();
     }
 
+    /**
+     * Bulk customer import. The body is either NDJSON or a JSON array of {@linkplain NewCustomerDto}s; it's parsed and
+     * persisted incrementally, and one NDJSON result line per record is streamed back, in the input order.
+     */
+    @PostMapping(value = "/import", consumes = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_JSON_VALUE})
+    public void importCustomers(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        customerImporter.importCustomers(request.getInputStream(), response.getOutputStream());
+    }
+
+    /**
+     * Full dump of the customers with their accounts and balances, one row per account. It's streamed straight from a
+     * database cursor to the response, off the request thread.
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportCustomers(@RequestParam(name = "format", defaultValue = "CSV") ExportFormat format) {
+        return export(format, "customers", output -> customerExporter.exportCustomerAccounts(format, output));
+    }
+
     @DeleteMapping("/{id}")
     public ResponseEntity<?> deleteCustomer(@PathVariable("id") Integer customerId) throws CustomerNotFoundException,
             CustomerDeleteException {
@@ -83,12 +167,57 @@ public class CustomerController {
 
     @GetMapping("/{id}/accounts")
     public ResponseEntity<?> listCustomerAccounts(@PathVariable("id") Integer customerId) throws CustomerNotFoundException {
-        List<AccountDto> customerAccounts = customerService.listCustomerAccounts(customerId)
+        List<AccountDto> customerAccounts = customerService.listCustomerAccounts(customerId);
+
+        return ResponseEntity.ok(customerAccounts);
+    }
+
+    /**
+     * Lists an account's transactions, newest first, using keyset pagination.
+     * The {@value NEXT_CURSOR_HEADER} header holds the {@code before} value of the next page, if there may be one.
+     */
+    @GetMapping("/{id}/accounts/{accountId}/transactions")
+    public ResponseEntity<?> listAccountTransactions(@PathVariable("id") Integer customerId, @PathVariable("accountId") Integer accountId,
+                                                     @RequestParam(name = "before", required = false) Long before,
+                                                     @RequestParam(name = "size", defaultValue = "20") int size)
+            throws CustomerNotFoundException, AccountNotFoundException {
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        List<TransactionDto> transactions = customerService.listAccountTransactions(customerId, accountId, before, pageSize)
                 .stream()
-                .map(Utility::toAccountDto)
+                .map(Utility::toTransactionDto)
                 .collect(Collectors.toList());
 
-        return ResponseEntity.ok(customerAccounts);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (transactions.size() == pageSize)
+            response.header(NEXT_CURSOR_HEADER, String.valueOf(transactions.get(pageSize - 1).getSequenceNumber()));
+
+        return response.body(transactions);
+    }
+
+    /**
+     * Full statement of an account, oldest transaction first, streamed like {@linkplain #exportCustomers}.
+     */
+    @GetMapping("/{id}/accounts/{accountId}/statement")
+    public ResponseEntity<StreamingResponseBody> exportAccountStatement(@PathVariable("id") Integer customerId,
+                                                                        @PathVariable("accountId") Integer accountId,
+                                                                        @RequestParam(name = "format", defaultValue = "CSV") ExportFormat format)
+            throws CustomerNotFoundException, AccountNotFoundException {
+        // Checked before streaming, while an error can still be answered with its status
+        boolean owned = customerService.listCustomerAccounts(customerId).stream()
+                .anyMatch(account -> account.getId().equals(accountId));
+        if (!owned)
+            throw new AccountNotFoundException();
+
+        return export(format, "statement-" + accountId,
+                output -> customerExporter.exportAccountStatement(accountId, format, output));
+    }
+
+    private static ResponseEntity<StreamingResponseBody> export(ExportFormat format, String name, StreamingResponseBody body) {
+        return ResponseEntity.ok()
+                .contentType(format.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename(format.fileName(name)).build().toString())
+                .body(body);
     }
 
     @DeleteMapping("/{id}/accounts/{accountId}")
@@ -99,27 +228,82 @@ public class CustomerController {
         return ResponseEntity.ok().build();
     }
 
+    /**
+     * Opts a high-contention account into sharded deposits, or out of it with zero shards.
+     */
+    @PutMapping("/{id}/accounts/{accountId}/shards")
+    public ResponseEntity<?> shardAccount(@PathVariable("id") Integer customerId, @PathVariable("accountId") Integer accountId,
+                                          @RequestBody @Valid AccountShardsDto accountShardsDto)
+            throws CustomerNotFoundException, AccountNotFoundException {
+        customerService.shardAccount(customerId, accountId, accountShardsDto.getShards());
+
+        return ResponseEntity.ok().build();
+    }
+
     @PutMapping("/{id}/transfer")
-    public ResponseEntity<?> transfer(@PathVariable("id") Integer customerId, @RequestBody @Valid TransferDto transferDto)
-            throws CustomerNotFoundException, AccountNotFoundException, BalanceNotEnoughException, NegativeAmountException, InvalidTransferDetails {
+    public CompletableFuture<ResponseEntity<String>> transfer(@PathVariable("id") Integer customerId,
+                                                              @RequestBody @Valid TransferDto transferDto)
+            throws CustomerNotFoundException, AccountNotFoundException, BalanceNotEnoughException, NegativeAmountException,
+            InvalidAmountException, InvalidTransferDetails, UnsupportedCurrencyException {
+        if (transferPipeline != null)
+            return successful(transferPipeline.transfer(customerId, transferDto.getFromAccountId(),
+                    transferDto.getToAccountId(), transferDto.getAmount()));
+
         customerService.transfer(customerId, transferDto.getFromAccountId(), transferDto.getToAccountId(), transferDto.getAmount());
 
-        return ResponseEntity.ok("Transaction was successful");
+        return successful(CompletableFuture.completedFuture(null));
+    }
+
+    /**
+     * Applies a batch of transfers in one transaction and reports the outcome of each of them, in the request order.
+     * A failing {@code ALL_OR_NOTHING} batch is answered with a bad request, carrying the same per-transfer outcomes.
+     */
+    @PutMapping("/{id}/transfers")
+    public ResponseEntity<?> batchTransfer(@PathVariable("id") Integer customerId, @RequestBody @Valid BatchTransferDto batchTransferDto)
+            throws CustomerNotFoundException {
+        List<TransferDto> transfers = batchTransferDto.getTransfers();
+        List<TransferOutcome> outcomes = customerService.batchTransfer(customerId,
+                transfers.stream().map(Utility::toTransfer).collect(Collectors.toList()), batchTransferDto.getMode());
+
+        List<TransferResultDto> results = IntStream.range(0, transfers.size())
+                .mapToObj(i -> Utility.toTransferResultDto(transfers.get(i), outcomes.get(i)))
+                .collect(Collectors.toList());
+
+        boolean rejected = batchTransferDto.getMode() == BatchTransferMode.ALL_OR_NOTHING &&
+                outcomes.stream().anyMatch(outcome -> outcome != TransferOutcome.SUCCESSFUL);
+
+        return rejected ? ResponseEntity.badRequest().body(results) : ResponseEntity.ok(results);
     }
 
     @PutMapping("/{id}/deposit")
-    public ResponseEntity<?> deposit(@PathVariable("id") Integer customerId, @RequestBody @Valid DepositDto depositDto)
-            throws CustomerNotFoundException, AccountNotFoundException, NegativeAmountException {
+    public CompletableFuture<ResponseEntity<String>> deposit(@PathVariable("id") Integer customerId,
+                                                             @RequestBody @Valid DepositDto depositDto)
+            throws CustomerNotFoundException, AccountNotFoundException, NegativeAmountException, InvalidAmountException {
+        if (transferPipeline != null)
+            return successful(transferPipeline.deposit(customerId, depositDto.getAccountId(), depositDto.getAmount()));
+
         customerService.deposit(customerId, depositDto.getAccountId(), depositDto.getAmount());
 
-        return ResponseEntity.ok("Transaction was successful");
+        return successful(CompletableFuture.completedFuture(null));
     }
 
     @PutMapping("/{id}/withdraw")
-    public ResponseEntity<?> withdraw(@PathVariable("id") Integer customerId, @RequestBody @Valid DepositDto depositDto)
-            throws CustomerNotFoundException, AccountNotFoundException, NegativeAmountException, BalanceNotEnoughException {
+    public CompletableFuture<ResponseEntity<String>> withdraw(@PathVariable("id") Integer customerId,
+                                                              @RequestBody @Valid DepositDto depositDto)
+            throws CustomerNotFoundException, AccountNotFoundException, NegativeAmountException, InvalidAmountException,
+            BalanceNotEnoughException {
+        if (transferPipeline != null)
+            return successful(transferPipeline.withdraw(customerId, depositDto.getAccountId(), depositDto.getAmount()));
+
         customerService.withdraw(customerId, depositDto.getAccountId(), depositDto.getAmount());
 
-        return ResponseEntity.ok("Transaction was successful");
+        return successful(CompletableFuture.completedFuture(null));
+    }
+
+    /**
+     * The response of a committed money movement; a rejected one fails with its reason, handled like a thrown one.
+     */
+    private static CompletableFuture<ResponseEntity<String>> successful(CompletableFuture<Void> movement) {
+        return movement.thenApply(committed -> ResponseEntity.ok("Transaction was successful"));
     }
 }
\ No newline at end of file
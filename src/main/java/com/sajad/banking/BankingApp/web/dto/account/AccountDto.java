@@ -6,6 +6,7 @@ import lombok.NoArgsConstructor;
 import lombok.Setter;
 
 import java.math.BigDecimal;
+import java.util.Currency;
 
 @Setter
 @Getter
@@ -16,4 +17,6 @@ public class AccountDto {
     private Integer id;
 
     private BigDecimal balance;
+
+    private Currency currency;
 }
@@ -0,0 +1,17 @@
+package com.sajad.banking.BankingApp.web.dto.account;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class AccountShardsDto {
+
+    @NotNull
+    @Min(0)
+    @Max(64)
+    private Integer shards;
+}
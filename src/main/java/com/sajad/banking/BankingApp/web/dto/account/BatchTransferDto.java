@@ -0,0 +1,25 @@
+package com.sajad.banking.BankingApp.web.dto.account;
+
+import com.sajad.banking.BankingApp.service.transfer.BatchTransferMode;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+public class BatchTransferDto {
+
+    @NotEmpty
+    @Size(max = 10000)
+    @Valid
+    private List<TransferDto> transfers = new ArrayList<>();
+
+    @NotNull
+    private BatchTransferMode mode = BatchTransferMode.ALL_OR_NOTHING;
+}
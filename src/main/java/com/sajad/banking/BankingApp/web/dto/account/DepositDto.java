@@ -1,6 +1,8 @@
 package com.sajad.banking.BankingApp.web.dto.account;
 
+import com.sajad.banking.BankingApp.model.money.Money;
 import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Digits;
 import lombok.Getter;
 import lombok.Setter;
 
@@ -13,5 +15,6 @@ public class DepositDto {
     private Integer accountId;
 
     @DecimalMin("1")
+    @Digits(integer = 16, fraction = Money.MAX_SCALE)
     private BigDecimal amount;
 }
@@ -1,16 +1,33 @@
 package com.sajad.banking.BankingApp.web.dto.account;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.sajad.banking.BankingApp.model.money.Money;
+import jakarta.validation.constraints.AssertTrue;
 import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Digits;
 import lombok.Getter;
 import lombok.Setter;
 
 import java.math.BigDecimal;
+import java.util.Currency;
 
 @Getter
 @Setter
 public class NewAccountDto {
 
     @DecimalMin("1")
+    @Digits(integer = 16, fraction = Money.MAX_SCALE)
     private BigDecimal balance;
 
+    /**
+     * Currency of the account, the default one if missing.
+     */
+    private Currency currency;
+
+    @JsonIgnore
+    @AssertTrue(message = "balance has more fraction digits than the currency")
+    public boolean isBalanceInMinorUnits() {
+        return balance == null ||
+                balance.stripTrailingZeros().scale() <= Money.scale(currency == null ? Money.DEFAULT_CURRENCY : currency);
+    }
 }
@@ -0,0 +1,37 @@
+package com.sajad.banking.BankingApp.web.dto.account;
+
+import com.sajad.banking.BankingApp.model.LedgerEntry.EntryType;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Currency;
+
+@Setter
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+public class TransactionDto {
+
+    private Long sequenceNumber;
+
+    private EntryType type;
+
+    private Currency currency;
+
+    private BigDecimal amount;
+
+    private BigDecimal balance;
+
+    private Integer counterpartyAccountId;
+
+    /**
+     * Exchange rate of a transfer between accounts of different currencies.
+     */
+    private BigDecimal fxRate;
+
+    private Instant createdAt;
+}
@@ -1,6 +1,8 @@
 package com.sajad.banking.BankingApp.web.dto.account;
 
+import com.sajad.banking.BankingApp.model.money.Money;
 import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Digits;
 import jakarta.validation.constraints.NotNull;
 import lombok.Getter;
 import lombok.Setter;
@@ -18,6 +20,7 @@ public class TransferDto {
     private Integer toAccountId;
 
     @DecimalMin("1")
+    @Digits(integer = 16, fraction = Money.MAX_SCALE)
     private BigDecimal amount;
 
 
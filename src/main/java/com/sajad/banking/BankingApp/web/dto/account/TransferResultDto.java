@@ -0,0 +1,24 @@
+package com.sajad.banking.BankingApp.web.dto.account;
+
+import com.sajad.banking.BankingApp.service.transfer.TransferOutcome;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+
+@Setter
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+public class TransferResultDto {
+
+    private Integer fromAccountId;
+
+    private Integer toAccountId;
+
+    private BigDecimal amount;
+
+    private TransferOutcome outcome;
+}
@@ -0,0 +1,53 @@
+package com.sajad.banking.BankingApp.web.dto.customer;
+
+import com.sajad.banking.BankingApp.model.Customer.CustomerType;
+import com.sajad.banking.BankingApp.model.money.Money;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.util.Currency;
+
+/**
+ * One account of a customer, as a row of the customer export.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+public class CustomerAccountExportDto {
+
+    private Integer customerId;
+
+    private CustomerType type;
+
+    private String name;
+
+    private String lastName;
+
+    private String phoneNumber;
+
+    private String faxNumber;
+
+    private Integer accountId;
+
+    private Currency currency;
+
+    /**
+     * Balance including the account's shards.
+     */
+    private BigDecimal balance;
+
+    public CustomerAccountExportDto(Integer customerId, CustomerType type, String name, String lastName, String phoneNumber,
+                                    String faxNumber, Integer accountId, Currency currency, long balance, long shardBalance) {
+        this.customerId = customerId;
+        this.type = type;
+        this.name = name;
+        this.lastName = lastName;
+        this.phoneNumber = phoneNumber;
+        this.faxNumber = faxNumber;
+        this.accountId = accountId;
+        this.currency = currency;
+        this.balance = Money.ofMinor(Math.addExact(balance, shardBalance), currency).toBigDecimal();
+    }
+}
@@ -1,11 +1,15 @@
 package com.sajad.banking.BankingApp.web.dto.customer;
 
 import com.sajad.banking.BankingApp.model.Customer;
+import lombok.AllArgsConstructor;
 import lombok.Getter;
+import lombok.NoArgsConstructor;
 import lombok.Setter;
 
 @Getter
 @Setter
+@AllArgsConstructor
+@NoArgsConstructor
 public class CustomerListDto {
 
     private Integer id;
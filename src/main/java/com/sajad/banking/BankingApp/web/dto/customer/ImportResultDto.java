@@ -0,0 +1,25 @@
+package com.sajad.banking.BankingApp.web.dto.customer;
+
+import com.sajad.banking.BankingApp.service.onboarding.ImportOutcome;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class ImportResultDto {
+
+    /**
+     * Zero-based position of the record in the import.
+     */
+    private long index;
+
+    private String phoneNumber;
+
+    private ImportOutcome outcome;
+
+    private Integer customerId;
+}
@@ -1,18 +1,21 @@
 package com.sajad.banking.BankingApp.web.dto.customer;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.sajad.banking.BankingApp.model.Customer.CustomerType;
+import com.sajad.banking.BankingApp.model.money.Money;
+import jakarta.validation.constraints.AssertTrue;
 import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Digits;
 import jakarta.validation.constraints.NotNull;
-import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 
 import java.math.BigDecimal;
+import java.util.Currency;
 
 @Getter
 @Setter
-@AllArgsConstructor
 @NoArgsConstructor
 public class NewCustomerDto {
 
@@ -30,5 +33,28 @@ public class NewCustomerDto {
     private String faxNumber;
 
     @DecimalMin("0")
+    @Digits(integer = 16, fraction = Money.MAX_SCALE)
     private BigDecimal initialBalance;
+
+    /**
+     * Currency of the first account, the default one if missing.
+     */
+    private Currency currency;
+
+    public NewCustomerDto(String name, CustomerType type, String lastName, String phoneNumber, String faxNumber,
+                          BigDecimal initialBalance) {
+        this.name = name;
+        this.type = type;
+        this.lastName = lastName;
+        this.phoneNumber = phoneNumber;
+        this.faxNumber = faxNumber;
+        this.initialBalance = initialBalance;
+    }
+
+    @JsonIgnore
+    @AssertTrue(message = "initialBalance has more fraction digits than the currency")
+    public boolean isInitialBalanceInMinorUnits() {
+        return initialBalance == null ||
+                initialBalance.stripTrailingZeros().scale() <= Money.scale(currency == null ? Money.DEFAULT_CURRENCY : currency);
+    }
 }
@@ -0,0 +1,149 @@
+package com.sajad.banking.BankingApp.web.exporter;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.sajad.banking.BankingApp.service.CustomerService;
+import com.sajad.banking.BankingApp.web.utility.Utility;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+/**
+ * Streams the customer dump and the account statements, as CSV or NDJSON.
+ * <p>
+ * Rows are written to the output as they come off the database cursor, through a buffer, so memory stays the same
+ * whatever the number of rows.
+ *
+ * @author Sajad
+ */
+@Component
+public class CustomerExporter {
+
+    private static final String CUSTOMER_ACCOUNTS_HEADER =
+            "customer_id,type,name,last_name,phone_number,fax_number,account_id,currency,balance";
+
+    private static final String STATEMENT_HEADER =
+            "sequence_number,type,currency,amount,balance,counterparty_account_id,fx_rate,created_at";
+
+    private final CustomerService customerService;
+
+    /**
+     * Writes the values without flushing after each one, the buffers are flushed once at the end.
+     */
+    private final ObjectWriter ndjsonWriter;
+
+    @Autowired
+    public CustomerExporter(CustomerService customerService, ObjectMapper objectMapper) {
+        this.customerService = customerService;
+        this.ndjsonWriter = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    /**
+     * Writes every account, with its customer, in customer and account id order.
+     */
+    public void exportCustomerAccounts(ExportFormat format, OutputStream output) throws IOException {
+        if (format == ExportFormat.CSV) {
+            writeCsv(output, CUSTOMER_ACCOUNTS_HEADER, row -> customerService.exportCustomerAccounts(account -> row.accept(new Object[]{
+                    account.getCustomerId(), account.getType(), account.getName(), account.getLastName(),
+                    account.getPhoneNumber(), account.getFaxNumber(), account.getAccountId(), account.getCurrency(),
+                    account.getBalance()})));
+        } else {
+            writeNdjson(output, value -> customerService.exportCustomerAccounts(value::accept));
+        }
+    }
+
+    /**
+     * Writes the account's transactions, oldest first. The account's ownership is expected to be checked already.
+     */
+    public void exportAccountStatement(Integer accountId, ExportFormat format, OutputStream output) throws IOException {
+        if (format == ExportFormat.CSV) {
+            writeCsv(output, STATEMENT_HEADER, row -> customerService.exportAccountStatement(accountId, entry -> row.accept(new Object[]{
+                    entry.getSequenceNumber(), entry.getType(), entry.getCurrency(), entry.getAmount().toBigDecimal(),
+                    entry.getBalance().toBigDecimal(), entry.getCounterpartyAccountId(), entry.getFxRate(),
+                    entry.getCreatedAt()})));
+        } else {
+            writeNdjson(output, value -> customerService.exportAccountStatement(accountId,
+                    entry -> value.accept(Utility.toTransactionDto(entry))));
+        }
+    }
+
+    private static void writeCsv(OutputStream output, String header, Consumer<Consumer<Object[]>> rows) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+        writer.write(header);
+        writer.write('\n');
+
+        try {
+            rows.accept(row -> {
+                try {
+                    writeCsvRow(writer, row);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        writer.flush();
+    }
+
+    private static void writeCsvRow(Writer writer, Object[] row) throws IOException {
+        for (int i = 0; i < row.length; i++) {
+            if (i > 0)
+                writer.write(',');
+            if (row[i] != null)
+                writeCsvValue(writer, row[i].toString());
+        }
+        writer.write('\n');
+    }
+
+    /**
+     * Quotes the values containing a separator, a quote or a line break, doubling their quotes.
+     */
+    private static void writeCsvValue(Writer writer, String value) throws IOException {
+        boolean quoted = false;
+        for (int i = 0; i < value.length() && !quoted; i++) {
+            char c = value.charAt(i);
+            quoted = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+
+        if (!quoted) {
+            writer.write(value);
+            return;
+        }
+
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+
+    private void writeNdjson(OutputStream output, Consumer<Consumer<Object>> values) throws IOException {
+        JsonGenerator generator = ndjsonWriter.createGenerator(output);
+        generator.setRootValueSeparator(null);
+
+        try {
+            values.accept(value -> {
+                try {
+                    ndjsonWriter.writeValue(generator, value);
+                    generator.writeRaw('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        generator.flush();
+    }
+}
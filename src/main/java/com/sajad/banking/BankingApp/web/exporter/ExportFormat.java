@@ -0,0 +1,31 @@
+package com.sajad.banking.BankingApp.web.exporter;
+
+import org.springframework.http.MediaType;
+
+/**
+ * Output formats of the exports.
+ *
+ * @author Sajad
+ */
+public enum ExportFormat {
+
+    CSV(new MediaType("text", "csv"), "csv"),
+    NDJSON(MediaType.APPLICATION_NDJSON, "ndjson");
+
+    private final MediaType mediaType;
+
+    private final String extension;
+
+    ExportFormat(MediaType mediaType, String extension) {
+        this.mediaType = mediaType;
+        this.extension = extension;
+    }
+
+    public MediaType getMediaType() {
+        return mediaType;
+    }
+
+    public String fileName(String name) {
+        return name + "." + extension;
+    }
+}
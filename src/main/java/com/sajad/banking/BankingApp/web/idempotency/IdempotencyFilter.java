@@ -0,0 +1,243 @@
+package com.sajad.banking.BankingApp.web.idempotency;
+
+import com.sajad.banking.BankingApp.service.idempotency.IdempotencyService;
+import com.sajad.banking.BankingApp.service.idempotency.StoredResponse;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+import org.springframework.web.util.WebUtils;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Makes the money-moving {@code PUT} endpoints idempotent for clients sending an {@value IDEMPOTENCY_KEY_HEADER}.
+ * <p>
+ * The first request with a key executes and its successful response is stored. Retries get the stored response
+ * without reaching the service, retries racing the first request get a conflict, and reusing a key for a different
+ * request is rejected. Failed requests release their key, so they can be retried for real.
+ * <p>
+ * Endpoints answering asynchronously have their response stored on the async dispatch, once it is written.
+ *
+ * @author Sajad
+ */
+@Component
+public class IdempotencyFilter extends OncePerRequestFilter {
+
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private static final String KEY_ATTRIBUTE = IdempotencyFilter.class.getName() + ".key";
+
+    private static final String REQUEST_HASH_ATTRIBUTE = IdempotencyFilter.class.getName() + ".requestHash";
+
+    private final IdempotencyService idempotencyService;
+
+    @Autowired
+    public IdempotencyFilter(IdempotencyService idempotencyService) {
+        this.idempotencyService = idempotencyService;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !HttpMethod.PUT.matches(request.getMethod()) || request.getHeader(IDEMPOTENCY_KEY_HEADER) == null ||
+                !request.getRequestURI().startsWith("/api/customers/");
+    }
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        if (isAsyncDispatch(request)) {
+            resume(request, response, filterChain);
+            return;
+        }
+
+        String key = request.getHeader(IDEMPOTENCY_KEY_HEADER);
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            writeError(response, HttpStatus.BAD_REQUEST, "Invalid idempotency key!");
+            return;
+        }
+
+        byte[] requestBody = request.getInputStream().readAllBytes();
+        String requestHash = hash(request, requestBody);
+
+        StoredResponse storedResponse = idempotencyService.findResponse(key);
+        if (storedResponse == null) {
+            if (idempotencyService.claim(key, requestHash)) {
+                execute(key, requestHash, new CachedBodyRequest(request, requestBody), response, filterChain);
+                return;
+            }
+
+            // Lost the race for the key, the winner may have completed in the meantime
+            storedResponse = idempotencyService.findResponse(key);
+            if (storedResponse == null) {
+                writeError(response, HttpStatus.CONFLICT, "A request with this idempotency key is in progress!");
+                return;
+            }
+        }
+
+        if (!storedResponse.requestHash().equals(requestHash)) {
+            writeError(response, HttpStatus.UNPROCESSABLE_ENTITY, "Idempotency key is already used for another request!");
+            return;
+        }
+
+        // Replay
+        response.setStatus(storedResponse.status());
+        if (storedResponse.contentType() != null)
+            response.setContentType(storedResponse.contentType());
+        response.getOutputStream().write(storedResponse.body());
+    }
+
+    private void execute(String key, String requestHash, HttpServletRequest request, HttpServletResponse response,
+                         FilterChain filterChain) throws ServletException, IOException {
+        ContentCachingResponseWrapper cachingResponse = new ContentCachingResponseWrapper(response);
+        try {
+            filterChain.doFilter(request, cachingResponse);
+        } catch (ServletException | IOException | RuntimeException e) {
+            // Nothing answered the request, whatever the wrapper's status says
+            idempotencyService.release(key);
+            throw e;
+        }
+
+        if (isAsyncStarted(request)) {
+            // The response is written on the async dispatch, through the same wrapper
+            request.setAttribute(KEY_ATTRIBUTE, key);
+            request.setAttribute(REQUEST_HASH_ATTRIBUTE, requestHash);
+            return;
+        }
+
+        finish(key, requestHash, cachingResponse);
+    }
+
+    private void resume(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String key = (String) request.getAttribute(KEY_ATTRIBUTE);
+        ContentCachingResponseWrapper cachingResponse =
+                WebUtils.getNativeResponse(response, ContentCachingResponseWrapper.class);
+        if (key == null || cachingResponse == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        try {
+            filterChain.doFilter(request, response);
+        } catch (ServletException | IOException | RuntimeException e) {
+            idempotencyService.release(key);
+            throw e;
+        }
+
+        finish(key, (String) request.getAttribute(REQUEST_HASH_ATTRIBUTE), cachingResponse);
+    }
+
+    /**
+     * Stores a successful response or releases the key, then writes the response out.
+     * <p>
+     * A successful response means the change is committed, so the key is never released after one: if storing the
+     * response fails, the key stays in progress and retries get a conflict until it expires, rather than applying the
+     * change twice.
+     */
+    private void finish(String key, String requestHash, ContentCachingResponseWrapper cachingResponse) throws IOException {
+        try {
+            if (HttpStatus.valueOf(cachingResponse.getStatus()).is2xxSuccessful()) {
+                try {
+                    idempotencyService.complete(key, new StoredResponse(requestHash, cachingResponse.getStatus(),
+                            cachingResponse.getContentType(), cachingResponse.getContentAsByteArray()));
+                } catch (RuntimeException e) {
+                    logger.warn("Could not store the response of idempotency key " + key + ", keeping it claimed", e);
+                }
+            } else {
+                idempotencyService.release(key);
+            }
+        } finally {
+            cachingResponse.copyBodyToResponse();
+        }
+    }
+
+    private static String hash(HttpServletRequest request, byte[] requestBody) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update((request.getMethod() + ' ' + request.getRequestURI() + '?' + request.getQueryString() + '\n')
+                    .getBytes(StandardCharsets.UTF_8));
+            digest.update(requestBody);
+
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void writeError(HttpServletResponse response, HttpStatus status, String message) throws IOException {
+        response.setStatus(status.value());
+        response.setContentType("text/plain;charset=UTF-8");
+        response.getWriter().write(message);
+    }
+
+    /**
+     * Request whose body was already read for fingerprinting, serving it again to the controller.
+     */
+    private static class CachedBodyRequest extends HttpServletRequestWrapper {
+
+        private final byte[] body;
+
+        CachedBodyRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream input = new ByteArrayInputStream(body);
+
+            return new ServletInputStream() {
+                @Override
+                public boolean isFinished() {
+                    return input.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener readListener) {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public int read() {
+                    return input.read();
+                }
+
+                @Override
+                public int read(byte[] bytes, int offset, int length) {
+                    return input.read(bytes, offset, length);
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            return new BufferedReader(new InputStreamReader(getInputStream(), StandardCharsets.UTF_8));
+        }
+    }
+}
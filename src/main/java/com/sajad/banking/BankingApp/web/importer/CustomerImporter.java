@@ -0,0 +1,133 @@
+package com.sajad.banking.BankingApp.web.importer;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sajad.banking.BankingApp.exception.customer.CustomerExistsException;
+import com.sajad.banking.BankingApp.model.Customer;
+import com.sajad.banking.BankingApp.service.CustomerService;
+import com.sajad.banking.BankingApp.service.onboarding.ImportOutcome;
+import com.sajad.banking.BankingApp.web.dto.customer.ImportResultDto;
+import com.sajad.banking.BankingApp.web.dto.customer.NewCustomerDto;
+import com.sajad.banking.BankingApp.web.utility.Utility;
+import jakarta.validation.Validator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streams a bulk customer import: records are parsed one by one from either an NDJSON body or a JSON array, persisted
+ * in chunked transactions, and their results are written back as NDJSON as soon as their chunk commits.
+ * <p>
+ * At most one chunk of records is held in memory, whatever the size of the input.
+ *
+ * @author Sajad
+ */
+@Component
+public class CustomerImporter {
+
+    private final CustomerService customerService;
+
+    private final ObjectMapper objectMapper;
+
+    private final Validator validator;
+
+    private final int chunkSize;
+
+    @Autowired
+    public CustomerImporter(CustomerService customerService, ObjectMapper objectMapper, Validator validator,
+                            @Value("${banking.import.chunk-size:500}") int chunkSize) {
+        this.customerService = customerService;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.chunkSize = chunkSize;
+    }
+
+    public void importCustomers(InputStream input, OutputStream output) throws IOException {
+        try (MappingIterator<NewCustomerDto> records = objectMapper.readerFor(NewCustomerDto.class).readValues(input);
+             JsonGenerator generator = objectMapper.getFactory().createGenerator(output)) {
+            generator.setRootValueSeparator(null);
+
+            List<ImportRecord> chunk = new ArrayList<>(chunkSize);
+            for (long index = 0; records.hasNextValue(); index++) {
+                chunk.add(new ImportRecord(index, records.nextValue()));
+
+                if (chunk.size() == chunkSize) {
+                    writeResults(generator, importChunk(chunk));
+                    chunk.clear();
+                }
+            }
+
+            writeResults(generator, importChunk(chunk));
+        }
+    }
+
+    private List<ImportResultDto> importChunk(List<ImportRecord> chunk) {
+        List<ImportRecord> validRecords = new ArrayList<>(chunk.size());
+        List<Customer> customers = new ArrayList<>(chunk.size());
+        for (ImportRecord importRecord : chunk) {
+            if (validator.validate(importRecord.customerDto()).isEmpty()) {
+                validRecords.add(importRecord);
+                customers.add(Utility.toCustomer(importRecord.customerDto()));
+            }
+        }
+
+        List<ImportOutcome> outcomes;
+        try {
+            outcomes = customers.isEmpty() ? List.of() : customerService.importCustomers(customers);
+        } catch (DataIntegrityViolationException e) {
+            // A concurrent signup took one of the phone numbers, import this chunk one record at a time
+            customers.clear();
+            outcomes = new ArrayList<>(validRecords.size());
+            for (ImportRecord importRecord : validRecords)
+                outcomes.add(importOne(importRecord.customerDto(), customers));
+        }
+
+        List<ImportResultDto> results = new ArrayList<>(chunk.size());
+        int validIndex = 0;
+        for (ImportRecord importRecord : chunk) {
+            String phoneNumber = importRecord.customerDto().getPhoneNumber();
+            if (validIndex < validRecords.size() && validRecords.get(validIndex) == importRecord) {
+                ImportOutcome outcome = outcomes.get(validIndex);
+                Integer customerId = outcome == ImportOutcome.CREATED ? customers.get(validIndex).getId() : null;
+                results.add(new ImportResultDto(importRecord.index(), phoneNumber, outcome, customerId));
+                validIndex++;
+            } else
+                results.add(new ImportResultDto(importRecord.index(), phoneNumber, ImportOutcome.INVALID, null));
+        }
+
+        return results;
+    }
+
+    private ImportOutcome importOne(NewCustomerDto customerDto, List<Customer> customers) {
+        Customer customer = Utility.toCustomer(customerDto);
+        customers.add(customer);
+
+        try {
+            customerService.createNewCustomer(customer);
+            return ImportOutcome.CREATED;
+        } catch (CustomerExistsException e) {
+            return ImportOutcome.DUPLICATE;
+        }
+    }
+
+    private static void writeResults(JsonGenerator generator, List<ImportResultDto> results) throws IOException {
+        for (ImportResultDto result : results) {
+            generator.writeObject(result);
+            generator.writeRaw('\n');
+        }
+
+        // Hand the committed chunk's results to the client right away
+        generator.flush();
+    }
+
+    private record ImportRecord(long index, NewCustomerDto customerDto) {
+    }
+}
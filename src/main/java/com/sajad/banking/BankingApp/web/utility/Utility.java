@@ -3,34 +3,53 @@ package com.sajad.banking.BankingApp.web.utility;
 import com.sajad.banking.BankingApp.model.Account;
 import com.sajad.banking.BankingApp.model.Customer;
 import com.sajad.banking.BankingApp.model.Customer.CustomerType;
+import com.sajad.banking.BankingApp.model.LedgerEntry;
+import com.sajad.banking.BankingApp.model.money.Money;
+import com.sajad.banking.BankingApp.service.transfer.Transfer;
+import com.sajad.banking.BankingApp.service.transfer.TransferOutcome;
 import com.sajad.banking.BankingApp.web.dto.account.AccountDto;
+import com.sajad.banking.BankingApp.web.dto.account.TransactionDto;
+import com.sajad.banking.BankingApp.web.dto.account.TransferDto;
+import com.sajad.banking.BankingApp.web.dto.account.TransferResultDto;
 import com.sajad.banking.BankingApp.web.dto.customer.CustomerDetailDto;
 import com.sajad.banking.BankingApp.web.dto.account.NewAccountDto;
 import com.sajad.banking.BankingApp.web.dto.customer.CustomerListDto;
 import com.sajad.banking.BankingApp.web.dto.customer.NewCustomerDto;
 
+import java.util.Currency;
+
 public class Utility {
 
     public static Customer toCustomer(NewCustomerDto newDto) {
         Customer customer;
         if (newDto.getType().equals(CustomerType.REAL)) {
-            customer = new Customer(newDto.getName(), newDto.getPhoneNumber(), newDto.getType(), newDto.getLastName(), newDto.getInitialBalance());
+            customer = new Customer(newDto.getName(), newDto.getPhoneNumber(), newDto.getType(), newDto.getLastName(), Money.of(newDto.getInitialBalance(), currencyOrDefault(newDto.getCurrency())));
         } else if (newDto.getType().equals(CustomerType.LEGAL)) {
-            customer = new Customer(newDto.getName(), newDto.getPhoneNumber(), newDto.getType(), newDto.getFaxNumber(), newDto.getInitialBalance());
+            customer = new Customer(newDto.getName(), newDto.getPhoneNumber(), newDto.getType(), newDto.getFaxNumber(), Money.of(newDto.getInitialBalance(), currencyOrDefault(newDto.getCurrency())));
         } else throw new IllegalArgumentException();
 
         return customer;
     }
 
     public static Account toAccount(NewAccountDto newAccountDto) {
-        Account account = new Account();
-        account.setBalance(newAccountDto.getBalance());
-
-        return account;
+        return new Account(Money.of(newAccountDto.getBalance(), currencyOrDefault(newAccountDto.getCurrency())));
     }
 
     public static AccountDto toAccountDto(Account account) {
-        return new AccountDto(account.getId(), account.getBalance());
+        return new AccountDto(account.getId(), account.getBalance().toBigDecimal(), account.getCurrency());
+    }
+
+    public static Transfer toTransfer(TransferDto transferDto) {
+        return new Transfer(transferDto.getFromAccountId(), transferDto.getToAccountId(), transferDto.getAmount());
+    }
+
+    public static TransferResultDto toTransferResultDto(TransferDto transferDto, TransferOutcome outcome) {
+        return new TransferResultDto(transferDto.getFromAccountId(), transferDto.getToAccountId(), transferDto.getAmount(), outcome);
+    }
+
+    public static TransactionDto toTransactionDto(LedgerEntry entry) {
+        return new TransactionDto(entry.getSequenceNumber(), entry.getType(), entry.getCurrency(), entry.getAmount().toBigDecimal(),
+                entry.getBalance().toBigDecimal(), entry.getCounterpartyAccountId(), entry.getFxRate(), entry.getCreatedAt());
     }
 
     public static CustomerDetailDto toCustomerDetailDto(Customer customer) {
@@ -47,7 +66,7 @@ public class Utility {
 
         // Set accounts
         customer.getAccounts().forEach(account ->
-                detailDto.getAccountsDetail().add(new AccountDto(account.getId(), account.getBalance())));
+                detailDto.getAccountsDetail().add(new AccountDto(account.getId(), account.getTotalBalance().toBigDecimal(), account.getCurrency())));
 
         return detailDto;
     }
@@ -60,4 +79,8 @@ public class Utility {
 
         return listDto;
     }
+
+    private static Currency currencyOrDefault(Currency currency) {
+        return currency == null ? Money.DEFAULT_CURRENCY : currency;
+    }
 }
@@ -0,0 +1,105 @@
+package com.sajad.banking.reactive;
+
+import com.sajad.banking.BankingApp.BankingAppApplication;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.AutoConfigurationExcludeFilter;
+import org.springframework.boot.autoconfigure.AutoConfigurationPackage;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.context.TypeExcludeFilter;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.EnableAspectJAutoProxy;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.data.web.ReactivePageableHandlerMethodArgumentResolver;
+import org.springframework.data.web.ReactiveSortHandlerMethodArgumentResolver;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.web.reactive.config.WebFluxConfigurer;
+import org.springframework.web.reactive.result.method.annotation.ArgumentResolverConfigurer;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Reactive variant of the banking API: the routes of the MVC application's customer controller, served by WebFlux on
+ * Netty's event loops.
+ * <p>
+ * Reads go through R2DBC repositories, so a request waiting on the database holds no thread. Everything else reuses
+ * the MVC application's service layer, its JPA repositories and its database, so money movements keep their locking,
+ * ledger and outbox semantics; those blocking calls run on a bounded pool of their own, see
+ * {@linkplain #blockingScheduler}.
+ * <p>
+ * It lives outside the MVC application's package, so neither application scans the other. Start it through
+ * {@linkplain #application()}, which turns the {@value PROFILE} profile on.
+ *
+ * @author Sajad
+ */
+@SpringBootConfiguration
+@EnableAutoConfiguration
+@AutoConfigurationPackage(basePackageClasses = {ReactiveBankingApplication.class, BankingAppApplication.class})
+@ComponentScan(basePackageClasses = {ReactiveBankingApplication.class, BankingAppApplication.class}, excludeFilters = {
+        @ComponentScan.Filter(type = FilterType.CUSTOM, classes = TypeExcludeFilter.class),
+        @ComponentScan.Filter(type = FilterType.CUSTOM, classes = AutoConfigurationExcludeFilter.class),
+        @ComponentScan.Filter(type = FilterType.ASSIGNABLE_TYPE, classes = BankingAppApplication.class),
+        // The servlet web layer, replaced by the reactive one
+        @ComponentScan.Filter(type = FilterType.REGEX,
+                pattern = "com\\.sajad\\.banking\\.BankingApp\\.web\\.(controller|idempotency)\\..*")})
+@EnableConfigurationProperties(DataSourceProperties.class)
+@EnableAspectJAutoProxy
+@EnableScheduling
+public class ReactiveBankingApplication implements WebFluxConfigurer {
+
+    public static final String PROFILE = "reactive";
+
+    public static void main(String[] args) {
+        application().run(args);
+    }
+
+    public static SpringApplicationBuilder application() {
+        return new SpringApplicationBuilder(ReactiveBankingApplication.class)
+                .web(WebApplicationType.REACTIVE)
+                .profiles(PROFILE);
+    }
+
+    /**
+     * Netty, rather than the Tomcat that the MVC application brings onto the classpath and that would be picked first.
+     */
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+
+    /**
+     * The JDBC pool of the service layer. Spring Boot backs its own off as soon as there is an R2DBC connection factory.
+     */
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource dataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    /**
+     * Runs the calls into the blocking service layer, off the event loops. There is no point in more threads than JDBC
+     * connections, and the bounded queue turns an overload into rejected calls instead of an ever-growing backlog.
+     */
+    @Bean(destroyMethod = "dispose")
+    public Scheduler blockingScheduler(@Value("${banking.reactive.blocking-threads:20}") int threads,
+                                       @Value("${banking.reactive.blocking-queue-size:10000}") int queueSize) {
+        return Schedulers.newBoundedElastic(threads, queueSize, "banking-blocking");
+    }
+
+    /**
+     * Spring Data's paging parameters, as the MVC application gets them from Spring Boot.
+     */
+    @Override
+    public void configureArgumentResolvers(ArgumentResolverConfigurer configurer) {
+        configurer.addCustomResolver(new ReactiveSortHandlerMethodArgumentResolver(),
+                new ReactivePageableHandlerMethodArgumentResolver());
+    }
+}
@@ -0,0 +1,24 @@
+package com.sajad.banking.reactive.model;
+
+import com.sajad.banking.BankingApp.model.money.Money;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.util.Currency;
+
+/**
+ * Read-only view of an account row, as mapped by the JPA {@linkplain com.sajad.banking.BankingApp.model.Account}.
+ *
+ * @param balance      Balance in minor units of the currency.
+ * @param shardBalance Deposits sitting in the account's shards in minor units, computed by the queries.
+ */
+@Table("account")
+public record AccountRow(@Id Integer id, Integer customerId, String currency, long balance, long shardBalance) {
+
+    /**
+     * Balance of the account including its shards.
+     */
+    public Money totalBalance() {
+        return Money.ofMinor(Math.addExact(balance, shardBalance), Currency.getInstance(currency));
+    }
+}
@@ -0,0 +1,19 @@
+package com.sajad.banking.reactive.model;
+
+import com.sajad.banking.BankingApp.model.Customer.CustomerType;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+/**
+ * Read-only view of a customer row, as mapped by the JPA {@linkplain com.sajad.banking.BankingApp.model.Customer}.
+ *
+ * @param type Ordinal of the {@linkplain CustomerType}, as JPA stores it.
+ */
+@Table("customer")
+public record CustomerRow(@Id Integer id, Integer type, String name, String lastName, String phoneNumber,
+                          String faxNumber) {
+
+    public CustomerType customerType() {
+        return CustomerType.values()[type];
+    }
+}
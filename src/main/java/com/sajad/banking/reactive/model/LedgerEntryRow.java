@@ -0,0 +1,20 @@
+package com.sajad.banking.reactive.model;
+
+import com.sajad.banking.BankingApp.model.LedgerEntry.EntryType;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+
+/**
+ * Read-only view of a ledger entry row, as mapped by the JPA {@linkplain com.sajad.banking.BankingApp.model.LedgerEntry}.
+ *
+ * @param amount  Signed amount in minor units of the currency.
+ * @param balance Running balance of the account after this entry, in minor units.
+ */
+@Table("ledger_entry")
+public record LedgerEntryRow(@Id Long id, Integer accountId, Long sequenceNumber, EntryType type, String currency,
+                             long amount, long balance, Integer counterpartyAccountId, BigDecimal fxRate,
+                             OffsetDateTime createdAt) {
+}
@@ -0,0 +1,30 @@
+package com.sajad.banking.reactive.repository;
+
+import com.sajad.banking.reactive.model.AccountRow;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.r2dbc.repository.R2dbcRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * R2DBC counterpart of the reads of {@linkplain com.sajad.banking.BankingApp.repository.account.AccountRepository}.
+ * Balances are read as committed, with no lock; the changes stay with the locking service layer.
+ *
+ * @author Sajad
+ */
+@Repository
+public interface ReactiveAccountRepository extends R2dbcRepository<AccountRow, Integer> {
+
+    /**
+     * Lists the customer's accounts in id order, with the deposits sitting in their shards, in a single query.
+     */
+    @Query("select a.id, a.customer_id, a.currency, a.balance, " +
+            "(select coalesce(sum(s.balance), 0) from account_shard s where s.account_id = a.id) as shard_balance " +
+            "from account a where a.customer_id = :customerId order by a.id")
+    Flux<AccountRow> findAccountBalancesByCustomerId(@Param("customerId") Integer customerId);
+
+    @Query("select count(*) > 0 from account where id = :accountId and customer_id = :customerId")
+    Mono<Boolean> isOwnedBy(@Param("accountId") Integer accountId, @Param("customerId") Integer customerId);
+}
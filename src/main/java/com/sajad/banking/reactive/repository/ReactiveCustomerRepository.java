@@ -0,0 +1,44 @@
+package com.sajad.banking.reactive.repository;
+
+import com.sajad.banking.reactive.model.CustomerRow;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.r2dbc.repository.R2dbcRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * R2DBC counterpart of the reads of {@linkplain com.sajad.banking.BankingApp.repository.customer.CustomerRepository}.
+ * <p>
+ * Queries are spelled out, with the standard row limiting clauses, as the database runs in Oracle mode. Changes go
+ * through the JPA repositories of the service layer.
+ *
+ * @author Sajad
+ */
+@Repository
+public interface ReactiveCustomerRepository extends R2dbcRepository<CustomerRow, Integer> {
+
+    @Override
+    @Query("select * from customer where id = :id")
+    Mono<CustomerRow> findById(@Param("id") Integer id);
+
+    @Override
+    @Query("select count(*) > 0 from customer where id = :id")
+    Mono<Boolean> existsById(@Param("id") Integer id);
+
+    /**
+     * Offset page of the customer list, in id order.
+     */
+    @Query("select * from customer order by id offset :offset rows fetch next :limit rows only")
+    Flux<CustomerRow> findPage(@Param("offset") long offset, @Param("limit") int limit);
+
+    /**
+     * Keyset page of the customer list, a primary key range scan whatever the depth of the page.
+     *
+     * @param afterId Exclusive lower bound of the ids, i.e. the cursor of the previous page.
+     * @param limit   Page size.
+     */
+    @Query("select * from customer where id > :afterId order by id fetch first :limit rows only")
+    Flux<CustomerRow> findListPageAfter(@Param("afterId") Integer afterId, @Param("limit") int limit);
+}
@@ -0,0 +1,28 @@
+package com.sajad.banking.reactive.repository;
+
+import com.sajad.banking.reactive.model.LedgerEntryRow;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.r2dbc.repository.R2dbcRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+
+/**
+ * R2DBC counterpart of the reads of {@linkplain com.sajad.banking.BankingApp.repository.ledger.LedgerEntryRepository}.
+ *
+ * @author Sajad
+ */
+@Repository
+public interface ReactiveLedgerEntryRepository extends R2dbcRepository<LedgerEntryRow, Long> {
+
+    /**
+     * Keyset page of an account's history, newest first, served by the (account, sequence) index.
+     *
+     * @param before Exclusive upper bound of the sequence numbers, i.e. the cursor of the previous page.
+     * @param limit  Page size.
+     */
+    @Query("select * from ledger_entry where account_id = :accountId and sequence_number < :before " +
+            "order by sequence_number desc fetch first :limit rows only")
+    Flux<LedgerEntryRow> findPageBefore(@Param("accountId") Integer accountId, @Param("before") long before,
+                                        @Param("limit") int limit);
+}
@@ -0,0 +1,259 @@
+package com.sajad.banking.reactive.service;
+
+import com.sajad.banking.BankingApp.exception.account.AccountNotFoundException;
+import com.sajad.banking.BankingApp.exception.customer.CustomerNotFoundException;
+import com.sajad.banking.BankingApp.model.Account;
+import com.sajad.banking.BankingApp.model.Customer;
+import com.sajad.banking.BankingApp.model.money.Money;
+import com.sajad.banking.BankingApp.service.CustomerService;
+import com.sajad.banking.BankingApp.service.ledger.MemoryLedger;
+import com.sajad.banking.BankingApp.service.pipeline.TransferPipeline;
+import com.sajad.banking.BankingApp.service.transfer.BatchTransferMode;
+import com.sajad.banking.BankingApp.service.transfer.Transfer;
+import com.sajad.banking.BankingApp.service.transfer.TransferOutcome;
+import com.sajad.banking.BankingApp.web.dto.account.AccountDto;
+import com.sajad.banking.BankingApp.web.dto.account.TransactionDto;
+import com.sajad.banking.BankingApp.web.dto.customer.CustomerDetailDto;
+import com.sajad.banking.BankingApp.web.dto.customer.CustomerListDto;
+import com.sajad.banking.BankingApp.web.utility.Utility;
+import com.sajad.banking.reactive.model.AccountRow;
+import com.sajad.banking.reactive.model.CustomerRow;
+import com.sajad.banking.reactive.model.LedgerEntryRow;
+import com.sajad.banking.reactive.repository.ReactiveAccountRepository;
+import com.sajad.banking.reactive.repository.ReactiveCustomerRepository;
+import com.sajad.banking.reactive.repository.ReactiveLedgerEntryRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.math.BigDecimal;
+import java.util.Currency;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Customer service of the reactive API.
+ * <p>
+ * Reads run on the R2DBC repositories. Everything that changes data goes to the MVC application's
+ * {@linkplain CustomerService} on the blocking scheduler, so it keeps the same locking, retries, ledger entries, outbox
+ * events and cache invalidation; with the {@linkplain TransferPipeline} on, movements are queued to its writers instead
+ * and only the hand-off runs there.
+ * <p>
+ * With the memory ledger on, the database may be behind the balances held in memory, so the balance reads go to the
+ * customer service as well.
+ *
+ * @author Sajad
+ */
+@Service
+public class ReactiveCustomerService {
+
+    private final CustomerService customerService;
+
+    private final ReactiveCustomerRepository customerRepository;
+
+    private final ReactiveAccountRepository accountRepository;
+
+    private final ReactiveLedgerEntryRepository ledgerEntryRepository;
+
+    private final Scheduler blockingScheduler;
+
+    /**
+     * {@code null} unless the pipeline mode is on.
+     */
+    private final TransferPipeline transferPipeline;
+
+    private final boolean balancesInMemory;
+
+    @Autowired
+    public ReactiveCustomerService(CustomerService customerService, ReactiveCustomerRepository customerRepository,
+                                   ReactiveAccountRepository accountRepository,
+                                   ReactiveLedgerEntryRepository ledgerEntryRepository,
+                                   @Qualifier("blockingScheduler") Scheduler blockingScheduler,
+                                   Optional<TransferPipeline> transferPipeline, Optional<MemoryLedger> memoryLedger) {
+        this.customerService = customerService;
+        this.customerRepository = customerRepository;
+        this.accountRepository = accountRepository;
+        this.ledgerEntryRepository = ledgerEntryRepository;
+        this.blockingScheduler = blockingScheduler;
+        this.transferPipeline = transferPipeline.orElse(null);
+        this.balancesInMemory = memoryLedger.isPresent();
+    }
+
+    /**
+     * Offset page of the customer list. Pages in id order, the default one, are read with a single R2DBC query; other
+     * orders go through the customer service.
+     */
+    public Flux<CustomerListDto> listCustomers(Pageable pageable) {
+        if (!pageable.getSort().equals(Sort.by("id")))
+            return blocking(() -> customerService.listCustomer(pageable).getContent())
+                    .flatMapIterable(customers -> customers)
+                    .map(Utility::toCustomerListDto);
+
+        return customerRepository.findPage(pageable.getOffset(), pageable.getPageSize())
+                .map(ReactiveCustomerService::toCustomerListDto);
+    }
+
+    public Flux<CustomerListDto> listCustomersAfter(Integer afterId, int size) {
+        return customerRepository.findListPageAfter(afterId, size).map(ReactiveCustomerService::toCustomerListDto);
+    }
+
+    /**
+     * Finds a customer's detail. The customer and its accounts are read with two queries running at the same time.
+     */
+    public Mono<CustomerDetailDto> findCustomer(Integer customerId) {
+        if (balancesInMemory)
+            return blocking(() -> customerService.findCustomer(customerId).orElse(null));
+
+        return customerRepository.findById(customerId)
+                .zipWith(accountRepository.findAccountBalancesByCustomerId(customerId).collectList(),
+                        ReactiveCustomerService::toCustomerDetailDto);
+    }
+
+    /**
+     * Lists the customer's accounts. Every customer has at least one account, so an empty result means there is no
+     * such customer.
+     */
+    public Mono<List<AccountDto>> listCustomerAccounts(Integer customerId) {
+        if (balancesInMemory)
+            return blocking(() -> customerService.listCustomerAccounts(customerId));
+
+        return accountRepository.findAccountBalancesByCustomerId(customerId)
+                .map(ReactiveCustomerService::toAccountDto)
+                .collectList()
+                .filter(accounts -> !accounts.isEmpty())
+                .switchIfEmpty(Mono.error(CustomerNotFoundException::new));
+    }
+
+    public Flux<TransactionDto> listAccountTransactions(Integer customerId, Integer accountId, Long before, int size) {
+        return checkAccountOwner(customerId, accountId)
+                .thenMany(ledgerEntryRepository.findPageBefore(accountId, before == null ? Long.MAX_VALUE : before, size))
+                .map(ReactiveCustomerService::toTransactionDto);
+    }
+
+    public Mono<Void> createNewCustomer(Customer newCustomer) {
+        return blockingRun(() -> customerService.createNewCustomer(newCustomer));
+    }
+
+    public Mono<Void> deleteCustomer(Integer customerId) {
+        return blockingRun(() -> customerService.deleteCustomer(customerId));
+    }
+
+    public Mono<Void> addCustomerAccount(Integer customerId, Account account) {
+        return blockingRun(() -> customerService.addCustomerAccount(customerId, account));
+    }
+
+    public Mono<Void> deleteCustomerAccount(Integer customerId, Integer accountId) {
+        return blockingRun(() -> customerService.deleteCustomerAccount(customerId, accountId));
+    }
+
+    public Mono<Void> shardAccount(Integer customerId, Integer accountId, int shards) {
+        return blockingRun(() -> customerService.shardAccount(customerId, accountId, shards));
+    }
+
+    public Mono<Void> transfer(Integer customerId, Integer fromAccountId, Integer toAccountId, BigDecimal amount) {
+        if (transferPipeline != null)
+            return queued(() -> transferPipeline.transfer(customerId, fromAccountId, toAccountId, amount));
+
+        return blockingRun(() -> customerService.transfer(customerId, fromAccountId, toAccountId, amount));
+    }
+
+    public Mono<List<TransferOutcome>> batchTransfer(Integer customerId, List<Transfer> transfers, BatchTransferMode mode) {
+        return blocking(() -> customerService.batchTransfer(customerId, transfers, mode));
+    }
+
+    public Mono<Void> deposit(Integer customerId, Integer accountId, BigDecimal amount) {
+        if (transferPipeline != null)
+            return queued(() -> transferPipeline.deposit(customerId, accountId, amount));
+
+        return blockingRun(() -> customerService.deposit(customerId, accountId, amount));
+    }
+
+    public Mono<Void> withdraw(Integer customerId, Integer accountId, BigDecimal amount) {
+        if (transferPipeline != null)
+            return queued(() -> transferPipeline.withdraw(customerId, accountId, amount));
+
+        return blockingRun(() -> customerService.withdraw(customerId, accountId, amount));
+    }
+
+    /**
+     * Runs a call into the blocking service layer on the blocking scheduler. A {@code null} result completes empty.
+     */
+    public <T> Mono<T> blocking(Callable<T> call) {
+        return Mono.fromCallable(call).subscribeOn(blockingScheduler);
+    }
+
+    public Mono<Void> blockingRun(BlockingAction action) {
+        return blocking(() -> {
+            action.run();
+            return null;
+        });
+    }
+
+    /**
+     * Validates the customer and the account owner, like the customer service does.
+     */
+    private Mono<Void> checkAccountOwner(Integer customerId, Integer accountId) {
+        return customerRepository.existsById(customerId)
+                .flatMap(customerExists -> customerExists ? accountRepository.isOwnedBy(accountId, customerId) :
+                        Mono.<Boolean>error(new CustomerNotFoundException()))
+                .flatMap(owned -> owned ? Mono.<Void>empty() : Mono.<Void>error(new AccountNotFoundException()));
+    }
+
+    /**
+     * Queues a movement to the pipeline's writers, completing once it is committed. Queuing may wait for room in a
+     * full buffer, so it happens on the blocking scheduler.
+     */
+    private Mono<Void> queued(Callable<CompletableFuture<Void>> submission) {
+        return blocking(submission).flatMap(Mono::fromFuture);
+    }
+
+    private static CustomerListDto toCustomerListDto(CustomerRow customer) {
+        return new CustomerListDto(customer.id(), customer.customerType(), customer.name());
+    }
+
+    private static CustomerDetailDto toCustomerDetailDto(CustomerRow customer, List<AccountRow> accounts) {
+        CustomerDetailDto detailDto = new CustomerDetailDto();
+        detailDto.setId(customer.id());
+        detailDto.setName(customer.name());
+        detailDto.setPhoneNumber(customer.phoneNumber());
+        detailDto.setType(customer.customerType());
+
+        if (customer.customerType().equals(Customer.CustomerType.REAL))
+            detailDto.setLastName(customer.lastName());
+        else
+            detailDto.setFaxNumber(customer.faxNumber());
+
+        accounts.forEach(account -> detailDto.getAccountsDetail().add(toAccountDto(account)));
+
+        return detailDto;
+    }
+
+    private static AccountDto toAccountDto(AccountRow account) {
+        Money totalBalance = account.totalBalance();
+
+        return new AccountDto(account.id(), totalBalance.toBigDecimal(), totalBalance.getCurrency());
+    }
+
+    private static TransactionDto toTransactionDto(LedgerEntryRow entry) {
+        Currency currency = Currency.getInstance(entry.currency());
+
+        return new TransactionDto(entry.sequenceNumber(), entry.type(), currency,
+                Money.ofMinor(entry.amount(), currency).toBigDecimal(), Money.ofMinor(entry.balance(), currency).toBigDecimal(),
+                entry.counterpartyAccountId(), entry.fxRate(), entry.createdAt().toInstant());
+    }
+
+    /**
+     * A void call into the service layer, with its checked exceptions.
+     */
+    @FunctionalInterface
+    public interface BlockingAction {
+        void run() throws Exception;
+    }
+}
@@ -0,0 +1,331 @@
+package com.sajad.banking.reactive.web;
+
+import com.sajad.banking.BankingApp.exception.account.AccountNotFoundException;
+import com.sajad.banking.BankingApp.service.transfer.BatchTransferMode;
+import com.sajad.banking.BankingApp.service.transfer.TransferOutcome;
+import com.sajad.banking.BankingApp.web.dto.account.AccountDto;
+import com.sajad.banking.BankingApp.web.dto.account.AccountShardsDto;
+import com.sajad.banking.BankingApp.web.dto.account.BatchTransferDto;
+import com.sajad.banking.BankingApp.web.dto.account.DepositDto;
+import com.sajad.banking.BankingApp.web.dto.account.NewAccountDto;
+import com.sajad.banking.BankingApp.web.dto.account.TransactionDto;
+import com.sajad.banking.BankingApp.web.dto.account.TransferDto;
+import com.sajad.banking.BankingApp.web.dto.account.TransferResultDto;
+import com.sajad.banking.BankingApp.web.dto.customer.CustomerDetailDto;
+import com.sajad.banking.BankingApp.web.dto.customer.CustomerListDto;
+import com.sajad.banking.BankingApp.web.dto.customer.NewCustomerDto;
+import com.sajad.banking.BankingApp.web.exporter.CustomerExporter;
+import com.sajad.banking.BankingApp.web.exporter.ExportFormat;
+import com.sajad.banking.BankingApp.web.importer.CustomerImporter;
+import com.sajad.banking.BankingApp.web.utility.Utility;
+import com.sajad.banking.reactive.service.ReactiveCustomerService;
+import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.web.PageableDefault;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static com.sajad.banking.BankingApp.web.controller.CustomerController.NEXT_CURSOR_HEADER;
+
+/**
+ * Reactive counterpart of {@linkplain com.sajad.banking.BankingApp.web.controller.CustomerController}, with the same
+ * routes, request bodies and responses.
+ * <p>
+ * Reads never block an event loop. Changes complete once the blocking service call behind them, or the pipeline's
+ * commit, does; imports and exports stream through the MVC application's importer and exporter, running on the
+ * blocking scheduler.
+ *
+ * @author Sajad
+ */
+@RestController
+@RequestMapping("/api/customers")
+public class ReactiveCustomerController {
+
+    private static final int MAX_PAGE_SIZE = 100;
+
+    /**
+     * Buffers requested at a time from an import's body, while the importer reads it.
+     */
+    private static final int IMPORT_DEMAND = 16;
+
+    /**
+     * Bytes of an import's body buffered between its copy and the importer.
+     */
+    private static final int IMPORT_PIPE_SIZE = 64 * 1024;
+
+    private final ReactiveCustomerService customerService;
+
+    private final CustomerImporter customerImporter;
+
+    private final CustomerExporter customerExporter;
+
+    private final Scheduler blockingScheduler;
+
+    private final Executor blockingExecutor;
+
+    @Autowired
+    public ReactiveCustomerController(ReactiveCustomerService customerService, CustomerImporter customerImporter,
+                                      CustomerExporter customerExporter,
+                                      @Qualifier("blockingScheduler") Scheduler blockingScheduler) {
+        this.customerService = customerService;
+        this.customerImporter = customerImporter;
+        this.customerExporter = customerExporter;
+        this.blockingScheduler = blockingScheduler;
+        this.blockingExecutor = blockingScheduler::schedule;
+    }
+
+    /**
+     * Lists customers, with offset paging, or keyset paging starting right after the {@code after} customer id, see
+     * {@linkplain com.sajad.banking.BankingApp.web.controller.CustomerController#listCustomers}.
+     */
+    @GetMapping
+    public Mono<ResponseEntity<List<CustomerListDto>>> listCustomers(@RequestParam(name = "after", required = false) Integer after,
+                                                                     @PageableDefault(sort = "id") Pageable pageable) {
+        if (after != null)
+            return listCustomersAfter(after, pageable.getPageSize());
+
+        return customerService.listCustomers(pageable).collectList().map(ResponseEntity::ok);
+    }
+
+    private Mono<ResponseEntity<List<CustomerListDto>>> listCustomersAfter(Integer after, int size) {
+        return customerService.listCustomersAfter(after, size).collectList().map(customers -> {
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+            if (customers.size() == size)
+                response.header(NEXT_CURSOR_HEADER, String.valueOf(customers.get(size - 1).getId()));
+
+            return response.body(customers);
+        });
+    }
+
+    /**
+     * The customer as a JSON array of zero or one element, like the MVC endpoint's stream.
+     */
+    @GetMapping("/{id}")
+    public Flux<CustomerDetailDto> findCustomer(@PathVariable("id") Integer customerId) {
+        return customerService.findCustomer(customerId).flux();
+    }
+
+    @PostMapping
+    public Mono<ResponseEntity<Void>> createCustomer(@RequestBody @Valid NewCustomerDto customerDto) {
+        return customerService.createNewCustomer(Utility.toCustomer(customerDto)).then(ok());
+    }
+
+    /**
+     * Bulk customer import, see {@linkplain com.sajad.banking.BankingApp.web.controller.CustomerController#importCustomers}.
+     * The importer reads the request body as it arrives, and its result lines are sent as it writes them.
+     * <p>
+     * The body is copied into a pipe the importer reads from; writing to the pipe blocks while it's full, so the copy
+     * runs on the blocking scheduler too, and a closed pipe, once the importer is done, ends it.
+     */
+    @PostMapping(value = "/import", consumes = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<Flux<DataBuffer>> importCustomers(ServerHttpRequest request) {
+        Flux<DataBuffer> results = Flux.from(DataBufferUtils.outputStreamPublisher(output -> {
+            try (PipedInputStream input = new PipedInputStream(IMPORT_PIPE_SIZE);
+                 PipedOutputStream body = new PipedOutputStream(input)) {
+                Disposable copy = DataBufferUtils.write(request.getBody().publishOn(blockingScheduler, IMPORT_DEMAND), body)
+                        // Wakes the importer up, rather than leaving it to poll the pipe
+                        .doOnNext(buffer -> flush(body))
+                        .doFinally(signal -> closeQuietly(body))
+                        .subscribe(DataBufferUtils.releaseConsumer(), e -> {
+                            // The importer sees the end of the body, and the client is gone anyway
+                        });
+                try {
+                    customerImporter.importCustomers(input, output);
+                } finally {
+                    copy.dispose();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, DefaultDataBufferFactory.sharedInstance, blockingExecutor));
+
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(results);
+    }
+
+    /**
+     * Full dump of the customers with their accounts and balances, streamed from a database cursor.
+     */
+    @GetMapping("/export")
+    public ResponseEntity<Flux<DataBuffer>> exportCustomers(@RequestParam(name = "format", defaultValue = "CSV") ExportFormat format) {
+        return export(format, "customers", output -> customerExporter.exportCustomerAccounts(format, output));
+    }
+
+    @DeleteMapping("/{id}")
+    public Mono<ResponseEntity<Void>> deleteCustomer(@PathVariable("id") Integer customerId) {
+        return customerService.deleteCustomer(customerId).then(ok());
+    }
+
+    @PostMapping("/{id}/accounts")
+    public Mono<ResponseEntity<Void>> addNewCustomerAccount(@PathVariable("id") Integer customerId,
+                                                            @RequestBody @Valid NewAccountDto newAccountDto) {
+        return customerService.addCustomerAccount(customerId, Utility.toAccount(newAccountDto)).then(ok());
+    }
+
+    @GetMapping("/{id}/accounts")
+    public Mono<List<AccountDto>> listCustomerAccounts(@PathVariable("id") Integer customerId) {
+        return customerService.listCustomerAccounts(customerId);
+    }
+
+    /**
+     * Lists an account's transactions, newest first, using keyset pagination.
+     * The {@value com.sajad.banking.BankingApp.web.controller.CustomerController#NEXT_CURSOR_HEADER} header holds the
+     * {@code before} value of the next page, if there may be one.
+     */
+    @GetMapping("/{id}/accounts/{accountId}/transactions")
+    public Mono<ResponseEntity<List<TransactionDto>>> listAccountTransactions(@PathVariable("id") Integer customerId,
+                                                                              @PathVariable("accountId") Integer accountId,
+                                                                              @RequestParam(name = "before", required = false) Long before,
+                                                                              @RequestParam(name = "size", defaultValue = "20") int size) {
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+
+        return customerService.listAccountTransactions(customerId, accountId, before, pageSize).collectList().map(transactions -> {
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+            if (transactions.size() == pageSize)
+                response.header(NEXT_CURSOR_HEADER, String.valueOf(transactions.get(pageSize - 1).getSequenceNumber()));
+
+            return response.body(transactions);
+        });
+    }
+
+    /**
+     * Full statement of an account, oldest transaction first, streamed like {@linkplain #exportCustomers}.
+     */
+    @GetMapping("/{id}/accounts/{accountId}/statement")
+    public Mono<ResponseEntity<Flux<DataBuffer>>> exportAccountStatement(@PathVariable("id") Integer customerId,
+                                                                         @PathVariable("accountId") Integer accountId,
+                                                                         @RequestParam(name = "format", defaultValue = "CSV") ExportFormat format) {
+        // Checked before streaming, while an error can still be answered with its status
+        return customerService.listCustomerAccounts(customerId)
+                .filter(accounts -> accounts.stream().anyMatch(account -> account.getId().equals(accountId)))
+                .switchIfEmpty(Mono.error(AccountNotFoundException::new))
+                .map(accounts -> export(format, "statement-" + accountId,
+                        output -> customerExporter.exportAccountStatement(accountId, format, output)));
+    }
+
+    private ResponseEntity<Flux<DataBuffer>> export(ExportFormat format, String name, ExportWriter writer) {
+        Flux<DataBuffer> body = Flux.from(DataBufferUtils.outputStreamPublisher(output -> {
+            try {
+                writer.write(output);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, DefaultDataBufferFactory.sharedInstance, blockingExecutor));
+
+        return ResponseEntity.ok()
+                .contentType(format.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename(format.fileName(name)).build().toString())
+                .body(body);
+    }
+
+    @DeleteMapping("/{id}/accounts/{accountId}")
+    public Mono<ResponseEntity<Void>> deleteCustomerAccount(@PathVariable("id") Integer customerId,
+                                                            @PathVariable("accountId") Integer accountId) {
+        return customerService.deleteCustomerAccount(customerId, accountId).then(ok());
+    }
+
+    /**
+     * Opts a high-contention account into sharded deposits, or out of it with zero shards.
+     */
+    @PutMapping("/{id}/accounts/{accountId}/shards")
+    public Mono<ResponseEntity<Void>> shardAccount(@PathVariable("id") Integer customerId, @PathVariable("accountId") Integer accountId,
+                                                   @RequestBody @Valid AccountShardsDto accountShardsDto) {
+        return customerService.shardAccount(customerId, accountId, accountShardsDto.getShards()).then(ok());
+    }
+
+    @PutMapping("/{id}/transfer")
+    public Mono<ResponseEntity<String>> transfer(@PathVariable("id") Integer customerId, @RequestBody @Valid TransferDto transferDto) {
+        return successful(customerService.transfer(customerId, transferDto.getFromAccountId(), transferDto.getToAccountId(),
+                transferDto.getAmount()));
+    }
+
+    /**
+     * Applies a batch of transfers in one transaction and reports the outcome of each of them, in the request order.
+     * A failing {@code ALL_OR_NOTHING} batch is answered with a bad request, carrying the same per-transfer outcomes.
+     */
+    @PutMapping("/{id}/transfers")
+    public Mono<ResponseEntity<List<TransferResultDto>>> batchTransfer(@PathVariable("id") Integer customerId,
+                                                                       @RequestBody @Valid BatchTransferDto batchTransferDto) {
+        List<TransferDto> transfers = batchTransferDto.getTransfers();
+
+        return customerService.batchTransfer(customerId, transfers.stream().map(Utility::toTransfer).collect(Collectors.toList()),
+                batchTransferDto.getMode()).map(outcomes -> {
+            List<TransferResultDto> results = IntStream.range(0, transfers.size())
+                    .mapToObj(i -> Utility.toTransferResultDto(transfers.get(i), outcomes.get(i)))
+                    .collect(Collectors.toList());
+
+            boolean rejected = batchTransferDto.getMode() == BatchTransferMode.ALL_OR_NOTHING &&
+                    outcomes.stream().anyMatch(outcome -> outcome != TransferOutcome.SUCCESSFUL);
+
+            return rejected ? ResponseEntity.badRequest().body(results) : ResponseEntity.ok(results);
+        });
+    }
+
+    @PutMapping("/{id}/deposit")
+    public Mono<ResponseEntity<String>> deposit(@PathVariable("id") Integer customerId, @RequestBody @Valid DepositDto depositDto) {
+        return successful(customerService.deposit(customerId, depositDto.getAccountId(), depositDto.getAmount()));
+    }
+
+    @PutMapping("/{id}/withdraw")
+    public Mono<ResponseEntity<String>> withdraw(@PathVariable("id") Integer customerId, @RequestBody @Valid DepositDto depositDto) {
+        return successful(customerService.withdraw(customerId, depositDto.getAccountId(), depositDto.getAmount()));
+    }
+
+    /**
+     * The response of a committed money movement; a rejected one fails with its reason, handled like a thrown one.
+     */
+    private static Mono<ResponseEntity<String>> successful(Mono<Void> movement) {
+        return movement.then(Mono.fromSupplier(() -> ResponseEntity.ok("Transaction was successful")));
+    }
+
+    private static Mono<ResponseEntity<Void>> ok() {
+        return Mono.fromSupplier(() -> ResponseEntity.ok().<Void>build());
+    }
+
+    private static void flush(OutputStream body) {
+        try {
+            body.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Ends an import's body, for the importer to see its end.
+     */
+    private static void closeQuietly(OutputStream body) {
+        try {
+            body.close();
+        } catch (IOException e) {
+            // Already closed by the importer's side
+        }
+    }
+
+    @FunctionalInterface
+    private interface ExportWriter {
+        void write(OutputStream output) throws IOException;
+    }
+}
@@ -0,0 +1,104 @@
+package com.sajad.banking.reactive.web;
+
+import com.sajad.banking.BankingApp.exception.account.*;
+import com.sajad.banking.BankingApp.exception.customer.CustomerDeleteException;
+import com.sajad.banking.BankingApp.exception.customer.CustomerExistsException;
+import com.sajad.banking.BankingApp.exception.customer.CustomerNotFoundException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.reactive.result.method.annotation.ResponseEntityExceptionHandler;
+
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Reactive counterpart of {@linkplain com.sajad.banking.BankingApp.web.controller.CustomExceptionHandler}, with the
+ * same error responses.
+ *
+ * @author Sajad
+ */
+@ControllerAdvice
+public class ReactiveExceptionHandler extends ResponseEntityExceptionHandler {
+
+    @ExceptionHandler(AccountNotFoundException.class)
+    protected ResponseEntity<String> handleAccountNotFoundException() {
+        return ResponseEntity.notFound().build();
+    }
+
+    @ExceptionHandler(BalanceNotEnoughException.class)
+    protected ResponseEntity<String> handleBalanceNotEnoughException() {
+        String body = "Balance is not enough for this transaction!";
+
+        return ResponseEntity.badRequest().body(body);
+    }
+
+    @ExceptionHandler(CustomerExistsException.class)
+    protected ResponseEntity<String> handleCustomerExistsException() {
+        String body = "Customer already registered with this phone number!";
+
+        return ResponseEntity.badRequest().body(body);
+    }
+
+    @ExceptionHandler(CustomerNotFoundException.class)
+    protected ResponseEntity<String> handleCustomerNotFoundException() {
+        return ResponseEntity.notFound().build();
+    }
+
+    @ExceptionHandler(NegativeAmountException.class)
+    protected ResponseEntity<String> handleNegativeAmountException() {
+        String body = "Invalid amount!";
+        return ResponseEntity.badRequest().body(body);
+    }
+
+    @ExceptionHandler(InvalidAmountException.class)
+    protected ResponseEntity<String> handleInvalidAmountException() {
+        String body = "Amount has more fraction digits than the currency, or is too large!";
+        return ResponseEntity.badRequest().body(body);
+    }
+
+    @ExceptionHandler(BalanceAccountDeleteException.class)
+    protected ResponseEntity<String> handleBalanceAccountDeleteException() {
+        String body = "Cannot delete an this account due to its balance!";
+
+        return ResponseEntity.badRequest().body(body);
+    }
+
+    @ExceptionHandler(OnlyAccountDeleteException.class)
+    protected ResponseEntity<String> handleOnlyAccountDeleteException() {
+        String body = "You should have at least one account!";
+
+        return ResponseEntity.badRequest().body(body);
+    }
+
+    @ExceptionHandler(CustomerDeleteException.class)
+    protected ResponseEntity<String> handleCustomerDeleteException() {
+        String body = "Customer should not have any positive balance account!";
+
+        return ResponseEntity.badRequest().body(body);
+    }
+
+    @ExceptionHandler(InvalidTransferDetails.class)
+    protected ResponseEntity<String> handleInvalidTransferDetails() {
+        String body = "Account details are wrong!";
+
+        return ResponseEntity.badRequest().body(body);
+    }
+
+    @ExceptionHandler(UnsupportedCurrencyException.class)
+    protected ResponseEntity<String> handleUnsupportedCurrencyException() {
+        String body = "No exchange rate between the currencies of these accounts!";
+
+        return ResponseEntity.badRequest().body(body);
+    }
+
+    /**
+     * The blocking scheduler's queue is full, the caller should back off.
+     */
+    @ExceptionHandler(RejectedExecutionException.class)
+    protected ResponseEntity<String> handleRejectedExecutionException() {
+        String body = "Too many pending requests, try again later!";
+
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(body);
+    }
+}
@@ -0,0 +1,252 @@
+package com.sajad.banking.reactive.web;
+
+import com.sajad.banking.BankingApp.service.idempotency.IdempotencyService;
+import com.sajad.banking.BankingApp.service.idempotency.StoredResponse;
+import org.reactivestreams.Publisher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpRequestDecorator;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+import static com.sajad.banking.BankingApp.web.idempotency.IdempotencyFilter.IDEMPOTENCY_KEY_HEADER;
+
+/**
+ * Reactive counterpart of {@linkplain com.sajad.banking.BankingApp.web.idempotency.IdempotencyFilter}, with the same
+ * rules: the first request with a key executes and its successful response is stored, retries get the stored
+ * response, retries racing the first request get a conflict, reusing a key for a different request is rejected and
+ * failed requests release their key.
+ * <p>
+ * The idempotency service is blocking, so its calls run on the blocking scheduler. The response is stored when it is
+ * written, before it goes out.
+ *
+ * @author Sajad
+ */
+@Component
+public class ReactiveIdempotencyFilter implements WebFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveIdempotencyFilter.class);
+
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final IdempotencyService idempotencyService;
+
+    private final Scheduler blockingScheduler;
+
+    @Autowired
+    public ReactiveIdempotencyFilter(IdempotencyService idempotencyService,
+                                     @Qualifier("blockingScheduler") Scheduler blockingScheduler) {
+        this.idempotencyService = idempotencyService;
+        this.blockingScheduler = blockingScheduler;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest();
+        String key = request.getHeaders().getFirst(IDEMPOTENCY_KEY_HEADER);
+        if (!HttpMethod.PUT.equals(request.getMethod()) || key == null ||
+                !request.getPath().value().startsWith("/api/customers/"))
+            return chain.filter(exchange);
+
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH)
+            return writeError(exchange.getResponse(), HttpStatus.BAD_REQUEST, "Invalid idempotency key!");
+
+        return DataBufferUtils.join(request.getBody())
+                .map(buffer -> {
+                    byte[] body = new byte[buffer.readableByteCount()];
+                    buffer.read(body);
+                    DataBufferUtils.release(buffer);
+
+                    return body;
+                })
+                .defaultIfEmpty(new byte[0])
+                .flatMap(body -> filter(exchange, chain, key, body));
+    }
+
+    private Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain, String key, byte[] requestBody) {
+        String requestHash = hash(exchange.getRequest(), requestBody);
+
+        return Mono.fromCallable(() -> claimOrFind(key, requestHash)).subscribeOn(blockingScheduler).flatMap(claim -> {
+            if (claim.claimed())
+                return execute(exchange, chain, key, requestHash, requestBody);
+
+            // Lost the race for the key, to a request that may not have completed yet
+            StoredResponse storedResponse = claim.storedResponse();
+            if (storedResponse == null)
+                return writeError(exchange.getResponse(), HttpStatus.CONFLICT, "A request with this idempotency key is in progress!");
+
+            if (!storedResponse.requestHash().equals(requestHash))
+                return writeError(exchange.getResponse(), HttpStatus.UNPROCESSABLE_ENTITY,
+                        "Idempotency key is already used for another request!");
+
+            // Replay
+            ServerHttpResponse response = exchange.getResponse();
+            response.setStatusCode(HttpStatusCode.valueOf(storedResponse.status()));
+            if (storedResponse.contentType() != null)
+                response.getHeaders().setContentType(MediaType.parseMediaType(storedResponse.contentType()));
+
+            return response.writeWith(Mono.fromSupplier(() -> response.bufferFactory().wrap(storedResponse.body())));
+        });
+    }
+
+    /**
+     * Finds the stored response of the key, or claims the key if there is none.
+     */
+    private Claim claimOrFind(String key, String requestHash) {
+        StoredResponse storedResponse = idempotencyService.findResponse(key);
+        if (storedResponse == null) {
+            if (idempotencyService.claim(key, requestHash))
+                return new Claim(true, null);
+
+            // The winner may have completed in the meantime
+            storedResponse = idempotencyService.findResponse(key);
+        }
+
+        return new Claim(false, storedResponse);
+    }
+
+    private Mono<Void> execute(ServerWebExchange exchange, WebFilterChain chain, String key, String requestHash,
+                               byte[] requestBody) {
+        RecordingResponse response = new RecordingResponse(exchange.getResponse(), key, requestHash);
+        ServerWebExchange executed = exchange.mutate()
+                .request(new CachedBodyRequest(exchange.getRequest(), requestBody))
+                .response(response)
+                .build();
+
+        return chain.filter(executed)
+                // Nothing was written, or the request failed without a response
+                .then(Mono.defer(() -> response.finished ? Mono.<Void>empty() : release(key)))
+                .onErrorResume(e -> (response.finished ? Mono.<Void>empty() : release(key)).then(Mono.error(e)));
+    }
+
+    private Mono<Void> release(String key) {
+        return Mono.<Void>fromRunnable(() -> idempotencyService.release(key)).subscribeOn(blockingScheduler);
+    }
+
+    private static String hash(ServerHttpRequest request, byte[] requestBody) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update((request.getMethod().name() + ' ' + request.getURI().getRawPath() + '?' +
+                    request.getURI().getRawQuery() + '\n').getBytes(StandardCharsets.UTF_8));
+            digest.update(requestBody);
+
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Mono<Void> writeError(ServerHttpResponse response, HttpStatus status, String message) {
+        response.setStatusCode(status);
+        response.getHeaders().setContentType(new MediaType(MediaType.TEXT_PLAIN, StandardCharsets.UTF_8));
+
+        return response.writeWith(Mono.fromSupplier(() ->
+                response.bufferFactory().wrap(message.getBytes(StandardCharsets.UTF_8))));
+    }
+
+    /**
+     * Outcome of looking a key up.
+     *
+     * @param claimed        Whether the request got the key and should execute.
+     * @param storedResponse Response of the request holding the key, {@code null} while it's still in progress.
+     */
+    private record Claim(boolean claimed, StoredResponse storedResponse) {
+    }
+
+    /**
+     * Request whose body was already read for fingerprinting, serving it again to the controller.
+     */
+    private static class CachedBodyRequest extends ServerHttpRequestDecorator {
+
+        private final byte[] body;
+
+        CachedBodyRequest(ServerHttpRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+
+        @Override
+        public Flux<DataBuffer> getBody() {
+            return Flux.defer(() -> Flux.just(DefaultDataBufferFactory.sharedInstance.wrap(body)));
+        }
+    }
+
+    /**
+     * Response that stores itself, or releases the key, once its body is complete and before writing it out.
+     */
+    private class RecordingResponse extends ServerHttpResponseDecorator {
+
+        private final String key;
+
+        private final String requestHash;
+
+        private volatile boolean finished;
+
+        RecordingResponse(ServerHttpResponse response, String key, String requestHash) {
+            super(response);
+            this.key = key;
+            this.requestHash = requestHash;
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            return DataBufferUtils.join(Flux.from(body))
+                    .map(buffer -> {
+                        byte[] bytes = new byte[buffer.readableByteCount()];
+                        buffer.read(bytes);
+                        DataBufferUtils.release(buffer);
+
+                        return bytes;
+                    })
+                    .defaultIfEmpty(new byte[0])
+                    .flatMap(bytes -> finish(bytes).then(super.writeWith(Mono.fromSupplier(() -> bufferFactory().wrap(bytes)))));
+        }
+
+        @Override
+        public Mono<Void> setComplete() {
+            return (finished ? Mono.<Void>empty() : finish(new byte[0])).then(super.setComplete());
+        }
+
+        private Mono<Void> finish(byte[] body) {
+            finished = true;
+            HttpStatusCode status = getStatusCode() == null ? HttpStatus.OK : getStatusCode();
+            MediaType contentType = getHeaders().getContentType();
+
+            if (!status.is2xxSuccessful())
+                return release(key);
+
+            StoredResponse response = new StoredResponse(requestHash, status.value(),
+                    contentType == null ? null : contentType.toString(), body);
+
+            return Mono.<Void>fromRunnable(() -> idempotencyService.complete(key, response))
+                    .onErrorResume(e -> {
+                        // The change is committed, releasing the key would let a retry apply it twice
+                        logger.warn("Could not store the response of idempotency key {}, keeping it claimed", key, e);
+                        return Mono.empty();
+                    })
+                    .subscribeOn(blockingScheduler);
+        }
+    }
+}
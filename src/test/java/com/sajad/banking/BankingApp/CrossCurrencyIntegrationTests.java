@@ -0,0 +1,217 @@
+package com.sajad.banking.BankingApp;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.sajad.banking.BankingApp.service.fx.FxRates;
+import com.sajad.banking.BankingApp.web.dto.account.AccountDto;
+import com.sajad.banking.BankingApp.web.dto.account.DepositDto;
+import com.sajad.banking.BankingApp.web.dto.account.NewAccountDto;
+import com.sajad.banking.BankingApp.web.dto.account.TransactionDto;
+import com.sajad.banking.BankingApp.web.dto.account.TransferDto;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Currency;
+
+import static com.sajad.banking.BankingApp.model.LedgerEntry.EntryType.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Integration tests for accounts in different currencies and the transfers between them.
+ *
+ * @author Sajad
+ */
+public class CrossCurrencyIntegrationTests extends TestBase {
+
+    private static final Currency EUR = Currency.getInstance("EUR");
+
+    private static final Currency JPY = Currency.getInstance("JPY");
+
+    private static final Currency KWD = Currency.getInstance("KWD");
+
+    private static final String RATES = "# Test rates\nEUR,0.5\nJPY,150\n";
+
+    private static final Path ratesFile = createRatesFile();
+
+    @Autowired
+    private FxRates fxRates;
+
+    @DynamicPropertySource
+    static void ratesFileProperties(DynamicPropertyRegistry registry) {
+        registry.add("banking.fx.rates-file", () -> ratesFile.toUri().toString());
+    }
+
+    @AfterEach
+    public void restoreRates() throws IOException {
+        Files.writeString(ratesFile, RATES);
+    }
+
+    @Test
+    public void transfer_DifferentCurrencies_ShouldConvertAndRecordTheRate() throws JsonProcessingException {
+        this.restTemplate.postForEntity(getBaseUrl() + "/api/customers", getDummyNewCustomerRequest(100), String.class);
+        this.restTemplate.postForEntity(getBaseUrl() + "/api/customers/1/accounts", getNewAccountRequest(10, EUR), String.class);
+
+        this.restTemplate.put(getBaseUrl() + "/api/customers/1/transfer", getDummyTransferRequest(1, 2, 30), String.class);
+
+        AccountDto[] accounts = objectMapper.readValue(
+                this.restTemplate.getForObject(getBaseUrl() + "/api/customers/1/accounts", String.class), AccountDto[].class);
+        assertThat(accounts).extracting(AccountDto::getCurrency).containsExactly(Currency.getInstance("USD"), EUR);
+        assertThat(accounts).extracting(AccountDto::getBalance).containsExactly(BigDecimal.valueOf(70), BigDecimal.valueOf(25));
+
+        TransactionDto[] transactions = objectMapper.readValue(
+                this.restTemplate.getForObject(getBaseUrl() + "/api/customers/1/accounts/2/transactions", String.class), TransactionDto[].class);
+        assertThat(transactions).extracting(TransactionDto::getType).containsExactly(TRANSFER_IN, OPENING);
+        assertThat(transactions[0].getCurrency()).isEqualTo(EUR);
+        assertThat(transactions[0].getAmount()).isEqualByComparingTo("15");
+        assertThat(transactions[0].getFxRate()).isEqualByComparingTo("0.5");
+        assertThat(transactions[1].getFxRate()).isNull();
+
+        // The way back uses the cross rate
+        this.restTemplate.put(getBaseUrl() + "/api/customers/1/transfer", getDummyTransferRequest(2, 1, 5), String.class);
+        transactions = objectMapper.readValue(
+                this.restTemplate.getForObject(getBaseUrl() + "/api/customers/1/accounts/1/transactions", String.class), TransactionDto[].class);
+        assertThat(transactions[0].getAmount()).isEqualByComparingTo("10");
+        assertThat(transactions[0].getFxRate()).isEqualByComparingTo("2");
+    }
+
+    @Test
+    public void transfer_ConvertedAmount_ShouldRoundHalfEven() throws JsonProcessingException {
+        this.restTemplate.postForEntity(getBaseUrl() + "/api/customers", getDummyNewCustomerRequest(100), String.class);
+        this.restTemplate.postForEntity(getBaseUrl() + "/api/customers/1/accounts", getNewAccountRequest(1, JPY), String.class);
+
+        // 1.03 USD is 154.5 JPY, rounded to the even neighbour
+        this.restTemplate.put(getBaseUrl() + "/api/customers/1/transfer", getTransferRequest(1, 2, "1.03"), String.class);
+
+        AccountDto[] accounts = objectMapper.readValue(
+                this.restTemplate.getForObject(getBaseUrl() + "/api/customers/1/accounts", String.class), AccountDto[].class);
+        assertThat(accounts[0].getBalance()).isEqualByComparingTo("98.97");
+        assertThat(accounts[1].getBalance()).isEqualByComparingTo("155");
+    }
+
+    @Test
+    public void depositAndWithdraw_OtherCurrency_ShouldUseTheAccountCurrency() throws JsonProcessingException {
+        this.restTemplate.postForEntity(getBaseUrl() + "/api/customers", getDummyNewCustomerRequest(100), String.class);
+        this.restTemplate.postForEntity(getBaseUrl() + "/api/customers/1/accounts", getNewAccountRequest(100, JPY), String.class);
+
+        this.restTemplate.put(getBaseUrl() + "/api/customers/1/deposit", getDummyDepositRequest(2, 50), String.class);
+        this.restTemplate.put(getBaseUrl() + "/api/customers/1/withdraw", getDummyDepositRequest(2, 20), String.class);
+
+        AccountDto[] accounts = objectMapper.readValue(
+                this.restTemplate.getForObject(getBaseUrl() + "/api/customers/1/accounts", String.class), AccountDto[].class);
+        assertThat(accounts[1].getBalance()).isEqualByComparingTo("130");
+
+        // Yen has no minor units
+        DepositDto depositDto = new DepositDto();
+        depositDto.setAccountId(2);
+        depositDto.setAmount(new BigDecimal("1.50"));
+        HttpClientErrorException.BadRequest errorResponse = assertThrows(HttpClientErrorException.BadRequest.class, () ->
+                this.restTemplate.put(getBaseUrl() + "/api/customers/1/deposit", new HttpEntity<>(depositDto, new HttpHeaders()), String.class));
+        assertEquals("400 : \"Amount has more fraction digits than the currency, or is too large!\"", errorResponse.getMessage());
+        assertThrows(HttpClientErrorException.BadRequest.class, () ->
+                this.restTemplate.put(getBaseUrl() + "/api/customers/1/withdraw", new HttpEntity<>(depositDto, new HttpHeaders()), String.class));
+    }
+
+    @Test
+    public void depositAndWithdraw_MoreFractionDigitsThanDefaultCurrency_ShouldUseTheAccountCurrency() throws JsonProcessingException {
+        this.restTemplate.postForEntity(getBaseUrl() + "/api/customers", getDummyNewCustomerRequest(100), String.class);
+        this.restTemplate.postForEntity(getBaseUrl() + "/api/customers/1/accounts", getNewAccountRequest(10, KWD), String.class);
+
+        // Kuwaiti dinar has three fraction digits, US dollar two
+        this.restTemplate.put(getBaseUrl() + "/api/customers/1/deposit", getDepositRequest(2, "2.005"), String.class);
+        this.restTemplate.put(getBaseUrl() + "/api/customers/1/withdraw", getDepositRequest(2, "1.001"), String.class);
+
+        AccountDto[] accounts = objectMapper.readValue(
+                this.restTemplate.getForObject(getBaseUrl() + "/api/customers/1/accounts", String.class), AccountDto[].class);
+        assertThat(accounts[1].getBalance()).isEqualByComparingTo("11.004");
+
+        HttpClientErrorException.BadRequest errorResponse = assertThrows(HttpClientErrorException.BadRequest.class, () ->
+                this.restTemplate.put(getBaseUrl() + "/api/customers/1/deposit", getDepositRequest(1, "1.005"), String.class));
+        assertEquals("400 : \"Amount has more fraction digits than the currency, or is too large!\"", errorResponse.getMessage());
+    }
+
+    @Test
+    public void transfer_NoRate_ShouldReturnError() {
+        this.restTemplate.postForEntity(getBaseUrl() + "/api/customers", getDummyNewCustomerRequest(100), String.class);
+        this.restTemplate.postForEntity(getBaseUrl() + "/api/customers/1/accounts", getNewAccountRequest(10, Currency.getInstance("SEK")), String.class);
+
+        HttpClientErrorException.BadRequest errorResponse = assertThrows(HttpClientErrorException.BadRequest.class, () ->
+                this.restTemplate.put(getBaseUrl() + "/api/customers/1/transfer", getDummyTransferRequest(1, 2, 30), String.class));
+        assertEquals("400 : \"No exchange rate between the currencies of these accounts!\"", errorResponse.getMessage());
+    }
+
+    @Test
+    public void reload_ShouldSwapTheRatesAndKeepThemOnInvalidFile() throws IOException {
+        this.restTemplate.postForEntity(getBaseUrl() + "/api/customers", getDummyNewCustomerRequest(100), String.class);
+        this.restTemplate.postForEntity(getBaseUrl() + "/api/customers/1/accounts", getNewAccountRequest(10, EUR), String.class);
+
+        Files.writeString(ratesFile, "EUR,0.8\n");
+        fxRates.reload();
+        this.restTemplate.put(getBaseUrl() + "/api/customers/1/transfer", getDummyTransferRequest(1, 2, 10), String.class);
+
+        Files.writeString(ratesFile, "EUR;0.1\n");
+        fxRates.reload();
+        this.restTemplate.put(getBaseUrl() + "/api/customers/1/transfer", getDummyTransferRequest(1, 2, 10), String.class);
+
+        TransactionDto[] transactions = objectMapper.readValue(
+                this.restTemplate.getForObject(getBaseUrl() + "/api/customers/1/accounts/2/transactions", String.class), TransactionDto[].class);
+        assertThat(transactions).extracting(TransactionDto::getAmount).containsExactly(BigDecimal.valueOf(8), BigDecimal.valueOf(8),
+                BigDecimal.valueOf(10));
+    }
+
+    @Test
+    public void createAccount_BalanceFinerThanCurrency_ShouldReturnError() {
+        this.restTemplate.postForEntity(getBaseUrl() + "/api/customers", getDummyNewCustomerRequest(100), String.class);
+
+        NewAccountDto newAccountDto = new NewAccountDto();
+        newAccountDto.setBalance(new BigDecimal("10.5"));
+        newAccountDto.setCurrency(JPY);
+        assertThrows(HttpClientErrorException.BadRequest.class, () ->
+                this.restTemplate.postForEntity(getBaseUrl() + "/api/customers/1/accounts", new HttpEntity<>(newAccountDto, new HttpHeaders()), String.class));
+    }
+
+    private static HttpEntity<DepositDto> getDepositRequest(int accountId, String amount) {
+        DepositDto depositDto = new DepositDto();
+        depositDto.setAccountId(accountId);
+        depositDto.setAmount(new BigDecimal(amount));
+
+        return new HttpEntity<>(depositDto, new HttpHeaders());
+    }
+
+    private static HttpEntity<NewAccountDto> getNewAccountRequest(int amount, Currency currency) {
+        NewAccountDto newAccountDto = new NewAccountDto();
+        newAccountDto.setBalance(BigDecimal.valueOf(amount));
+        newAccountDto.setCurrency(currency);
+
+        return new HttpEntity<>(newAccountDto, new HttpHeaders());
+    }
+
+    private HttpEntity<TransferDto> getTransferRequest(int from, int to, String amount) {
+        HttpEntity<TransferDto> request = getDummyTransferRequest(from, to, 0);
+        request.getBody().setAmount(new BigDecimal(amount));
+
+        return request;
+    }
+
+    private static Path createRatesFile() {
+        try {
+            Path file = Files.createTempFile("fx-rates", ".csv");
+            file.toFile().deleteOnExit();
+
+            return Files.writeString(file, RATES);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -2,15 +2,32 @@ package com.sajad.banking.BankingApp;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.sajad.banking.BankingApp.web.dto.account.AccountDto;
+import com.sajad.banking.BankingApp.web.dto.account.AccountShardsDto;
+import com.sajad.banking.BankingApp.web.dto.account.BatchTransferDto;
+import com.sajad.banking.BankingApp.web.dto.account.DepositDto;
 import com.sajad.banking.BankingApp.web.dto.account.NewAccountDto;
+import com.sajad.banking.BankingApp.web.dto.account.TransactionDto;
 import com.sajad.banking.BankingApp.web.dto.account.TransferDto;
+import com.sajad.banking.BankingApp.web.dto.account.TransferResultDto;
+import com.sajad.banking.BankingApp.web.dto.customer.CustomerDetailDto;
 import com.sajad.banking.BankingApp.web.dto.customer.NewCustomerDto;
 import org.junit.jupiter.api.Test;
 import org.springframework.http.*;
 import org.springframework.web.client.HttpClientErrorException;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
 
+import static com.sajad.banking.BankingApp.model.LedgerEntry.EntryType.*;
+import static com.sajad.banking.BankingApp.service.transfer.BatchTransferMode.ALL_OR_NOTHING;
+import static com.sajad.banking.BankingApp.service.transfer.BatchTransferMode.BEST_EFFORT;
+import static com.sajad.banking.BankingApp.service.transfer.TransferOutcome.*;
+import static com.sajad.banking.BankingApp.web.controller.CustomerController.NEXT_CURSOR_HEADER;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -61,6 +78,53 @@ public class CustomerAccountIntegrationTests extends TestBase {
         assertEquals(errorResponse.getMessage(), "400 : \"You should have at least one account!\"");
     }
 
+    @Test
+    public void deleteCustomerAccount_ZeroBalance_ShouldBeSuccessful() throws JsonProcessingException {
+        this.restTemplate.postForEntity(getBaseUrl() + "/api/customers", getDummyNewCustomerRequest(100), String.class);
+        this.restTemplate.postForEntity(getBaseUrl() + "/api/customers/1/accounts", getDummyNewAccountRequest(10), String.class);
+
+        // Empty the second account, then delete it
+        this.restTemplate.put(getBaseUrl() + "/api/customers/1/withdraw", getDummyDepositRequest(2, 10), String.class);
+        this.restTemplate.delete(getBaseUrl() + "/api/customers/1/accounts/2", String.class);
+
+        AccountDto[] accounts = objectMapper.readValue(
+                this.restTemplate.getForEntity(getBaseUrl() + "/api/customers/1/accounts", String.class).getBody(), AccountDto[].class);
+        assertThat(accounts).extracting(AccountDto::getId).containsExactly(1);
+    }
+
+    @Test
+    public void deleteCustomerAccount_BothAccountsConcurrently_ShouldKeepOne() throws Exception {
+        this.restTemplate.postForEntity(getBaseUrl() + "/api/customers", getDummyNewCustomerRequest(100), String.class);
+        this.restTemplate.postForEntity(getBaseUrl() + "/api/customers/1/accounts", getDummyNewAccountRequest(10), String.class);
+        this.restTemplate.put(getBaseUrl() + "/api/customers/1/withdraw", getDummyDepositRequest(1, 100), String.class);
+        this.restTemplate.put(getBaseUrl() + "/api/customers/1/withdraw", getDummyDepositRequest(2, 10), String.class);
+
+        // Each delete alone would leave the other account, together they must not leave none
+        CountDownLatch start = new CountDownLatch(1);
+        List<CompletableFuture<Boolean>> deletes = new ArrayList<>();
+        for (int accountId = 1; accountId <= 2; accountId++) {
+            String url = getBaseUrl() + "/api/customers/1/accounts/" + accountId;
+            deletes.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    start.await();
+                    this.restTemplate.delete(url, String.class);
+                    return true;
+                } catch (HttpClientErrorException.BadRequest e) {
+                    assertEquals("400 : \"You should have at least one account!\"", e.getMessage());
+                    return false;
+                } catch (InterruptedException e) {
+                    throw new CompletionException(e);
+                }
+            }));
+        }
+        start.countDown();
+
+        assertThat(deletes).extracting(CompletableFuture::join).containsExactlyInAnyOrder(true, false);
+        AccountDto[] accounts = objectMapper.readValue(
+                this.restTemplate.getForEntity(getBaseUrl() + "/api/customers/1/accounts", String.class).getBody(), AccountDto[].class);
+        assertThat(accounts).hasSize(1);
+    }
+
     @Test
     public void deleteCustomerAccount_CustomerNotExist_ShouldReturnError() {
         HttpClientErrorException.NotFound response = assertThrows(HttpClientErrorException.NotFound.class, () ->
@@ -108,4 +172,178 @@ public class CustomerAccountIntegrationTests extends TestBase {
 
         assertEquals(errorResponse.getStatusCode(), HttpStatus.BAD_REQUEST);
     }
+
+    @Test
+    public void depositAndWithdraw_OwnedAccount_ShouldBeSuccessful() throws JsonProcessingException {
+        // First, create a new customer
+        HttpEntity<NewCustomerDto> request = getDummyNewCustomerRequest(100);
+
+        ResponseEntity<String> postResult = this.restTemplate.postForEntity(getBaseUrl() + "/api/customers", request, String.class);
+        assertThat(postResult.getStatusCode()).isEqualTo(HttpStatusCode.valueOf(200));
+
+        // Deposit, then withdraw the whole balance
+        this.restTemplate.put(getBaseUrl() + "/api/customers/1/deposit", getDummyDepositRequest(1, 50), String.class);
+        this.restTemplate.put(getBaseUrl() + "/api/customers/1/withdraw", getDummyDepositRequest(1, 150), String.class);
+
+        // Verify the balance
+        ResponseEntity<String> getResult = this.restTemplate.getForEntity(getBaseUrl() + "/api/customers/1/accounts", String.class);
+        AccountDto[] accounts = objectMapper.readValue(getResult.getBody(), AccountDto[].class);
+        assertThat(accounts[0].getBalance()).isEqualByComparingTo(BigDecimal.ZERO);
+    }
+
+    @Test
+    public void withdraw_BalanceNotEnough_ShouldReturnError() {
+        HttpEntity<NewCustomerDto> request = getDummyNewCustomerRequest(100);
+        this.restTemplate.postForEntity(getBaseUrl() + "/api/customers", request, String.class);
+
+        HttpClientErrorException.BadRequest errorResponse = assertThrows(HttpClientErrorException.BadRequest.class, () ->
+                this.restTemplate.put(getBaseUrl() + "/api/customers/1/withdraw", getDummyDepositRequest(1, 101), String.class));
+        assertEquals(errorResponse.getMessage(), "400 : \"Balance is not enough for this transaction!\"");
+    }
+
+    @Test
+    public void deposit_AccountNotOwned_ShouldReturnError() {
+        HttpEntity<NewCustomerDto> request = getDummyNewCustomerRequest(100);
+        this.restTemplate.postForEntity(getBaseUrl() + "/api/customers", request, String.class);
+
+        HttpClientErrorException.NotFound response = assertThrows(HttpClientErrorException.NotFound.class, () ->
+                this.restTemplate.put(getBaseUrl() + "/api/customers/1/deposit", getDummyDepositRequest(2, 10), String.class));
+        assertEquals(response.getStatusCode(), HttpStatus.NOT_FOUND);
+    }
+
+    @Test
+    public void listAccountTransactions_AfterMovements_ShouldPageNewestFirst() throws JsonProcessingException {
+        // Customer with two accounts, then a transfer, a deposit and a withdrawal on the first one
+        this.restTemplate.postForEntity(getBaseUrl() + "/api/customers", getDummyNewCustomerRequest(100), String.class);
+        this.restTemplate.postForEntity(getBaseUrl() + "/api/customers/1/accounts", getDummyNewAccountRequest(1000), String.class);
+        this.restTemplate.put(getBaseUrl() + "/api/customers/1/transfer", getDummyTransferRequest(1, 2, 30), String.class);
+        this.restTemplate.put(getBaseUrl() + "/api/customers/1/deposit", getDummyDepositRequest(1, 10), String.class);
+        this.restTemplate.put(getBaseUrl() + "/api/customers/1/withdraw", getDummyDepositRequest(1, 5), String.class);
+
+        // First page
+        ResponseEntity<String> firstPage = this.restTemplate.getForEntity(getBaseUrl() + "/api/customers/1/accounts/1/transactions?size=2", String.class);
+        assertThat(firstPage.getStatusCode()).isEqualTo(HttpStatusCode.valueOf(200));
+
+        TransactionDto[] transactions = objectMapper.readValue(firstPage.getBody(), TransactionDto[].class);
+        assertThat(transactions).extracting(TransactionDto::getType).containsExactly(WITHDRAW, DEPOSIT);
+        assertThat(transactions).extracting(TransactionDto::getBalance).containsExactly(BigDecimal.valueOf(75), BigDecimal.valueOf(80));
+        assertThat(firstPage.getHeaders().getFirst(NEXT_CURSOR_HEADER)).isEqualTo("3");
+
+        // Second page, continuing from the cursor
+        ResponseEntity<String> secondPage = this.restTemplate.getForEntity(getBaseUrl() + "/api/customers/1/accounts/1/transactions?size=2&before=3", String.class);
+        transactions = objectMapper.readValue(secondPage.getBody(), TransactionDto[].class);
+        assertThat(transactions).extracting(TransactionDto::getType).containsExactly(TRANSFER_OUT, OPENING);
+        assertThat(transactions).extracting(TransactionDto::getSequenceNumber).containsExactly(2L, 1L);
+        assertThat(transactions[0].getCounterpartyAccountId()).isEqualTo(2);
+    }
+
+    @Test
+    public void listAccountTransactions_AccountNotOwned_ShouldReturnError() {
+        this.restTemplate.postForEntity(getBaseUrl() + "/api/customers", getDummyNewCustomerRequest(100), String.class);
+
+        HttpClientErrorException.NotFound response = assertThrows(HttpClientErrorException.NotFound.class, () ->
+                this.restTemplate.getForEntity(getBaseUrl() + "/api/customers/1/accounts/2/transactions", String.class));
+        assertEquals(response.getStatusCode(), HttpStatus.NOT_FOUND);
+    }
+
+    @Test
+    public void batchTransfer_BestEffort_ShouldSkipFailingTransfers() throws JsonProcessingException {
+        this.restTemplate.postForEntity(getBaseUrl() + "/api/customers", getDummyNewCustomerRequest(100), String.class);
+        this.restTemplate.postForEntity(getBaseUrl() + "/api/customers/1/accounts", getDummyNewAccountRequest(1000), String.class);
+
+        HttpEntity<BatchTransferDto> request = getDummyBatchTransferRequest(BEST_EFFORT, getDummyTransferRequest(1, 2, 60),
+                getDummyTransferRequest(1, 2, 60), getDummyTransferRequest(2, 3, 10), getDummyTransferRequest(2, 1, 500));
+
+        ResponseEntity<String> result = this.restTemplate.exchange(getBaseUrl() + "/api/customers/1/transfers", HttpMethod.PUT, request, String.class);
+        assertThat(result.getStatusCode()).isEqualTo(HttpStatusCode.valueOf(200));
+
+        TransferResultDto[] results = objectMapper.readValue(result.getBody(), TransferResultDto[].class);
+        assertThat(results).extracting(TransferResultDto::getOutcome)
+                .containsExactly(SUCCESSFUL, BALANCE_NOT_ENOUGH, ACCOUNT_NOT_FOUND, SUCCESSFUL);
+
+        // Verify the balances: 100 - 60 + 500 and 1000 + 60 - 500
+        AccountDto[] accounts = objectMapper.readValue(
+                this.restTemplate.getForEntity(getBaseUrl() + "/api/customers/1/accounts", String.class).getBody(), AccountDto[].class);
+        assertThat(accounts[0].getBalance()).isEqualByComparingTo(BigDecimal.valueOf(540));
+        assertThat(accounts[1].getBalance()).isEqualByComparingTo(BigDecimal.valueOf(560));
+    }
+
+    @Test
+    public void batchTransfer_AllOrNothingWithFailure_ShouldRollBack() throws JsonProcessingException {
+        this.restTemplate.postForEntity(getBaseUrl() + "/api/customers", getDummyNewCustomerRequest(100), String.class);
+        this.restTemplate.postForEntity(getBaseUrl() + "/api/customers/1/accounts", getDummyNewAccountRequest(1000), String.class);
+
+        HttpEntity<BatchTransferDto> request = getDummyBatchTransferRequest(ALL_OR_NOTHING, getDummyTransferRequest(1, 2, 60),
+                getDummyTransferRequest(1, 2, 60));
+
+        HttpClientErrorException.BadRequest errorResponse = assertThrows(HttpClientErrorException.BadRequest.class, () ->
+                this.restTemplate.exchange(getBaseUrl() + "/api/customers/1/transfers", HttpMethod.PUT, request, String.class));
+
+        TransferResultDto[] results = objectMapper.readValue(errorResponse.getResponseBodyAsString(), TransferResultDto[].class);
+        assertThat(results).extracting(TransferResultDto::getOutcome).containsExactly(ROLLED_BACK, BALANCE_NOT_ENOUGH);
+
+        // Nothing moved
+        AccountDto[] accounts = objectMapper.readValue(
+                this.restTemplate.getForEntity(getBaseUrl() + "/api/customers/1/accounts", String.class).getBody(), AccountDto[].class);
+        assertThat(accounts[0].getBalance()).isEqualByComparingTo(BigDecimal.valueOf(100));
+        assertThat(accounts[1].getBalance()).isEqualByComparingTo(BigDecimal.valueOf(1000));
+    }
+
+    @Test
+    public void shardedAccount_DepositsAndWithdrawals_ShouldAggregateShards() throws JsonProcessingException {
+        this.restTemplate.postForEntity(getBaseUrl() + "/api/customers", getDummyNewCustomerRequest(100), String.class);
+
+        AccountShardsDto accountShardsDto = new AccountShardsDto();
+        accountShardsDto.setShards(4);
+        this.restTemplate.put(getBaseUrl() + "/api/customers/1/accounts/1/shards", new HttpEntity<>(accountShardsDto, new HttpHeaders()), String.class);
+
+        // Deposits land on the shards, reads include them
+        for (int i = 0; i < 10; i++)
+            this.restTemplate.put(getBaseUrl() + "/api/customers/1/deposit", getDummyDepositRequest(1, 10), String.class);
+
+        ResponseEntity<String> getResult = this.restTemplate.getForEntity(getBaseUrl() + "/api/customers/1/accounts", String.class);
+        AccountDto[] accounts = objectMapper.readValue(getResult.getBody(), AccountDto[].class);
+        assertThat(accounts[0].getBalance()).isEqualByComparingTo(BigDecimal.valueOf(200));
+
+        // More than the account's own balance, the shards cover the rest
+        this.restTemplate.put(getBaseUrl() + "/api/customers/1/withdraw", getDummyDepositRequest(1, 150), String.class);
+
+        HttpClientErrorException.BadRequest errorResponse = assertThrows(HttpClientErrorException.BadRequest.class, () ->
+                this.restTemplate.put(getBaseUrl() + "/api/customers/1/withdraw", getDummyDepositRequest(1, 51), String.class));
+        assertEquals(errorResponse.getMessage(), "400 : \"Balance is not enough for this transaction!\"");
+
+        ResponseEntity<String> findResult = this.restTemplate.getForEntity(getBaseUrl() + "/api/customers/1", String.class);
+        CustomerDetailDto[] customers = objectMapper.readValue(findResult.getBody(), CustomerDetailDto[].class);
+        assertThat(customers[0].getAccountsDetail().get(0).getBalance()).isEqualByComparingTo(BigDecimal.valueOf(50));
+
+        // Each collected deposit is in the ledger, in the order they were made, right before the withdrawal
+        ResponseEntity<String> transactionsResult = this.restTemplate.getForEntity(getBaseUrl() + "/api/customers/1/accounts/1/transactions", String.class);
+        TransactionDto[] transactions = objectMapper.readValue(transactionsResult.getBody(), TransactionDto[].class);
+        assertThat(transactions).hasSize(12);
+        assertThat(transactions[0].getType()).isEqualTo(WITHDRAW);
+        assertThat(Arrays.copyOfRange(transactions, 1, 11)).allSatisfy(transaction -> {
+            assertThat(transaction.getType()).isEqualTo(DEPOSIT);
+            assertThat(transaction.getAmount()).isEqualByComparingTo(BigDecimal.valueOf(10));
+        });
+        assertThat(transactions[1].getBalance()).isEqualByComparingTo(BigDecimal.valueOf(200));
+        assertThat(transactions[11].getType()).isEqualTo(OPENING);
+    }
+
+    @Test
+    public void deposit_CentAmounts_ShouldBeExactAndRejectFractionsOfCents() throws JsonProcessingException {
+        this.restTemplate.postForEntity(getBaseUrl() + "/api/customers", getDummyNewCustomerRequest(100), String.class);
+
+        HttpEntity<DepositDto> depositRequest = getDummyDepositRequest(1, 0);
+        depositRequest.getBody().setAmount(new BigDecimal("1.10"));
+        for (int i = 0; i < 3; i++)
+            this.restTemplate.put(getBaseUrl() + "/api/customers/1/deposit", depositRequest, String.class);
+
+        depositRequest.getBody().setAmount(new BigDecimal("1.005"));
+        assertThrows(HttpClientErrorException.BadRequest.class, () ->
+                this.restTemplate.put(getBaseUrl() + "/api/customers/1/deposit", depositRequest, String.class));
+
+        ResponseEntity<String> getResult = this.restTemplate.getForEntity(getBaseUrl() + "/api/customers/1/accounts", String.class);
+        AccountDto[] accounts = objectMapper.readValue(getResult.getBody(), AccountDto[].class);
+        assertThat(accounts[0].getBalance()).isEqualTo(new BigDecimal("103.3"));
+    }
 }
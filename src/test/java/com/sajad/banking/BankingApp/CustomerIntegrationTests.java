@@ -1,18 +1,25 @@
 package com.sajad.banking.BankingApp;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.sajad.banking.BankingApp.web.dto.account.AccountDto;
 import com.sajad.banking.BankingApp.web.dto.customer.CustomerDetailDto;
 import com.sajad.banking.BankingApp.web.dto.customer.CustomerListDto;
+import com.sajad.banking.BankingApp.web.dto.customer.ImportResultDto;
 import com.sajad.banking.BankingApp.web.dto.customer.NewCustomerDto;
 import org.junit.jupiter.api.Test;
 import org.springframework.http.*;
 import org.springframework.web.client.HttpClientErrorException;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.*;
 
 import static com.sajad.banking.BankingApp.model.Customer.CustomerType.LEGAL;
 import static com.sajad.banking.BankingApp.model.Customer.CustomerType.REAL;
+import static com.sajad.banking.BankingApp.service.onboarding.ImportOutcome.*;
+import static com.sajad.banking.BankingApp.web.controller.CustomerController.NEXT_CURSOR_HEADER;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -36,6 +43,28 @@ public class CustomerIntegrationTests extends TestBase {
         assertThat(customers).isEmpty();
     }
 
+    @Test
+    public void listCustomer_AfterCursor_ShouldReturnKeysetPages() throws JsonProcessingException {
+        for (int i = 0; i < 3; i++) {
+            NewCustomerDto newCustomerDto = new NewCustomerDto("test" + i, REAL, "lastName", "+98123" + i, null, BigDecimal.TEN);
+            this.restTemplate.postForEntity(getBaseUrl() + "/api/customers", new HttpEntity<>(newCustomerDto, new HttpHeaders()), String.class);
+        }
+
+        // First page is full, so there is a cursor
+        ResponseEntity<String> firstPage = this.restTemplate.getForEntity(getBaseUrl() + "/api/customers?after=0&size=2", String.class);
+        assertThat(firstPage.getStatusCode()).isEqualTo(HttpStatusCode.valueOf(200));
+        CustomerListDto[] customers = objectMapper.readValue(firstPage.getBody(), CustomerListDto[].class);
+        assertThat(customers).extracting(CustomerListDto::getId).containsExactly(1, 2);
+        assertThat(customers).extracting(CustomerListDto::getName).containsExactly("test0", "test1");
+        assertThat(firstPage.getHeaders().getFirst(NEXT_CURSOR_HEADER)).isEqualTo("2");
+
+        // Last page
+        ResponseEntity<String> lastPage = this.restTemplate.getForEntity(getBaseUrl() + "/api/customers?after=2&size=2", String.class);
+        customers = objectMapper.readValue(lastPage.getBody(), CustomerListDto[].class);
+        assertThat(customers).extracting(CustomerListDto::getId).containsExactly(3);
+        assertThat(lastPage.getHeaders().containsKey(NEXT_CURSOR_HEADER)).isFalse();
+    }
+
     @Test
     public void findCustomer_CustomerExists_ShouldReturnCustomerDetails() throws JsonProcessingException {
         // First, create a new customer
@@ -123,6 +152,40 @@ public class CustomerIntegrationTests extends TestBase {
         assertEquals(response.getMessage(), "400 : \"Customer already registered with this phone number!\"");
     }
 
+    @Test
+    public void createCustomer_concurrentDuplicates_ShouldHaveOneWinner() throws Exception {
+        int signups = 16;
+        HttpEntity<NewCustomerDto> request = getDummyNewCustomerRequest(100);
+
+        // Fire the same signup from many threads at once
+        ExecutorService executor = Executors.newFixedThreadPool(signups);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<HttpStatusCode>> futures = new ArrayList<>();
+        for (int i = 0; i < signups; i++)
+            futures.add(executor.submit(() -> {
+                start.await();
+                try {
+                    return this.restTemplate.postForEntity(getBaseUrl() + "/api/customers", request, String.class).getStatusCode();
+                } catch (HttpClientErrorException e) {
+                    return e.getStatusCode();
+                }
+            }));
+        start.countDown();
+
+        List<HttpStatusCode> statuses = new ArrayList<>();
+        for (Future<HttpStatusCode> future : futures)
+            statuses.add(future.get(1, TimeUnit.MINUTES));
+        executor.shutdown();
+
+        // Exactly one winner, every other signup is reported as a duplicate
+        assertThat(statuses).filteredOn(status -> status.equals(HttpStatus.OK)).hasSize(1);
+        assertThat(statuses).filteredOn(status -> status.equals(HttpStatus.BAD_REQUEST)).hasSize(signups - 1);
+
+        CustomerListDto[] customers = objectMapper.readValue(
+                this.restTemplate.getForEntity(getBaseUrl() + "/api/customers", String.class).getBody(), CustomerListDto[].class);
+        assertThat(customers).hasSize(1);
+    }
+
     @Test
     public void deleteCustomer_validCondition_ShouldBeSuccessful() throws JsonProcessingException {
         // First, create a customer with zero balance
@@ -149,4 +212,64 @@ public class CustomerIntegrationTests extends TestBase {
                 this.restTemplate.delete(getBaseUrl() + "/api/customers/1", new HashMap<String, String>()));
         assertEquals(response.getStatusCode(), HttpStatus.NOT_FOUND);
     }
+
+    @Test
+    public void importCustomers_NdjsonBody_ShouldStreamOneResultPerRecord() throws JsonProcessingException {
+        // An existing customer, whose phone number is imported again
+        this.restTemplate.postForEntity(getBaseUrl() + "/api/customers", getDummyNewCustomerRequest(10), String.class);
+
+        String body = objectMapper.writeValueAsString(new NewCustomerDto("first", REAL, "lastName", "+981", null, BigDecimal.TEN)) + "\n" +
+                objectMapper.writeValueAsString(getDummyNewCustomerRequest(10).getBody()) + "\n" +
+                objectMapper.writeValueAsString(new NewCustomerDto(null, REAL, "lastName", "+982", null, BigDecimal.TEN)) + "\n" +
+                objectMapper.writeValueAsString(new NewCustomerDto("again", LEGAL, null, "+981", "+9800", BigDecimal.ONE)) + "\n" +
+                objectMapper.writeValueAsString(new NewCustomerDto("second", LEGAL, null, "+983", "+9800", BigDecimal.ONE)) + "\n";
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_NDJSON);
+        ResponseEntity<String> importResult = this.restTemplate.postForEntity(getBaseUrl() + "/api/customers/import",
+                new HttpEntity<>(body, headers), String.class);
+        assertThat(importResult.getStatusCode()).isEqualTo(HttpStatusCode.valueOf(200));
+        assertThat(importResult.getHeaders().getContentType()).isEqualTo(MediaType.APPLICATION_NDJSON);
+
+        List<ImportResultDto> results = readImportResults(importResult.getBody());
+        assertThat(results).extracting(ImportResultDto::getIndex).containsExactly(0L, 1L, 2L, 3L, 4L);
+        assertThat(results).extracting(ImportResultDto::getOutcome)
+                .containsExactly(CREATED, DUPLICATE, INVALID, DUPLICATE, CREATED);
+        assertThat(results.get(0).getCustomerId()).isNotNull();
+        assertThat(results.get(1).getCustomerId()).isNull();
+
+        // The imported customers are persisted, with their opening balances
+        ResponseEntity<String> accounts = this.restTemplate.getForEntity(
+                getBaseUrl() + "/api/customers/" + results.get(4).getCustomerId() + "/accounts", String.class);
+        AccountDto[] accountDtos = objectMapper.readValue(accounts.getBody(), AccountDto[].class);
+        assertThat(accountDtos).extracting(AccountDto::getBalance).usingElementComparator(BigDecimal::compareTo)
+                .containsExactly(BigDecimal.ONE);
+    }
+
+    @Test
+    public void importCustomers_JsonArrayBody_ShouldImportAllRecords() throws JsonProcessingException {
+        List<NewCustomerDto> customers = new ArrayList<>();
+        for (int i = 0; i < 20; i++)
+            customers.add(new NewCustomerDto("test" + i, REAL, "lastName", "+98123" + i, null, BigDecimal.TEN));
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        ResponseEntity<String> importResult = this.restTemplate.postForEntity(getBaseUrl() + "/api/customers/import",
+                new HttpEntity<>(objectMapper.writeValueAsString(customers), headers), String.class);
+        assertThat(importResult.getStatusCode()).isEqualTo(HttpStatusCode.valueOf(200));
+
+        List<ImportResultDto> results = readImportResults(importResult.getBody());
+        assertThat(results).hasSize(20).allMatch(result -> result.getOutcome() == CREATED);
+
+        ResponseEntity<String> listResult = this.restTemplate.getForEntity(getBaseUrl() + "/api/customers?after=0&size=50", String.class);
+        assertThat(objectMapper.readValue(listResult.getBody(), CustomerListDto[].class)).hasSize(20);
+    }
+
+    private List<ImportResultDto> readImportResults(String body) throws JsonProcessingException {
+        List<ImportResultDto> results = new ArrayList<>();
+        for (String line : body.split("\n"))
+            results.add(objectMapper.readValue(line, ImportResultDto.class));
+
+        return results;
+    }
 }
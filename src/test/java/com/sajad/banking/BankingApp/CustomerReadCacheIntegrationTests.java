@@ -0,0 +1,104 @@
+package com.sajad.banking.BankingApp;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.sajad.banking.BankingApp.service.cache.CustomerReadCache;
+import com.sajad.banking.BankingApp.web.dto.account.AccountDto;
+import com.sajad.banking.BankingApp.web.dto.customer.CustomerDetailDto;
+import com.sajad.banking.BankingApp.web.dto.customer.NewCustomerDto;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.HashMap;
+
+import static com.sajad.banking.BankingApp.model.Customer.CustomerType.REAL;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Integration tests for the customer read cache: repeated reads skip the database, and no change to a customer's
+ * accounts is ever hidden behind a cached read.
+ *
+ * @author Sajad
+ */
+public class CustomerReadCacheIntegrationTests extends TestBase {
+
+    @Autowired
+    private CustomerReadCache customerReadCache;
+
+    @BeforeEach
+    public void createCustomers() {
+        this.restTemplate.postForEntity(getBaseUrl() + "/api/customers", getDummyNewCustomerRequest(100), String.class);
+        NewCustomerDto otherCustomerDto = new NewCustomerDto("other", REAL, "lastName", "+98456", null, BigDecimal.TEN);
+        this.restTemplate.postForEntity(getBaseUrl() + "/api/customers", new HttpEntity<>(otherCustomerDto, new HttpHeaders()), String.class);
+    }
+
+    @Test
+    public void repeatedReads_ShouldBeServedFromCache() {
+        this.restTemplate.getForEntity(getBaseUrl() + "/api/customers/1", String.class);
+        this.restTemplate.getForEntity(getBaseUrl() + "/api/customers/1/accounts", String.class);
+
+        int queries = countQueries(() -> {
+            this.restTemplate.getForEntity(getBaseUrl() + "/api/customers/1", String.class);
+            this.restTemplate.getForEntity(getBaseUrl() + "/api/customers/1/accounts", String.class);
+        });
+        assertThat(queries).isZero();
+        assertThat(customerReadCache.customerDetailStats().hitRate()).isEqualTo(0.5);
+        assertThat(customerReadCache.customerAccountsStats().hitRate()).isEqualTo(0.5);
+    }
+
+    @Test
+    public void mutations_ShouldInvalidateCachedReads() throws JsonProcessingException {
+        assertThat(getBalances(1)).containsExactly(100);
+        assertThat(getDetailBalances(1)).containsExactly(100);
+
+        this.restTemplate.put(getBaseUrl() + "/api/customers/1/deposit", getDummyDepositRequest(1, 50), String.class);
+        assertThat(getBalances(1)).containsExactly(150);
+        assertThat(getDetailBalances(1)).containsExactly(150);
+
+        this.restTemplate.put(getBaseUrl() + "/api/customers/1/withdraw", getDummyDepositRequest(1, 20), String.class);
+        assertThat(getBalances(1)).containsExactly(130);
+
+        this.restTemplate.postForEntity(getBaseUrl() + "/api/customers/1/accounts", getDummyNewAccountRequest(10), String.class);
+        assertThat(getBalances(1)).containsExactly(130, 10);
+        assertThat(getDetailBalances(1)).containsExactly(130, 10);
+
+        // A transfer into another customer's account invalidates both customers
+        assertThat(getBalances(2)).containsExactly(10);
+        this.restTemplate.put(getBaseUrl() + "/api/customers/1/transfer", getDummyTransferRequest(1, 2, 30), String.class);
+        assertThat(getBalances(1)).containsExactly(100, 10);
+        assertThat(getBalances(2)).containsExactly(40);
+
+        this.restTemplate.put(getBaseUrl() + "/api/customers/1/withdraw", getDummyDepositRequest(3, 10), String.class);
+        this.restTemplate.delete(getBaseUrl() + "/api/customers/1/accounts/3", new HashMap<String, String>());
+        assertThat(getBalances(1)).containsExactly(100);
+
+        // Deleted customers are gone from the detail read too
+        this.restTemplate.put(getBaseUrl() + "/api/customers/2/withdraw", getDummyDepositRequest(2, 40), String.class);
+        assertThat(getDetailBalances(2)).containsExactly(0);
+        this.restTemplate.delete(getBaseUrl() + "/api/customers/2", new HashMap<String, String>());
+        ResponseEntity<String> findResult = this.restTemplate.getForEntity(getBaseUrl() + "/api/customers/2", String.class);
+        assertThat(objectMapper.readValue(findResult.getBody(), CustomerDetailDto[].class)).isEmpty();
+    }
+
+    private int[] getBalances(int customerId) throws JsonProcessingException {
+        ResponseEntity<String> getResult = this.restTemplate.getForEntity(getBaseUrl() + "/api/customers/" + customerId + "/accounts", String.class);
+
+        return toBalances(objectMapper.readValue(getResult.getBody(), AccountDto[].class));
+    }
+
+    private int[] getDetailBalances(int customerId) throws JsonProcessingException {
+        ResponseEntity<String> findResult = this.restTemplate.getForEntity(getBaseUrl() + "/api/customers/" + customerId, String.class);
+        CustomerDetailDto customer = objectMapper.readValue(findResult.getBody(), CustomerDetailDto[].class)[0];
+
+        return toBalances(customer.getAccountsDetail().toArray(AccountDto[]::new));
+    }
+
+    private static int[] toBalances(AccountDto[] accounts) {
+        return Arrays.stream(accounts).mapToInt(account -> account.getBalance().intValueExact()).toArray();
+    }
+}
@@ -0,0 +1,97 @@
+package com.sajad.banking.BankingApp;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.sajad.banking.BankingApp.web.dto.account.TransactionDto;
+import com.sajad.banking.BankingApp.web.dto.customer.CustomerAccountExportDto;
+import com.sajad.banking.BankingApp.web.dto.customer.NewCustomerDto;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.sajad.banking.BankingApp.model.Customer.CustomerType.LEGAL;
+import static com.sajad.banking.BankingApp.model.LedgerEntry.EntryType.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Integration tests for the streaming exports of customers and account statements.
+ *
+ * @author Sajad
+ */
+public class ExportIntegrationTests extends TestBase {
+
+    @Test
+    public void exportCustomers_Csv_ShouldWriteOneRowPerAccount() {
+        this.restTemplate.postForEntity(getBaseUrl() + "/api/customers", getDummyNewCustomerRequest(100), String.class);
+        this.restTemplate.postForEntity(getBaseUrl() + "/api/customers/1/accounts", getDummyNewAccountRequest(10), String.class);
+        NewCustomerDto legalCustomer = new NewCustomerDto("Acme, \"Inc\"", LEGAL, null, "+98456", "+98789", BigDecimal.valueOf(5));
+        this.restTemplate.postForEntity(getBaseUrl() + "/api/customers", new HttpEntity<>(legalCustomer, new HttpHeaders()), String.class);
+        this.restTemplate.put(getBaseUrl() + "/api/customers/1/deposit", getDummyDepositRequest(2, 5), String.class);
+
+        ResponseEntity<String> response = this.restTemplate.getForEntity(getBaseUrl() + "/api/customers/export", String.class);
+
+        assertThat(response.getHeaders().getContentType().isCompatibleWith(MediaType.parseMediaType("text/csv"))).isTrue();
+        assertThat(response.getHeaders().getContentDisposition().getFilename()).isEqualTo("customers.csv");
+        assertThat(response.getBody().split("\n")).containsExactly(
+                "customer_id,type,name,last_name,phone_number,fax_number,account_id,currency,balance",
+                "1,REAL,test,lastName,+98123,,1,USD,100",
+                "1,REAL,test,lastName,+98123,,2,USD,15",
+                "2,LEGAL,\"Acme, \"\"Inc\"\"\",,+98456,+98789,3,USD,5");
+    }
+
+    @Test
+    public void exportCustomers_Ndjson_ShouldWriteOneValuePerLine() throws JsonProcessingException {
+        this.restTemplate.postForEntity(getBaseUrl() + "/api/customers", getDummyNewCustomerRequest(100), String.class);
+        this.restTemplate.postForEntity(getBaseUrl() + "/api/customers/1/accounts", getDummyNewAccountRequest(10), String.class);
+
+        String body = this.restTemplate.getForObject(getBaseUrl() + "/api/customers/export?format=NDJSON", String.class);
+
+        List<CustomerAccountExportDto> rows = new ArrayList<>();
+        for (String line : body.split("\n"))
+            rows.add(objectMapper.readValue(line, CustomerAccountExportDto.class));
+        assertThat(rows).extracting(CustomerAccountExportDto::getAccountId).containsExactly(1, 2);
+        assertThat(rows).extracting(CustomerAccountExportDto::getBalance).containsExactly(BigDecimal.valueOf(100), BigDecimal.valueOf(10));
+    }
+
+    @Test
+    public void exportAccountStatement_ShouldWriteTheWholeHistoryOldestFirst() throws JsonProcessingException {
+        this.restTemplate.postForEntity(getBaseUrl() + "/api/customers", getDummyNewCustomerRequest(100), String.class);
+        this.restTemplate.postForEntity(getBaseUrl() + "/api/customers/1/accounts", getDummyNewAccountRequest(10), String.class);
+        this.restTemplate.put(getBaseUrl() + "/api/customers/1/transfer", getDummyTransferRequest(1, 2, 30), String.class);
+        this.restTemplate.put(getBaseUrl() + "/api/customers/1/deposit", getDummyDepositRequest(1, 5), String.class);
+
+        String csv = this.restTemplate.getForObject(getBaseUrl() + "/api/customers/1/accounts/1/statement", String.class);
+        String[] lines = csv.split("\n");
+        assertThat(lines).hasSize(4);
+        assertThat(lines[2]).startsWith("2,TRANSFER_OUT,USD,-30,70,2,,");
+
+        String ndjson = this.restTemplate.getForObject(getBaseUrl() + "/api/customers/1/accounts/1/statement?format=NDJSON", String.class);
+        List<TransactionDto> transactions = new ArrayList<>();
+        for (String line : ndjson.split("\n"))
+            transactions.add(objectMapper.readValue(line, TransactionDto.class));
+        assertThat(transactions).extracting(TransactionDto::getType).containsExactly(OPENING, TRANSFER_OUT, DEPOSIT);
+        assertThat(transactions.get(2).getBalance()).isEqualByComparingTo("75");
+    }
+
+    @Test
+    public void exportAccountStatement_OtherCustomersAccount_ShouldReturnNotFound() {
+        this.restTemplate.postForEntity(getBaseUrl() + "/api/customers", getDummyNewCustomerRequest(100), String.class);
+        NewCustomerDto otherCustomer = new NewCustomerDto("other", LEGAL, null, "+98456", "+98789", BigDecimal.valueOf(5));
+        this.restTemplate.postForEntity(getBaseUrl() + "/api/customers", new HttpEntity<>(otherCustomer, new HttpHeaders()), String.class);
+
+        HttpClientErrorException.NotFound response = assertThrows(HttpClientErrorException.NotFound.class, () ->
+                this.restTemplate.getForEntity(getBaseUrl() + "/api/customers/1/accounts/2/statement", String.class));
+        assertEquals(response.getStatusCode(), HttpStatus.NOT_FOUND);
+        assertThrows(HttpClientErrorException.NotFound.class, () ->
+                this.restTemplate.getForEntity(getBaseUrl() + "/api/customers/3/accounts/1/statement", String.class));
+    }
+}
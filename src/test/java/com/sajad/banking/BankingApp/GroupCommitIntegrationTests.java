@@ -0,0 +1,123 @@
+package com.sajad.banking.BankingApp;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.sajad.banking.BankingApp.exception.account.AccountNotFoundException;
+import com.sajad.banking.BankingApp.exception.account.BalanceNotEnoughException;
+import com.sajad.banking.BankingApp.service.groupcommit.GroupCommitCoordinator;
+import com.sajad.banking.BankingApp.web.dto.account.AccountDto;
+import com.sajad.banking.BankingApp.web.dto.account.TransactionDto;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static com.sajad.banking.BankingApp.model.LedgerEntry.EntryType.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Integration tests for the group commit mode: concurrent deposits and withdrawals committed together, each caller
+ * getting its own outcome.
+ * <p>
+ * The window is widened, so the movements of a test reliably end up in the same batch.
+ *
+ * @author Sajad
+ */
+@TestPropertySource(properties = {"banking.group-commit.enabled=true", "banking.group-commit.window=PT0.2S"})
+public class GroupCommitIntegrationTests extends TestBase {
+
+    private static final int THREADS = 8;
+
+    private static final int DEPOSITS_PER_THREAD = 25;
+
+    @Autowired
+    private GroupCommitCoordinator groupCommitCoordinator;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    public void movements_ShouldBeCommittedWithTheSameResponses() throws JsonProcessingException {
+        this.restTemplate.postForEntity(getBaseUrl() + "/api/customers", getDummyNewCustomerRequest(100), String.class);
+
+        this.restTemplate.put(getBaseUrl() + "/api/customers/1/deposit", getDummyDepositRequest(1, 20), String.class);
+        this.restTemplate.put(getBaseUrl() + "/api/customers/1/withdraw", getDummyDepositRequest(1, 50), String.class);
+
+        HttpClientErrorException.BadRequest errorResponse = assertThrows(HttpClientErrorException.BadRequest.class, () ->
+                this.restTemplate.put(getBaseUrl() + "/api/customers/1/withdraw", getDummyDepositRequest(1, 71), String.class));
+        assertEquals("400 : \"Balance is not enough for this transaction!\"", errorResponse.getMessage());
+
+        assertThat(balance()).isEqualByComparingTo(BigDecimal.valueOf(70));
+        assertThat(transactions()).extracting(TransactionDto::getType).containsExactly(WITHDRAW, DEPOSIT, OPENING);
+    }
+
+    @Test
+    public void batch_RejectedMovements_ShouldFailOnTheirOwn() throws JsonProcessingException {
+        this.restTemplate.postForEntity(getBaseUrl() + "/api/customers", getDummyNewCustomerRequest(100), String.class);
+
+        CompletableFuture<Void> deposit = groupCommitCoordinator.deposit(1, 1, BigDecimal.TEN);
+        CompletableFuture<Void> overdraft = groupCommitCoordinator.withdraw(1, 1, new BigDecimal("1000"));
+        CompletableFuture<Void> unknownAccount = groupCommitCoordinator.deposit(1, 99, BigDecimal.TEN);
+        CompletableFuture<Void> withdrawal = groupCommitCoordinator.withdraw(1, 1, new BigDecimal("5"));
+
+        deposit.join();
+        withdrawal.join();
+        assertThat(overdraft).failsWithin(10, TimeUnit.SECONDS).withThrowableOfType(ExecutionException.class)
+                .withCauseInstanceOf(BalanceNotEnoughException.class);
+        assertThat(unknownAccount).failsWithin(10, TimeUnit.SECONDS).withThrowableOfType(ExecutionException.class)
+                .withCauseInstanceOf(AccountNotFoundException.class);
+
+        // All four in one batch, the rejected ones left no trace
+        assertThat(meterRegistry.get("banking.group-commit.batch.size").summary().max()).isEqualTo(4);
+        assertThat(balance()).isEqualByComparingTo(BigDecimal.valueOf(105));
+        assertThat(transactions()).extracting(TransactionDto::getType).containsExactly(WITHDRAW, DEPOSIT, OPENING);
+    }
+
+    @Test
+    public void deposit_Concurrently_ShouldLoseNoUpdate() throws Exception {
+        this.restTemplate.postForEntity(getBaseUrl() + "/api/customers", getDummyNewCustomerRequest(100), String.class);
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int j = 0; j < DEPOSITS_PER_THREAD; j++)
+                    this.restTemplate.put(getBaseUrl() + "/api/customers/1/deposit", getDummyDepositRequest(1, 1), String.class);
+                return null;
+            }));
+        }
+
+        start.countDown();
+        for (Future<?> future : futures)
+            future.get(2, TimeUnit.MINUTES);
+        executor.shutdown();
+
+        int deposits = THREADS * DEPOSITS_PER_THREAD;
+        assertThat(balance()).isEqualByComparingTo(BigDecimal.valueOf(100 + deposits));
+        TransactionDto latest = transactions().get(0);
+        assertThat(latest.getSequenceNumber()).isEqualTo(1L + deposits);
+        assertThat(latest.getBalance()).isEqualByComparingTo(BigDecimal.valueOf(100 + deposits));
+        assertThat(meterRegistry.get("banking.group-commit.batch.size").summary().max()).isGreaterThan(1);
+    }
+
+    private BigDecimal balance() throws JsonProcessingException {
+        AccountDto[] accounts = objectMapper.readValue(
+                this.restTemplate.getForObject(getBaseUrl() + "/api/customers/1/accounts", String.class), AccountDto[].class);
+
+        return accounts[0].getBalance();
+    }
+
+    private List<TransactionDto> transactions() throws JsonProcessingException {
+        return List.of(objectMapper.readValue(this.restTemplate.getForObject(
+                getBaseUrl() + "/api/customers/1/accounts/1/transactions", String.class), TransactionDto[].class));
+    }
+}
@@ -0,0 +1,171 @@
+package com.sajad.banking.BankingApp;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.sajad.banking.BankingApp.service.CustomerService;
+import com.sajad.banking.BankingApp.service.idempotency.IdempotencyService;
+import com.sajad.banking.BankingApp.web.dto.account.AccountDto;
+import com.sajad.banking.BankingApp.web.dto.account.DepositDto;
+import com.sajad.banking.BankingApp.web.dto.account.TransactionDto;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.*;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static com.sajad.banking.BankingApp.model.LedgerEntry.EntryType.DEPOSIT;
+import static com.sajad.banking.BankingApp.model.LedgerEntry.EntryType.OPENING;
+import static com.sajad.banking.BankingApp.web.idempotency.IdempotencyFilter.IDEMPOTENCY_KEY_HEADER;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Integration tests for retries of the money movement endpoints with an {@value
+ * com.sajad.banking.BankingApp.web.idempotency.IdempotencyFilter#IDEMPOTENCY_KEY_HEADER} header.
+ *
+ * @author Sajad
+ */
+@Import(IdempotencyIntegrationTests.FailingDepositController.class)
+public class IdempotencyIntegrationTests extends TestBase {
+
+    private static final int RETRIES = 100;
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Test
+    public void deposit_RetriedWithSameKey_ShouldApplyOnce() throws JsonProcessingException {
+        this.restTemplate.postForEntity(getBaseUrl() + "/api/customers", getDummyNewCustomerRequest(100), String.class);
+
+        ResponseEntity<String> first = deposit("key-1", 10);
+        ResponseEntity<String> retry = deposit("key-1", 10);
+        assertThat(retry.getStatusCode()).isEqualTo(first.getStatusCode());
+        assertThat(retry.getBody()).isEqualTo(first.getBody());
+
+        // The retry was answered from the cache
+        assertThat(idempotencyService.cacheStats().hitCount()).isEqualTo(1);
+
+        assertThat(getBalance()).isEqualByComparingTo(BigDecimal.valueOf(110));
+        ResponseEntity<String> transactionsResult = this.restTemplate.getForEntity(getBaseUrl() + "/api/customers/1/accounts/1/transactions", String.class);
+        TransactionDto[] transactions = objectMapper.readValue(transactionsResult.getBody(), TransactionDto[].class);
+        assertThat(transactions).extracting(TransactionDto::getType).containsExactly(DEPOSIT, OPENING);
+    }
+
+    @Test
+    public void deposit_SameKeyForAnotherRequest_ShouldReturnError() {
+        this.restTemplate.postForEntity(getBaseUrl() + "/api/customers", getDummyNewCustomerRequest(100), String.class);
+        deposit("key-1", 10);
+
+        HttpClientErrorException.UnprocessableEntity response = assertThrows(HttpClientErrorException.UnprocessableEntity.class,
+                () -> deposit("key-1", 20));
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.UNPROCESSABLE_ENTITY);
+    }
+
+    @Test
+    public void withdraw_FailedRequest_ShouldReleaseKey() throws JsonProcessingException {
+        this.restTemplate.postForEntity(getBaseUrl() + "/api/customers", getDummyNewCustomerRequest(100), String.class);
+
+        HttpEntity<DepositDto> withdrawRequest = withKey("key-1", getDummyDepositRequest(1, 150));
+        assertThrows(HttpClientErrorException.BadRequest.class, () ->
+                this.restTemplate.exchange(getBaseUrl() + "/api/customers/1/withdraw", HttpMethod.PUT, withdrawRequest, String.class));
+
+        // Once the balance covers it, the retry really executes
+        this.restTemplate.put(getBaseUrl() + "/api/customers/1/deposit", getDummyDepositRequest(1, 50), String.class);
+        ResponseEntity<String> retry = this.restTemplate.exchange(getBaseUrl() + "/api/customers/1/withdraw", HttpMethod.PUT,
+                withdrawRequest, String.class);
+        assertThat(retry.getStatusCode()).isEqualTo(HttpStatusCode.valueOf(200));
+        assertThat(getBalance()).isEqualByComparingTo(BigDecimal.ZERO);
+    }
+
+    @Test
+    public void deposit_UnhandledException_ShouldReleaseKey() throws JsonProcessingException {
+        this.restTemplate.postForEntity(getBaseUrl() + "/api/customers", getDummyNewCustomerRequest(100), String.class);
+
+        HttpEntity<DepositDto> depositRequest = withKey("key-1", getDummyDepositRequest(1, 10));
+        for (int attempt = 1; attempt <= 2; attempt++) {
+            // Not answered with a stored success, the retry executes again
+            assertThrows(HttpServerErrorException.InternalServerError.class, () -> this.restTemplate.exchange(
+                    getBaseUrl() + "/api/customers/1/failing-deposit", HttpMethod.PUT, depositRequest, String.class));
+        }
+
+        assertThat(getBalance()).isEqualByComparingTo(BigDecimal.valueOf(100));
+        assertThat(idempotencyService.findResponse("key-1")).isNull();
+    }
+
+    @Test
+    public void deposit_ConcurrentRetriesWithSameKey_ShouldApplyOnce() throws Exception {
+        this.restTemplate.postForEntity(getBaseUrl() + "/api/customers", getDummyNewCustomerRequest(100), String.class);
+
+        ExecutorService executor = Executors.newFixedThreadPool(RETRIES);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<HttpStatusCode>> futures = new ArrayList<>();
+        for (int i = 0; i < RETRIES; i++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                try {
+                    return deposit("key-1", 10).getStatusCode();
+                } catch (HttpClientErrorException e) {
+                    return e.getStatusCode();
+                }
+            }));
+        }
+
+        start.countDown();
+        List<HttpStatusCode> statuses = new ArrayList<>();
+        for (Future<HttpStatusCode> future : futures)
+            statuses.add(future.get(1, TimeUnit.MINUTES));
+        executor.shutdown();
+
+        // Every retry either got the stored response, or was told the first request is still in progress
+        assertThat(statuses).containsOnly(HttpStatus.OK, HttpStatus.CONFLICT).contains(HttpStatus.OK);
+        assertThat(getBalance()).isEqualByComparingTo(BigDecimal.valueOf(110));
+    }
+
+    /**
+     * A deposit failing after the money moved, with an exception no handler answers, which rolls it back.
+     */
+    @RestController
+    static class FailingDepositController {
+
+        private final CustomerService customerService;
+
+        FailingDepositController(CustomerService customerService) {
+            this.customerService = customerService;
+        }
+
+        @PutMapping("/api/customers/{id}/failing-deposit")
+        @Transactional
+        public String failingDeposit(@PathVariable("id") Integer customerId, @RequestBody DepositDto depositDto) throws Exception {
+            customerService.deposit(customerId, depositDto.getAccountId(), depositDto.getAmount());
+            throw new IllegalStateException("Failed after the deposit");
+        }
+    }
+
+    private ResponseEntity<String> deposit(String key, int amount) {
+        return this.restTemplate.exchange(getBaseUrl() + "/api/customers/1/deposit", HttpMethod.PUT,
+                withKey(key, getDummyDepositRequest(1, amount)), String.class);
+    }
+
+    private static <T> HttpEntity<T> withKey(String key, HttpEntity<T> request) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(IDEMPOTENCY_KEY_HEADER, key);
+
+        return new HttpEntity<>(request.getBody(), headers);
+    }
+
+    private BigDecimal getBalance() throws JsonProcessingException {
+        ResponseEntity<String> getResult = this.restTemplate.getForEntity(getBaseUrl() + "/api/customers/1/accounts", String.class);
+
+        return objectMapper.readValue(getResult.getBody(), AccountDto[].class)[0].getBalance();
+    }
+}
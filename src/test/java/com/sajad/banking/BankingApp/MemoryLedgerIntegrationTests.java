@@ -0,0 +1,155 @@
+package com.sajad.banking.BankingApp;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.sajad.banking.BankingApp.model.LedgerEntry.EntryType;
+import com.sajad.banking.BankingApp.repository.account.AccountRepository;
+import com.sajad.banking.BankingApp.service.ledger.MemoryLedger;
+import com.sajad.banking.BankingApp.web.dto.account.AccountDto;
+import com.sajad.banking.BankingApp.web.dto.account.BatchTransferDto;
+import com.sajad.banking.BankingApp.web.dto.account.TransactionDto;
+import com.sajad.banking.BankingApp.web.dto.account.TransferResultDto;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static com.sajad.banking.BankingApp.model.LedgerEntry.EntryType.*;
+import static com.sajad.banking.BankingApp.service.transfer.BatchTransferMode.ALL_OR_NOTHING;
+import static com.sajad.banking.BankingApp.service.transfer.BatchTransferMode.BEST_EFFORT;
+import static com.sajad.banking.BankingApp.service.transfer.TransferOutcome.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Integration tests for the memory ledger mode: money movements served from memory and synced into the database in
+ * the background.
+ *
+ * @author Sajad
+ */
+public class MemoryLedgerIntegrationTests extends TestBase {
+
+    @Autowired
+    private MemoryLedger memoryLedger;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @DynamicPropertySource
+    static void memoryLedgerProperties(DynamicPropertyRegistry registry) {
+        registry.add("banking.ledger.memory.enabled", () -> true);
+        // Every test gets a fresh context, and a fresh database; the ledger directory has to be fresh too
+        registry.add("banking.ledger.memory.directory", MemoryLedgerIntegrationTests::createDirectory);
+        registry.add("banking.ledger.memory.segment-size", () -> 1 << 16);
+    }
+
+    @Test
+    public void movements_ShouldShowRightAwayAndReachTheDatabase() throws JsonProcessingException {
+        this.restTemplate.postForEntity(getBaseUrl() + "/api/customers", getDummyNewCustomerRequest(100), String.class);
+        this.restTemplate.postForEntity(getBaseUrl() + "/api/customers/1/accounts", getDummyNewAccountRequest(10), String.class);
+
+        this.restTemplate.put(getBaseUrl() + "/api/customers/1/transfer", getDummyTransferRequest(1, 2, 30), String.class);
+        this.restTemplate.put(getBaseUrl() + "/api/customers/1/deposit", getDummyDepositRequest(1, 5), String.class);
+        this.restTemplate.put(getBaseUrl() + "/api/customers/1/withdraw", getDummyDepositRequest(2, 20), String.class);
+
+        assertThat(balances()).containsExactly(BigDecimal.valueOf(75), BigDecimal.valueOf(20));
+
+        memoryLedger.awaitSynced(memoryLedger.lastLsn());
+        assertThat(accountRepository.findById(1).orElseThrow().getBalance().toBigDecimal()).isEqualByComparingTo("75");
+        assertThat(accountRepository.findById(2).orElseThrow().getBalance().toBigDecimal()).isEqualByComparingTo("20");
+        assertThat(transactionTypes(1)).containsExactly(DEPOSIT, TRANSFER_OUT, OPENING);
+        assertThat(transactionTypes(2)).containsExactly(WITHDRAW, TRANSFER_IN, OPENING);
+    }
+
+    @Test
+    public void movements_Rejected_ShouldReturnTheSameErrors() {
+        this.restTemplate.postForEntity(getBaseUrl() + "/api/customers", getDummyNewCustomerRequest(100), String.class);
+
+        HttpClientErrorException.BadRequest errorResponse = assertThrows(HttpClientErrorException.BadRequest.class, () ->
+                this.restTemplate.put(getBaseUrl() + "/api/customers/1/withdraw", getDummyDepositRequest(1, 101), String.class));
+        assertEquals("400 : \"Balance is not enough for this transaction!\"", errorResponse.getMessage());
+
+        HttpClientErrorException.NotFound response = assertThrows(HttpClientErrorException.NotFound.class, () ->
+                this.restTemplate.put(getBaseUrl() + "/api/customers/1/deposit", getDummyDepositRequest(2, 10), String.class));
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+
+        response = assertThrows(HttpClientErrorException.NotFound.class, () ->
+                this.restTemplate.put(getBaseUrl() + "/api/customers/2/transfer", getDummyTransferRequest(1, 2, 10), String.class));
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+    }
+
+    @Test
+    public void batchTransfer_ShouldApplyOrRollBackAsAWhole() throws JsonProcessingException {
+        this.restTemplate.postForEntity(getBaseUrl() + "/api/customers", getDummyNewCustomerRequest(100), String.class);
+        this.restTemplate.postForEntity(getBaseUrl() + "/api/customers/1/accounts", getDummyNewAccountRequest(1000), String.class);
+
+        HttpEntity<BatchTransferDto> request = getDummyBatchTransferRequest(ALL_OR_NOTHING, getDummyTransferRequest(1, 2, 60),
+                getDummyTransferRequest(1, 2, 60));
+        HttpClientErrorException.BadRequest errorResponse = assertThrows(HttpClientErrorException.BadRequest.class, () ->
+                this.restTemplate.exchange(getBaseUrl() + "/api/customers/1/transfers", HttpMethod.PUT, request, String.class));
+        assertThat(objectMapper.readValue(errorResponse.getResponseBodyAsString(), TransferResultDto[].class))
+                .extracting(TransferResultDto::getOutcome).containsExactly(ROLLED_BACK, BALANCE_NOT_ENOUGH);
+        assertThat(balances()).containsExactly(BigDecimal.valueOf(100), BigDecimal.valueOf(1000));
+
+        String result = this.restTemplate.exchange(getBaseUrl() + "/api/customers/1/transfers", HttpMethod.PUT,
+                getDummyBatchTransferRequest(BEST_EFFORT, getDummyTransferRequest(1, 2, 60), getDummyTransferRequest(1, 2, 60),
+                        getDummyTransferRequest(2, 3, 10), getDummyTransferRequest(2, 1, 500)), String.class).getBody();
+        assertThat(objectMapper.readValue(result, TransferResultDto[].class)).extracting(TransferResultDto::getOutcome)
+                .containsExactly(SUCCESSFUL, BALANCE_NOT_ENOUGH, ACCOUNT_NOT_FOUND, SUCCESSFUL);
+        assertThat(balances()).containsExactly(BigDecimal.valueOf(540), BigDecimal.valueOf(560));
+
+        memoryLedger.awaitSynced(memoryLedger.lastLsn());
+        assertThat(transactionTypes(2)).containsExactly(TRANSFER_OUT, TRANSFER_IN, OPENING);
+    }
+
+    @Test
+    public void deleteAccount_AfterMovements_ShouldSeeTheSyncedBalance() throws JsonProcessingException {
+        this.restTemplate.postForEntity(getBaseUrl() + "/api/customers", getDummyNewCustomerRequest(100), String.class);
+        this.restTemplate.postForEntity(getBaseUrl() + "/api/customers/1/accounts", getDummyNewAccountRequest(10), String.class);
+        this.restTemplate.put(getBaseUrl() + "/api/customers/1/transfer", getDummyTransferRequest(2, 1, 10), String.class);
+
+        // The database only knows about the empty balance once the transfer is synced
+        this.restTemplate.delete(getBaseUrl() + "/api/customers/1/accounts/2");
+        assertThat(balances()).containsExactly(BigDecimal.valueOf(110));
+
+        HttpClientErrorException.NotFound response = assertThrows(HttpClientErrorException.NotFound.class, () ->
+                this.restTemplate.put(getBaseUrl() + "/api/customers/1/deposit", getDummyDepositRequest(2, 10), String.class));
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+    }
+
+    private List<BigDecimal> balances() throws JsonProcessingException {
+        AccountDto[] accounts = objectMapper.readValue(
+                this.restTemplate.getForObject(getBaseUrl() + "/api/customers/1/accounts", String.class), AccountDto[].class);
+
+        return List.of(accounts).stream().map(AccountDto::getBalance).toList();
+    }
+
+    private List<EntryType> transactionTypes(int accountId) throws JsonProcessingException {
+        TransactionDto[] transactions = objectMapper.readValue(this.restTemplate.getForObject(
+                getBaseUrl() + "/api/customers/1/accounts/" + accountId + "/transactions", String.class), TransactionDto[].class);
+
+        return List.of(transactions).stream().map(TransactionDto::getType).toList();
+    }
+
+    private static String createDirectory() {
+        try {
+            Path directory = Files.createTempDirectory("memory-ledger");
+            directory.toFile().deleteOnExit();
+
+            return directory.toString();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.sajad.banking.BankingApp;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.web.client.HttpClientErrorException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Integration tests for the operation and lock metrics, and their Prometheus endpoint.
+ *
+ * @author Sajad
+ */
+@AutoConfigureObservability
+public class MetricsIntegrationTests extends TestBase {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    public void createCustomer() {
+        this.restTemplate.postForEntity(getBaseUrl() + "/api/customers", getDummyNewCustomerRequest(100), String.class);
+        this.restTemplate.postForEntity(getBaseUrl() + "/api/customers/1/accounts", getDummyNewAccountRequest(10), String.class);
+    }
+
+    @Test
+    public void transfers_ShouldBeTimedAndErrorsCounted() {
+        this.restTemplate.put(getBaseUrl() + "/api/customers/1/transfer", getDummyTransferRequest(1, 2, 30), String.class);
+        assertThrows(HttpClientErrorException.class, () ->
+                this.restTemplate.put(getBaseUrl() + "/api/customers/1/transfer", getDummyTransferRequest(1, 2, 1000), String.class));
+
+        assertThat(meterRegistry.get("banking.operation").tags("operation", "transfer", "outcome", "success").timer().count())
+                .isEqualTo(1);
+        assertThat(meterRegistry.get("banking.operation").tags("operation", "transfer", "outcome", "error").timer().count())
+                .isEqualTo(1);
+        assertThat(meterRegistry.get("banking.operation.errors")
+                .tags("operation", "transfer", "exception", "BalanceNotEnoughException").counter().count())
+                .isEqualTo(1);
+
+        // Both transfers locked their accounts
+        assertThat(meterRegistry.get("banking.lock.wait").tags("query", "findByIdInOrderByIdAsc", "outcome", "acquired")
+                .timer().count()).isEqualTo(2);
+
+        assertThat(meterRegistry.get("banking.transfer.amount").summary().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("banking.transfer.amount").summary().totalAmount()).isEqualTo(30);
+    }
+
+    @Test
+    public void prometheusEndpoint_ShouldExposeOperationAndCacheMetrics() {
+        this.restTemplate.getForEntity(getBaseUrl() + "/api/customers/1", String.class);
+
+        String scrape = this.restTemplate.getForObject(getBaseUrl() + "/actuator/prometheus", String.class);
+
+        assertThat(scrape).contains("banking_operation_seconds_bucket{");
+        assertThat(scrape).contains("operation=\"findCustomer\"");
+        assertThat(scrape).contains("cache_gets_total{cache=\"customer-detail\"");
+        assertThat(scrape).contains("cache_gets_total{cache=\"idempotency-responses\"");
+    }
+}
@@ -0,0 +1,63 @@
+package com.sajad.banking.BankingApp;
+
+import com.sajad.banking.BankingApp.model.money.MoneyColumnsMigration;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import java.sql.SQLException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for the migration of databases with decimal money columns, against a database of the old shape.
+ *
+ * @author Sajad
+ */
+public class MoneyColumnsMigrationTests {
+
+    @Test
+    public void decimalColumns_ShouldBeMigratedToMinorUnitsOnce() throws SQLException {
+        SingleConnectionDataSource dataSource = new SingleConnectionDataSource("jdbc:h2:mem:money_migration;MODE=Oracle", true);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("create table account (id integer primary key, balance numeric(38,2))");
+        jdbcTemplate.execute("create table account_shard (id bigint primary key, balance numeric(38,2) not null)");
+        jdbcTemplate.execute("create table ledger_entry (id bigint primary key, amount numeric(38,2) not null, balance numeric(38,2) not null)");
+        jdbcTemplate.update("insert into account values (1, 12.34)");
+        jdbcTemplate.update("insert into account_shard values (1, 0.5)");
+        jdbcTemplate.update("insert into ledger_entry values (1, -7.01, 12.34)");
+
+        MoneyColumnsMigration migration = new MoneyColumnsMigration(dataSource);
+        migration.afterPropertiesSet();
+        // Already migrated, nothing to do
+        migration.afterPropertiesSet();
+
+        assertThat(jdbcTemplate.queryForObject("select balance from account", Long.class)).isEqualTo(1234);
+        assertThat(jdbcTemplate.queryForObject("select balance from account_shard", Long.class)).isEqualTo(50);
+        assertThat(jdbcTemplate.queryForObject("select amount from ledger_entry", Long.class)).isEqualTo(-701);
+        assertThat(jdbcTemplate.queryForObject("select balance from ledger_entry", Long.class)).isEqualTo(1234);
+        assertThat(jdbcTemplate.queryForObject("select numeric_scale from information_schema.columns " +
+                "where table_name = 'LEDGER_ENTRY' and column_name = 'AMOUNT'", Integer.class)).isZero();
+
+        dataSource.destroy();
+    }
+
+    @Test
+    public void migrationInterruptedAfterTheDrop_ShouldBeFinished() throws SQLException {
+        SingleConnectionDataSource dataSource = new SingleConnectionDataSource("jdbc:h2:mem:money_migration_interrupted;MODE=Oracle", true);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        // The decimal balance column is already gone, its minor units are waiting under the temporary name
+        jdbcTemplate.execute("create table account (id integer primary key, balance_minor numeric(19))");
+        jdbcTemplate.execute("create table account_shard (id bigint primary key, balance numeric(19) not null)");
+        jdbcTemplate.execute("create table ledger_entry (id bigint primary key, amount numeric(19) not null, balance numeric(19) not null)");
+        jdbcTemplate.update("insert into account values (1, 1234)");
+
+        new MoneyColumnsMigration(dataSource).afterPropertiesSet();
+
+        assertThat(jdbcTemplate.queryForObject("select balance from account", Long.class)).isEqualTo(1234);
+        assertThat(jdbcTemplate.queryForObject("select count(*) from information_schema.columns " +
+                "where table_name = 'ACCOUNT' and column_name = 'BALANCE_MINOR'", Integer.class)).isZero();
+
+        dataSource.destroy();
+    }
+}
@@ -0,0 +1,176 @@
+package com.sajad.banking.BankingApp;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.sajad.banking.BankingApp.model.Account;
+import com.sajad.banking.BankingApp.model.money.Money;
+import com.sajad.banking.BankingApp.repository.account.AccountRepository;
+import com.sajad.banking.BankingApp.service.CustomerService;
+import com.sajad.banking.BankingApp.service.retry.LockingMode;
+import com.sajad.banking.BankingApp.service.retry.LockingPolicy;
+import com.sajad.banking.BankingApp.web.dto.account.AccountDto;
+import com.sajad.banking.BankingApp.web.dto.account.AccountShardsDto;
+import com.sajad.banking.BankingApp.web.dto.account.TransactionDto;
+import com.sajad.banking.BankingApp.web.dto.account.TransferDto;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.client.HttpStatusCodeException;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+
+import static com.sajad.banking.BankingApp.model.LedgerEntry.EntryType.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Integration tests for the optimistic locking mode: transfers reading the accounts without locks and checking their
+ * version on write.
+ *
+ * @author Sajad
+ */
+@TestPropertySource(properties = "banking.lock.mode=OPTIMISTIC")
+public class OptimisticLockingIntegrationTests extends TestBase {
+
+    private static final Logger logger = LoggerFactory.getLogger(OptimisticLockingIntegrationTests.class);
+
+    private static final int THREADS = 8;
+
+    private static final int TRANSFERS_PER_THREAD = 25;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private CustomerService customerService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    public void transfer_ShouldBumpTheVersions() throws JsonProcessingException {
+        this.restTemplate.postForEntity(getBaseUrl() + "/api/customers", getDummyNewCustomerRequest(100), String.class);
+        this.restTemplate.postForEntity(getBaseUrl() + "/api/customers/1/accounts", getDummyNewAccountRequest(10), String.class);
+        long[] versions = versions(1, 2);
+
+        this.restTemplate.put(getBaseUrl() + "/api/customers/1/transfer", getDummyTransferRequest(1, 2, 30), String.class);
+
+        assertThat(balances()).containsExactly(BigDecimal.valueOf(70), BigDecimal.valueOf(40));
+        assertThat(versions(1, 2)).containsExactly(versions[0] + 1, versions[1] + 1);
+        assertThat(transactions(2)).extracting(TransactionDto::getType).containsExactly(TRANSFER_IN, OPENING);
+    }
+
+    @Test
+    public void conditionalUpdate_ShouldConflictWithAnOptimisticRead() {
+        this.restTemplate.postForEntity(getBaseUrl() + "/api/customers", getDummyNewCustomerRequest(100), String.class);
+
+        // A deposit lands between the optimistic read and the write back
+        assertThrows(OptimisticLockingFailureException.class, () -> transactionTemplate.executeWithoutResult(status -> {
+            Account account = accountRepository.findUnlockedByIdIn(List.of(1)).get(0);
+            CompletableFuture.runAsync(() -> {
+                try {
+                    customerService.deposit(1, 1, BigDecimal.TEN);
+                } catch (Exception e) {
+                    throw new CompletionException(e);
+                }
+            }).join();
+
+            account.deposit(Money.of(BigDecimal.ONE, account.getCurrency()));
+            accountRepository.flush();
+        }));
+
+        assertThat(accountRepository.findAccountBalancesByCustomerId(1).get(0).getBalance()).isEqualTo(11000);
+    }
+
+    @Test
+    public void transfer_FromShardedAccount_ShouldCollectUnderTheLock() throws JsonProcessingException {
+        this.restTemplate.postForEntity(getBaseUrl() + "/api/customers", getDummyNewCustomerRequest(100), String.class);
+        this.restTemplate.postForEntity(getBaseUrl() + "/api/customers/1/accounts", getDummyNewAccountRequest(10), String.class);
+        AccountShardsDto accountShardsDto = new AccountShardsDto();
+        accountShardsDto.setShards(4);
+        this.restTemplate.put(getBaseUrl() + "/api/customers/1/accounts/1/shards", new HttpEntity<>(accountShardsDto, new HttpHeaders()), String.class);
+        this.restTemplate.put(getBaseUrl() + "/api/customers/1/deposit", getDummyDepositRequest(1, 50), String.class);
+
+        this.restTemplate.put(getBaseUrl() + "/api/customers/1/transfer", getDummyTransferRequest(1, 2, 120), String.class);
+
+        assertThat(balances()).containsExactly(BigDecimal.valueOf(30), BigDecimal.valueOf(130));
+        assertThat(transactions(1)).extracting(TransactionDto::getType).containsExactly(TRANSFER_OUT, DEPOSIT, OPENING);
+    }
+
+    @Test
+    public void transfer_OppositeDirectionsConcurrently_ShouldRetryConflicts() throws Exception {
+        this.restTemplate.postForEntity(getBaseUrl() + "/api/customers", getDummyNewCustomerRequest(10000), String.class);
+        this.restTemplate.postForEntity(getBaseUrl() + "/api/customers/1/accounts", getDummyNewAccountRequest(10000), String.class);
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> futures = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            HttpEntity<TransferDto> request = i % 2 == 0 ? getDummyTransferRequest(1, 2, 1) : getDummyTransferRequest(2, 1, 1);
+            futures.add(executor.submit(() -> {
+                start.await();
+                int successful = 0;
+                for (int j = 0; j < TRANSFERS_PER_THREAD; j++) {
+                    try {
+                        this.restTemplate.put(getBaseUrl() + "/api/customers/1/transfer", request, String.class);
+                        successful++;
+                    } catch (HttpStatusCodeException e) {
+                        logger.warn("Transfer failed: {}", e.getMessage());
+                    }
+                }
+                return successful;
+            }));
+        }
+
+        start.countDown();
+        int successful = 0;
+        for (Future<Integer> future : futures)
+            successful += future.get(2, TimeUnit.MINUTES);
+        executor.shutdown();
+
+        // No lost update: the money is all there, and every successful transfer has its entries with the right balance
+        assertThat(successful).isEqualTo(THREADS * TRANSFERS_PER_THREAD);
+        assertThat(balances()).containsExactly(BigDecimal.valueOf(10000), BigDecimal.valueOf(10000));
+        for (int accountId = 1; accountId <= 2; accountId++) {
+            TransactionDto latest = transactions(accountId).get(0);
+            assertThat(latest.getSequenceNumber()).isEqualTo(1L + successful);
+            assertThat(latest.getBalance()).isEqualByComparingTo(BigDecimal.valueOf(10000));
+        }
+    }
+
+    @Test
+    public void lockingPolicy_HotAccounts_ShouldStayPessimistic() {
+        LockingPolicy lockingPolicy = new LockingPolicy(LockingMode.OPTIMISTIC, LockingMode.PESSIMISTIC, Set.of(1));
+
+        assertThat(lockingPolicy.isOptimisticTransfer(2, 3)).isTrue();
+        assertThat(lockingPolicy.isOptimisticTransfer(1, 3)).isFalse();
+        assertThat(lockingPolicy.isOptimisticTransfer(3, 1)).isFalse();
+        assertThat(lockingPolicy.isOptimisticDebit(2)).isFalse();
+    }
+
+    private long[] versions(Integer... accountIds) {
+        return accountRepository.findUnlockedByIdIn(List.of(accountIds)).stream()
+                .sorted((first, second) -> first.getId().compareTo(second.getId())).mapToLong(Account::getVersion).toArray();
+    }
+
+    private List<BigDecimal> balances() throws JsonProcessingException {
+        AccountDto[] accounts = objectMapper.readValue(
+                this.restTemplate.getForObject(getBaseUrl() + "/api/customers/1/accounts", String.class), AccountDto[].class);
+
+        return List.of(accounts).stream().map(AccountDto::getBalance).toList();
+    }
+
+    private List<TransactionDto> transactions(int accountId) throws JsonProcessingException {
+        return List.of(objectMapper.readValue(this.restTemplate.getForObject(
+                getBaseUrl() + "/api/customers/1/accounts/" + accountId + "/transactions", String.class), TransactionDto[].class));
+    }
+}
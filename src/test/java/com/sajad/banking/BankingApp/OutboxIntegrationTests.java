@@ -0,0 +1,155 @@
+package com.sajad.banking.BankingApp;
+
+import com.sajad.banking.BankingApp.model.AccountShard;
+import com.sajad.banking.BankingApp.repository.account.AccountShardRepository;
+import com.sajad.banking.BankingApp.repository.account.ShardDepositRepository;
+import com.sajad.banking.BankingApp.repository.outbox.OutboxEventRepository;
+import com.sajad.banking.BankingApp.service.outbox.AccountEvent;
+import com.sajad.banking.BankingApp.service.outbox.InMemoryOutboxSink;
+import com.sajad.banking.BankingApp.web.dto.account.AccountShardsDto;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+
+import static com.sajad.banking.BankingApp.model.LedgerEntry.EntryType.*;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Integration tests for the outbox of balance changes and its relay, with a small in-memory sink.
+ *
+ * @author Sajad
+ */
+@TestPropertySource(properties = {
+        "banking.outbox.memory.capacity=4",
+        "banking.outbox.batch-size=2",
+        "banking.outbox.poll-interval=PT0.05S",
+        "banking.outbox.max-backoff=PT0.2S",
+        "banking.shard-deposit.batch-size=2",
+        "banking.shard-deposit.collect-interval=PT0.05S"})
+public class OutboxIntegrationTests extends TestBase {
+
+    @Autowired
+    private InMemoryOutboxSink outboxSink;
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ShardDepositRepository shardDepositRepository;
+
+    @Autowired
+    private AccountShardRepository accountShardRepository;
+
+    @Test
+    public void moneyMovements_ShouldBePublishedInOrderPerAccount() throws InterruptedException {
+        this.restTemplate.postForEntity(getBaseUrl() + "/api/customers", getDummyNewCustomerRequest(100), String.class);
+        this.restTemplate.postForEntity(getBaseUrl() + "/api/customers/1/accounts", getDummyNewAccountRequest(10), String.class);
+        List<AccountEvent> events = new ArrayList<>(takeEvents(2));
+
+        this.restTemplate.put(getBaseUrl() + "/api/customers/1/transfer", getDummyTransferRequest(1, 2, 30), String.class);
+        this.restTemplate.put(getBaseUrl() + "/api/customers/1/deposit", getDummyDepositRequest(1, 5), String.class);
+        this.restTemplate.put(getBaseUrl() + "/api/customers/1/withdraw", getDummyDepositRequest(2, 20), String.class);
+        events.addAll(takeEvents(4));
+
+        Map<Integer, List<AccountEvent>> eventsByAccount = events.stream().collect(Collectors.groupingBy(AccountEvent::accountId));
+        assertThat(eventsByAccount.get(1)).extracting(AccountEvent::type).containsExactly(OPENING, TRANSFER_OUT, DEPOSIT);
+        assertThat(eventsByAccount.get(1)).extracting(AccountEvent::sequenceNumber).containsExactly(1L, 2L, 3L);
+        assertThat(eventsByAccount.get(2)).extracting(AccountEvent::type).containsExactly(OPENING, TRANSFER_IN, WITHDRAW);
+        assertThat(eventsByAccount.get(2).get(2).balance()).isEqualByComparingTo("20");
+
+        // Published events are deleted right after the sink took them
+        waitFor(() -> outboxEventRepository.count() == 0);
+        assertThat(meterRegistry.get("banking.outbox.published").counter().count()).isEqualTo(6);
+        assertThat(meterRegistry.get("banking.outbox.lag").timer().count()).isEqualTo(6);
+    }
+
+    @Test
+    public void shardedAccountDeposits_ShouldBePublishedOnceCollected() throws InterruptedException {
+        this.restTemplate.postForEntity(getBaseUrl() + "/api/customers", getDummyNewCustomerRequest(100), String.class);
+        assertThat(takeEvents(1)).extracting(AccountEvent::type).containsExactly(OPENING);
+
+        AccountShardsDto accountShardsDto = new AccountShardsDto();
+        accountShardsDto.setShards(4);
+        this.restTemplate.put(getBaseUrl() + "/api/customers/1/accounts/1/shards", new HttpEntity<>(accountShardsDto, new HttpHeaders()), String.class);
+        this.restTemplate.put(getBaseUrl() + "/api/customers/1/deposit", getDummyDepositRequest(1, 5), String.class);
+        this.restTemplate.put(getBaseUrl() + "/api/customers/1/deposit", getDummyDepositRequest(1, 7), String.class);
+
+        // The withdrawal needs the shards, which gives the deposits their entries
+        this.restTemplate.put(getBaseUrl() + "/api/customers/1/withdraw", getDummyDepositRequest(1, 110), String.class);
+        List<AccountEvent> events = takeEvents(3);
+        assertThat(events).extracting(AccountEvent::type).containsExactly(DEPOSIT, DEPOSIT, WITHDRAW);
+        assertThat(events).extracting(AccountEvent::sequenceNumber).containsExactly(2L, 3L, 4L);
+        assertThat(events).extracting(event -> event.balance().intValueExact()).containsExactly(105, 112, 2);
+    }
+
+    @Test
+    public void shardedAccountDeposits_ShouldBeCollectedInTheBackground() throws InterruptedException {
+        this.restTemplate.postForEntity(getBaseUrl() + "/api/customers", getDummyNewCustomerRequest(100), String.class);
+        assertThat(takeEvents(1)).extracting(AccountEvent::type).containsExactly(OPENING);
+
+        AccountShardsDto accountShardsDto = new AccountShardsDto();
+        accountShardsDto.setShards(4);
+        this.restTemplate.put(getBaseUrl() + "/api/customers/1/accounts/1/shards", new HttpEntity<>(accountShardsDto, new HttpHeaders()), String.class);
+        for (int amount = 1; amount <= 3; amount++)
+            this.restTemplate.put(getBaseUrl() + "/api/customers/1/deposit", getDummyDepositRequest(1, amount), String.class);
+
+        // No withdrawal, the collector gives the deposits their entries, two per transaction
+        List<AccountEvent> events = takeEvents(3);
+        assertThat(events).extracting(AccountEvent::type).containsExactly(DEPOSIT, DEPOSIT, DEPOSIT);
+        assertThat(events).extracting(AccountEvent::sequenceNumber).containsExactly(2L, 3L, 4L);
+        assertThat(events).extracting(event -> event.balance().intValueExact()).containsExactly(101, 103, 106);
+        waitFor(() -> shardDepositRepository.count() == 0);
+        assertThat(accountShardRepository.findAll()).extracting(AccountShard::getBalance).containsOnly(0L);
+    }
+
+    @Test
+    public void fullSink_ShouldKeepEventsInTheOutboxUntilDrained() throws InterruptedException {
+        // Two openings and a transfer fill the sink, the deposit has to wait in the outbox
+        this.restTemplate.postForEntity(getBaseUrl() + "/api/customers", getDummyNewCustomerRequest(100), String.class);
+        this.restTemplate.postForEntity(getBaseUrl() + "/api/customers/1/accounts", getDummyNewAccountRequest(10), String.class);
+        this.restTemplate.put(getBaseUrl() + "/api/customers/1/transfer", getDummyTransferRequest(1, 2, 30), String.class);
+        waitFor(() -> outboxEventRepository.count() == 0);
+        this.restTemplate.put(getBaseUrl() + "/api/customers/1/deposit", getDummyDepositRequest(1, 5), String.class);
+
+        waitFor(() -> meterRegistry.get("banking.outbox.backpressure").counter().count() > 0);
+        assertThat(outboxEventRepository.count()).isEqualTo(1);
+        assertThat(meterRegistry.get("banking.outbox.oldest.age").gauge().value()).isPositive();
+
+        // Draining the sink lets the relay through again
+        assertThat(outboxSink.drain()).hasSize(4);
+        assertThat(takeEvents(1)).extracting(AccountEvent::type).containsExactly(DEPOSIT);
+        waitFor(() -> outboxEventRepository.count() == 0);
+    }
+
+    private List<AccountEvent> takeEvents(int count) throws InterruptedException {
+        List<AccountEvent> events = new ArrayList<>();
+        while (events.size() < count) {
+            AccountEvent event = outboxSink.poll(5, TimeUnit.SECONDS);
+            assertThat(event).as("event %d of %d", events.size() + 1, count).isNotNull();
+            events.add(event);
+        }
+
+        return events;
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("condition met within 5 seconds").isLessThan(deadline);
+            Thread.sleep(20);
+        }
+    }
+}
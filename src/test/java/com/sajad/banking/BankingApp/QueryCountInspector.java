@@ -0,0 +1,45 @@
+package com.sajad.banking.BankingApp;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Counts every SQL statement Hibernate prepares, so tests can assert how many round-trips an endpoint costs.
+ * <p>
+ * Statements prepared while serving an HTTP request are counted apart, so the background jobs polling the database,
+ * such as the outbox relay, don't leak into the count of an endpoint.
+ *
+ * @author Sajad
+ */
+public class QueryCountInspector implements StatementInspector {
+
+    private static final AtomicInteger count = new AtomicInteger();
+
+    private static final AtomicInteger requestCount = new AtomicInteger();
+
+    @Override
+    public String inspect(String sql) {
+        count.incrementAndGet();
+        if (RequestContextHolder.getRequestAttributes() != null)
+            requestCount.incrementAndGet();
+        return sql;
+    }
+
+    public static void reset() {
+        count.set(0);
+        requestCount.set(0);
+    }
+
+    public static int getCount() {
+        return count.get();
+    }
+
+    /**
+     * Statements prepared on the threads serving HTTP requests only.
+     */
+    public static int getRequestCount() {
+        return requestCount.get();
+    }
+}
@@ -0,0 +1,39 @@
+package com.sajad.banking.BankingApp;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Guards the read endpoints against N+1 regressions: each of them must cost a single SQL statement.
+ *
+ * @author Sajad
+ */
+public class QueryCountIntegrationTests extends TestBase {
+
+    @BeforeEach
+    public void createCustomerWithAccounts() {
+        this.restTemplate.postForEntity(getBaseUrl() + "/api/customers", getDummyNewCustomerRequest(100), String.class);
+        for (int i = 0; i < 3; i++)
+            this.restTemplate.postForEntity(getBaseUrl() + "/api/customers/1/accounts", getDummyNewAccountRequest(10), String.class);
+    }
+
+    @Test
+    public void findCustomer_WithAccounts_ShouldIssueOneQuery() {
+        int queries = countQueries(() -> this.restTemplate.getForEntity(getBaseUrl() + "/api/customers/1", String.class));
+        assertThat(queries).isEqualTo(1);
+    }
+
+    @Test
+    public void listCustomerAccounts_WithAccounts_ShouldIssueOneQuery() {
+        int queries = countQueries(() -> this.restTemplate.getForEntity(getBaseUrl() + "/api/customers/1/accounts", String.class));
+        assertThat(queries).isEqualTo(1);
+    }
+
+    @Test
+    public void listCustomers_AfterCursor_ShouldIssueOneQuery() {
+        int queries = countQueries(() -> this.restTemplate.getForEntity(getBaseUrl() + "/api/customers?after=0", String.class));
+        assertThat(queries).isEqualTo(1);
+    }
+}
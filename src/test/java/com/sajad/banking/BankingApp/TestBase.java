@@ -1,6 +1,9 @@
 package com.sajad.banking.BankingApp;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sajad.banking.BankingApp.service.transfer.BatchTransferMode;
+import com.sajad.banking.BankingApp.web.dto.account.BatchTransferDto;
+import com.sajad.banking.BankingApp.web.dto.account.DepositDto;
 import com.sajad.banking.BankingApp.web.dto.account.NewAccountDto;
 import com.sajad.banking.BankingApp.web.dto.account.TransferDto;
 import com.sajad.banking.BankingApp.web.dto.customer.NewCustomerDto;
@@ -42,6 +45,17 @@ public abstract class TestBase {
         return "http://localhost:" + localServerPort;
     }
 
+    /**
+     * Runs the given HTTP call and returns the number of SQL statements it issued, leaving out the ones of background
+     * jobs running meanwhile.
+     */
+    protected int countQueries(Runnable call) {
+        QueryCountInspector.reset();
+        call.run();
+
+        return QueryCountInspector.getRequestCount();
+    }
+
     protected HttpEntity<NewCustomerDto> getDummyNewCustomerRequest(int amount) {
         NewCustomerDto newCustomerDto = new NewCustomerDto("test", REAL, "lastName", "+98123", null, BigDecimal.valueOf(amount));
         return new HttpEntity<>(newCustomerDto, new HttpHeaders());
@@ -53,6 +67,14 @@ public abstract class TestBase {
         return new HttpEntity<>(newAccountDto, new HttpHeaders());
     }
 
+    protected HttpEntity<DepositDto> getDummyDepositRequest(int accountId, int amount) {
+        DepositDto depositDto = new DepositDto();
+        depositDto.setAccountId(accountId);
+        depositDto.setAmount(BigDecimal.valueOf(amount));
+
+        return new HttpEntity<>(depositDto, new HttpHeaders());
+    }
+
     protected HttpEntity<TransferDto> getDummyTransferRequest(int from, int to, int amount) {
         TransferDto transferDto = new TransferDto();
         transferDto.setFromAccountId(from);
@@ -61,4 +83,14 @@ public abstract class TestBase {
 
         return new HttpEntity<>(transferDto, new HttpHeaders());
     }
+
+    @SafeVarargs
+    protected final HttpEntity<BatchTransferDto> getDummyBatchTransferRequest(BatchTransferMode mode, HttpEntity<TransferDto>... transfers) {
+        BatchTransferDto batchTransferDto = new BatchTransferDto();
+        batchTransferDto.setMode(mode);
+        for (HttpEntity<TransferDto> transfer : transfers)
+            batchTransferDto.getTransfers().add(transfer.getBody());
+
+        return new HttpEntity<>(batchTransferDto, new HttpHeaders());
+    }
 }
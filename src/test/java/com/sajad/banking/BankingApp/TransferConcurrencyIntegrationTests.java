@@ -0,0 +1,78 @@
+package com.sajad.banking.BankingApp;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.sajad.banking.BankingApp.web.dto.account.AccountDto;
+import com.sajad.banking.BankingApp.web.dto.account.TransferDto;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.ResponseEntity;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Stress tests for concurrent money movements between the same accounts.
+ *
+ * @author Sajad
+ */
+public class TransferConcurrencyIntegrationTests extends TestBase {
+
+    private static final Logger logger = LoggerFactory.getLogger(TransferConcurrencyIntegrationTests.class);
+
+    private static final int THREADS = 8;
+
+    private static final int TRANSFERS_PER_THREAD = 50;
+
+    @Test
+    public void transfer_OppositeDirectionsConcurrently_ShouldNotDeadlock() throws Exception {
+        // Customer with two accounts, 10000 on each
+        assertThat(this.restTemplate.postForEntity(getBaseUrl() + "/api/customers", getDummyNewCustomerRequest(10000), String.class)
+                .getStatusCode()).isEqualTo(HttpStatusCode.valueOf(200));
+        assertThat(this.restTemplate.postForEntity(getBaseUrl() + "/api/customers/1/accounts", getDummyNewAccountRequest(10000), String.class)
+                .getStatusCode()).isEqualTo(HttpStatusCode.valueOf(200));
+
+        // Half of the threads move money 1 -> 2, the other half 2 -> 1
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            HttpEntity<TransferDto> request = i % 2 == 0 ? getDummyTransferRequest(1, 2, 1) : getDummyTransferRequest(2, 1, 1);
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int j = 0; j < TRANSFERS_PER_THREAD; j++)
+                    this.restTemplate.put(getBaseUrl() + "/api/customers/1/transfer", request, String.class);
+                return null;
+            }));
+        }
+
+        long startedAt = System.nanoTime();
+        start.countDown();
+        for (Future<?> future : futures)
+            future.get(2, TimeUnit.MINUTES);
+        long elapsedNanos = System.nanoTime() - startedAt;
+        executor.shutdown();
+
+        logger.info("{} concurrent transfers took {} ms, {} transfers/sec", THREADS * TRANSFERS_PER_THREAD,
+                TimeUnit.NANOSECONDS.toMillis(elapsedNanos), THREADS * TRANSFERS_PER_THREAD * 1_000_000_000L / elapsedNanos);
+
+        // Money is neither created nor lost, and both directions were applied equally
+        AccountDto[] accounts = getAccounts();
+        assertThat(accounts).hasSize(2);
+        assertThat(accounts[0].getBalance()).isEqualByComparingTo(BigDecimal.valueOf(10000));
+        assertThat(accounts[1].getBalance()).isEqualByComparingTo(BigDecimal.valueOf(10000));
+    }
+
+    private AccountDto[] getAccounts() throws JsonProcessingException {
+        ResponseEntity<String> getResult = this.restTemplate.getForEntity(getBaseUrl() + "/api/customers/1/accounts", String.class);
+        assertThat(getResult.getStatusCode()).isEqualTo(HttpStatusCode.valueOf(200));
+
+        return objectMapper.readValue(getResult.getBody(), AccountDto[].class);
+    }
+}
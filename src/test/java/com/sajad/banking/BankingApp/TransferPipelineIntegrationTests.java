@@ -0,0 +1,150 @@
+package com.sajad.banking.BankingApp;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.sajad.banking.BankingApp.model.LedgerEntry.EntryType;
+import com.sajad.banking.BankingApp.repository.pipeline.PendingCreditRepository;
+import com.sajad.banking.BankingApp.web.dto.account.AccountDto;
+import com.sajad.banking.BankingApp.web.dto.account.TransactionDto;
+import com.sajad.banking.BankingApp.web.dto.account.TransferDto;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.*;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static com.sajad.banking.BankingApp.model.LedgerEntry.EntryType.*;
+import static com.sajad.banking.BankingApp.web.idempotency.IdempotencyFilter.IDEMPOTENCY_KEY_HEADER;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Integration tests for the transfer pipeline mode: money movements applied by the partition writers, with
+ * asynchronous responses.
+ * <p>
+ * With the default four partitions, accounts 1 and 5 share a partition and account 2 is in another one.
+ *
+ * @author Sajad
+ */
+@TestPropertySource(properties = "banking.pipeline.enabled=true")
+public class TransferPipelineIntegrationTests extends TestBase {
+
+    private static final int THREADS = 8;
+
+    private static final int TRANSFERS_PER_THREAD = 50;
+
+    @Autowired
+    private PendingCreditRepository pendingCreditRepository;
+
+    @Test
+    public void movements_ShouldBeAppliedByThePartitionWriters() throws JsonProcessingException {
+        this.restTemplate.postForEntity(getBaseUrl() + "/api/customers", getDummyNewCustomerRequest(100), String.class);
+        for (int i = 0; i < 4; i++)
+            this.restTemplate.postForEntity(getBaseUrl() + "/api/customers/1/accounts", getDummyNewAccountRequest(10), String.class);
+
+        // Across partitions, then within a partition
+        ResponseEntity<String> response = this.restTemplate.exchange(getBaseUrl() + "/api/customers/1/transfer",
+                HttpMethod.PUT, getDummyTransferRequest(1, 2, 30), String.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatusCode.valueOf(200));
+        assertThat(response.getBody()).isEqualTo("Transaction was successful");
+        this.restTemplate.put(getBaseUrl() + "/api/customers/1/transfer", getDummyTransferRequest(1, 5, 20), String.class);
+        this.restTemplate.put(getBaseUrl() + "/api/customers/1/deposit", getDummyDepositRequest(1, 5), String.class);
+        this.restTemplate.put(getBaseUrl() + "/api/customers/1/withdraw", getDummyDepositRequest(2, 15), String.class);
+
+        // Every response came after its commit, the credit of the first transfer included
+        assertThat(balances()).containsExactly(BigDecimal.valueOf(55), BigDecimal.valueOf(25), BigDecimal.valueOf(10),
+                BigDecimal.valueOf(10), BigDecimal.valueOf(30));
+        assertThat(transactionTypes(1)).containsExactly(DEPOSIT, TRANSFER_OUT, TRANSFER_OUT, OPENING);
+        assertThat(transactionTypes(2)).containsExactly(WITHDRAW, TRANSFER_IN, OPENING);
+        assertThat(transactionTypes(5)).containsExactly(TRANSFER_IN, OPENING);
+        assertThat(pendingCreditRepository.count()).isZero();
+    }
+
+    @Test
+    public void movements_Rejected_ShouldReturnTheSameErrors() throws JsonProcessingException {
+        this.restTemplate.postForEntity(getBaseUrl() + "/api/customers", getDummyNewCustomerRequest(100), String.class);
+
+        HttpClientErrorException.BadRequest errorResponse = assertThrows(HttpClientErrorException.BadRequest.class, () ->
+                this.restTemplate.put(getBaseUrl() + "/api/customers/1/withdraw", getDummyDepositRequest(1, 101), String.class));
+        assertEquals("400 : \"Balance is not enough for this transaction!\"", errorResponse.getMessage());
+
+        HttpClientErrorException.NotFound response = assertThrows(HttpClientErrorException.NotFound.class, () ->
+                this.restTemplate.put(getBaseUrl() + "/api/customers/1/deposit", getDummyDepositRequest(2, 10), String.class));
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+
+        // The destination is checked before the debit
+        response = assertThrows(HttpClientErrorException.NotFound.class, () ->
+                this.restTemplate.put(getBaseUrl() + "/api/customers/1/transfer", getDummyTransferRequest(1, 2, 10), String.class));
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+
+        assertThat(balances()).containsExactly(BigDecimal.valueOf(100));
+        assertThat(pendingCreditRepository.count()).isZero();
+    }
+
+    @Test
+    public void transfer_RetriedWithSameKey_ShouldApplyOnce() throws JsonProcessingException {
+        this.restTemplate.postForEntity(getBaseUrl() + "/api/customers", getDummyNewCustomerRequest(100), String.class);
+        this.restTemplate.postForEntity(getBaseUrl() + "/api/customers/1/accounts", getDummyNewAccountRequest(10), String.class);
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(IDEMPOTENCY_KEY_HEADER, "key-1");
+        HttpEntity<TransferDto> request = new HttpEntity<>(getDummyTransferRequest(1, 2, 30).getBody(), headers);
+
+        ResponseEntity<String> first = this.restTemplate.exchange(getBaseUrl() + "/api/customers/1/transfer",
+                HttpMethod.PUT, request, String.class);
+        ResponseEntity<String> retry = this.restTemplate.exchange(getBaseUrl() + "/api/customers/1/transfer",
+                HttpMethod.PUT, request, String.class);
+        assertThat(first.getStatusCode()).isEqualTo(HttpStatusCode.valueOf(200));
+        assertThat(retry.getStatusCode()).isEqualTo(first.getStatusCode());
+        assertThat(retry.getBody()).isEqualTo(first.getBody());
+
+        assertThat(balances()).containsExactly(BigDecimal.valueOf(70), BigDecimal.valueOf(40));
+    }
+
+    @Test
+    public void transfer_OppositeDirectionsConcurrently_ShouldConserveMoney() throws Exception {
+        this.restTemplate.postForEntity(getBaseUrl() + "/api/customers", getDummyNewCustomerRequest(10000), String.class);
+        this.restTemplate.postForEntity(getBaseUrl() + "/api/customers/1/accounts", getDummyNewAccountRequest(10000), String.class);
+
+        // Half of the threads move money 1 -> 2, the other half 2 -> 1, every transfer crossing partitions
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            HttpEntity<TransferDto> request = i % 2 == 0 ? getDummyTransferRequest(1, 2, 1) : getDummyTransferRequest(2, 1, 1);
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int j = 0; j < TRANSFERS_PER_THREAD; j++)
+                    this.restTemplate.put(getBaseUrl() + "/api/customers/1/transfer", request, String.class);
+                return null;
+            }));
+        }
+
+        start.countDown();
+        for (Future<?> future : futures)
+            future.get(2, TimeUnit.MINUTES);
+        executor.shutdown();
+
+        assertThat(balances()).containsExactly(BigDecimal.valueOf(10000), BigDecimal.valueOf(10000));
+        assertThat(pendingCreditRepository.count()).isZero();
+    }
+
+    private List<BigDecimal> balances() throws JsonProcessingException {
+        AccountDto[] accounts = objectMapper.readValue(
+                this.restTemplate.getForObject(getBaseUrl() + "/api/customers/1/accounts", String.class), AccountDto[].class);
+
+        return List.of(accounts).stream().map(AccountDto::getBalance).toList();
+    }
+
+    private List<EntryType> transactionTypes(int accountId) throws JsonProcessingException {
+        TransactionDto[] transactions = objectMapper.readValue(this.restTemplate.getForObject(
+                getBaseUrl() + "/api/customers/1/accounts/" + accountId + "/transactions", String.class), TransactionDto[].class);
+
+        return List.of(transactions).stream().map(TransactionDto::getType).toList();
+    }
+}
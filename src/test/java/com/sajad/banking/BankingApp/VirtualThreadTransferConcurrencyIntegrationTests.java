@@ -0,0 +1,12 @@
+package com.sajad.banking.BankingApp;
+
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * The transfer stress tests, with the requests running on virtual threads.
+ *
+ * @author Sajad
+ */
+@TestPropertySource(properties = "spring.threads.virtual.enabled=true")
+public class VirtualThreadTransferConcurrencyIntegrationTests extends TransferConcurrencyIntegrationTests {
+}
@@ -0,0 +1,60 @@
+package com.sajad.banking.BankingApp.benchmark;
+
+import com.sajad.banking.BankingApp.TestBase;
+import com.sajad.banking.BankingApp.web.dto.account.BatchTransferDto;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.sajad.banking.BankingApp.service.transfer.BatchTransferMode.ALL_OR_NOTHING;
+
+/**
+ * Compares N single transfer calls against one batch of N transfers.
+ * Run with {@code mvn test -Pbenchmark}.
+ *
+ * @author Sajad
+ */
+@Tag("benchmark")
+public class BatchTransferBenchmarkTests extends TestBase {
+
+    private static final Logger logger = LoggerFactory.getLogger(BatchTransferBenchmarkTests.class);
+
+    private static final int TRANSFERS = 2000;
+
+    private static final int ROUNDS = 3;
+
+    @Test
+    public void singleCallsVersusOneBatch() {
+        this.restTemplate.postForEntity(getBaseUrl() + "/api/customers", getDummyNewCustomerRequest(1_000_000), String.class);
+        this.restTemplate.postForEntity(getBaseUrl() + "/api/customers/1/accounts", getDummyNewAccountRequest(1_000_000), String.class);
+
+        BatchTransferDto batch = new BatchTransferDto();
+        batch.setMode(ALL_OR_NOTHING);
+        for (int i = 0; i < TRANSFERS; i++)
+            batch.getTransfers().add(getDummyTransferRequest(i % 2 == 0 ? 1 : 2, i % 2 == 0 ? 2 : 1, 1).getBody());
+        HttpEntity<BatchTransferDto> batchRequest = new HttpEntity<>(batch, new HttpHeaders());
+
+        // The first round only warms up
+        for (int round = 0; round <= ROUNDS; round++) {
+            long startedAt = System.nanoTime();
+            batch.getTransfers().forEach(transfer -> this.restTemplate.put(getBaseUrl() + "/api/customers/1/transfer",
+                    new HttpEntity<>(transfer, new HttpHeaders()), String.class));
+            long singleNanos = System.nanoTime() - startedAt;
+
+            startedAt = System.nanoTime();
+            this.restTemplate.exchange(getBaseUrl() + "/api/customers/1/transfers", HttpMethod.PUT, batchRequest, String.class);
+            long batchNanos = System.nanoTime() - startedAt;
+
+            if (round > 0)
+                logger.info("Round {}: {} single calls {} ms ({} transfers/sec), one batch {} ms ({} transfers/sec)", round, TRANSFERS,
+                        TimeUnit.NANOSECONDS.toMillis(singleNanos), TRANSFERS * 1_000_000_000L / singleNanos,
+                        TimeUnit.NANOSECONDS.toMillis(batchNanos), TRANSFERS * 1_000_000_000L / batchNanos);
+        }
+    }
+}
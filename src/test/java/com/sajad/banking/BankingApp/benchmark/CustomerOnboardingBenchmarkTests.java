@@ -0,0 +1,94 @@
+package com.sajad.banking.BankingApp.benchmark;
+
+import com.sajad.banking.BankingApp.QueryCountInspector;
+import com.sajad.banking.BankingApp.TestBase;
+import com.sajad.banking.BankingApp.model.Customer;
+import com.sajad.banking.BankingApp.model.money.Money;
+import com.sajad.banking.BankingApp.repository.customer.CustomerRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.sajad.banking.BankingApp.model.Customer.CustomerType.REAL;
+
+/**
+ * Bulk customer creation throughput, with one sequence round-trip and one insert statement per row (before) versus
+ * pooled id allocation and ordered JDBC insert batching (after).
+ * Run with {@code mvn test -Pbenchmark}.
+ *
+ * @author Sajad
+ */
+@Tag("benchmark")
+public class CustomerOnboardingBenchmarkTests {
+
+    private static final Logger logger = LoggerFactory.getLogger(CustomerOnboardingBenchmarkTests.class);
+
+    private static final int CUSTOMERS = 20_000;
+
+    private static final int CHUNK_SIZE = 500;
+
+    @Nested
+    @TestPropertySource(properties = {
+            "spring.jpa.properties.banking.id.allocation_size=1",
+            "spring.jpa.properties.hibernate.jdbc.batch_size=0",
+            "spring.jpa.properties.hibernate.order_inserts=false"})
+    class Unpooled extends Onboarding {
+    }
+
+    @Nested
+    class Pooled extends Onboarding {
+    }
+
+    abstract static class Onboarding extends TestBase {
+
+        @Autowired
+        private CustomerRepository customerRepository;
+
+        @Autowired
+        private EntityManager entityManager;
+
+        @Autowired
+        private TransactionTemplate transactionTemplate;
+
+        @Test
+        public void onboardCustomers() {
+            // Warm up, then measure
+            onboard(0, CUSTOMERS / 10);
+
+            QueryCountInspector.reset();
+            long startedAt = System.nanoTime();
+            onboard(CUSTOMERS / 10, CUSTOMERS);
+            long elapsedNanos = System.nanoTime() - startedAt;
+
+            // Every customer comes with its first account, embedded H2 has no network, so round-trips matter most
+            long rows = 2L * (CUSTOMERS - CUSTOMERS / 10);
+            logger.info("{}: {} rows in {} ms, {} rows/sec, {} statements prepared", getClass().getSimpleName(), rows,
+                    TimeUnit.NANOSECONDS.toMillis(elapsedNanos), rows * 1_000_000_000L / elapsedNanos, QueryCountInspector.getCount());
+        }
+
+        private void onboard(int from, int to) {
+            for (int chunkStart = from; chunkStart < to; chunkStart += CHUNK_SIZE) {
+                List<Customer> chunk = new ArrayList<>(CHUNK_SIZE);
+                for (int i = chunkStart; i < Math.min(chunkStart + CHUNK_SIZE, to); i++)
+                    chunk.add(new Customer("test", "+98" + i, REAL, "lastName", Money.of(BigDecimal.TEN)));
+
+                transactionTemplate.executeWithoutResult(status -> {
+                    customerRepository.saveAll(chunk);
+                    entityManager.flush();
+                    entityManager.clear();
+                });
+            }
+        }
+    }
+}
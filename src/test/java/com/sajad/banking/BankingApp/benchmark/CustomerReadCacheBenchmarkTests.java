@@ -0,0 +1,90 @@
+package com.sajad.banking.BankingApp.benchmark;
+
+import com.sajad.banking.BankingApp.TestBase;
+import com.sajad.banking.BankingApp.service.cache.CustomerReadCache;
+import com.sajad.banking.BankingApp.web.dto.customer.NewCustomerDto;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import static com.sajad.banking.BankingApp.model.Customer.CustomerType.REAL;
+
+/**
+ * Latency of the customer detail and account list reads, straight from the database versus through the read cache.
+ * Run with {@code mvn test -Pbenchmark}.
+ *
+ * @author Sajad
+ */
+@Tag("benchmark")
+public class CustomerReadCacheBenchmarkTests {
+
+    private static final Logger logger = LoggerFactory.getLogger(CustomerReadCacheBenchmarkTests.class);
+
+    private static final int CUSTOMERS = 100;
+
+    private static final int ACCOUNTS_PER_CUSTOMER = 10;
+
+    private static final int READS = 5000;
+
+    @Nested
+    @TestPropertySource(properties = "banking.read-cache.enabled=false")
+    class Uncached extends Reads {
+    }
+
+    @Nested
+    class Cached extends Reads {
+    }
+
+    abstract static class Reads extends TestBase {
+
+        @Autowired
+        private CustomerReadCache customerReadCache;
+
+        @Test
+        public void readCustomers() {
+            for (int customer = 1; customer <= CUSTOMERS; customer++) {
+                NewCustomerDto newCustomerDto = new NewCustomerDto("test", REAL, "lastName", "+98" + customer, null, BigDecimal.TEN);
+                this.restTemplate.postForEntity(getBaseUrl() + "/api/customers", new HttpEntity<>(newCustomerDto, new HttpHeaders()), String.class);
+                for (int account = 1; account < ACCOUNTS_PER_CUSTOMER; account++)
+                    this.restTemplate.postForEntity(getBaseUrl() + "/api/customers/" + customer + "/accounts", getDummyNewAccountRequest(10), String.class);
+            }
+
+            // Warm up, then measure
+            read(READS / 5, "");
+            read(READS / 5, "/accounts");
+            report("detail", read(READS, ""));
+            report("accounts", read(READS, "/accounts"));
+        }
+
+        private long[] read(int reads, String path) {
+            long[] latencies = new long[reads];
+            for (int i = 0; i < reads; i++) {
+                long startedAt = System.nanoTime();
+                this.restTemplate.getForEntity(getBaseUrl() + "/api/customers/" + (i % CUSTOMERS + 1) + path, String.class);
+                latencies[i] = System.nanoTime() - startedAt;
+            }
+
+            return latencies;
+        }
+
+        private void report(String read, long[] latencies) {
+            Arrays.sort(latencies);
+            logger.info("{} {}: mean {} us, p50 {} us, p99 {} us, detail hit ratio {}, accounts hit ratio {}",
+                    getClass().getSimpleName(), read,
+                    TimeUnit.NANOSECONDS.toMicros((long) Arrays.stream(latencies).average().orElse(0)),
+                    TimeUnit.NANOSECONDS.toMicros(latencies[latencies.length / 2]),
+                    TimeUnit.NANOSECONDS.toMicros(latencies[latencies.length * 99 / 100]),
+                    customerReadCache.customerDetailStats().hitRate(), customerReadCache.customerAccountsStats().hitRate());
+        }
+    }
+}
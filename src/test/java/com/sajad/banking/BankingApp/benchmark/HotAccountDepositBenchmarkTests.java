@@ -0,0 +1,83 @@
+package com.sajad.banking.BankingApp.benchmark;
+
+import com.sajad.banking.BankingApp.TestBase;
+import com.sajad.banking.BankingApp.service.CustomerService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Deposit throughput of many threads hammering a single account, as a regular account and sharded across a growing
+ * number of shards. Run with {@code mvn test -Pbenchmark}.
+ *
+ * @author Sajad
+ */
+@Tag("benchmark")
+public class HotAccountDepositBenchmarkTests extends TestBase {
+
+    private static final Logger logger = LoggerFactory.getLogger(HotAccountDepositBenchmarkTests.class);
+
+    private static final int THREADS = 16;
+
+    private static final int DEPOSITS_PER_THREAD = 500;
+
+    private static final int[] SHARD_COUNTS = {0, 1, 4, 16};
+
+    @Autowired
+    private CustomerService customerService;
+
+    @Test
+    public void depositThroughputByShardCount() throws Exception {
+        this.restTemplate.postForEntity(getBaseUrl() + "/api/customers", getDummyNewCustomerRequest(0), String.class);
+
+        // Warm up
+        deposit(THREADS, DEPOSITS_PER_THREAD / 5);
+        long expectedDeposits = (long) THREADS * DEPOSITS_PER_THREAD / 5;
+
+        for (int shards : SHARD_COUNTS) {
+            customerService.shardAccount(1, 1, shards);
+
+            long startedAt = System.nanoTime();
+            deposit(THREADS, DEPOSITS_PER_THREAD);
+            long elapsedNanos = System.nanoTime() - startedAt;
+            expectedDeposits += (long) THREADS * DEPOSITS_PER_THREAD;
+
+            logger.info("{} shards: {} deposits from {} threads in {} ms, {} deposits/sec", shards, THREADS * DEPOSITS_PER_THREAD,
+                    THREADS, TimeUnit.NANOSECONDS.toMillis(elapsedNanos), THREADS * DEPOSITS_PER_THREAD * 1_000_000_000L / elapsedNanos);
+        }
+
+        // Not a single deposit got lost along the way
+        assertThat(customerService.listCustomerAccounts(1).get(0).getBalance()).isEqualByComparingTo(BigDecimal.valueOf(expectedDeposits));
+    }
+
+    private void deposit(int threads, int depositsPerThread) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < threads; thread++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < depositsPerThread; i++)
+                        customerService.deposit(1, 1, BigDecimal.ONE);
+                    return null;
+                }));
+            }
+
+            start.countDown();
+            for (Future<?> future : futures)
+                future.get();
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.sajad.banking.BankingApp.benchmark;
+
+import com.sajad.banking.BankingApp.TestBase;
+import com.sajad.banking.BankingApp.web.dto.customer.NewCustomerDto;
+import com.sajad.banking.reactive.ReactiveBankingApplication;
+import com.zaxxer.hikari.HikariDataSource;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.PoolMetrics;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.TestPropertySource;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.netty.resources.LoopResources;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntSupplier;
+
+import static com.sajad.banking.BankingApp.model.Customer.CustomerType.REAL;
+
+/**
+ * Customer reads from 10k concurrent clients, against the MVC application on Tomcat and against its reactive variant
+ * on Netty, both on the same database: latency, server threads and database connections per core at the peak.
+ * Run with {@code mvn test -Pbenchmark}; holding 10k connections open needs a high enough {@code ulimit -n}.
+ *
+ * @author Sajad
+ */
+@Tag("benchmark")
+@TestPropertySource(properties = {"banking.read-cache.enabled=false", "server.tomcat.max-connections=10000",
+        "server.tomcat.accept-count=10000"})
+public class ReactiveLoadBenchmarkTests extends TestBase {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveLoadBenchmarkTests.class);
+
+    private static final int CLIENTS = 10_000;
+
+    private static final int REQUESTS_PER_CLIENT = 5;
+
+    private static final int CUSTOMERS = 100;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Test
+    public void readLatencyUnderConcurrentClients() throws Exception {
+        for (int i = 0; i < CUSTOMERS; i++) {
+            NewCustomerDto newCustomerDto = new NewCustomerDto("test", REAL, "lastName", "+98" + i, null, BigDecimal.valueOf(1000));
+            this.restTemplate.postForEntity(getBaseUrl() + "/api/customers", new HttpEntity<>(newCustomerDto, new HttpHeaders()), String.class);
+        }
+
+        // Side by side, on the same database
+        try (ConfigurableApplicationContext reactive = ReactiveBankingApplication.application()
+                .run("--server.port=0", "--banking.read-cache.enabled=false")) {
+            int reactivePort = ((WebServerApplicationContext) reactive).getWebServer().getPort();
+            ConnectionPool r2dbcPool = reactive.getBean(ConnectionPool.class);
+
+            HikariDataSource hikari = dataSource.unwrap(HikariDataSource.class);
+            load("MVC", getBaseUrl(), "http-nio", () -> hikari.getHikariPoolMXBean().getActiveConnections());
+            load("Reactive", "http://localhost:" + reactivePort, "reactor-http",
+                    () -> r2dbcPool.getMetrics().map(PoolMetrics::acquiredSize).orElse(0));
+        }
+    }
+
+    /**
+     * Every client reads customers one after the other, on a connection of its own, all clients at once.
+     */
+    private void load(String name, String baseUrl, String serverThreadPrefix, IntSupplier busyDbConnections)
+            throws InterruptedException {
+        LoopResources loops = LoopResources.create("load-client");
+        ConnectionProvider connections = ConnectionProvider.builder("load-client")
+                .maxConnections(CLIENTS)
+                .pendingAcquireMaxCount(-1)
+                .pendingAcquireTimeout(Duration.ofMinutes(1))
+                .build();
+        HttpClient client = HttpClient.create(connections).runOn(loops).baseUrl(baseUrl);
+
+        AtomicInteger peakDbConnections = new AtomicInteger();
+        AtomicInteger peakServerThreads = new AtomicInteger();
+        ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor();
+        sampler.scheduleAtFixedRate(() -> {
+            peakDbConnections.accumulateAndGet(busyDbConnections.getAsInt(), Math::max);
+            peakServerThreads.accumulateAndGet((int) Thread.getAllStackTraces().keySet().stream()
+                    .filter(thread -> thread.getName().startsWith(serverThreadPrefix)).count(), Math::max);
+        }, 0, 5, TimeUnit.MILLISECONDS);
+
+        long[] latencies = new long[CLIENTS * REQUESTS_PER_CLIENT];
+        AtomicInteger requests = new AtomicInteger();
+        AtomicInteger errors = new AtomicInteger();
+        long startedAt = System.nanoTime();
+        Flux.range(0, CLIENTS)
+                .flatMap(clientId -> Flux.range(0, REQUESTS_PER_CLIENT).concatMap(i -> Mono.defer(() -> {
+                    long requestStartedAt = System.nanoTime();
+                    return client.get()
+                            .uri("/api/customers/" + (1 + (clientId + i) % CUSTOMERS))
+                            .responseSingle((response, body) -> body.then(Mono.just(response.status().code())))
+                            .doOnNext(status -> {
+                                if (status != 200)
+                                    errors.incrementAndGet();
+                            })
+                            .doOnError(e -> errors.incrementAndGet())
+                            .onErrorResume(e -> Mono.empty())
+                            .doFinally(signal -> latencies[requests.getAndIncrement()] = System.nanoTime() - requestStartedAt);
+                })), CLIENTS)
+                .blockLast(Duration.ofMinutes(5));
+        long elapsedNanos = System.nanoTime() - startedAt;
+
+        sampler.shutdown();
+        sampler.awaitTermination(1, TimeUnit.SECONDS);
+        connections.dispose();
+        loops.dispose();
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        int done = requests.get();
+        Arrays.sort(latencies, 0, done);
+        logger.info("{}: {} clients, {} requests/sec, p50 {} ms, p99 {} ms, max {} ms, {} errors; peak {} server threads, " +
+                        "{} database connections ({} per core)", name, CLIENTS, (long) done * 1_000_000_000L / elapsedNanos,
+                TimeUnit.NANOSECONDS.toMillis(latencies[done / 2]), TimeUnit.NANOSECONDS.toMillis(latencies[done * 99 / 100]),
+                TimeUnit.NANOSECONDS.toMillis(latencies[done - 1]), errors.get(), peakServerThreads.get(),
+                peakDbConnections.get(), String.format("%.2f", (double) peakDbConnections.get() / cores));
+    }
+}
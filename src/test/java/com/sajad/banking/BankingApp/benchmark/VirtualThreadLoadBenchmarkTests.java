@@ -0,0 +1,141 @@
+package com.sajad.banking.BankingApp.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.sajad.banking.BankingApp.TestBase;
+import com.sajad.banking.BankingApp.web.dto.account.TransferDto;
+import com.sajad.banking.BankingApp.web.dto.customer.NewCustomerDto;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.ByteBufFlux;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.netty.resources.LoopResources;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.sajad.banking.BankingApp.model.Customer.CustomerType.REAL;
+
+/**
+ * Latency of an unrelated customer read while many clients contend on two hot accounts with transfers at a fixed
+ * rate, with the requests running on a bounded pool of platform threads versus on virtual threads, with and without a
+ * cap of the locking transactions.
+ * Run with {@code mvn test -Pbenchmark}.
+ *
+ * @author Sajad
+ */
+@Tag("benchmark")
+public class VirtualThreadLoadBenchmarkTests {
+
+    private static final Logger logger = LoggerFactory.getLogger(VirtualThreadLoadBenchmarkTests.class);
+
+    private static final int TRANSFER_CLIENTS = 64;
+
+    /**
+     * Offered transfer rate, below what either mode sustains on a single core.
+     */
+    private static final int TRANSFERS_PER_SECOND = 100;
+
+    private static final int READS = 2000;
+
+    @Nested
+    @TestPropertySource(properties = {"server.tomcat.threads.max=32", "banking.read-cache.enabled=false"})
+    class PlatformThreads extends LoadTest {
+    }
+
+    @Nested
+    @TestPropertySource(properties = {"spring.threads.virtual.enabled=true", "banking.read-cache.enabled=false"})
+    class VirtualThreads extends LoadTest {
+    }
+
+    /**
+     * Virtual threads, with as many locking transactions at once as there are pooled connections.
+     */
+    @Nested
+    @TestPropertySource(properties = {"spring.threads.virtual.enabled=true", "banking.read-cache.enabled=false",
+            "banking.lock.max-concurrent-transactions=20"})
+    class CappedVirtualThreads extends LoadTest {
+    }
+
+    abstract static class LoadTest extends TestBase {
+
+        @Test
+        public void readLatencyUnderTransferContention() throws Exception {
+            // Two hot accounts of customer 1, and customer 2 who is only read
+            this.restTemplate.postForEntity(getBaseUrl() + "/api/customers", getDummyNewCustomerRequest(1_000_000), String.class);
+            this.restTemplate.postForEntity(getBaseUrl() + "/api/customers/1/accounts", getDummyNewAccountRequest(1_000_000), String.class);
+            NewCustomerDto readCustomerDto = new NewCustomerDto("reader", REAL, "lastName", "+98456", null, BigDecimal.TEN);
+            this.restTemplate.postForEntity(getBaseUrl() + "/api/customers", new HttpEntity<>(readCustomerDto, new HttpHeaders()), String.class);
+
+            // The same rate of transfers in both modes, from clients sharing a single event loop thread, so the load
+            // generator does not compete with the server's threads for the CPU any more in one mode than in the other
+            AtomicLong transfers = new AtomicLong();
+            LoopResources loops = LoopResources.create("transfer-clients", 1, true);
+            ConnectionProvider connections = ConnectionProvider.create("transfer-clients", TRANSFER_CLIENTS);
+            HttpClient client = HttpClient.create(connections).runOn(loops).baseUrl(getBaseUrl())
+                    .headers(headers -> headers.set(HttpHeaderNames.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE));
+            String[] bodies = {transferBody(1, 2), transferBody(2, 1)};
+            Disposable transferClients = Flux.interval(Duration.ofNanos(1_000_000_000L / TRANSFERS_PER_SECOND))
+                    // A tick finding all the clients busy is skipped
+                    .onBackpressureDrop()
+                    .flatMap(tick -> client.put().uri("/api/customers/1/transfer")
+                            .send(ByteBufFlux.fromString(Mono.just(bodies[(int) (tick % 2)])))
+                            .responseSingle((response, content) -> content.then(Mono.just(response.status().code())))
+                            .doOnNext(status -> {
+                                if (status == 200)
+                                    transfers.incrementAndGet();
+                            })
+                            // Lock timeouts beyond the retries, the contention is the point here
+                            .onErrorResume(e -> Mono.empty()), TRANSFER_CLIENTS)
+                    .subscribe();
+
+            // Let the contention build up, then measure the reads
+            Thread.sleep(2000);
+            long transfersAtStart = transfers.get();
+            long startedAt = System.nanoTime();
+            long[] latencies = new long[READS];
+            for (int i = 0; i < READS; i++) {
+                long readStartedAt = System.nanoTime();
+                this.restTemplate.getForEntity(getBaseUrl() + "/api/customers/2", String.class);
+                latencies[i] = System.nanoTime() - readStartedAt;
+            }
+            long elapsedNanos = System.nanoTime() - startedAt;
+            long transfersDone = transfers.get() - transfersAtStart;
+
+            transferClients.dispose();
+            connections.dispose();
+            loops.dispose();
+
+            Arrays.sort(latencies);
+            logger.info("{}: reads p50 {} us, p99 {} us, max {} ms; {} transfers/sec meanwhile", getClass().getSimpleName(),
+                    TimeUnit.NANOSECONDS.toMicros(latencies[READS / 2]), TimeUnit.NANOSECONDS.toMicros(latencies[READS * 99 / 100]),
+                    TimeUnit.NANOSECONDS.toMillis(latencies[READS - 1]), transfersDone * 1_000_000_000L / elapsedNanos);
+        }
+
+        private String transferBody(int fromAccountId, int toAccountId) {
+            TransferDto transferDto = new TransferDto();
+            transferDto.setFromAccountId(fromAccountId);
+            transferDto.setToAccountId(toAccountId);
+            transferDto.setAmount(BigDecimal.ONE);
+            try {
+                return objectMapper.writeValueAsString(transferDto);
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.sajad.banking.BankingApp.benchmark.jmh;
+
+import com.sajad.banking.BankingApp.exception.account.BalanceNotEnoughException;
+import com.sajad.banking.BankingApp.model.Account;
+import com.sajad.banking.BankingApp.model.money.Money;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link Account#deposit} and {@link Account#withdraw} arithmetic on {@link Money}, without any persistence around it,
+ * next to the same movements on the {@link BigDecimal} balances accounts used to have.
+ *
+ * @author Sajad
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AccountBenchmark {
+
+    private static final Money AMOUNT = Money.of(new BigDecimal("12.34"));
+
+    private static final BigDecimal DECIMAL_AMOUNT = new BigDecimal("12.34");
+
+    private Account account;
+
+    private BigDecimal decimalBalance;
+
+    @Setup(Level.Iteration)
+    public void openAccount() {
+        account = new Account(Money.of(new BigDecimal("1000000.00")));
+        decimalBalance = new BigDecimal("1000000.00");
+    }
+
+    @Benchmark
+    public Money deposit() {
+        account.deposit(AMOUNT);
+
+        return account.getBalance();
+    }
+
+    /**
+     * Deposits back what is withdrawn, so the balance never runs out.
+     */
+    @Benchmark
+    public Money withdraw() throws BalanceNotEnoughException {
+        account.withdraw(AMOUNT);
+        account.deposit(AMOUNT);
+
+        return account.getBalance();
+    }
+
+    @Benchmark
+    public BigDecimal decimalDeposit() {
+        decimalBalance = decimalBalance.add(DECIMAL_AMOUNT);
+
+        return decimalBalance;
+    }
+
+    @Benchmark
+    public BigDecimal decimalWithdraw() throws BalanceNotEnoughException {
+        if (decimalBalance.compareTo(DECIMAL_AMOUNT) < 0)
+            throw new BalanceNotEnoughException();
+        decimalBalance = decimalBalance.subtract(DECIMAL_AMOUNT);
+        decimalBalance = decimalBalance.add(DECIMAL_AMOUNT);
+
+        return decimalBalance;
+    }
+}
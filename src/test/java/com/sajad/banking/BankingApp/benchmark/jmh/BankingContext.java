@@ -0,0 +1,92 @@
+package com.sajad.banking.BankingApp.benchmark.jmh;
+
+import com.sajad.banking.BankingApp.BankingAppApplication;
+import com.sajad.banking.BankingApp.exception.customer.CustomerExistsException;
+import com.sajad.banking.BankingApp.model.Account;
+import com.sajad.banking.BankingApp.model.Customer;
+import com.sajad.banking.BankingApp.model.money.Money;
+import com.sajad.banking.BankingApp.service.CustomerService;
+import com.sajad.banking.BankingApp.web.dto.customer.NewCustomerDto;
+import com.sajad.banking.BankingApp.web.utility.Utility;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Currency;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.sajad.banking.BankingApp.model.Customer.CustomerType.REAL;
+
+/**
+ * The application, without the web server, on its embedded H2 database. One per benchmark run, shared by all the
+ * benchmark threads.
+ *
+ * @author Sajad
+ */
+@State(Scope.Benchmark)
+public class BankingContext {
+
+    private final AtomicInteger phoneNumbers = new AtomicInteger();
+
+    private ConfigurableApplicationContext context;
+
+    CustomerService customerService;
+
+    @Setup
+    public void start() {
+        start(new String[0]);
+    }
+
+    /**
+     * Starts the application with the given properties on top of its own. They are passed as command line arguments:
+     * default properties would lose to the ones in {@code application.properties}.
+     */
+    void start(String... properties) {
+        context = new SpringApplicationBuilder(BankingAppApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties("spring.main.banner-mode=off", "logging.level.root=warn")
+                .run(Arrays.stream(properties).map(property -> "--" + property).toArray(String[]::new));
+        customerService = context.getBean(CustomerService.class);
+    }
+
+    @TearDown
+    public void stop() {
+        context.close();
+    }
+
+    <T> T getBean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    /**
+     * Creates a customer with a unique phone number and the given number of accounts.
+     */
+    Customer createCustomer(int accounts, BigDecimal balance) throws CustomerExistsException {
+        Currency[] currencies = new Currency[accounts];
+        Arrays.fill(currencies, Money.DEFAULT_CURRENCY);
+
+        return createCustomer(balance, currencies);
+    }
+
+    /**
+     * Creates a customer with a unique phone number and an account in each of the given currencies.
+     */
+    Customer createCustomer(BigDecimal balance, Currency... currencies) throws CustomerExistsException {
+        NewCustomerDto newCustomerDto = new NewCustomerDto("name", REAL, "lastName",
+                "+98" + phoneNumbers.incrementAndGet(), null, balance);
+        newCustomerDto.setCurrency(currencies[0]);
+        Customer customer = Utility.toCustomer(newCustomerDto);
+        for (int account = 1; account < currencies.length; account++)
+            customer.addAccount(new Account(Money.of(balance, currencies[account])));
+
+        customerService.createNewCustomer(customer);
+
+        return customer;
+    }
+}
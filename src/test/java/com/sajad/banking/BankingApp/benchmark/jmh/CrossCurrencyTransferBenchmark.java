@@ -0,0 +1,110 @@
+package com.sajad.banking.BankingApp.benchmark.jmh;
+
+import com.sajad.banking.BankingApp.exception.customer.CustomerExistsException;
+import com.sajad.banking.BankingApp.model.Customer;
+import com.sajad.banking.BankingApp.model.money.Money;
+import com.sajad.banking.BankingApp.service.fx.FxRates;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.Currency;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Transfer throughput between a USD account and an account in {@code currency}, so USD runs are the same-currency
+ * baseline and the other ones pay for the conversion. With {@code reloading}, a background thread reloads the
+ * exchange rates every {@value #RELOAD_PERIOD_MS} ms for the whole run, which should leave the throughput unchanged
+ * since transfers never wait for a reload.
+ *
+ * @author Sajad
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public abstract class CrossCurrencyTransferBenchmark {
+
+    private static final BigDecimal AMOUNT = BigDecimal.ONE;
+
+    private static final long RELOAD_PERIOD_MS = 10;
+
+    @State(Scope.Benchmark)
+    public static class Rates {
+
+        @Param({"USD", "EUR", "JPY"})
+        String currency;
+
+        @Param({"false", "true"})
+        boolean reloading;
+
+        private Thread reloader;
+
+        @Setup
+        public void startReloading(BankingContext bankingContext) {
+            if (!reloading)
+                return;
+
+            FxRates fxRates = bankingContext.getBean(FxRates.class);
+            reloader = Thread.ofPlatform().daemon().start(() -> {
+                try {
+                    while (true) {
+                        fxRates.reload();
+                        Thread.sleep(RELOAD_PERIOD_MS);
+                    }
+                } catch (InterruptedException e) {
+                    // Benchmark is over
+                }
+            });
+        }
+
+        @TearDown
+        public void stopReloading() throws InterruptedException {
+            if (reloader != null) {
+                reloader.interrupt();
+                reloader.join();
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadCustomer {
+
+        Integer customerId;
+
+        Integer usdAccountId;
+
+        Integer otherAccountId;
+
+        boolean forward;
+
+        @Setup
+        public void createCustomer(BankingContext bankingContext, Rates rates) throws CustomerExistsException {
+            Customer customer = bankingContext.createCustomer(new BigDecimal("1000000"), Money.DEFAULT_CURRENCY,
+                    Currency.getInstance(rates.currency));
+            customerId = customer.getId();
+            usdAccountId = customer.getAccounts().get(0).getId();
+            otherAccountId = customer.getAccounts().get(1).getId();
+        }
+    }
+
+    /**
+     * Transfers back and forth between the customer's two accounts, so the balances never run out.
+     */
+    @Benchmark
+    public void transfer(BankingContext bankingContext, ThreadCustomer customer) throws Exception {
+        customer.forward = !customer.forward;
+        if (customer.forward)
+            bankingContext.customerService.transfer(customer.customerId, customer.usdAccountId, customer.otherAccountId, AMOUNT);
+        else
+            bankingContext.customerService.transfer(customer.customerId, customer.otherAccountId, customer.usdAccountId, AMOUNT);
+    }
+
+    @Threads(1)
+    public static class OneThread extends CrossCurrencyTransferBenchmark {
+    }
+
+    @Threads(8)
+    public static class EightThreads extends CrossCurrencyTransferBenchmark {
+    }
+}
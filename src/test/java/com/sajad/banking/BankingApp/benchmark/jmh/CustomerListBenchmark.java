@@ -0,0 +1,71 @@
+package com.sajad.banking.BankingApp.benchmark.jmh;
+
+import com.sajad.banking.BankingApp.model.Customer;
+import com.sajad.banking.BankingApp.web.dto.customer.CustomerListDto;
+import com.sajad.banking.BankingApp.web.dto.customer.NewCustomerDto;
+import com.sajad.banking.BankingApp.web.utility.Utility;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static com.sajad.banking.BankingApp.model.Customer.CustomerType.REAL;
+
+/**
+ * Customer list pages, offset paging versus keyset paging, at the start, the middle and the end of the list.
+ *
+ * @author Sajad
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CustomerListBenchmark {
+
+    private static final int CUSTOMERS = 10_000;
+
+    private static final int PAGE_SIZE = 100;
+
+    private static final int CHUNK_SIZE = 500;
+
+    @Param({"0", "50", "99"})
+    private int page;
+
+    /**
+     * Id of the last customer of the previous page, the keyset paging cursor.
+     */
+    private Integer after;
+
+    @Setup
+    public void importCustomers(BankingContext bankingContext) {
+        for (int chunk = 0; chunk < CUSTOMERS / CHUNK_SIZE; chunk++) {
+            List<Customer> customers = new ArrayList<>(CHUNK_SIZE);
+            for (int customer = 0; customer < CHUNK_SIZE; customer++)
+                customers.add(Utility.toCustomer(new NewCustomerDto("name", REAL, "lastName",
+                        "+98" + (chunk * CHUNK_SIZE + customer), null, BigDecimal.TEN)));
+
+            bankingContext.customerService.importCustomers(customers);
+        }
+
+        after = page == 0 ? 0 : bankingContext.customerService.listCustomersAfter(0, page * PAGE_SIZE)
+                .get(page * PAGE_SIZE - 1).getId();
+    }
+
+    @Benchmark
+    public List<CustomerListDto> offsetPage(BankingContext bankingContext) {
+        return bankingContext.customerService.listCustomer(PageRequest.of(page, PAGE_SIZE, Sort.by("id")))
+                .stream().map(Utility::toCustomerListDto).collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<CustomerListDto> keysetPage(BankingContext bankingContext) {
+        return bankingContext.customerService.listCustomersAfter(after, PAGE_SIZE);
+    }
+}
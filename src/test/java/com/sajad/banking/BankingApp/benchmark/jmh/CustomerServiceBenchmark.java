@@ -0,0 +1,83 @@
+package com.sajad.banking.BankingApp.benchmark.jmh;
+
+import com.sajad.banking.BankingApp.exception.customer.CustomerExistsException;
+import com.sajad.banking.BankingApp.model.Customer;
+import com.sajad.banking.BankingApp.service.SimpleCustomerService;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link SimpleCustomerService} money movements against the embedded H2 database, at 1, 8 and 64 threads. Every
+ * thread works on its own customer, so the numbers show the cost of a transaction and the connection pool and
+ * database contention, not row lock waits.
+ *
+ * @author Sajad
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public abstract class CustomerServiceBenchmark {
+
+    private static final BigDecimal AMOUNT = BigDecimal.ONE;
+
+    @State(Scope.Thread)
+    public static class ThreadCustomer {
+
+        Integer customerId;
+
+        Integer firstAccountId;
+
+        Integer secondAccountId;
+
+        boolean forward;
+
+        @Setup
+        public void createCustomer(BankingContext bankingContext) throws CustomerExistsException {
+            Customer customer = bankingContext.createCustomer(2, new BigDecimal("1000000"));
+            customerId = customer.getId();
+            firstAccountId = customer.getAccounts().get(0).getId();
+            secondAccountId = customer.getAccounts().get(1).getId();
+        }
+    }
+
+    /**
+     * Transfers back and forth between the customer's two accounts, so the balances never run out.
+     */
+    @Benchmark
+    public void transfer(BankingContext bankingContext, ThreadCustomer customer) throws Exception {
+        customer.forward = !customer.forward;
+        if (customer.forward)
+            bankingContext.customerService.transfer(customer.customerId, customer.firstAccountId, customer.secondAccountId, AMOUNT);
+        else
+            bankingContext.customerService.transfer(customer.customerId, customer.secondAccountId, customer.firstAccountId, AMOUNT);
+    }
+
+    @Benchmark
+    public void deposit(BankingContext bankingContext, ThreadCustomer customer) throws Exception {
+        bankingContext.customerService.deposit(customer.customerId, customer.firstAccountId, AMOUNT);
+    }
+
+    /**
+     * Opening balances of a million cover far more withdrawals than a run makes.
+     */
+    @Benchmark
+    public void withdraw(BankingContext bankingContext, ThreadCustomer customer) throws Exception {
+        bankingContext.customerService.withdraw(customer.customerId, customer.secondAccountId, AMOUNT);
+    }
+
+    @Threads(1)
+    public static class OneThread extends CustomerServiceBenchmark {
+    }
+
+    @Threads(8)
+    public static class EightThreads extends CustomerServiceBenchmark {
+    }
+
+    @Threads(64)
+    public static class SixtyFourThreads extends CustomerServiceBenchmark {
+    }
+}
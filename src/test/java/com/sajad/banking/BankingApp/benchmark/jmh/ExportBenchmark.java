@@ -0,0 +1,60 @@
+package com.sajad.banking.BankingApp.benchmark.jmh;
+
+import com.sajad.banking.BankingApp.model.Customer;
+import com.sajad.banking.BankingApp.web.dto.customer.NewCustomerDto;
+import com.sajad.banking.BankingApp.web.exporter.CustomerExporter;
+import com.sajad.banking.BankingApp.web.exporter.ExportFormat;
+import com.sajad.banking.BankingApp.web.utility.Utility;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.sajad.banking.BankingApp.model.Customer.CustomerType.REAL;
+
+/**
+ * Full customer export, one row per account, written to a discarding stream. The score is in rows per second.
+ *
+ * @author Sajad
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx256m")
+public class ExportBenchmark {
+
+    private static final int ROWS = 100_000;
+
+    private static final int CHUNK_SIZE = 500;
+
+    @Param({"CSV", "NDJSON"})
+    private ExportFormat format;
+
+    private CustomerExporter customerExporter;
+
+    @Setup
+    public void importCustomers(BankingContext bankingContext) {
+        for (int chunk = 0; chunk < ROWS / CHUNK_SIZE; chunk++) {
+            List<Customer> customers = new ArrayList<>(CHUNK_SIZE);
+            for (int customer = 0; customer < CHUNK_SIZE; customer++)
+                customers.add(Utility.toCustomer(new NewCustomerDto("name", REAL, "lastName",
+                        "+98" + (chunk * CHUNK_SIZE + customer), null, BigDecimal.TEN)));
+
+            bankingContext.customerService.importCustomers(customers);
+        }
+
+        customerExporter = bankingContext.getBean(CustomerExporter.class);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void exportCustomers() throws IOException {
+        customerExporter.exportCustomerAccounts(format, OutputStream.nullOutputStream());
+    }
+}
@@ -0,0 +1,91 @@
+package com.sajad.banking.BankingApp.benchmark.jmh;
+
+import com.sajad.banking.BankingApp.exception.customer.CustomerExistsException;
+import com.sajad.banking.BankingApp.model.Customer;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deposits per second, and their latency distribution for the p99, with group commit at a few windows and without it,
+ * at increasing concurrency: the throughput a wider window buys, and the latency it costs.
+ * <p>
+ * With a {@code shared} account, all the threads deposit into the same account; otherwise each thread has an account
+ * of its own.
+ *
+ * @author Sajad
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public abstract class GroupCommitBenchmark {
+
+    private static final BigDecimal AMOUNT = BigDecimal.ONE;
+
+    @State(Scope.Benchmark)
+    public static class GroupCommit {
+
+        /**
+         * Group commit window, {@code off} for a transaction per deposit.
+         */
+        @Param({"off", "0ms", "1ms", "5ms"})
+        String window;
+
+        @Param({"false", "true"})
+        boolean shared;
+
+        final BankingContext bankingContext = new BankingContext();
+
+        Customer sharedCustomer;
+
+        @Setup
+        public void start() throws CustomerExistsException {
+            if ("off".equals(window))
+                bankingContext.start("banking.group-commit.enabled=false");
+            else
+                bankingContext.start("banking.group-commit.enabled=true", "banking.group-commit.window=" + window);
+            sharedCustomer = bankingContext.createCustomer(1, BigDecimal.TEN);
+        }
+
+        @TearDown
+        public void stop() {
+            bankingContext.stop();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadAccount {
+
+        Integer customerId;
+
+        Integer accountId;
+
+        @Setup
+        public void createCustomer(GroupCommit groupCommit) throws CustomerExistsException {
+            Customer customer = groupCommit.shared ? groupCommit.sharedCustomer
+                    : groupCommit.bankingContext.createCustomer(1, BigDecimal.TEN);
+            customerId = customer.getId();
+            accountId = customer.getAccounts().get(0).getId();
+        }
+    }
+
+    @Benchmark
+    public void deposit(GroupCommit groupCommit, ThreadAccount account) throws Exception {
+        groupCommit.bankingContext.customerService.deposit(account.customerId, account.accountId, AMOUNT);
+    }
+
+    @Threads(1)
+    public static class OneThread extends GroupCommitBenchmark {
+    }
+
+    @Threads(8)
+    public static class EightThreads extends GroupCommitBenchmark {
+    }
+
+    @Threads(32)
+    public static class ThirtyTwoThreads extends GroupCommitBenchmark {
+    }
+}
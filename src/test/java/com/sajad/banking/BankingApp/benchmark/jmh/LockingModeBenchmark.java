@@ -0,0 +1,77 @@
+package com.sajad.banking.BankingApp.benchmark.jmh;
+
+import com.sajad.banking.BankingApp.exception.customer.CustomerExistsException;
+import com.sajad.banking.BankingApp.model.Account;
+import com.sajad.banking.BankingApp.model.Customer;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Transfers per second in the pessimistic and the optimistic locking modes, sweeping the contention: every thread
+ * transfers between two random accounts of a shared pool, the smaller the pool the more often two transfers touch the
+ * same account at once.
+ *
+ * @author Sajad
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public abstract class LockingModeBenchmark {
+
+    private static final BigDecimal AMOUNT = BigDecimal.ONE;
+
+    @State(Scope.Benchmark)
+    public static class Accounts {
+
+        @Param({"PESSIMISTIC", "OPTIMISTIC"})
+        String mode;
+
+        /**
+         * Size of the account pool, the contention goes down as it grows.
+         */
+        @Param({"2", "16", "1024"})
+        int accounts;
+
+        final BankingContext bankingContext = new BankingContext();
+
+        Integer customerId;
+
+        Integer[] accountIds;
+
+        @Setup
+        public void start() throws CustomerExistsException {
+            bankingContext.start("banking.lock.mode=" + mode);
+            Customer customer = bankingContext.createCustomer(accounts, new BigDecimal("1000000"));
+            customerId = customer.getId();
+            accountIds = customer.getAccounts().stream().map(Account::getId).toArray(Integer[]::new);
+        }
+
+        @TearDown
+        public void stop() {
+            bankingContext.stop();
+        }
+    }
+
+    @Benchmark
+    public void transfer(Accounts accounts) throws Exception {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int from = random.nextInt(accounts.accountIds.length);
+        int to = (from + 1 + random.nextInt(accounts.accountIds.length - 1)) % accounts.accountIds.length;
+
+        accounts.bankingContext.customerService.transfer(accounts.customerId, accounts.accountIds[from],
+                accounts.accountIds[to], AMOUNT);
+    }
+
+    @Threads(1)
+    public static class OneThread extends LockingModeBenchmark {
+    }
+
+    @Threads(8)
+    public static class EightThreads extends LockingModeBenchmark {
+    }
+}
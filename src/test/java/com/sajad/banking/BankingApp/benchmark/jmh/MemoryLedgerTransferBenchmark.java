@@ -0,0 +1,103 @@
+package com.sajad.banking.BankingApp.benchmark.jmh;
+
+import com.sajad.banking.BankingApp.exception.customer.CustomerExistsException;
+import com.sajad.banking.BankingApp.model.Customer;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Transfers per second with the memory ledger on and off. With the memory ledger, a transfer only waits for its log
+ * record to be forced to disk, shared with the concurrent transfers through group commit, while the database is
+ * updated in the background.
+ *
+ * @author Sajad
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public abstract class MemoryLedgerTransferBenchmark {
+
+    private static final BigDecimal AMOUNT = BigDecimal.ONE;
+
+    @State(Scope.Benchmark)
+    public static class Ledger {
+
+        @Param({"false", "true"})
+        boolean memoryLedger;
+
+        final BankingContext bankingContext = new BankingContext();
+
+        private Path directory;
+
+        @Setup
+        public void start() throws IOException {
+            directory = Files.createTempDirectory("memory-ledger-benchmark");
+            bankingContext.start("banking.ledger.memory.enabled=" + memoryLedger,
+                    "banking.ledger.memory.directory=" + directory);
+        }
+
+        @TearDown
+        public void stop() throws IOException {
+            bankingContext.stop();
+            try (Stream<Path> files = Files.walk(directory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(file -> {
+                    try {
+                        Files.delete(file);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadCustomer {
+
+        Integer customerId;
+
+        Integer firstAccountId;
+
+        Integer secondAccountId;
+
+        boolean forward;
+
+        @Setup
+        public void createCustomer(Ledger ledger) throws CustomerExistsException {
+            Customer customer = ledger.bankingContext.createCustomer(2, new BigDecimal("1000000"));
+            customerId = customer.getId();
+            firstAccountId = customer.getAccounts().get(0).getId();
+            secondAccountId = customer.getAccounts().get(1).getId();
+        }
+    }
+
+    /**
+     * Transfers back and forth between the customer's two accounts, so the balances never run out.
+     */
+    @Benchmark
+    public void transfer(Ledger ledger, ThreadCustomer customer) throws Exception {
+        customer.forward = !customer.forward;
+        if (customer.forward)
+            ledger.bankingContext.customerService.transfer(customer.customerId, customer.firstAccountId, customer.secondAccountId, AMOUNT);
+        else
+            ledger.bankingContext.customerService.transfer(customer.customerId, customer.secondAccountId, customer.firstAccountId, AMOUNT);
+    }
+
+    @Threads(1)
+    public static class OneThread extends MemoryLedgerTransferBenchmark {
+    }
+
+    @Threads(8)
+    public static class EightThreads extends MemoryLedgerTransferBenchmark {
+    }
+}
@@ -0,0 +1,58 @@
+package com.sajad.banking.BankingApp.benchmark.jmh;
+
+import com.sajad.banking.BankingApp.exception.customer.CustomerExistsException;
+import com.sajad.banking.BankingApp.model.Customer;
+import com.sajad.banking.BankingApp.web.dto.customer.CustomerDetailDto;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Overhead of the operation and lock metrics, with the metrics on and off. The cached customer detail read is the
+ * cheapest operation, so it shows the overhead the most; a deposit shows it next to a real transaction.
+ *
+ * @author Sajad
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetricsOverheadBenchmark {
+
+    @Param({"true", "false"})
+    private boolean metrics;
+
+    private final BankingContext bankingContext = new BankingContext();
+
+    private Integer customerId;
+
+    private Integer accountId;
+
+    @Setup
+    public void start() throws CustomerExistsException {
+        bankingContext.start("banking.metrics.enabled=" + metrics, "management.metrics.enable.banking=" + metrics);
+
+        Customer customer = bankingContext.createCustomer(1, BigDecimal.TEN);
+        customerId = customer.getId();
+        accountId = customer.getAccounts().get(0).getId();
+    }
+
+    @TearDown
+    public void stop() {
+        bankingContext.stop();
+    }
+
+    @Benchmark
+    public Optional<CustomerDetailDto> findCustomer() {
+        return bankingContext.customerService.findCustomer(customerId);
+    }
+
+    @Benchmark
+    public void deposit() throws Exception {
+        bankingContext.customerService.deposit(customerId, accountId, BigDecimal.ONE);
+    }
+}
@@ -0,0 +1,106 @@
+package com.sajad.banking.BankingApp.benchmark.jmh;
+
+import com.sajad.banking.BankingApp.exception.customer.CustomerExistsException;
+import com.sajad.banking.BankingApp.model.Customer;
+import com.sajad.banking.BankingApp.service.pipeline.TransferPipeline;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Transfers per second, and their latency distribution for the p99, through the transfer pipeline and through the
+ * locking path, at increasing concurrency. Transfers cross partitions: the two accounts of a customer have
+ * consecutive ids.
+ * <p>
+ * With {@code shared} accounts, all the threads move money between the same two accounts, the worst case of the
+ * locking path; otherwise each thread has accounts of its own.
+ *
+ * @author Sajad
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public abstract class TransferPipelineBenchmark {
+
+    private static final BigDecimal AMOUNT = BigDecimal.ONE;
+
+    @State(Scope.Benchmark)
+    public static class Pipeline {
+
+        @Param({"false", "true"})
+        boolean pipeline;
+
+        @Param({"false", "true"})
+        boolean shared;
+
+        final BankingContext bankingContext = new BankingContext();
+
+        TransferPipeline transferPipeline;
+
+        Customer sharedCustomer;
+
+        @Setup
+        public void start() throws CustomerExistsException {
+            bankingContext.start("banking.pipeline.enabled=" + pipeline);
+            if (pipeline)
+                transferPipeline = bankingContext.getBean(TransferPipeline.class);
+            sharedCustomer = bankingContext.createCustomer(2, new BigDecimal("1000000"));
+        }
+
+        @TearDown
+        public void stop() {
+            bankingContext.stop();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadCustomer {
+
+        Integer customerId;
+
+        Integer firstAccountId;
+
+        Integer secondAccountId;
+
+        boolean forward;
+
+        @Setup
+        public void createCustomer(Pipeline pipeline) throws CustomerExistsException {
+            Customer customer = pipeline.shared ? pipeline.sharedCustomer
+                    : pipeline.bankingContext.createCustomer(2, new BigDecimal("1000000"));
+            customerId = customer.getId();
+            firstAccountId = customer.getAccounts().get(0).getId();
+            secondAccountId = customer.getAccounts().get(1).getId();
+        }
+    }
+
+    /**
+     * Transfers back and forth between the customer's two accounts, so the balances never run out. The pipeline's
+     * transfer is waited for, as the HTTP caller does.
+     */
+    @Benchmark
+    public void transfer(Pipeline pipeline, ThreadCustomer customer) throws Exception {
+        customer.forward = !customer.forward;
+        Integer from = customer.forward ? customer.firstAccountId : customer.secondAccountId;
+        Integer to = customer.forward ? customer.secondAccountId : customer.firstAccountId;
+        if (pipeline.pipeline)
+            pipeline.transferPipeline.transfer(customer.customerId, from, to, AMOUNT).join();
+        else
+            pipeline.bankingContext.customerService.transfer(customer.customerId, from, to, AMOUNT);
+    }
+
+    @Threads(1)
+    public static class OneThread extends TransferPipelineBenchmark {
+    }
+
+    @Threads(8)
+    public static class EightThreads extends TransferPipelineBenchmark {
+    }
+
+    @Threads(32)
+    public static class ThirtyTwoThreads extends TransferPipelineBenchmark {
+    }
+}
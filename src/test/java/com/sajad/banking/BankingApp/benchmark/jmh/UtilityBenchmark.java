@@ -0,0 +1,89 @@
+package com.sajad.banking.BankingApp.benchmark.jmh;
+
+import com.sajad.banking.BankingApp.model.Account;
+import com.sajad.banking.BankingApp.model.Customer;
+import com.sajad.banking.BankingApp.model.LedgerEntry;
+import com.sajad.banking.BankingApp.model.LedgerEntry.EntryType;
+import com.sajad.banking.BankingApp.model.money.Money;
+import com.sajad.banking.BankingApp.service.transfer.Transfer;
+import com.sajad.banking.BankingApp.web.dto.account.TransactionDto;
+import com.sajad.banking.BankingApp.web.dto.account.TransferDto;
+import com.sajad.banking.BankingApp.web.dto.customer.CustomerDetailDto;
+import com.sajad.banking.BankingApp.web.dto.customer.CustomerListDto;
+import com.sajad.banking.BankingApp.web.dto.customer.NewCustomerDto;
+import com.sajad.banking.BankingApp.web.utility.Utility;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+import static com.sajad.banking.BankingApp.model.Customer.CustomerType.REAL;
+
+/**
+ * The {@link Utility} mappers between entities and DTOs.
+ *
+ * @author Sajad
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UtilityBenchmark {
+
+    /**
+     * Number of accounts of the mapped customer.
+     */
+    @Param({"1", "10"})
+    private int accounts;
+
+    private NewCustomerDto newCustomerDto;
+
+    private Customer customer;
+
+    private TransferDto transferDto;
+
+    private LedgerEntry ledgerEntry;
+
+    @Setup
+    public void setUp() {
+        newCustomerDto = new NewCustomerDto("name", REAL, "lastName", "+989120000000", null, BigDecimal.TEN);
+
+        customer = Utility.toCustomer(newCustomerDto);
+        for (int account = 1; account < accounts; account++)
+            customer.addAccount(new Account(Money.ofMinor(1000)));
+
+        transferDto = new TransferDto();
+        transferDto.setFromAccountId(1);
+        transferDto.setToAccountId(2);
+        transferDto.setAmount(BigDecimal.ONE);
+
+        ledgerEntry = new LedgerEntry(1, 1, EntryType.TRANSFER_OUT, Money.ofMinor(-100), Money.ofMinor(1000), 2);
+    }
+
+    @Benchmark
+    public Customer toCustomer() {
+        return Utility.toCustomer(newCustomerDto);
+    }
+
+    @Benchmark
+    public CustomerDetailDto toCustomerDetailDto() {
+        return Utility.toCustomerDetailDto(customer);
+    }
+
+    @Benchmark
+    public CustomerListDto toCustomerListDto() {
+        return Utility.toCustomerListDto(customer);
+    }
+
+    @Benchmark
+    public Transfer toTransfer() {
+        return Utility.toTransfer(transferDto);
+    }
+
+    @Benchmark
+    public TransactionDto toTransactionDto() {
+        return Utility.toTransactionDto(ledgerEntry);
+    }
+}
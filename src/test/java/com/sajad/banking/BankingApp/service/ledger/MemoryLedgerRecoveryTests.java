@@ -0,0 +1,246 @@
+package com.sajad.banking.BankingApp.service.ledger;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.sajad.banking.BankingApp.TestBase;
+import com.sajad.banking.BankingApp.model.LedgerEntry.EntryType;
+import com.sajad.banking.BankingApp.repository.account.AccountRepository;
+import com.sajad.banking.BankingApp.repository.customer.CustomerRepository;
+import com.sajad.banking.BankingApp.repository.ledger.LedgerCheckpointRepository;
+import com.sajad.banking.BankingApp.repository.ledger.LedgerEntryRepository;
+import com.sajad.banking.BankingApp.service.cache.CustomerReadCache;
+import com.sajad.banking.BankingApp.service.fx.FxRates;
+import com.sajad.banking.BankingApp.service.metrics.BankingMetrics;
+import com.sajad.banking.BankingApp.service.outbox.AccountEventOutbox;
+import com.sajad.banking.BankingApp.web.dto.account.AccountDto;
+import com.sajad.banking.BankingApp.web.dto.account.TransactionDto;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Currency;
+import java.util.List;
+
+import static com.sajad.banking.BankingApp.model.LedgerEntry.EntryType.*;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Crash recovery tests of the memory ledger: its log, its snapshots, and its sync into the database across restarts.
+ * <p>
+ * The database-backed tests run the application in its default mode and drive memory ledgers of their own over the
+ * same database, so they can be stopped and started again in the middle of a test.
+ *
+ * @author Sajad
+ */
+public class MemoryLedgerRecoveryTests extends TestBase {
+
+    private static final Currency USD = Currency.getInstance("USD");
+
+    @TempDir
+    private Path directory;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private LedgerEntryRepository ledgerEntryRepository;
+
+    @Autowired
+    private LedgerCheckpointRepository ledgerCheckpointRepository;
+
+    @Autowired
+    private AccountEventOutbox accountEventOutbox;
+
+    @Autowired
+    private CustomerReadCache customerReadCache;
+
+    @Autowired
+    private FxRates fxRates;
+
+    @Autowired
+    private BankingMetrics bankingMetrics;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    public void writeAheadLog_TornRecord_ShouldRecoverUpToTheLastCompleteOne() throws IOException {
+        try (WriteAheadLog log = new WriteAheadLog(directory, 4096)) {
+            for (long value = 1; value <= 3; value++)
+                log.append(ByteBuffer.allocate(Long.BYTES).putLong(value).array());
+            log.awaitDurable(3);
+        }
+
+        // Corrupts the payload of the third record: two headers and payloads, then its own header
+        try (FileChannel channel = FileChannel.open(onlySegment(), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{(byte) 0xFF}), 2 * (16 + Long.BYTES) + 16);
+        }
+
+        try (WriteAheadLog log = new WriteAheadLog(directory, 4096)) {
+            assertThat(log.lastLsn()).isEqualTo(2);
+            assertThat(replay(log, 0)).containsExactly(1L, 2L);
+
+            // The torn record is overwritten, not followed
+            assertThat(log.append(ByteBuffer.allocate(Long.BYTES).putLong(4).array())).isEqualTo(3);
+            log.awaitDurable(3);
+        }
+
+        try (WriteAheadLog log = new WriteAheadLog(directory, 4096)) {
+            assertThat(replay(log, 0)).containsExactly(1L, 2L, 4L);
+            assertThat(replay(log, 2)).containsExactly(4L);
+        }
+    }
+
+    @Test
+    public void writeAheadLog_ManySegments_ShouldReplayAcrossThemAndTruncate() throws IOException {
+        try (WriteAheadLog log = new WriteAheadLog(directory, 256)) {
+            for (long value = 1; value <= 40; value++)
+                log.append(ByteBuffer.allocate(Long.BYTES).putLong(value).array());
+            log.awaitDurable(40);
+
+            log.truncate(30);
+            assertThat(replay(log, 30)).hasSize(10).startsWith(31L).endsWith(40L);
+        }
+
+        try (WriteAheadLog log = new WriteAheadLog(directory, 256)) {
+            assertThat(log.lastLsn()).isEqualTo(40);
+            assertThat(replay(log, 35)).containsExactly(36L, 37L, 38L, 39L, 40L);
+        }
+    }
+
+    @Test
+    public void snapshot_ShouldBeCompletedByTheLogAfterIt() throws IOException {
+        BalanceTable table = new BalanceTable(4);
+        long snapshotLsn;
+        try (WriteAheadLog log = new WriteAheadLog(directory, 4096)) {
+            append(log, table, movement(1, DEPOSIT, 100, 100, 1), movement(2, DEPOSIT, 50, 50, 1));
+            snapshotLsn = append(log, table, movement(1, WITHDRAW, -30, 70, 2));
+            LedgerSnapshot.write(directory, snapshotLsn, table, log);
+
+            append(log, table, movement(2, DEPOSIT, 5, 55, 2));
+            append(log, table, LedgerRecord.eviction(List.of(1)));
+            log.awaitDurable(log.lastLsn());
+        }
+
+        BalanceTable recovered = new BalanceTable(4);
+        assertThat(LedgerSnapshot.load(directory, recovered).lsn()).isEqualTo(snapshotLsn);
+        assertThat(recovered.balance(1)).isEqualTo(70);
+        assertThat(recovered.balance(2)).isEqualTo(50);
+
+        try (WriteAheadLog log = new WriteAheadLog(directory, 4096)) {
+            log.replay(snapshotLsn, (lsn, payload) -> LedgerRecord.decode(payload).applyTo(recovered));
+        }
+        assertThat(recovered.contains(1)).isFalse();
+        assertThat(recovered.balance(2)).isEqualTo(55);
+        assertThat(recovered.sequence(2)).isEqualTo(2);
+
+        // A record the snapshot already holds changes nothing when replayed again
+        movement(2, DEPOSIT, 5, 55, 2).applyTo(recovered);
+        assertThat(recovered.balance(2)).isEqualTo(55);
+    }
+
+    @Test
+    public void crash_ShouldRecoverAcknowledgedMovementsAndSyncThemOnce() throws Exception {
+        this.restTemplate.postForEntity(getBaseUrl() + "/api/customers", getDummyNewCustomerRequest(100), String.class);
+        this.restTemplate.postForEntity(getBaseUrl() + "/api/customers/1/accounts", getDummyNewAccountRequest(10), String.class);
+
+        // Crashes before anything reaches the database
+        MemoryLedger ledger = newLedger();
+        ledger.recover();
+        ledger.transfer(1, 1, 2, BigDecimal.valueOf(30));
+        ledger.deposit(1, 1, BigDecimal.valueOf(5));
+        ledger.halt();
+        assertThat(balances()).containsExactly(BigDecimal.valueOf(100), BigDecimal.valueOf(10));
+
+        // Replays the log, syncs it, then crashes before writing a snapshot
+        ledger = newLedger();
+        ledger.afterPropertiesSet();
+        assertThat(ledger.replayedRecords()).isEqualTo(2);
+        assertThat(ledger.findBalance(1).orElseThrow().toBigDecimal()).isEqualByComparingTo("75");
+        ledger.awaitSynced(ledger.lastLsn());
+        ledger.halt();
+        assertThat(balances()).containsExactly(BigDecimal.valueOf(75), BigDecimal.valueOf(40));
+
+        // Replays the same records again, but the database already has them
+        ledger = newLedger();
+        ledger.afterPropertiesSet();
+        assertThat(ledger.replayedRecords()).isEqualTo(2);
+        ledger.withdraw(1, 2, BigDecimal.valueOf(15));
+        ledger.awaitSynced(ledger.lastLsn());
+        ledger.destroy();
+        assertThat(balances()).containsExactly(BigDecimal.valueOf(75), BigDecimal.valueOf(25));
+        assertThat(transactionTypes(1)).containsExactly(DEPOSIT, TRANSFER_OUT, OPENING);
+        assertThat(transactionTypes(2)).containsExactly(WITHDRAW, TRANSFER_IN, OPENING);
+
+        // A clean shutdown leaves a snapshot, nothing is replayed after it
+        ledger = newLedger();
+        ledger.afterPropertiesSet();
+        assertThat(ledger.replayedRecords()).isZero();
+        assertThat(ledger.findBalance(2).orElseThrow().toBigDecimal()).isEqualByComparingTo("25");
+        ledger.destroy();
+    }
+
+    private MemoryLedger newLedger() {
+        return new MemoryLedger(accountRepository, customerRepository, ledgerEntryRepository, ledgerCheckpointRepository,
+                accountEventOutbox, customerReadCache, fxRates, bankingMetrics, transactionTemplate, meterRegistry,
+                directory, 1 << 16, 8, 100, Duration.ofSeconds(10));
+    }
+
+    private List<BigDecimal> balances() throws JsonProcessingException {
+        AccountDto[] accounts = objectMapper.readValue(
+                this.restTemplate.getForObject(getBaseUrl() + "/api/customers/1/accounts", String.class), AccountDto[].class);
+
+        return List.of(accounts).stream().map(AccountDto::getBalance).toList();
+    }
+
+    private List<EntryType> transactionTypes(int accountId) throws JsonProcessingException {
+        TransactionDto[] transactions = objectMapper.readValue(this.restTemplate.getForObject(
+                getBaseUrl() + "/api/customers/1/accounts/" + accountId + "/transactions", String.class), TransactionDto[].class);
+
+        return List.of(transactions).stream().map(TransactionDto::getType).toList();
+    }
+
+    private Path onlySegment() throws IOException {
+        try (var files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().startsWith("wal-")).findFirst().orElseThrow();
+        }
+    }
+
+    private static List<Long> replay(WriteAheadLog log, long afterLsn) throws IOException {
+        List<Long> values = new ArrayList<>();
+        log.replay(afterLsn, (lsn, payload) -> values.add(payload.getLong()));
+
+        return values;
+    }
+
+    private static long append(WriteAheadLog log, BalanceTable table, LedgerRecord... records) throws IOException {
+        long lsn = 0;
+        for (LedgerRecord record : records) {
+            lsn = log.append(record.encode());
+            record.applyTo(table);
+        }
+
+        return lsn;
+    }
+
+    private static LedgerRecord movement(int accountId, EntryType type, long amount, long balance, long sequence) {
+        return LedgerRecord.movement(List.of(new LedgerRecord.Entry(accountId, 1, type, USD, amount, balance, sequence,
+                null, null)));
+    }
+}
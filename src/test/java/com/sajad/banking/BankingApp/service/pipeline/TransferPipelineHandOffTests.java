@@ -0,0 +1,176 @@
+package com.sajad.banking.BankingApp.service.pipeline;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.sajad.banking.BankingApp.TestBase;
+import com.sajad.banking.BankingApp.model.LedgerEntry.EntryType;
+import com.sajad.banking.BankingApp.model.PendingCredit;
+import com.sajad.banking.BankingApp.repository.account.AccountRepository;
+import com.sajad.banking.BankingApp.repository.pipeline.PendingCreditRepository;
+import com.sajad.banking.BankingApp.service.SimpleCustomerService;
+import com.sajad.banking.BankingApp.web.dto.account.AccountDto;
+import com.sajad.banking.BankingApp.web.dto.account.TransactionDto;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static com.sajad.banking.BankingApp.model.LedgerEntry.EntryType.*;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests of the two-phase hand-off of the transfers crossing partitions, and of the ring buffer feeding the writers.
+ * <p>
+ * The database-backed tests run the application in its default mode and drive transfer pipelines of their own, so a
+ * debit can be left without its credit, as by a stop between the two phases.
+ *
+ * @author Sajad
+ */
+public class TransferPipelineHandOffTests extends TestBase {
+
+    private static final int PRODUCERS = 4;
+
+    private static final int ITEMS_PER_PRODUCER = 10_000;
+
+    /**
+     * Longer than the database's lock timeout.
+     */
+    private static final long LOCK_HOLD_MILLIS = 3_500;
+
+    @Autowired
+    private SimpleCustomerService customerService;
+
+    @Autowired
+    private PendingCreditRepository pendingCreditRepository;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    public void ringBuffer_ManyProducers_ShouldKeepEachProducersOrder() throws InterruptedException {
+        CommandRingBuffer<long[]> ringBuffer = new CommandRingBuffer<>(100);
+        assertThat(ringBuffer.capacity()).isEqualTo(128);
+
+        List<Thread> producers = new ArrayList<>();
+        for (int producer = 0; producer < PRODUCERS; producer++) {
+            long id = producer;
+            producers.add(Thread.ofPlatform().start(() -> {
+                for (long i = 0; i < ITEMS_PER_PRODUCER; i++) {
+                    while (!ringBuffer.offer(new long[]{id, i}))
+                        Thread.onSpinWait();
+                }
+            }));
+        }
+
+        long[] next = new long[PRODUCERS];
+        List<long[]> items = new ArrayList<>();
+        for (int consumed = 0; consumed < PRODUCERS * ITEMS_PER_PRODUCER; ) {
+            items.clear();
+            consumed += ringBuffer.drainTo(items, 64);
+            for (long[] item : items)
+                assertThat(item[1]).isEqualTo(next[(int) item[0]]++);
+        }
+        for (Thread producer : producers)
+            producer.join();
+
+        assertThat(next).containsOnly(ITEMS_PER_PRODUCER);
+        assertThat(ringBuffer.isEmpty()).isTrue();
+    }
+
+    @Test
+    public void pendingCredit_LeftByAStop_ShouldBeAppliedOnStartup() throws Exception {
+        this.restTemplate.postForEntity(getBaseUrl() + "/api/customers", getDummyNewCustomerRequest(100), String.class);
+        this.restTemplate.postForEntity(getBaseUrl() + "/api/customers/1/accounts", getDummyNewAccountRequest(10), String.class);
+
+        // The first phase alone: the money left account 1 but did not reach account 2 yet
+        customerService.debitTransfer(1, 1, 2, BigDecimal.valueOf(30));
+        assertThat(balances()).containsExactly(BigDecimal.valueOf(70), BigDecimal.valueOf(10));
+        assertThat(pendingCreditRepository.count()).isOne();
+
+        start().destroy();
+
+        assertThat(balances()).containsExactly(BigDecimal.valueOf(70), BigDecimal.valueOf(40));
+        assertThat(transactionTypes(2)).containsExactly(TRANSFER_IN, OPENING);
+        assertThat(pendingCreditRepository.count()).isZero();
+    }
+
+    @Test
+    public void pendingCredit_DestinationDeleted_ShouldGoBackToTheOriginalAccount() throws Exception {
+        this.restTemplate.postForEntity(getBaseUrl() + "/api/customers", getDummyNewCustomerRequest(100), String.class);
+        this.restTemplate.postForEntity(getBaseUrl() + "/api/customers/1/accounts", getDummyNewAccountRequest(10), String.class);
+        this.restTemplate.put(getBaseUrl() + "/api/customers/1/transfer", getDummyTransferRequest(2, 1, 10), String.class);
+
+        TransferPipeline pipeline = start();
+        PendingCredit credit = customerService.debitTransfer(1, 1, 2, BigDecimal.valueOf(30));
+        this.restTemplate.delete(getBaseUrl() + "/api/customers/1/accounts/2");
+
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        pipeline.handOff(new MovementCommand.Credit(credit.getId(), result), credit.getToAccountId());
+        pipeline.destroy();
+
+        assertThat(result).isCompletedExceptionally();
+        assertThat(balances()).containsExactly(BigDecimal.valueOf(110));
+        assertThat(transactionTypes(1)).containsExactly(TRANSFER_IN, TRANSFER_OUT, TRANSFER_IN, OPENING);
+        assertThat(pendingCreditRepository.count()).isZero();
+    }
+
+    @Test
+    public void command_LockTimeout_ShouldBeRetried() throws Exception {
+        this.restTemplate.postForEntity(getBaseUrl() + "/api/customers", getDummyNewCustomerRequest(100), String.class);
+        TransferPipeline pipeline = start();
+
+        // The account's row lock outlasts the first attempt of the deposit, applied alone in its batch
+        List<CompletableFuture<Void>> results = new ArrayList<>();
+        transactionTemplate.executeWithoutResult(status -> {
+            accountRepository.findOwnedForUpdate(1, 1);
+            results.add(pipeline.deposit(1, 1, BigDecimal.TEN));
+            try {
+                Thread.sleep(LOCK_HOLD_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        results.get(0).get(30, TimeUnit.SECONDS);
+        pipeline.destroy();
+        assertThat(balances()).containsExactly(BigDecimal.valueOf(110));
+    }
+
+    private TransferPipeline start() {
+        TransferPipeline pipeline = new TransferPipeline(customerService, pendingCreditRepository, transactionTemplate,
+                entityManager, meterRegistry, 4, 16, 8, Duration.ofSeconds(30), false);
+        pipeline.afterPropertiesSet();
+
+        return pipeline;
+    }
+
+    private List<BigDecimal> balances() throws JsonProcessingException {
+        AccountDto[] accounts = objectMapper.readValue(
+                this.restTemplate.getForObject(getBaseUrl() + "/api/customers/1/accounts", String.class), AccountDto[].class);
+
+        return List.of(accounts).stream().map(AccountDto::getBalance).toList();
+    }
+
+    private List<EntryType> transactionTypes(int accountId) throws JsonProcessingException {
+        TransactionDto[] transactions = objectMapper.readValue(this.restTemplate.getForObject(
+                getBaseUrl() + "/api/customers/1/accounts/" + accountId + "/transactions", String.class), TransactionDto[].class);
+
+        return List.of(transactions).stream().map(TransactionDto::getType).toList();
+    }
+}
@@ -0,0 +1,197 @@
+package com.sajad.banking.reactive;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sajad.banking.BankingApp.web.dto.account.AccountDto;
+import com.sajad.banking.BankingApp.web.dto.account.DepositDto;
+import com.sajad.banking.BankingApp.web.dto.account.TransactionDto;
+import com.sajad.banking.BankingApp.web.dto.account.TransferDto;
+import com.sajad.banking.BankingApp.web.dto.customer.CustomerDetailDto;
+import com.sajad.banking.BankingApp.web.dto.customer.CustomerListDto;
+import com.sajad.banking.BankingApp.web.dto.customer.ImportResultDto;
+import com.sajad.banking.BankingApp.web.dto.customer.NewCustomerDto;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.*;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static com.sajad.banking.BankingApp.model.Customer.CustomerType.REAL;
+import static com.sajad.banking.BankingApp.model.LedgerEntry.EntryType.*;
+import static com.sajad.banking.BankingApp.service.onboarding.ImportOutcome.*;
+import static com.sajad.banking.BankingApp.web.controller.CustomerController.NEXT_CURSOR_HEADER;
+import static com.sajad.banking.BankingApp.web.idempotency.IdempotencyFilter.IDEMPOTENCY_KEY_HEADER;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * The routes of the reactive application: changes made through the blocking service layer, read back through R2DBC.
+ * Each test gets its own application, on a database of its own.
+ */
+public class ReactiveCustomerIntegrationTests {
+
+    private final RestTemplate restTemplate = new RestTemplate();
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    private ConfigurableApplicationContext application;
+
+    private String baseUrl;
+
+    @BeforeEach
+    public void startApplication() {
+        String database = "reactive_" + UUID.randomUUID().toString().replace("-", "");
+        application = ReactiveBankingApplication.application().run("--server.port=0",
+                "--spring.datasource.url=jdbc:h2:mem:" + database + ";MODE=Oracle",
+                "--spring.r2dbc.url=r2dbc:h2:mem:///" + database + "?options=MODE=Oracle");
+        baseUrl = "http://localhost:" + ((WebServerApplicationContext) application).getWebServer().getPort();
+    }
+
+    @AfterEach
+    public void stopApplication() {
+        application.close();
+    }
+
+    @Test
+    public void createCustomer_ShouldBeReadBack() throws JsonProcessingException {
+        createCustomer("+98123", 100);
+        createCustomer("+98456", 200);
+
+        CustomerDetailDto[] customers = objectMapper.readValue(
+                restTemplate.getForObject(baseUrl + "/api/customers/1", String.class), CustomerDetailDto[].class);
+        assertThat(customers).hasSize(1);
+        assertThat(customers[0].getLastName()).isEqualTo("lastName");
+        assertThat(customers[0].getAccountsDetail()).singleElement()
+                .satisfies(account -> assertThat(account.getBalance()).isEqualByComparingTo("100"));
+
+        ResponseEntity<String> page = restTemplate.getForEntity(baseUrl + "/api/customers?after=0&size=1", String.class);
+        assertThat(objectMapper.readValue(page.getBody(), CustomerListDto[].class))
+                .extracting(CustomerListDto::getId).containsExactly(1);
+        assertThat(page.getHeaders().getFirst(NEXT_CURSOR_HEADER)).isEqualTo("1");
+
+        CustomerListDto[] offsetPage = objectMapper.readValue(
+                restTemplate.getForObject(baseUrl + "/api/customers?page=1&size=1", String.class), CustomerListDto[].class);
+        assertThat(offsetPage).extracting(CustomerListDto::getId).containsExactly(2);
+    }
+
+    @Test
+    public void findCustomer_CustomerNotExist_ShouldReturnEmpty() {
+        assertThat(restTemplate.getForObject(baseUrl + "/api/customers/1", String.class)).isEqualTo("[]");
+
+        HttpClientErrorException.NotFound response = assertThrows(HttpClientErrorException.NotFound.class, () ->
+                restTemplate.getForEntity(baseUrl + "/api/customers/1/accounts", String.class));
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+    }
+
+    @Test
+    public void moneyMovements_ShouldKeepBalancesAndLedger() throws JsonProcessingException {
+        createCustomer("+98123", 100);
+        restTemplate.postForEntity(baseUrl + "/api/customers/1/accounts", json("{\"balance\": 1}"), String.class);
+
+        restTemplate.put(baseUrl + "/api/customers/1/deposit", deposit(1, 50));
+        restTemplate.put(baseUrl + "/api/customers/1/transfer", transfer(1, 2, 30));
+
+        HttpClientErrorException.BadRequest overdraw = assertThrows(HttpClientErrorException.BadRequest.class, () ->
+                restTemplate.put(baseUrl + "/api/customers/1/withdraw", deposit(2, 32)));
+        assertThat(overdraw.getResponseBodyAsString()).isEqualTo("Balance is not enough for this transaction!");
+
+        AccountDto[] accounts = objectMapper.readValue(
+                restTemplate.getForObject(baseUrl + "/api/customers/1/accounts", String.class), AccountDto[].class);
+        assertThat(accounts).extracting(account -> account.getBalance().intValueExact()).containsExactly(120, 31);
+
+        ResponseEntity<String> transactions = restTemplate.getForEntity(
+                baseUrl + "/api/customers/1/accounts/1/transactions?size=2", String.class);
+        assertThat(objectMapper.readValue(transactions.getBody(), TransactionDto[].class))
+                .extracting(TransactionDto::getType).containsExactly(TRANSFER_OUT, DEPOSIT);
+        assertThat(transactions.getHeaders().getFirst(NEXT_CURSOR_HEADER)).isEqualTo("2");
+    }
+
+    @Test
+    public void deposit_SameIdempotencyKey_ShouldApplyOnce() throws JsonProcessingException {
+        createCustomer("+98123", 100);
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(IDEMPOTENCY_KEY_HEADER, "deposit-1");
+        HttpEntity<DepositDto> request = new HttpEntity<>(deposit(1, 50).getBody(), headers);
+
+        ResponseEntity<String> first = restTemplate.exchange(baseUrl + "/api/customers/1/deposit", HttpMethod.PUT, request, String.class);
+        ResponseEntity<String> retry = restTemplate.exchange(baseUrl + "/api/customers/1/deposit", HttpMethod.PUT, request, String.class);
+        assertThat(retry.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(retry.getBody()).isEqualTo(first.getBody());
+
+        HttpEntity<DepositDto> otherRequest = new HttpEntity<>(deposit(1, 60).getBody(), headers);
+        HttpClientErrorException.UnprocessableEntity reused = assertThrows(HttpClientErrorException.UnprocessableEntity.class, () ->
+                restTemplate.exchange(baseUrl + "/api/customers/1/deposit", HttpMethod.PUT, otherRequest, String.class));
+        assertThat(reused.getStatusCode()).isEqualTo(HttpStatus.UNPROCESSABLE_ENTITY);
+
+        AccountDto[] accounts = objectMapper.readValue(
+                restTemplate.getForObject(baseUrl + "/api/customers/1/accounts", String.class), AccountDto[].class);
+        assertThat(accounts[0].getBalance()).isEqualByComparingTo("150");
+    }
+
+    @Test
+    public void importCustomers_NdjsonBody_ShouldStreamOneResultPerRecord() throws JsonProcessingException {
+        createCustomer("+98123", 100);
+
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < 200; i++)
+            body.append(objectMapper.writeValueAsString(new NewCustomerDto("imported", REAL, "lastName", "+97" + i, null, BigDecimal.TEN))).append('\n');
+        body.append(objectMapper.writeValueAsString(new NewCustomerDto("again", REAL, "lastName", "+98123", null, BigDecimal.TEN))).append('\n');
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_NDJSON);
+        ResponseEntity<String> importResult = restTemplate.postForEntity(baseUrl + "/api/customers/import",
+                new HttpEntity<>(body.toString(), headers), String.class);
+        assertThat(importResult.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(importResult.getHeaders().getContentType()).isEqualTo(MediaType.APPLICATION_NDJSON);
+
+        List<ImportResultDto> results = new ArrayList<>();
+        for (String line : importResult.getBody().split("\n"))
+            results.add(objectMapper.readValue(line, ImportResultDto.class));
+        assertThat(results).hasSize(201);
+        assertThat(results.subList(0, 200)).extracting(ImportResultDto::getOutcome).containsOnly(CREATED);
+        assertThat(results.get(200).getOutcome()).isEqualTo(DUPLICATE);
+
+        CustomerListDto[] customers = objectMapper.readValue(
+                restTemplate.getForObject(baseUrl + "/api/customers?after=0&size=100", String.class), CustomerListDto[].class);
+        assertThat(customers).hasSize(100);
+    }
+
+    private void createCustomer(String phoneNumber, int initialBalance) {
+        NewCustomerDto newCustomerDto = new NewCustomerDto("test", REAL, "lastName", phoneNumber, null, BigDecimal.valueOf(initialBalance));
+        ResponseEntity<String> result = restTemplate.postForEntity(baseUrl + "/api/customers", newCustomerDto, String.class);
+        assertThat(result.getStatusCode()).isEqualTo(HttpStatus.OK);
+    }
+
+    private static HttpEntity<DepositDto> deposit(int accountId, int amount) {
+        DepositDto depositDto = new DepositDto();
+        depositDto.setAccountId(accountId);
+        depositDto.setAmount(BigDecimal.valueOf(amount));
+
+        return new HttpEntity<>(depositDto);
+    }
+
+    private static HttpEntity<TransferDto> transfer(int from, int to, int amount) {
+        TransferDto transferDto = new TransferDto();
+        transferDto.setFromAccountId(from);
+        transferDto.setToAccountId(to);
+        transferDto.setAmount(BigDecimal.valueOf(amount));
+
+        return new HttpEntity<>(transferDto);
+    }
+
+    private static HttpEntity<String> json(String body) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+
+        return new HttpEntity<>(body, headers);
+    }
+}